@@ -26,12 +26,14 @@ import androidx.preference.PreferenceManager;
 import java.io.File;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import free.rm.skytube.R;
 import free.rm.skytube.app.enums.Policy;
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.VideoStream.VideoQuality;
 import free.rm.skytube.businessobjects.YouTube.VideoStream.VideoResolution;
+import free.rm.skytube.businessobjects.db.VideoRetentionPolicy;
 
 /**
  * Type safe wrapper to access the various preferences.
@@ -40,6 +42,10 @@ public class Settings {
     private final SkyTubeApp app;
     private static final String TUTORIAL_COMPLETED = "YouTubePlayerActivity.TutorialCompleted";
     private static final String LATEST_RELEASE_NOTES_DISPLAYED = "Settings.LATEST_RELEASE_NOTES_DISPLAYED";
+    private static final int DEFAULT_FEED_RETENTION_DAYS = 30;
+    /** No limit on the number of feed videos, unless the user sets one. */
+    private static final int DEFAULT_FEED_MAX_VIDEOS_PER_CHANNEL = 0;
+    private static final int DEFAULT_FEED_MAX_VIDEOS = 0;
 
     Settings(SkyTubeApp app) {
         this.app = app;
@@ -198,6 +204,24 @@ public class Settings {
         setPreference(SkyTubeApp.KEY_SUBSCRIPTIONS_LAST_UPDATED, dateTimeInMs != null ? dateTimeInMs : -1);
     }
 
+    /**
+     * @return The limits on the videos of the subscribed channels, which are kept in the database.
+     */
+    public VideoRetentionPolicy getVideoRetentionPolicy() {
+        return new VideoRetentionPolicy(
+                TimeUnit.DAYS.toMillis(getPreference(R.string.pref_key_feed_retention_days, DEFAULT_FEED_RETENTION_DAYS)),
+                getPreference(R.string.pref_key_feed_max_videos_per_channel, DEFAULT_FEED_MAX_VIDEOS_PER_CHANNEL),
+                getPreference(R.string.pref_key_feed_max_videos, DEFAULT_FEED_MAX_VIDEOS));
+    }
+
+    /**
+     * @return True if the next page of a grid (or of the comments) should be fetched ahead, as soon
+     *          as a page is displayed.
+     */
+    public boolean isPagingReadAheadEnabled() {
+        return getPreference(R.string.pref_key_paging_read_ahead, false);
+    }
+
     public void setDownloadFolder(String dir) {
         setPreference(R.string.pref_key_video_download_folder, dir);
     }
@@ -241,6 +265,21 @@ public class Settings {
         return getSharedPreferences().getString(SkyTubeApp.getStr(resId), defaultValue);
     }
 
+    /**
+     * Read a number stored as a string (e.g. by a ListPreference).
+     */
+    private int getPreference(@StringRes int resId, int defaultValue) {
+        final String value = getPreference(resId, (String) null);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                Logger.w(this, "Invalid number for %s: %s", getStr(resId), value);
+            }
+        }
+        return defaultValue;
+    }
+
     private boolean getPreference(@StringRes int resId, boolean defaultValue) {
         return getSharedPreferences().getBoolean(SkyTubeApp.getStr(resId), defaultValue);
     }
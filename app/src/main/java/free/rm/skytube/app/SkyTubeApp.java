@@ -60,6 +60,7 @@ import free.rm.skytube.R;
 import free.rm.skytube.businessobjects.FeedUpdaterReceiver;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubePlaylist;
+import free.rm.skytube.businessobjects.YouTube.VideoBlocker;
 import free.rm.skytube.businessobjects.YouTube.YouTubeTasks;
 import free.rm.skytube.businessobjects.YouTube.newpipe.ContentId;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
@@ -69,9 +70,11 @@ import free.rm.skytube.gui.businessobjects.YouTubePlayer;
 import free.rm.skytube.gui.fragments.ChannelBrowserFragment;
 import free.rm.skytube.gui.fragments.FragmentNames;
 import free.rm.skytube.gui.fragments.PlaylistVideosFragment;
+import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.exceptions.UndeliverableException;
 import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 
 /**
  * SkyTube application.
@@ -98,6 +101,10 @@ public class SkyTubeApp extends MultiDexApplication {
 		skyTubeApp = this;
 		setupRxJava();
 		initChannels(this);
+		COMPOSITE_DISPOSABLE.add(Completable.fromAction(VideoBlocker::warmUp)
+				.subscribeOn(Schedulers.io())
+				.subscribe(() -> {
+				}, error -> Log.e("SkyTubeApp", "Unable to warm up the video blocker: " + error.getMessage(), error)));
 	}
 
 	private void setupRxJava() {
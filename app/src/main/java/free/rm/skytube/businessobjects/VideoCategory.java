@@ -34,6 +34,7 @@ import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeAPIKey;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeTrendingItems;
 import free.rm.skytube.businessobjects.db.Tasks.GetSubscriptionsVideosFromDb;
+import free.rm.skytube.businessobjects.db.Tasks.SearchSubscriptionsVideosFromDb;
 
 /**
  * Represents a video category/group.
@@ -49,6 +50,8 @@ public enum VideoCategory {
 	CHANNEL_VIDEOS ,
 	/** Videos pertaining to the user's subscriptions feed */
 	SUBSCRIPTIONS_FEED_VIDEOS ,
+	/** Videos of the user's subscriptions feed, related to a search query */
+	SUBSCRIPTIONS_FEED_SEARCH ,
 	/** Videos bookmarked by the user */
 	BOOKMARKS_VIDEOS ( false),
 	/** Videos belonging to a playlist */
@@ -85,6 +88,7 @@ public enum VideoCategory {
 			case SEARCH_QUERY: return new NewPipeVideoBySearch();
 			case CHANNEL_VIDEOS: return (GetYouTubeVideos) createChannelVideosFetcher();
 			case SUBSCRIPTIONS_FEED_VIDEOS: return new GetSubscriptionsVideosFromDb();
+			case SUBSCRIPTIONS_FEED_SEARCH: return new SearchSubscriptionsVideosFromDb();
 			case BOOKMARKS_VIDEOS: return new GetBookmarksVideos();
 			case MIXED_PLAYLIST_VIDEOS:
 			case PLAYLIST_VIDEOS: return new NewPipePlaylistVideos();// new GetPlaylistVideos();
@@ -0,0 +1,88 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube;
+
+/**
+ * Limits the number of tasks running at once, to a limit which adapts to the server:  halved
+ * whenever a task was throttled, and raised by one once as many tasks as the limit succeeded in a
+ * row.
+ */
+public class AdaptiveConcurrency {
+
+	private final int maxLimit;
+	private int limit;
+	private int running = 0;
+	private int successes = 0;
+	private long decreaseCount = 0;
+
+
+	/**
+	 * @param maxLimit The limit at first, and at most.
+	 */
+	public AdaptiveConcurrency(int maxLimit) {
+		this.maxLimit = maxLimit;
+		this.limit = maxLimit;
+	}
+
+
+	/**
+	 * Wait until a task can run.
+	 */
+	public synchronized void acquire() throws InterruptedException {
+		while (running >= limit) {
+			wait();
+		}
+		running++;
+	}
+
+
+	/**
+	 * @param throttled True if the task was throttled by the server.
+	 */
+	public synchronized void release(boolean throttled) {
+		running--;
+		if (throttled) {
+			successes = 0;
+			if (limit > 1) {
+				limit /= 2;
+				decreaseCount++;
+			}
+		} else if (++successes >= limit && limit < maxLimit) {
+			successes = 0;
+			limit++;
+		}
+		notifyAll();
+	}
+
+
+	/**
+	 * @return The number of tasks which can currently run at once.
+	 */
+	public synchronized int getLimit() {
+		return limit;
+	}
+
+
+	/**
+	 * @return How many times the limit was lowered.
+	 */
+	public synchronized long getDecreaseCount() {
+		return decreaseCount;
+	}
+
+}
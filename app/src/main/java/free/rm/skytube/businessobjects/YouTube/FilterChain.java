@@ -0,0 +1,193 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An immutable chain of rules, checked in order of increasing cost until one of them blocks the item.
+ * Hence the expensive rules (e.g. the language detection) only see the items which all the cheap ones
+ * let through.
+ *
+ * <p>The rules are built from the user's settings once (see {@link Builder}), so that checking an
+ * item doesn't read any setting, nor allocate anything unless the item is blocked.</p>
+ *
+ * @param <T> The type of the filtered items.
+ * @param <K> The type of the rule kinds (e.g. {@link VideoBlocker.FilterType}).
+ */
+public class FilterChain<T, K> {
+
+	/**
+	 * A single rule of the chain.
+	 */
+	public interface Rule<T> {
+		/**
+		 * @return Why the item is blocked (e.g. the name of the blacklisted channel), or null to let it
+		 * 			through.
+		 */
+		String check(T item);
+	}
+
+	/**
+	 * Why an item was blocked.
+	 */
+	public static class Blocked<K> {
+		private final K kind;
+		private final String reason;
+
+		Blocked(K kind, String reason) {
+			this.kind = kind;
+			this.reason = reason;
+		}
+
+		public K getKind() {
+			return kind;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+
+	private static class Step<T, K> {
+		final K kind;
+		final int cost;
+		final Rule<T> rule;
+
+		Step(K kind, int cost, Rule<T> rule) {
+			this.kind = kind;
+			this.cost = cost;
+			this.rule = rule;
+		}
+	}
+
+	/** The rules, by increasing cost. */
+	private final Step<T, K>[] steps;
+	private final List<K> kinds;
+
+
+	private FilterChain(Step<T, K>[] steps) {
+		this.steps = steps;
+		final List<K> kinds = new ArrayList<>(steps.length);
+		for (Step<T, K> step : steps) {
+			kinds.add(step.kind);
+		}
+		this.kinds = Collections.unmodifiableList(kinds);
+	}
+
+
+	/**
+	 * @return The first rule (i.e. the cheapest one) blocking the item, or null if none does.
+	 */
+	public Blocked<K> check(T item) {
+		for (Step<T, K> step : steps) {
+			final String reason = step.rule.check(item);
+			if (reason != null) {
+				return new Blocked<>(step.kind, reason);
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Check the given items in parallel, e.g. a page of videos when the language detection is on.
+	 *
+	 * @param items     The items.
+	 * @param executor  Runs the checks; the rules must hence be thread-safe.
+	 *
+	 * @return For each item, the first rule blocking it, or null if none does.
+	 */
+	public List<Blocked<K>> check(List<T> items, ExecutorService executor) throws InterruptedException {
+		final List<Callable<Blocked<K>>> checks = new ArrayList<>(items.size());
+		for (final T item : items) {
+			checks.add(() -> check(item));
+		}
+
+		@SuppressWarnings("unchecked")
+		final Blocked<K>[] blocked = new Blocked[items.size()];
+		final List<Future<Blocked<K>>> results = executor.invokeAll(checks);
+		for (int i = 0; i < blocked.length; i++) {
+			try {
+				blocked[i] = results.get(i).get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Rule failed", e.getCause());
+			}
+		}
+		return Arrays.asList(blocked);
+	}
+
+
+	/**
+	 * @return The cost of the most expensive rule, or 0 if there is none.
+	 */
+	public int getMaxCost() {
+		return steps.length > 0 ? steps[steps.length - 1].cost : 0;
+	}
+
+
+	/**
+	 * @return True if there is no rule, i.e. nothing is ever blocked.
+	 */
+	public boolean isEmpty() {
+		return steps.length == 0;
+	}
+
+
+	/**
+	 * @return The kinds of the rules, in the order they are checked.
+	 */
+	public List<K> getKinds() {
+		return kinds;
+	}
+
+
+	/**
+	 * Collects the rules of a {@link FilterChain}.
+	 */
+	public static class Builder<T, K> {
+		private final List<Step<T, K>> steps = new ArrayList<>();
+
+		/**
+		 * @param kind  The kind of rule, reported when it blocks an item.
+		 * @param cost  The relative cost of the rule:  the rules are checked by increasing cost, and
+		 *              in the order they were added if equal.
+		 * @param rule  The rule.
+		 */
+		public Builder<T, K> add(K kind, int cost, Rule<T> rule) {
+			steps.add(new Step<>(kind, cost, rule));
+			return this;
+		}
+
+		@SuppressWarnings("unchecked")
+		public FilterChain<T, K> build() {
+			final List<Step<T, K>> sorted = new ArrayList<>(steps);
+			// stable sort
+			Collections.sort(sorted, (first, second) -> first.cost < second.cost ? -1 : (first.cost == second.cost ? 0 : 1));
+			return new FilterChain<>(sorted.toArray(new Step[0]));
+		}
+	}
+
+}
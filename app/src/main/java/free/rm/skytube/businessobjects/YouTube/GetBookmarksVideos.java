@@ -17,14 +17,10 @@
 
 package free.rm.skytube.businessobjects.YouTube;
 
-import androidx.core.util.Pair;
-
 import java.util.ArrayList;
 import java.util.List;
 
-import free.rm.skytube.app.Utils;
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
-import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
 import free.rm.skytube.businessobjects.db.BookmarksDb;
 
 
@@ -33,7 +29,7 @@ import free.rm.skytube.businessobjects.db.BookmarksDb;
  */
 public class GetBookmarksVideos extends GetYouTubeVideos {
 
-    Integer minOrder;
+    private BookmarksDb.Page lastPage;
 
     @Override
     public void init() {
@@ -42,22 +38,17 @@ public class GetBookmarksVideos extends GetYouTubeVideos {
 
     @Override
     public void reset() {
-        minOrder = null;
+        lastPage = null;
         noMoreVideoPages = false;
     }
 
     @Override
     public List<CardData> getNextVideos() {
         if (!noMoreVideoPages()) {
-            BookmarksDb db = BookmarksDb.getBookmarksDb();
-            Pair<List<YouTubeVideo>, Integer> bookmarkedVideos = db.getBookmarkedVideos(20, minOrder);
-            if (!bookmarkedVideos.first.isEmpty()) {
-                minOrder = Utils.min(bookmarkedVideos.second, minOrder);
-                noMoreVideoPages = bookmarkedVideos.first.isEmpty();
-            } else {
-                noMoreVideoPages = true;
-            }
-            return new ArrayList<>(bookmarkedVideos.first);
+            // the pages read recently are cached by the database, so reopening the tab is instant
+            lastPage = BookmarksDb.getBookmarksDb().getBookmarkedVideos(lastPage, 20);
+            noMoreVideoPages = !lastPage.hasNextPage();
+            return new ArrayList<>(lastPage.getVideos());
         }
 
         return null;
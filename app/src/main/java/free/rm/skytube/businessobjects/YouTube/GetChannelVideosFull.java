@@ -21,9 +21,9 @@ import com.google.api.client.util.DateTime;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Set;
 
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
+import free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdSet;
 import free.rm.skytube.businessobjects.db.SubscriptionsDb;
 
 /**
@@ -74,8 +74,8 @@ public class GetChannelVideosFull extends GetYouTubeVideoBySearch implements Get
 	@Override
 	protected List<CardData> getVideoListFromIds(List<String> videoIds) throws IOException {
 		if (videoIds != null && !videoIds.isEmpty() && channelId != null && filterSubscribedVideos) {
-			final Set<String> videosByChannel = SubscriptionsDb.getSubscriptionsDb().getSubscribedChannelVideosByChannel(channelId);
-			videoIds.removeAll(videosByChannel);
+			final VideoIdSet videosByChannel = SubscriptionsDb.getSubscriptionsDb().getSubscribedChannelVideosByChannel(channelId);
+			videoIds.removeIf(videosByChannel::contains);
 		}
 		return super.getVideoListFromIds(videoIds);
 	}
@@ -27,12 +27,12 @@ import com.google.api.services.youtube.model.ActivityListResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeAPI;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeAPIKey;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdSet;
 import free.rm.skytube.businessobjects.db.SubscriptionsDb;
 
 /**
@@ -124,8 +124,8 @@ public class GetChannelVideosLite extends GetYouTubeVideos implements GetChannel
 			videoIds.add(res.getContentDetails().getUpload().getVideoId());
 		}
 		if (!videoIds.isEmpty() && channelId != null && filterSubscribedVideos) {
-			final Set<String> videosByChannel = SubscriptionsDb.getSubscriptionsDb().getSubscribedChannelVideosByChannel(channelId);
-			videoIds.removeAll(videosByChannel);
+			final VideoIdSet videosByChannel = SubscriptionsDb.getSubscriptionsDb().getSubscribedChannelVideosByChannel(channelId);
+			videoIds.removeIf(videosByChannel::contains);
 		}
         return getVideoListFromIds(videoIds);
 	}
@@ -104,6 +104,13 @@ public class GetCommentThreads implements PagerBackend<YouTubeCommentThread> {
 		return commentThreadList;
 	}
 
+	/**
+	 * The pages of the YouTube API are not read ahead.
+	 */
+	@Override
+	public void cancelReadAhead() {
+	}
+
 	@Override
 	public IOException getLastException() {
 		return lastException;
@@ -86,6 +86,12 @@ public abstract class GetYouTubeVideos {
 		lastException = null;
 	}
 
+	/**
+	 * Stop fetching the next page ahead of its request, e.g. as the grid is destroyed.
+	 */
+	public void cancelReadAhead() {
+	}
+
 	public Exception getLastException() {
 		return lastException;
 	}
@@ -0,0 +1,164 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube;
+
+import com.google.common.base.Optional;
+import com.optimaize.langdetect.DetectedLanguage;
+import com.optimaize.langdetect.LanguageDetector;
+import com.optimaize.langdetect.LanguageDetectorBuilder;
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.profiles.BuiltInLanguages;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import com.optimaize.langdetect.text.CommonTextObjectFactories;
+import com.optimaize.langdetect.text.TextObject;
+import com.optimaize.langdetect.text.TextObjectFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Detects the language of the video titles.  The detector only loads the profiles of the languages
+ * the user filters on, plus those of a few widespread languages (so that a title in another language
+ * is detected as such, rather than as the closest preferred language):  each profile costs memory,
+ * and time to load.
+ */
+public class LanguageDetection {
+
+	/**
+	 * The languages detected in addition to the preferred ones:  the most common languages of the
+	 * videos.
+	 */
+	static final List<String> OTHER_LANGUAGES = Collections.unmodifiableList(Arrays.asList(
+			"en", "es", "pt", "fr", "de", "ru", "ar", "hi", "id", "tr", "ja", "ko", "zh", "vi", "th"));
+
+	private final List<LdLocale> languages;
+	private final String languagesSignature;
+	private final TextObjectFactory textObjectFactory;
+	private final LanguageDetector languageDetector;
+
+
+	/**
+	 * Load the profiles of the given languages, and build the detector.
+	 *
+	 * @param languages Built-in languages (see {@link #selectLanguages(LanguageMatcher)}).
+	 */
+	public LanguageDetection(List<LdLocale> languages) throws IOException {
+		this.languages = Collections.unmodifiableList(new ArrayList<>(languages));
+		this.languagesSignature = getSignature(languages);
+
+		// build language detector
+		languageDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+				.withProfiles(new LanguageProfileReader().readBuiltIn(languages))
+				.build();
+
+		// create a text object factory
+		textObjectFactory = CommonTextObjectFactories.forDetectingShortCleanText();
+	}
+
+
+	/**
+	 * @param preferredLanguages The user's preferred languages.
+	 *
+	 * @return The built-in languages which the detector needs:  the preferred ones, and the
+	 * 			{@link #OTHER_LANGUAGES}.
+	 */
+	public static List<LdLocale> selectLanguages(LanguageMatcher preferredLanguages) {
+		return selectLanguages(BuiltInLanguages.getLanguages(), preferredLanguages);
+	}
+
+
+	static List<LdLocale> selectLanguages(List<LdLocale> builtInLanguages, LanguageMatcher preferredLanguages) {
+		final List<LdLocale> selected = new ArrayList<>();
+		for (LdLocale language : builtInLanguages) {
+			if (OTHER_LANGUAGES.contains(language.getLanguage()) || preferredLanguages.matches(language.getLanguage())) {
+				selected.add(language);
+			}
+		}
+		return selected;
+	}
+
+
+	/**
+	 * @return The given languages, in a canonical form:  the detector detects the same languages for
+	 * 			the same signature.
+	 */
+	public static String getSignature(List<LdLocale> languages) {
+		final List<String> tags = new ArrayList<>(languages.size());
+		for (LdLocale language : languages) {
+			tags.add(language.toString());
+		}
+		Collections.sort(tags);
+
+		final StringBuilder signature = new StringBuilder();
+		for (String tag : tags) {
+			if (signature.length() > 0) {
+				signature.append(',');
+			}
+			signature.append(tag);
+		}
+		return signature.toString();
+	}
+
+
+	/**
+	 * @return The languages which can be detected.
+	 */
+	public List<LdLocale> getLanguages() {
+		return languages;
+	}
+
+
+	/**
+	 * @see #getSignature(List)
+	 */
+	public String getLanguagesSignature() {
+		return languagesSignature;
+	}
+
+
+	/**
+	 * Detect the language of the given text.
+	 *
+	 * @param text  Text to analyze (e.g. a video title).
+	 *
+	 * @return The language detected if the library is 100% confident; the probable languages
+	 * 			otherwise (most probable first).
+	 */
+	public List<String> detect(String text) {
+		TextObject textObject = textObjectFactory.forText(text);
+		Optional<LdLocale> lang = languageDetector.detect(textObject);
+
+		// if the confidence in the language detection is 100%, then ...
+		if (lang.isPresent()) {
+			return Collections.singletonList(lang.get().getLanguage());
+		}
+
+		// else if the library is not 100% that the language detected is the correct one...
+		List<DetectedLanguage> detectedLangList = languageDetector.getProbabilities(text);
+		List<String> detectedLanguages = new ArrayList<>(detectedLangList.size());
+		for (DetectedLanguage detectedLanguage : detectedLangList) {
+			detectedLanguages.add(detectedLanguage.getLocale().getLanguage());
+		}
+		return detectedLanguages;
+	}
+
+}
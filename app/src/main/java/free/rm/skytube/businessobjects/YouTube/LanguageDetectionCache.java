@@ -0,0 +1,219 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The languages detected in the video titles, by title, so that a title is only analyzed once - even
+ * across restarts, as the cache is saved to a file.  The least recently used titles are dropped once
+ * the cache is full.
+ *
+ * <p>The titles are kept as 64-bit hashes:  a collision would at worst give the languages of another
+ * title.  The detected languages depend on the languages known by the detector, hence the file is
+ * ignored if it was saved for another set of languages.</p>
+ */
+public class LanguageDetectionCache {
+
+	/** Bumped whenever the file format, or the meaning of the detected languages, changes. */
+	private static final int FILE_VERSION = 2;
+
+	private final String detectorLanguages;
+	private final LinkedHashMap<Long, List<String>> entries;
+	private boolean dirty = false;
+	private long hitCount = 0;
+	private long missCount = 0;
+
+
+	/**
+	 * @param maxSize           Maximum number of cached titles.
+	 * @param detectorLanguages The languages known by the detector (see
+	 *                          {@link LanguageDetection#getLanguagesSignature()}).
+	 */
+	public LanguageDetectionCache(final int maxSize, String detectorLanguages) {
+		this.detectorLanguages = detectorLanguages;
+		this.entries = new LinkedHashMap<Long, List<String>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, List<String>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+
+	/**
+	 * @param title The video title, as analyzed.
+	 *
+	 * @return The languages detected (most probable first), or null if the title is not cached.
+	 */
+	public synchronized List<String> get(String title) {
+		final List<String> languages = entries.get(hash(title));
+		if (languages != null) {
+			hitCount++;
+		} else {
+			missCount++;
+		}
+		return languages;
+	}
+
+
+	/**
+	 * @param title     The video title, as analyzed.
+	 * @param languages The languages detected (most probable first).
+	 */
+	public synchronized void put(String title, List<String> languages) {
+		entries.put(hash(title), Collections.unmodifiableList(new ArrayList<>(languages)));
+		dirty = true;
+	}
+
+
+	public String getDetectorLanguages() {
+		return detectorLanguages;
+	}
+
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+
+	/**
+	 * @return True if titles were added since the cache was last loaded or saved.
+	 */
+	public synchronized boolean isDirty() {
+		return dirty;
+	}
+
+
+	/**
+	 * Add the titles saved in the given file, if any, to the cache (unless it was saved for other
+	 * detector languages).  The cached titles come first.
+	 */
+	public void load(File file) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		final Map<Long, List<String>> loaded = new LinkedHashMap<>();
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != FILE_VERSION  ||  !input.readUTF().equals(detectorLanguages)) {
+				return;
+			}
+			final int count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				final long key = input.readLong();
+				final String languages = input.readUTF();
+				loaded.put(key, languages.isEmpty() ? Collections.<String>emptyList()
+						: Collections.unmodifiableList(Arrays.asList(languages.split(","))));
+			}
+		}
+		synchronized (this) {
+			// the file is ordered from the least recently used
+			final Map<Long, List<String>> cached = new LinkedHashMap<>(entries);
+			entries.clear();
+			entries.putAll(loaded);
+			entries.putAll(cached);
+		}
+	}
+
+
+	/**
+	 * Save the cache to the given file, replacing it as a whole (a partly written file is never
+	 * read).
+	 */
+	public void save(File file) throws IOException {
+		final Map<Long, List<String>> snapshot;
+		synchronized (this) {
+			snapshot = new LinkedHashMap<>(entries);
+			dirty = false;
+		}
+		final File tempFile = new File(file.getPath() + ".tmp");
+		boolean successful = false;
+		try {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				output.writeInt(FILE_VERSION);
+				output.writeUTF(detectorLanguages);
+				output.writeInt(snapshot.size());
+				for (Map.Entry<Long, List<String>> entry : snapshot.entrySet()) {
+					output.writeLong(entry.getKey());
+					output.writeUTF(join(entry.getValue()));
+				}
+			}
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("Unable to rename " + tempFile + " to " + file);
+			}
+			successful = true;
+		} finally {
+			if (!successful) {
+				synchronized (this) {
+					dirty = true;
+				}
+				//noinspection ResultOfMethodCallIgnored
+				tempFile.delete();
+			}
+		}
+	}
+
+
+	private static String join(List<String> languages) {
+		final StringBuilder joined = new StringBuilder();
+		for (String language : languages) {
+			if (joined.length() > 0) {
+				joined.append(',');
+			}
+			joined.append(language);
+		}
+		return joined.toString();
+	}
+
+
+	/**
+	 * @return The 64-bit FNV-1a hash of the title.
+	 */
+	static long hash(String title) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < title.length(); i++) {
+			hash ^= title.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Matches language codes against the user's preferred languages (ISO 639 codes, as regexes).  The
+ * regexes are compiled once, into a single pattern, and the result is remembered for every language
+ * code seen - there are only a few hundred of them.
+ */
+public class LanguageMatcher {
+
+	/** The video metadata might hold anything as language:  stop remembering past this size. */
+	private static final int MAX_REMEMBERED = 1000;
+
+	private final Pattern pattern;
+	private final Map<String, Boolean> matches = new ConcurrentHashMap<>();
+
+
+	/**
+	 * @param preferredLanguages The preferred language regexes; a language code must match one of them
+	 *                           as a whole (as with {@link String#matches(String)}).
+	 */
+	public LanguageMatcher(Collection<String> preferredLanguages) {
+		if (preferredLanguages.isEmpty()) {
+			pattern = null;
+		} else {
+			final StringBuilder regex = new StringBuilder();
+			for (String preferredLanguage : preferredLanguages) {
+				if (regex.length() > 0) {
+					regex.append('|');
+				}
+				regex.append("(?:").append(preferredLanguage).append(')');
+			}
+			pattern = Pattern.compile(regex.toString());
+		}
+	}
+
+
+	/**
+	 * @return True if there is no preferred language, i.e. no language is to be filtered out.
+	 */
+	public boolean isEmpty() {
+		return pattern == null;
+	}
+
+
+	/**
+	 * @return True if the given language code is one of the preferred languages (or if there are none).
+	 */
+	public boolean matches(String language) {
+		if (pattern == null) {
+			return true;
+		}
+		Boolean matched = matches.get(language);
+		if (matched == null) {
+			matched = pattern.matcher(language).matches();
+			if (matches.size() < MAX_REMEMBERED) {
+				matches.put(language, matched);
+			}
+		}
+		return matched;
+	}
+
+}
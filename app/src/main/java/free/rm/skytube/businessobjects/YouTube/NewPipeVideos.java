@@ -21,6 +21,7 @@ import org.schabi.newpipe.extractor.InfoItem;
 import java.util.Collections;
 import java.util.List;
 
+import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeException;
@@ -46,6 +47,7 @@ public abstract class NewPipeVideos<ITEM extends InfoItem> extends GetYouTubeVid
         if (pager == null) {
             try {
                 pager = createNewPager();
+                pager.setReadAhead(SkyTubeApp.getSettings().isPagingReadAheadEnabled());
             } catch (Exception e) {
                 Logger.e(this, "An error has occurred while getting videos:" + e.getMessage(), e);
                 setLastException(e);
@@ -66,7 +68,16 @@ public abstract class NewPipeVideos<ITEM extends InfoItem> extends GetYouTubeVid
     @Override
     public void reset() {
          noMoreVideoPages = false;
+         cancelReadAhead();
          pager = null;
     }
 
+    @Override
+    public void cancelReadAhead() {
+        final VideoPager currentPager = pager;
+        if (currentPager != null) {
+            currentPager.cancelReadAhead();
+        }
+    }
+
 }
@@ -25,6 +25,23 @@ public class CardData implements Serializable {
     /** publishDate will remain valid for 1 hour. */
     private final static long     PUBLISH_DATE_VALIDITY_TIME = 60 * 60 * 1000L;
 
+    public CardData() {
+    }
+
+    /**
+     * Copy constructor.
+     */
+    protected CardData(CardData card) {
+        this.id = card.id;
+        this.title = card.title;
+        this.description = card.description;
+        this.publishTimestamp = card.publishTimestamp;
+        this.publishTimestampExact = card.publishTimestampExact;
+        this.thumbnailUrl = card.thumbnailUrl;
+        this.publishDatePretty = card.publishDatePretty;
+        this.publishDatePrettyCalculationTime = card.publishDatePrettyCalculationTime;
+    }
+
     public final String getId() {
         return id;
     }
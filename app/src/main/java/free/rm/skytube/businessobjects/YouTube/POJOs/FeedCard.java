@@ -0,0 +1,73 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube.POJOs;
+
+import java.math.BigInteger;
+
+import free.rm.skytube.R;
+
+import static free.rm.skytube.app.SkyTubeApp.getStr;
+
+/**
+ * A subscription feed video, as shown in the grid:  only the fields stored in their own columns of
+ * the SubsVideos table are set (i.e. the description, the like and dislike counts, ... are missing).
+ * The full {@link YouTubeVideo} is loaded on demand, when the user opens the video or one of its
+ * menus - see {@link free.rm.skytube.businessobjects.db.DatabaseTasks#getFullVideo(YouTubeVideo)}.
+ */
+public class FeedCard extends YouTubeVideo {
+
+	/** Rank of this card in the results of a feed search (higher is better). */
+	private transient int searchRank;
+
+	public FeedCard(String id, String title, String thumbnailUrl, int durationInSeconds, Long viewCount,
+					String channelId, String channelName, long publishTimestamp, long retrievalTimestamp) {
+		this.id = id;
+		this.title = title;
+		this.thumbnailUrl = thumbnailUrl;
+		this.thumbnailMaxResUrl = thumbnailUrl;
+		if (durationInSeconds >= 0) {
+			setDurationInSeconds(durationInSeconds);
+		}
+		if (viewCount != null) {
+			this.viewsCountInt = BigInteger.valueOf(viewCount);
+		}
+		this.channel = new YouTubeChannel(channelId, channelName);
+		this.thumbsUpPercentage = -1;
+		this.publishTimestamp = publishTimestamp;
+		this.retrievalTimestamp = retrievalTimestamp;
+	}
+
+	/**
+	 * The views string is only formatted when a card is actually bound to a view.
+	 */
+	@Override
+	public String getViewsCount() {
+		if (viewsCount == null && viewsCountInt != null) {
+			viewsCount = String.format(getStr(R.string.views), viewsCountInt);
+		}
+		return viewsCount;
+	}
+
+	public int getSearchRank() {
+		return searchRank;
+	}
+
+	public void setSearchRank(int searchRank) {
+		this.searchRank = searchRank;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube.POJOs;
+
+/**
+ * Thrown by {@link YouTubeVideoCodec} when a stored video blob can't be decoded:  it has an unknown
+ * version, it is truncated or malformed, or it is invalid JSON.
+ *
+ * <p>Unchecked, but every caller reading the blobs from a database is expected to catch it, and to
+ * skip (or delete) the row, so that one corrupt row doesn't fail the whole query.</p>
+ */
+public class VideoRecordException extends RuntimeException {
+
+	public VideoRecordException(String message) {
+		super(message);
+	}
+
+	public VideoRecordException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -73,6 +73,34 @@ public class YouTubeChannel extends CardData implements Serializable {
 		this.title = title;
 	}
 
+	/**
+	 * Copy constructor:  the videos are copied as well.
+	 */
+	public YouTubeChannel(YouTubeChannel channel) {
+		this(channel, true);
+	}
+
+	/**
+	 * @param withVideos True to copy the videos too, false to leave them out.
+	 */
+	YouTubeChannel(YouTubeChannel channel, boolean withVideos) {
+		super(channel);
+		this.bannerUrl = channel.bannerUrl;
+		this.totalSubscribers = channel.totalSubscribers;
+		this.subscriberCount = channel.subscriberCount;
+		this.isUserSubscribed = channel.isUserSubscribed;
+		this.lastVisitTime = channel.lastVisitTime;
+		this.lastCheckTime = channel.lastCheckTime;
+		this.lastVideoTime = channel.lastVideoTime;
+		this.newVideosSinceLastVisit = channel.newVideosSinceLastVisit;
+		if (withVideos) {
+			for (YouTubeVideo video : channel.youTubeVideos) {
+				// the videos of a channel page refer to the channel itself
+				this.youTubeVideos.add(video.channel == channel ? new YouTubeVideo(video, this) : new YouTubeVideo(video));
+			}
+		}
+	}
+
 	public YouTubeChannel(String id, String title, String description, String thumbnailUrl,
 						  String bannerUrl, long subscriberCount, boolean isUserSubscribed, long lastVisitTime, long lastCheckTime) {
 		this.id = id;
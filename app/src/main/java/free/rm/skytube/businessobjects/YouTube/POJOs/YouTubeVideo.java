@@ -55,6 +55,7 @@ import free.rm.skytube.app.StreamSelectionPolicy;
 import free.rm.skytube.businessobjects.FileDownloader;
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.YouTubeTasks;
+import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeUtils;
 import free.rm.skytube.businessobjects.YouTube.newpipe.VideoId;
 import free.rm.skytube.businessobjects.db.BookmarksDb;
@@ -79,40 +80,40 @@ public class YouTubeVideo extends CardData implements Serializable {
 	/**
 	 * Channel (only id and name are set).
 	 */
-	private YouTubeChannel channel;
+	YouTubeChannel channel;
 
 	/**
 	 * The total number of 'likes'.
 	 */
-	private Long likeCountNumber;
+	Long likeCountNumber;
 
 
 	/**
 	 * The total number of 'dislikes'.
 	 */
-	private Long dislikeCountNumber;
+	Long dislikeCountNumber;
 
 	/**
 	 * The percentage of people that thumbs-up this video.
 	 */
-	private int thumbsUpPercentage;
+	int thumbsUpPercentage;
 	/**
 	 * Video duration string (e.g. "5:15").
 	 */
-	private String duration;
+	String duration;
 	/**
 	 *  Video duration in seconds
 	 */
-	private int durationInSeconds = -1;
+	int durationInSeconds = -1;
 	/**
 	 * Total views count.  This can be <b>null</b> if the video does not allow the user to
 	 * like/dislike it.  Format:  "<number> Views"
 	 */
-	private String viewsCount;
+	String viewsCount;
 	/**
 	 * Total views count.
 	 */
-	private BigInteger viewsCountInt;
+	BigInteger viewsCountInt;
 	/**
 	 * The date/time of when this video was published.
 	 */
@@ -120,22 +121,55 @@ public class YouTubeVideo extends CardData implements Serializable {
 	/**
 	 * Thumbnail URL (maximum resolution).
 	 */
-	private String thumbnailMaxResUrl;
+	String thumbnailMaxResUrl;
 	/**
 	 * The language of this video.  (This tends to be ISO 639-1).
 	 */
-	private String language;
+	String language;
 	/**
 	 * Set to true if the video is a current live stream.
 	 */
-	private boolean isLiveStream;
+	boolean isLiveStream;
 
 	/**
 	 * Timestamp of the data retrieval.
 	 */
-	private Long retrievalTimestamp;
+	Long retrievalTimestamp;
 
 
+	/**
+	 * Constructor used by {@link YouTubeVideoCodec}, which fills the fields directly.
+	 */
+	YouTubeVideo() {
+	}
+
+	/**
+	 * Copy constructor:  the channel is copied as well (without its videos).
+	 */
+	public YouTubeVideo(YouTubeVideo video) {
+		this(video, video.channel != null ? new YouTubeChannel(video.channel, false) : null);
+	}
+
+	/**
+	 * Copy the video, for the given channel.
+	 */
+	YouTubeVideo(YouTubeVideo video, YouTubeChannel channel) {
+		super(video);
+		this.channel = channel;
+		this.likeCountNumber = video.likeCountNumber;
+		this.dislikeCountNumber = video.dislikeCountNumber;
+		this.thumbsUpPercentage = video.thumbsUpPercentage;
+		this.duration = video.duration;
+		this.durationInSeconds = video.durationInSeconds;
+		this.viewsCount = video.viewsCount;
+		this.viewsCountInt = video.viewsCountInt;
+		this.publishDate = video.publishDate;
+		this.thumbnailMaxResUrl = video.thumbnailMaxResUrl;
+		this.language = video.language;
+		this.isLiveStream = video.isLiveStream;
+		this.retrievalTimestamp = video.retrievalTimestamp;
+	}
+
 	/**
 	 * Constructor.
 	 */
@@ -511,7 +545,7 @@ public class YouTubeVideo extends CardData implements Serializable {
 
 						final Settings settings = SkyTubeApp.getSettings();
 						StreamSelectionPolicy selectionPolicy = settings.getDesiredVideoResolution(true);
-						StreamSelectionPolicy.StreamSelection streamSelection = selectionPolicy.select(streamInfo);
+						StreamSelectionPolicy.StreamSelection streamSelection = NewPipeService.get().getStreamInfoCache().select(getId(), streamInfo, selectionPolicy);
 						if (streamSelection != null) {
 							VideoStream videoStream = streamSelection.getVideoStream();
 							// download the video
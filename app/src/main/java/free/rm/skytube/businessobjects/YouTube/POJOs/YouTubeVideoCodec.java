@@ -0,0 +1,431 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube.POJOs;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts {@link YouTubeVideo}s to and from the compact binary record that is stored in the video
+ * BLOB columns of the databases.
+ *
+ * <p>A record is laid out as:</p>
+ * <pre>
+ *   version:byte  flags:varint  stringCount:varint  (length:varint utf8-bytes)*  fields...
+ * </pre>
+ * <p>Every string field (including the channel id and name) is a varint index into the string
+ * table (0 meaning null), so repeated strings - like the thumbnail URLs - are stored only once.
+ * Numbers are zig-zag encoded varints.</p>
+ *
+ * <p>Older rows contain the Gson JSON of the video instead - these are recognised by their first
+ * byte, and are still decoded (see {@link #isLegacyJson(byte[])}).</p>
+ */
+public final class YouTubeVideoCodec {
+	private static final String TAG = YouTubeVideoCodec.class.getSimpleName();
+
+	/** Version of the record format - any layout change needs a new version. */
+	static final byte FORMAT_VERSION = 1;
+
+	private static final int FLAG_PUBLISH_TIMESTAMP_EXACT = 1;
+	private static final int FLAG_LIVE_STREAM = 1 << 1;
+	private static final int FLAG_PUBLISH_TIMESTAMP = 1 << 2;
+	private static final int FLAG_RETRIEVAL_TIMESTAMP = 1 << 3;
+	private static final int FLAG_LIKE_COUNT = 1 << 4;
+	private static final int FLAG_DISLIKE_COUNT = 1 << 5;
+	private static final int FLAG_VIEWS_COUNT = 1 << 6;
+	private static final int FLAG_VIEWS_COUNT_AS_STRING = 1 << 7;
+	private static final int FLAG_CHANNEL = 1 << 8;
+
+	/** StandardCharsets needs API 19. */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** Used for the legacy JSON rows only.  Gson instances are thread-safe. */
+	private static final Gson LEGACY_GSON = new Gson();
+
+	private YouTubeVideoCodec() {
+	}
+
+	/**
+	 * @return True if the given blob was written by Gson (i.e. it is a JSON object), rather than by
+	 * {@link #encode(YouTubeVideo)}.
+	 */
+	public static boolean isLegacyJson(byte[] blob) {
+		return blob != null && blob.length > 0 && blob[0] == '{';
+	}
+
+	/**
+	 * Encode the given video into the binary record format.
+	 */
+	public static byte[] encode(YouTubeVideo video) {
+		final StringTable strings = new StringTable();
+		final int id = strings.add(video.id);
+		final int title = strings.add(video.title);
+		final int description = strings.add(video.description);
+		final int thumbnailUrl = strings.add(video.thumbnailUrl);
+		final int thumbnailMaxResUrl = strings.add(video.thumbnailMaxResUrl);
+		final int duration = strings.add(video.duration);
+		final int viewsCount = strings.add(video.viewsCount);
+		final int language = strings.add(video.language);
+		final YouTubeChannel channel = video.channel;
+		final int channelId = channel != null ? strings.add(channel.getId()) : 0;
+		final int channelTitle = channel != null ? strings.add(channel.getTitle()) : 0;
+		final boolean viewsFitInLong = video.viewsCountInt != null && video.viewsCountInt.bitLength() < 64;
+		final int viewsCountInt = video.viewsCountInt != null && !viewsFitInLong ? strings.add(video.viewsCountInt.toString()) : 0;
+
+		int flags = 0;
+		flags |= video.publishTimestampExact ? FLAG_PUBLISH_TIMESTAMP_EXACT : 0;
+		flags |= video.isLiveStream ? FLAG_LIVE_STREAM : 0;
+		flags |= video.publishTimestamp != null ? FLAG_PUBLISH_TIMESTAMP : 0;
+		flags |= video.retrievalTimestamp != null ? FLAG_RETRIEVAL_TIMESTAMP : 0;
+		flags |= video.likeCountNumber != null ? FLAG_LIKE_COUNT : 0;
+		flags |= video.dislikeCountNumber != null ? FLAG_DISLIKE_COUNT : 0;
+		flags |= viewsFitInLong ? FLAG_VIEWS_COUNT : 0;
+		flags |= viewsCountInt != 0 ? FLAG_VIEWS_COUNT_AS_STRING : 0;
+		flags |= channel != null ? FLAG_CHANNEL : 0;
+
+		final Writer out = new Writer(strings.byteSize + 64);
+		out.writeByte(FORMAT_VERSION);
+		out.writeVarint(flags);
+		strings.writeTo(out);
+		out.writeVarint(id);
+		out.writeVarint(title);
+		out.writeVarint(description);
+		out.writeVarint(thumbnailUrl);
+		out.writeVarint(thumbnailMaxResUrl);
+		out.writeVarint(duration);
+		out.writeVarint(viewsCount);
+		out.writeVarint(language);
+		out.writeSignedVarint(video.durationInSeconds);
+		out.writeSignedVarint(video.thumbsUpPercentage);
+		if (video.publishTimestamp != null) {
+			out.writeSignedVarint(video.publishTimestamp);
+		}
+		if (video.retrievalTimestamp != null) {
+			out.writeSignedVarint(video.retrievalTimestamp);
+		}
+		if (video.likeCountNumber != null) {
+			out.writeSignedVarint(video.likeCountNumber);
+		}
+		if (video.dislikeCountNumber != null) {
+			out.writeSignedVarint(video.dislikeCountNumber);
+		}
+		if (viewsFitInLong) {
+			out.writeSignedVarint(video.viewsCountInt.longValue());
+		} else if (viewsCountInt != 0) {
+			out.writeVarint(viewsCountInt);
+		}
+		if (channel != null) {
+			out.writeVarint(channelId);
+			out.writeVarint(channelTitle);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decode a video stored in either the binary record format, or in the legacy JSON format.
+	 *
+	 * @return The video, or null if the blob is empty.
+	 * @throws VideoRecordException if the blob has an unknown format, or is truncated or malformed.
+	 */
+	public static YouTubeVideo decode(byte[] blob) {
+		return decode(blob, false);
+	}
+
+	/**
+	 * Decode the fields of a video which are displayed by the grid cards, i.e. without its
+	 * description - the longest string of most records, which is fetched again once the video is
+	 * opened.
+	 *
+	 * @return The video, or null if the blob is empty.
+	 * @throws VideoRecordException if the blob has an unknown format, or is truncated or malformed.
+	 */
+	public static YouTubeVideo decodeCard(byte[] blob) {
+		return decode(blob, true);
+	}
+
+	private static YouTubeVideo decode(byte[] blob, boolean card) {
+		if (blob == null || blob.length == 0) {
+			return null;
+		}
+		if (isLegacyJson(blob)) {
+			return decodeLegacyJson(new String(blob, UTF_8));
+		}
+		if (blob[0] != FORMAT_VERSION) {
+			throw new VideoRecordException("Unknown video record version: " + blob[0]);
+		}
+
+		final Reader in = new Reader(blob, 1);
+		final int flags = (int) in.readVarint();
+		final RecordStrings strings = new RecordStrings(in);
+
+		final YouTubeVideo video = new YouTubeVideo();
+		video.id = strings.get(in.readVarint());
+		video.title = strings.get(in.readVarint());
+		final long description = in.readVarint();
+		video.description = card ? null : strings.get(description);
+		video.thumbnailUrl = strings.get(in.readVarint());
+		video.thumbnailMaxResUrl = strings.get(in.readVarint());
+		video.duration = strings.get(in.readVarint());
+		video.viewsCount = strings.get(in.readVarint());
+		video.language = strings.get(in.readVarint());
+		video.durationInSeconds = (int) in.readSignedVarint();
+		video.thumbsUpPercentage = (int) in.readSignedVarint();
+		video.publishTimestampExact = (flags & FLAG_PUBLISH_TIMESTAMP_EXACT) != 0;
+		video.isLiveStream = (flags & FLAG_LIVE_STREAM) != 0;
+		if ((flags & FLAG_PUBLISH_TIMESTAMP) != 0) {
+			video.publishTimestamp = in.readSignedVarint();
+		}
+		if ((flags & FLAG_RETRIEVAL_TIMESTAMP) != 0) {
+			video.retrievalTimestamp = in.readSignedVarint();
+		}
+		if ((flags & FLAG_LIKE_COUNT) != 0) {
+			video.likeCountNumber = in.readSignedVarint();
+		}
+		if ((flags & FLAG_DISLIKE_COUNT) != 0) {
+			video.dislikeCountNumber = in.readSignedVarint();
+		}
+		if ((flags & FLAG_VIEWS_COUNT) != 0) {
+			video.viewsCountInt = BigInteger.valueOf(in.readSignedVarint());
+		} else if ((flags & FLAG_VIEWS_COUNT_AS_STRING) != 0) {
+			video.viewsCountInt = parseBigInteger(strings.get(in.readVarint()));
+		}
+		if ((flags & FLAG_CHANNEL) != 0) {
+			final String channelId = strings.get(in.readVarint());
+			video.channel = new YouTubeChannel(channelId, strings.get(in.readVarint()));
+		}
+		return video;
+	}
+
+	private static BigInteger parseBigInteger(String value) {
+		try {
+			return new BigInteger(value);
+		} catch (NumberFormatException | NullPointerException e) {
+			throw new VideoRecordException("Malformed view count: " + value, e);
+		}
+	}
+
+	/**
+	 * Decode a video which was serialised by Gson.
+	 */
+	private static YouTubeVideo decodeLegacyJson(String videoJson) {
+		final YouTubeVideo parsed;
+		try {
+			parsed = LEGACY_GSON.fromJson(videoJson, YouTubeVideo.class);
+		} catch (JsonParseException e) {
+			throw new VideoRecordException("Malformed video JSON", e);
+		}
+		if (parsed == null) {
+			throw new VideoRecordException("Empty video JSON");
+		}
+		YouTubeVideo video = parsed.updatePublishTimestampFromDate();
+
+		// due to upgrade to YouTubeVideo (by changing channel{Id,Name} to YouTubeChannel)
+		// from version 2.82 to 2.90
+		if (video.getChannel() == null) {
+			try {
+				JSONObject videoJsonObj = new JSONObject(videoJson);
+				final String channelId   = videoJsonObj.get("channelId").toString();
+				final String channelName = videoJsonObj.get("channelName").toString();
+				video.setChannel(new YouTubeChannel(channelId, channelName));
+			} catch (JSONException e) {
+				Log.e(TAG, "Error occurred while extracting channel{Id,Name} from JSON", e);
+			}
+		}
+		return video;
+	}
+
+	////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Distinct strings of a record, in the order they were added.  Index 0 is reserved for null.
+	 */
+	private static final class StringTable {
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private final List<byte[]> encoded = new ArrayList<>();
+		private int byteSize;
+
+		int add(String str) {
+			if (str == null) {
+				return 0;
+			}
+			Integer index = indexes.get(str);
+			if (index == null) {
+				final byte[] bytes = str.getBytes(UTF_8);
+				encoded.add(bytes);
+				byteSize += bytes.length + 2;
+				index = encoded.size();
+				indexes.put(str, index);
+			}
+			return index;
+		}
+
+		void writeTo(Writer out) {
+			out.writeVarint(encoded.size());
+			for (byte[] bytes : encoded) {
+				out.writeVarint(bytes.length);
+				out.writeBytes(bytes);
+			}
+		}
+	}
+
+	/**
+	 * The string table of a record being decoded:  each string is only decoded from UTF-8 when it is
+	 * first used, so the skipped fields cost nothing.
+	 */
+	private static final class RecordStrings {
+		private final byte[] buffer;
+		private final int[] offsets;
+		private final int[] lengths;
+		private final String[] decoded;
+
+		RecordStrings(Reader in) {
+			final int count = in.readLength();
+			buffer = in.buffer;
+			offsets = new int[count + 1];
+			lengths = new int[count + 1];
+			decoded = new String[count + 1];
+			for (int i = 1; i <= count; i++) {
+				lengths[i] = in.readLength();
+				offsets[i] = in.skip(lengths[i]);
+			}
+		}
+
+		/**
+		 * @param index Index in the table, 0 meaning null.
+		 */
+		String get(long index) {
+			if (index == 0) {
+				return null;
+			}
+			if (index < 0 || index >= decoded.length) {
+				throw new VideoRecordException("String index " + index + " out of " + (decoded.length - 1) + " strings");
+			}
+			final int i = (int) index;
+			if (decoded[i] == null) {
+				decoded[i] = new String(buffer, offsets[i], lengths[i], UTF_8);
+			}
+			return decoded[i];
+		}
+	}
+
+	private static final class Writer {
+		private byte[] buffer;
+		private int size;
+
+		Writer(int capacity) {
+			buffer = new byte[capacity];
+		}
+
+		void writeByte(int b) {
+			ensureCapacity(1);
+			buffer[size++] = (byte) b;
+		}
+
+		void writeBytes(byte[] bytes) {
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+
+		void writeVarint(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[size++] = (byte) value;
+		}
+
+		void writeSignedVarint(long value) {
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+
+		private void ensureCapacity(int extra) {
+			if (size + extra > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+			}
+		}
+	}
+
+	private static final class Reader {
+		private final byte[] buffer;
+		private int position;
+
+		Reader(byte[] buffer, int position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		long readVarint() {
+			long result = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				if (position >= buffer.length) {
+					throw new VideoRecordException("Truncated video record of " + buffer.length + " bytes");
+				}
+				final byte b = buffer[position++];
+				result |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return result;
+				}
+			}
+			throw new VideoRecordException("Malformed varint at " + position);
+		}
+
+		/**
+		 * @return A length (or a count), which can't be more than the remaining bytes.
+		 */
+		int readLength() {
+			final long length = readVarint();
+			if (length < 0 || length > buffer.length - position) {
+				throw new VideoRecordException("Length " + length + " at " + position + " beyond the video record of " + buffer.length + " bytes");
+			}
+			return (int) length;
+		}
+
+		long readSignedVarint() {
+			final long raw = readVarint();
+			return (raw >>> 1) ^ -(raw & 1);
+		}
+
+		/**
+		 * @return The position of the skipped bytes.
+		 */
+		int skip(int length) {
+			final int start = position;
+			position += length;
+			return start;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube;
+
+import android.os.Process;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import free.rm.skytube.app.SkyTubeApp;
+import free.rm.skytube.app.enums.Policy;
+import free.rm.skytube.businessobjects.Logger;
+import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
+
+/**
+ * Extracts, in the background, the streams of the videos the user is likely to play next (e.g. the
+ * first videos of the subscriptions feed), so that the {@link NewPipeService#getStreamInfoCache()
+ * stream info cache} already has them when the user taps on one.
+ *
+ * <p>The extractions run at a low priority, a few at a time, and only if streaming is allowed
+ * without asking on the current network (see {@link free.rm.skytube.app.Settings#getWarningMeteredPolicy()}).
+ * If the user plays a video while its extraction runs, the player shares it.</p>
+ */
+public class StreamPrefetcher {
+
+	/** The number of extractions running at once. */
+	private static final int MAX_RUNNING = 2;
+	/** The number of videos waiting to be extracted:  the least likely ones are dropped. */
+	private static final int MAX_PENDING = 8;
+
+	private static StreamPrefetcher instance;
+
+	private final int maxRunning;
+	private final int maxPending;
+	private final Executor executor;
+	/** The videos to extract, the most likely to be played first. */
+	private final ArrayDeque<String> pending = new ArrayDeque<>();
+	private final Set<String> running = new HashSet<>();
+	private long prefetchCount = 0;
+	private long failureCount = 0;
+
+
+	public static synchronized StreamPrefetcher get() {
+		if (instance == null) {
+			instance = new StreamPrefetcher(MAX_RUNNING, MAX_PENDING, Executors.newFixedThreadPool(MAX_RUNNING, runnable -> {
+				Thread thread = new Thread(() -> {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}, "StreamPrefetcher");
+				thread.setDaemon(true);
+				return thread;
+			}));
+		}
+		return instance;
+	}
+
+
+	StreamPrefetcher(int maxRunning, int maxPending, Executor executor) {
+		this.maxRunning = maxRunning;
+		this.maxPending = maxPending;
+		this.executor = executor;
+	}
+
+
+	/**
+	 * Extract the streams of the given video, after the ones already waiting.
+	 */
+	public void prefetch(String videoId) {
+		prefetch(videoId, false);
+	}
+
+
+	/**
+	 * @param likely True if the user is more likely to play this video than the ones already
+	 *               waiting (e.g. they long-pressed it), hence it is extracted first.
+	 */
+	public void prefetch(String videoId, boolean likely) {
+		if (videoId == null || !isAllowed() || isCached(videoId)) {
+			return;
+		}
+		synchronized (this) {
+			if (running.contains(videoId)) {
+				return;
+			}
+			if (likely) {
+				pending.remove(videoId);
+				pending.addFirst(videoId);
+			} else if (!pending.contains(videoId)) {
+				pending.addLast(videoId);
+			}
+			while (pending.size() > maxPending) {
+				pending.removeLast();
+			}
+			startNext();
+		}
+	}
+
+
+	private synchronized void startNext() {
+		while (running.size() < maxRunning && !pending.isEmpty()) {
+			final String videoId = pending.removeFirst();
+			running.add(videoId);
+			executor.execute(() -> run(videoId));
+		}
+	}
+
+
+	private void run(String videoId) {
+		try {
+			// the network (or the policy) might have changed since
+			if (isAllowed() && !isCached(videoId)) {
+				extract(videoId);
+				synchronized (this) {
+					prefetchCount++;
+				}
+			}
+		} catch (Exception e) {
+			// the player will extract it again, and report the error
+			Logger.w(this, "Unable to prefetch the streams of %s: %s", videoId, e.getMessage());
+			synchronized (this) {
+				failureCount++;
+			}
+		} finally {
+			synchronized (this) {
+				running.remove(videoId);
+				startNext();
+			}
+		}
+	}
+
+
+	/**
+	 * @return True if streams can be extracted on the current network without asking the user.
+	 */
+	boolean isAllowed() {
+		return !SkyTubeApp.isActiveNetworkMetered()
+				|| SkyTubeApp.getSettings().getWarningMeteredPolicy() == Policy.ALLOW;
+	}
+
+
+	boolean isCached(String videoId) {
+		return NewPipeService.get().getStreamInfoCache().contains(videoId);
+	}
+
+
+	void extract(String videoId) throws Exception {
+		NewPipeService.get().getStreamInfoByVideoId(videoId);
+	}
+
+
+	/**
+	 * @return The number of videos whose streams were extracted ahead.
+	 */
+	public synchronized long getPrefetchCount() {
+		return prefetchCount;
+	}
+
+
+	/**
+	 * @return The number of extractions which failed.
+	 */
+	public synchronized long getFailureCount() {
+		return failureCount;
+	}
+
+}
@@ -17,25 +17,23 @@
 
 package free.rm.skytube.businessobjects.YouTube;
 
-import com.google.common.base.Optional;
-import com.optimaize.langdetect.DetectedLanguage;
-import com.optimaize.langdetect.LanguageDetector;
-import com.optimaize.langdetect.LanguageDetectorBuilder;
+import android.content.SharedPreferences;
+import android.util.Log;
+
 import com.optimaize.langdetect.i18n.LdLocale;
-import com.optimaize.langdetect.ngram.NgramExtractors;
-import com.optimaize.langdetect.profiles.LanguageProfile;
-import com.optimaize.langdetect.profiles.LanguageProfileReader;
-import com.optimaize.langdetect.text.CommonTextObjectFactories;
-import com.optimaize.langdetect.text.TextObject;
-import com.optimaize.langdetect.text.TextObjectFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import free.rm.skytube.R;
 import free.rm.skytube.app.SkyTubeApp;
@@ -52,12 +50,38 @@ import static free.rm.skytube.app.SkyTubeApp.getStr;
  */
 public class VideoBlocker {
 
+	private static final String TAG = VideoBlocker.class.getSimpleName();
+
 	/** Listener that will be called once a video is blocked. */
 	private static volatile VideoBlockerListener videoBlockerListener = null;
 
 	/** Default preferred language(s) -- by default, no language shall be filtered out. */
 	private static final Set<String> defaultPrefLanguages = new HashSet<>(SkyTubeApp.getStringArrayAsList(R.array.languages_iso639_codes));
 
+	/** The relative costs of the rules:  the cheapest ones are checked first. */
+	private static final int COST_CHANNEL = 1;
+	private static final int COST_VIEWS = 2;
+	private static final int COST_DISLIKES = 2;
+	private static final int COST_LANGUAGE = 3;
+	private static final int COST_LANGUAGE_DETECTION = 100;
+
+	/** The rules compiled from the user's settings, or null if they have changed since. */
+	private static volatile FilterChain<YouTubeVideo, FilterType> rules = null;
+	/** Incremented whenever a video blocker setting changes. */
+	private static int preferencesVersion = 0;
+	private static SharedPreferences.OnSharedPreferenceChangeListener preferencesListener = null;
+
+	/** Maximum number of video titles whose detected languages are remembered. */
+	private static final int DETECTION_CACHE_SIZE = 5000;
+	private static final String DETECTION_CACHE_FILE_NAME = "languageDetection.cache";
+	private static final long DETECTION_CACHE_SAVE_INTERVAL_MILLIS = 30_000;
+	/** Built under its own lock, not the VideoBlocker one that the main thread takes on a setting change. */
+	private static final Object LANGUAGE_DETECTION_LOCK = new Object();
+	private static volatile LanguageDetection languageDetection = null;
+	private static LanguageDetectionCache detectionCache = null;
+	private static long lastDetectionCacheSave = 0;
+	private static ExecutorService detectionExecutor = null;
+
 
 	/**
 	 * Sets the {@link VideoBlockerListener}.
@@ -75,45 +99,168 @@ public class VideoBlocker {
 	 * @return  A list of valid videos that fit the user's criteria.
 	 */
 	public List<CardData> filter(List<CardData> videosList) {
+		final FilterChain<YouTubeVideo, FilterType> rules = getRules();
+
 		// if the video blocker is disabled, then do not filter any videos
-		if (!isVideoBlockerEnabled()) {
+		if (rules.isEmpty()) {
 			return videosList;
 		}
 
-		List<CardData>      filteredVideosList    = new ArrayList<>();
-		final boolean       isChannelBlacklistEnabled = isChannelBlacklistEnabled();
-		final List<String>  blacklistedChannelIds = isChannelBlacklistEnabled  ? ChannelFilteringDb.getChannelFilteringDb().getBlacklistedChannelsIdsList() : null;
-		final List<String>  whitelistedChannelIds = !isChannelBlacklistEnabled ? ChannelFilteringDb.getChannelFilteringDb().getWhitelistedChannelsIdsList() : null;
-		// set of user's preferred ISO 639 language codes (regex)
-		final Set<String>   preferredLanguages    = SkyTubeApp.getPreferenceManager().getStringSet(getStr(R.string.pref_key_preferred_languages), defaultPrefLanguages);
-		final BigInteger    minimumVideoViews     = getViewsFilteringValue();
-		final int           minimumVideoDislikes  = getDislikesFilteringValue();
+		final List<YouTubeVideo> videos = new ArrayList<>(videosList.size());
+		for (CardData cardData : videosList) {
+			if (cardData instanceof YouTubeVideo) {
+				videos.add((YouTubeVideo) cardData);
+			}
+		}
+
+		final List<FilterChain.Blocked<FilterType>> blockedVideos = checkVideos(rules, videos);
+		List<CardData> filteredVideosList = new ArrayList<>(videosList.size());
+		int videoIndex = 0;
 
 		for (CardData cardData : videosList) {
 			if (cardData instanceof YouTubeVideo) {
 				YouTubeVideo video = (YouTubeVideo) cardData;
-				if (!((isChannelBlacklistEnabled && filterByBlacklistedChannels(video, blacklistedChannelIds))
-						|| (!isChannelBlacklistEnabled && filterByWhitelistedChannels(video, whitelistedChannelIds))
-						|| filterByLanguage(video, preferredLanguages)
-						|| filterByLanguageDetection(video, preferredLanguages)
-						|| filterByViews(video, minimumVideoViews)
-						|| filterByDislikes(video, minimumVideoDislikes))) {
+				FilterChain.Blocked<FilterType> blocked = blockedVideos.get(videoIndex++);
+				if (blocked == null) {
 					filteredVideosList.add(video);
+				} else {
+					log(video, blocked.getKind(), blocked.getReason());
 				}
 			} else {
 				filteredVideosList.add(cardData);
 			}
 		}
 
+		saveDetectionCache();
 		return filteredVideosList;
 	}
 
 
 	/**
-	 * @return True if the user wants to use the video blocker, false otherwise.
+	 * @return For each video, the first rule blocking it, or null if none does.  The videos are
+	 * 			checked in parallel if the language detection is on.
+	 */
+	private List<FilterChain.Blocked<FilterType>> checkVideos(FilterChain<YouTubeVideo, FilterType> rules, List<YouTubeVideo> videos) {
+		if (rules.getMaxCost() >= COST_LANGUAGE_DETECTION  &&  videos.size() > 1) {
+			try {
+				return rules.check(videos, getDetectionExecutor());
+			} catch (InterruptedException e) {
+				// the page is no longer wanted, but checking it on this thread is harmless
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		final List<FilterChain.Blocked<FilterType>> blockedVideos = new ArrayList<>(videos.size());
+		for (YouTubeVideo video : videos) {
+			blockedVideos.add(rules.check(video));
+		}
+		return blockedVideos;
+	}
+
+
+	/**
+	 * @return The rules compiled from the current settings.
+	 */
+	private FilterChain<YouTubeVideo, FilterType> getRules() {
+		final FilterChain<YouTubeVideo, FilterType> rules = VideoBlocker.rules;
+		return rules != null ? rules : compileRules();
+	}
+
+
+	/**
+	 * Compile the rules from the settings, unless another thread did meanwhile.  The rules are dropped
+	 * as soon as one of the video blocker settings changes.
+	 */
+	private FilterChain<YouTubeVideo, FilterType> compileRules() {
+		final int version;
+		synchronized (VideoBlocker.class) {
+			if (rules != null) {
+				return rules;
+			}
+			if (preferencesListener == null) {
+				final Set<String> keys = new HashSet<>(Arrays.asList(
+						getStr(R.string.pref_key_enable_video_blocker),
+						getStr(R.string.pref_key_channel_filter_method),
+						getStr(R.string.pref_key_preferred_languages),
+						getStr(R.string.pref_key_lang_detection_video_filtering),
+						getStr(R.string.pref_key_low_views_filter),
+						getStr(R.string.pref_key_dislikes_filter)));
+				preferencesListener = (sharedPreferences, key) -> {
+					if (keys.contains(key)) {
+						synchronized (VideoBlocker.class) {
+							preferencesVersion++;
+							rules = null;
+						}
+					}
+				};
+				// the preferences only keep a weak reference to the listener
+				SkyTubeApp.getPreferenceManager().registerOnSharedPreferenceChangeListener(preferencesListener);
+			}
+			version = preferencesVersion;
+		}
+
+		final FilterChain<YouTubeVideo, FilterType> compiledRules = buildRules(SkyTubeApp.getPreferenceManager());
+		Logger.i(this, "Video blocker rules: %s", compiledRules.getKinds());
+
+		synchronized (VideoBlocker.class) {
+			// the settings might have changed while they were read
+			if (version == preferencesVersion) {
+				rules = compiledRules;
+			}
+		}
+		return compiledRules;
+	}
+
+
+	/**
+	 * @return The rules set by the user, by increasing cost:  the cheap checks (e.g. the channel
+	 * 			lists) come first, and the language detection comes last.
 	 */
-	private boolean isVideoBlockerEnabled() {
-		return SkyTubeApp.getPreferenceManager().getBoolean(getStr(R.string.pref_key_enable_video_blocker), true);
+	private FilterChain<YouTubeVideo, FilterType> buildRules(SharedPreferences preferences) {
+		final FilterChain.Builder<YouTubeVideo, FilterType> builder = new FilterChain.Builder<>();
+
+		// if the video blocker is disabled, then there are no rules
+		if (!preferences.getBoolean(getStr(R.string.pref_key_enable_video_blocker), true)) {
+			return builder.build();
+		}
+
+		if (isChannelBlacklistEnabled()) {
+			builder.add(FilterType.CHANNEL_BLACKLIST, COST_CHANNEL, video ->
+					filterByBlacklistedChannels(video.getChannel().getId(), ChannelFilteringDb.getChannelFilteringDb().getBlacklistedChannelIds())
+							? video.getChannelName() : null);
+		} else {
+			builder.add(FilterType.CHANNEL_WHITELIST, COST_CHANNEL, video ->
+					filterByWhitelistedChannels(video.getChannel().getId(), ChannelFilteringDb.getChannelFilteringDb().getWhitelistedChannelIds())
+							? video.getChannelName() : null);
+		}
+
+		final BigInteger minimumVideoViews = new BigInteger(preferences.getString(getStr(R.string.pref_key_low_views_filter), getStr(R.string.views_filtering_disabled)));
+		// if the user has not enabled the view filtering (i.e. it is set as -1), then do not filter
+		if (minimumVideoViews.signum() >= 0) {
+			builder.add(FilterType.VIEWS, COST_VIEWS, video -> filterByViews(video, minimumVideoViews));
+		}
+
+		final int minimumVideoDislikes = Integer.parseInt(preferences.getString(getStr(R.string.pref_key_dislikes_filter), getStr(R.string.dislikes_filtering_disabled)));
+		// if the user has not enabled the dislikes filtering (i.e. it is set as -1), then do not filter
+		if (minimumVideoDislikes >= 0) {
+			builder.add(FilterType.DISLIKES, COST_DISLIKES, video -> filterByDislikes(video, minimumVideoDislikes));
+		}
+
+		// set of user's preferred ISO 639 language codes (regex)
+		final LanguageMatcher preferredLanguages = new LanguageMatcher(preferences.getStringSet(getStr(R.string.pref_key_preferred_languages), defaultPrefLanguages));
+		// if there are no preferred languages, then it means we must not filter any video
+		if (!preferredLanguages.isEmpty()) {
+			builder.add(FilterType.LANGUAGE, COST_LANGUAGE, video -> filterByLanguage(video, preferredLanguages));
+
+			// if the user wants to block videos based on artificial language detection
+			if (preferences.getBoolean(getStr(R.string.pref_key_lang_detection_video_filtering), false)) {
+				// the detector only knows the preferred languages, and a few others
+				final List<LdLocale> detectorLanguages = LanguageDetection.selectLanguages(preferredLanguages);
+				builder.add(FilterType.LANGUAGE_DETECTION, COST_LANGUAGE_DETECTION, video -> filterByLanguageDetection(video, preferredLanguages, detectorLanguages));
+			}
+		}
+
+		return builder.build();
 	}
 
 
@@ -131,8 +278,8 @@ public class VideoBlocker {
 		if (!isChannelBlacklistEnabled) {
 			return channels;
 		}
-		final List<String>      blacklistedChannelIds = isChannelBlacklistEnabled  ? ChannelFilteringDb.getChannelFilteringDb().getBlacklistedChannelsIdsList() : null;
-		final List<String>      whitelistedChannelIds = !isChannelBlacklistEnabled ? ChannelFilteringDb.getChannelFilteringDb().getWhitelistedChannelsIdsList() : null;
+		final Set<String>       blacklistedChannelIds = isChannelBlacklistEnabled  ? ChannelFilteringDb.getChannelFilteringDb().getBlacklistedChannelIds() : null;
+		final Set<String>       whitelistedChannelIds = !isChannelBlacklistEnabled ? ChannelFilteringDb.getChannelFilteringDb().getWhitelistedChannelIds() : null;
 
 		for (ChannelView channel : channels) {
 			if ( !(isChannelBlacklistEnabled ? filterByBlacklistedChannels(channel.getId(), blacklistedChannelIds)
@@ -171,24 +318,6 @@ public class VideoBlocker {
 	}
 
 
-	/**
-	 * Filter the video for blacklisted channels.
-	 *
-	 * @param video                 Video to be checked.
-	 * @param blacklistedChannelIds Blacklisted channels IDs.
-	 *
-	 * @return True if the video is to be filtered; false otherwise.
-	 */
-	private boolean filterByBlacklistedChannels(YouTubeVideo video, List<String> blacklistedChannelIds) {
-		if (filterByBlacklistedChannels(video.getChannel().getId(), blacklistedChannelIds)) {
-			log(video, FilterType.CHANNEL_BLACKLIST, video.getChannelName());
-			return true;
-		} else {
-			return false;
-		}
-	}
-
-
 	/**
 	 * Filter the channel for blacklisted channels.
 	 *
@@ -197,29 +326,11 @@ public class VideoBlocker {
 	 *
 	 * @return True if the channel is to be filtered; false otherwise.
 	 */
-	private boolean filterByBlacklistedChannels(String channelId, List<String> blacklistedChannelIds) {
+	private boolean filterByBlacklistedChannels(String channelId, Set<String> blacklistedChannelIds) {
 		return blacklistedChannelIds.contains(channelId);
 	}
 
 
-	/**
-	 * Filter the video for whitelisted channels.
-	 *
-	 * @param video                 Video to be checked.
-	 * @param whitelistedChannelIds Whitelisted channels IDs.
-	 *
-	 * @return True if the video is to be filtered; false otherwise.
-	 */
-	private boolean filterByWhitelistedChannels(YouTubeVideo video, List<String> whitelistedChannelIds) {
-		if (filterByWhitelistedChannels(video.getChannel().getId(), whitelistedChannelIds)) {
-			log(video, FilterType.CHANNEL_WHITELIST, video.getChannelName());
-			return true;
-		} else {
-			return false;
-		}
-	}
-
-
 	/**
 	 * Filter the channel for whitelisted channels.
 	 *
@@ -228,44 +339,39 @@ public class VideoBlocker {
 	 *
 	 * @return True if the channel is to be filtered; false otherwise.
 	 */
-	private boolean filterByWhitelistedChannels(String channelId, List<String> whitelistedChannelIds) {
+	private boolean filterByWhitelistedChannels(String channelId, Set<String> whitelistedChannelIds) {
 		return !whitelistedChannelIds.contains(channelId);
 	}
 
 
 	/**
-	 * Return true if this video does not meet the preferred language criteria;  false otherwise.
-	 * Many YouTube videos do not set the language, hence this method will not be accurate.
+	 * Checks whether this video does not meet the preferred language criteria.  Many YouTube videos
+	 * do not set the language, hence this method will not be accurate.
 	 *
 	 * @param video                 Video that is going to be checked for filtering purposes.
-	 * @param preferredLanguages    A set of user's preferred ISO 639 language codes (regex).
+	 * @param preferredLanguages    The user's preferred ISO 639 language codes.
 	 *
-	 * @return True to filter out the video; false otherwise.
+	 * @return The language of the video to filter it out; null otherwise.
 	 */
-	private boolean filterByLanguage(YouTubeVideo video, Set<String> preferredLanguages) {
+	private String filterByLanguage(YouTubeVideo video, LanguageMatcher preferredLanguages) {
+		final String language = video.getLanguage();
+
 		// if the video's language is not defined (i.e. null) or empty
 		//	OR if there is no linguistic content to the video (zxx)
 		//	OR if the language is undefined (und)
 		// then we are NOT going to filter this video
-		if (video.getLanguage() == null
-				|| video.getLanguage().isEmpty()
-				|| video.getLanguage().equalsIgnoreCase("zxx")
-				|| video.getLanguage().equalsIgnoreCase("und"))
-			return false;
-
-		// if there are no preferred languages, then it means we must not filter this video
-		if (preferredLanguages.isEmpty())
-			return false;
+		if (language == null
+				|| language.isEmpty()
+				|| language.equalsIgnoreCase("zxx")
+				|| language.equalsIgnoreCase("und"))
+			return null;
 
 		// if this video's language is equal to the user's preferred one... then do NOT filter it out
-		for (String prefLanguage : preferredLanguages) {
-			if (video.getLanguage().matches(prefLanguage))
-				return false;
-		}
+		if (preferredLanguages.matches(language))
+			return null;
 
 		// this video is undesirable, hence we are going to filter it
-		log(video, FilterType.LANGUAGE, video.getLanguage());
-		return true;
+		return language;
 	}
 
 
@@ -274,69 +380,149 @@ public class VideoBlocker {
 	 * try to determine the language of the video by analyzing the video's title.
 	 *
 	 * @param video                 Video that is going to be checked for filtering purposes.
-	 * @param preferredLanguages    A set of user's preferred ISO 639 language codes (regex).
+	 * @param preferredLanguages    The user's preferred ISO 639 language codes.
+	 * @param detectorLanguages     The languages known by the detector.
 	 *
-	 * @return True to filter out the video; false otherwise.
+	 * @return The detected languages to filter out the video; null otherwise.
 	 */
-	private boolean filterByLanguageDetection(YouTubeVideo video, Set<String> preferredLanguages) {
+	private String filterByLanguageDetection(YouTubeVideo video, LanguageMatcher preferredLanguages, List<LdLocale> detectorLanguages) {
 		final String text = video.getTitle().toLowerCase();
-		List<String> detectLanguageList = new ArrayList<>();
+		List<String> detectLanguageList;
 
-		// if the user does not want to block videos based on artificial language detection, then do
-		// not filter the video
-		if (!SkyTubeApp.getPreferenceManager().getBoolean(getStr(R.string.pref_key_lang_detection_video_filtering), false))
-			return false;
+		try {
+			final LanguageDetection languageDetection = getLanguageDetection(detectorLanguages);
+			final LanguageDetectionCache detectionCache = getDetectionCache(languageDetection.getLanguagesSignature());
+			detectLanguageList = detectionCache.get(text);
 
-		// if there are no preferred languages, then it means we must not filter this video
-		if (preferredLanguages.isEmpty())
-			return false;
+			if (detectLanguageList == null) {
+				detectLanguageList = languageDetection.detect(text);
+				detectionCache.put(text, detectLanguageList);
+			}
+		} catch (Throwable tr) {
+			Logger.e(this, "Exception caught while detecting language", tr);
+			return "[]";
+		}
 
-		try {
-			// detect language
-			TextObject textObject = LanguageDetectionSingleton.get().getTextObjectFactory().forText(text);
-			Optional<LdLocale> lang = LanguageDetectionSingleton.get().getLanguageDetector().detect(textObject);
+		// if one of the detected languages is equal to the user's preferred one... then do NOT filter it out
+		for (String langDetected : detectLanguageList) {
+			if (preferredLanguages.matches(langDetected))
+				return null;
+		}
 
-			// if the confidence in the language detection is 100%, then ...
-			if (lang.isPresent()) {
-				final String langDetected = lang.get().getLanguage();
+		return detectLanguageList.toString();
+	}
 
-				detectLanguageList.add(langDetected);
 
-				// if this video's language is equal to the user's preferred one... then do NOT filter it out
-				for (String prefLanguage : preferredLanguages) {
-					if (langDetected.matches(prefLanguage))
-						return false;
-				}
-			} else {
-				// else if the library is not 100% that the language detected is the correct one...
-				List<DetectedLanguage> detectedLangList = LanguageDetectionSingleton.get().getLanguageDetector().getProbabilities(text);
+	/**
+	 * Load the language detector and the detected languages in advance, if the language detection is
+	 * on, so that the first page of videos isn't held up.  Called on a background thread at startup.
+	 */
+	public static void warmUp() {
+		final SharedPreferences preferences = SkyTubeApp.getPreferenceManager();
+		if (preferences.getBoolean(getStr(R.string.pref_key_enable_video_blocker), true)
+				&& preferences.getBoolean(getStr(R.string.pref_key_lang_detection_video_filtering), false)) {
+			final LanguageMatcher preferredLanguages = new LanguageMatcher(preferences.getStringSet(getStr(R.string.pref_key_preferred_languages), defaultPrefLanguages));
+			try {
+				final LanguageDetection languageDetection = getLanguageDetection(LanguageDetection.selectLanguages(preferredLanguages));
+				getDetectionCache(languageDetection.getLanguagesSignature());
+			} catch (IOException e) {
+				Log.e(TAG, "Unable to load the language detector", e);
+			}
+		}
+	}
 
-				for (DetectedLanguage detectedLanguage : detectedLangList) {
-					String langDetected = detectedLanguage.getLocale().getLanguage();
 
-					detectLanguageList.add(langDetected);
+	/**
+	 * @param detectorLanguages The languages to detect.
+	 *
+	 * @return The language detector, built again if the languages have changed (i.e. the preferred
+	 * 			languages).
+	 */
+	private static LanguageDetection getLanguageDetection(List<LdLocale> detectorLanguages) throws IOException {
+		LanguageDetection detection = languageDetection;
+		if (detection != null  &&  detection.getLanguages().equals(detectorLanguages)) {
+			return detection;
+		}
+		synchronized (LANGUAGE_DETECTION_LOCK) {
+			detection = languageDetection;
+			if (detection == null  ||  !detection.getLanguages().equals(detectorLanguages)) {
+				final long start = System.currentTimeMillis();
+				// drop the previous detector first, to not hold both in memory
+				languageDetection = null;
+				detection = null;
+				detection = new LanguageDetection(detectorLanguages);
+				languageDetection = detection;
+				Log.i(TAG, String.format("Loaded the language detector for %d languages in %d ms",
+						detectorLanguages.size(), System.currentTimeMillis() - start));
+			}
+			return detection;
+		}
+	}
 
-					for (String prefLanguage : preferredLanguages) {
-						if (langDetected.matches(prefLanguage))
-							return false;
-					}
-				}
+
+	/**
+	 * @param detectorLanguages The languages known by the detector.
+	 *
+	 * @return The languages detected in the video titles, loaded from the disk the first time (and
+	 * 			whenever the detector languages change).
+	 */
+	private static synchronized LanguageDetectionCache getDetectionCache(String detectorLanguages) {
+		if (detectionCache == null  ||  !detectionCache.getDetectorLanguages().equals(detectorLanguages)) {
+			detectionCache = new LanguageDetectionCache(DETECTION_CACHE_SIZE, detectorLanguages);
+			try {
+				detectionCache.load(getDetectionCacheFile());
+			} catch (IOException e) {
+				Log.e(TAG, "Unable to load the detected languages", e);
 			}
-		} catch (Throwable tr) {
-			Logger.e(this, "Exception caught while detecting language", tr);
+			lastDetectionCacheSave = System.currentTimeMillis();
 		}
+		return detectionCache;
+	}
+
 
-		log(video, FilterType.LANGUAGE_DETECTION, detectLanguageList.toString());
-		return true;
+	/**
+	 * Save the detected languages to the disk, if new titles were analyzed - at most every
+	 * {@link #DETECTION_CACHE_SAVE_INTERVAL_MILLIS}.
+	 */
+	private static void saveDetectionCache() {
+		final LanguageDetectionCache cache;
+		synchronized (VideoBlocker.class) {
+			cache = detectionCache;
+			if (cache == null  ||  !cache.isDirty()
+					|| System.currentTimeMillis() - lastDetectionCacheSave < DETECTION_CACHE_SAVE_INTERVAL_MILLIS) {
+				return;
+			}
+			lastDetectionCacheSave = System.currentTimeMillis();
+		}
+		try {
+			cache.save(getDetectionCacheFile());
+			Log.i(TAG, String.format("Saved %d detected languages (hits=%d, misses=%d)", cache.size(), cache.getHitCount(), cache.getMissCount()));
+		} catch (IOException e) {
+			Log.e(TAG, "Unable to save the detected languages", e);
+		}
+	}
+
+
+	private static File getDetectionCacheFile() {
+		return new File(SkyTubeApp.getContext().getCacheDir(), DETECTION_CACHE_FILE_NAME);
 	}
 
 
 	/**
-	 * @return The views filtering value set by the user.
+	 * @return The pool detecting the languages of a page of videos in parallel:  bounded by the
+	 * 			number of CPUs, as the detection is CPU bound.
 	 */
-	private BigInteger getViewsFilteringValue() {
-		final  String viewsFiltering = SkyTubeApp.getPreferenceManager().getString(getStr(R.string.pref_key_low_views_filter), getStr(R.string.views_filtering_disabled));
-		return new BigInteger(viewsFiltering);
+	private static synchronized ExecutorService getDetectionExecutor() {
+		if (detectionExecutor == null) {
+			final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+			final AtomicInteger threadCount = new AtomicInteger();
+			detectionExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "video-blocker-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return detectionExecutor;
 	}
 
 
@@ -348,30 +534,17 @@ public class VideoBlocker {
 	 * @param minimumVideoViews The minimum amount of views that a video should have as set by the
 	 *                          user.
 	 *
-	 * @return True to filter out the video; false otherwise.
+	 * @return The views of the video to filter it out; null otherwise.
 	 */
-	private boolean filterByViews(YouTubeVideo video, BigInteger minimumVideoViews) {
-		// if the user has not enabled the view filtering (i.e. it is set as -1), then do not filter
-		// this video
-		if (minimumVideoViews.signum() < 0  ||  video.getViewsCountInt() == null)
-			return false;
+	private String filterByViews(YouTubeVideo video, BigInteger minimumVideoViews) {
+		final BigInteger views = video.getViewsCountInt();
 
 		// if the video has less views than minimumVideoViews, then filter it out
-		if (video.getViewsCountInt().compareTo(minimumVideoViews) < 0) {
-			log(video, FilterType.VIEWS, String.format(getStr(R.string.views), video.getViewsCountInt()));
-			return true;
+		if (views != null && views.compareTo(minimumVideoViews) < 0) {
+			return String.format(getStr(R.string.views), views);
 		}
 
-		return false;
-	}
-
-
-	/**
-	 * @return The dislikes filtering value set by the user.
-	 */
-	private int getDislikesFilteringValue() {
-		final  String dislikesFiltering = SkyTubeApp.getPreferenceManager().getString(getStr(R.string.pref_key_dislikes_filter), getStr(R.string.dislikes_filtering_disabled));
-		return Integer.parseInt(dislikesFiltering);
+		return null;
 	}
 
 
@@ -383,27 +556,21 @@ public class VideoBlocker {
 	 * @param minimumVideoDislikes  The minimum amount of dislikes that a video should have as set
 	 *                              by the user.
 	 *
-	 * @return True to filter out the video; false otherwise.
+	 * @return The dislikes of the video to filter it out; null otherwise.
 	 */
-	private boolean filterByDislikes(YouTubeVideo video, int minimumVideoDislikes) {
-		// if the user has not enabled the dislikes filtering (i.e. it is set as -1), then do not
-		// filter this video
-		if (minimumVideoDislikes < 0)
-			return false;
-
+	private String filterByDislikes(YouTubeVideo video, int minimumVideoDislikes) {
 		// a video may not allow users to like/dislike...
 		if (video.getThumbsUpPercentage() == -1)
-			return false;
+			return null;
 
 		final int dislikesPercentage = 100 - video.getThumbsUpPercentage();
 
 		// if the video has more dislikes than minimumVideoDislikes, then filter it out
 		if (dislikesPercentage >= minimumVideoDislikes) {
-			log(video, FilterType.DISLIKES, String.format(getStr(R.string.dislikes), dislikesPercentage));
-			return true;
+			return String.format(getStr(R.string.dislikes), dislikesPercentage);
 		}
 
-		return false;
+		return null;
 	}
 
 
@@ -493,50 +660,4 @@ public class VideoBlocker {
 
 	}
 
-
-	/**
-	 * A singleton of objects used to detect languages.  This is required to improve the language
-	 * detection performance...
-	 */
-	private static class LanguageDetectionSingleton {
-
-		private static LanguageDetectionSingleton languageDetectionSingleton = null;
-		private TextObjectFactory textObjectFactory;
-		private LanguageDetector  languageDetector;
-
-
-		private LanguageDetectionSingleton() throws IOException {
-			// load all languages
-			List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
-
-			// build language detector
-			languageDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
-					.withProfiles(languageProfiles)
-					.build();
-
-			// create a text object factory
-			textObjectFactory = CommonTextObjectFactories.forDetectingShortCleanText();
-		}
-
-
-		public static LanguageDetectionSingleton get() throws IOException {
-			if (languageDetectionSingleton == null) {
-				languageDetectionSingleton = new LanguageDetectionSingleton();
-			}
-
-			return languageDetectionSingleton;
-		}
-
-
-		TextObjectFactory getTextObjectFactory() {
-			return textObjectFactory;
-		}
-
-
-		LanguageDetector getLanguageDetector() {
-			return languageDetector;
-		}
-
-	}
-
 }
@@ -0,0 +1,252 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube.VideoStream;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the rate of the requests sent to each host, with a token bucket whose rate adapts to the
+ * host's answers, like TCP's congestion control:  every successful request raises the rate a bit
+ * (additive increase), and every throttled one - "429 Too Many Requests", or a 5xx error - halves
+ * it (multiplicative decrease), and pauses all the requests to the host for the retry delay.
+ *
+ * <p>The retry delays grow exponentially with the attempts, with a random jitter so that the
+ * throttled requests are not all retried at once.</p>
+ *
+ * <p>The throttled requests are counted per thread as well, so that a task sending its requests
+ * synchronously can tell whether it was throttled - see {@link #getThreadThrottleCount()}.</p>
+ */
+public class AdaptiveRateLimiter {
+
+	/** The requests per second sent to a host at first. */
+	static final double DEFAULT_INITIAL_RATE = 20;
+	static final double DEFAULT_MIN_RATE = 0.5;
+	static final double DEFAULT_MAX_RATE = 40;
+	/** The requests which can be sent at once, after a pause. */
+	static final int DEFAULT_BURST = 10;
+	static final long DEFAULT_BASE_RETRY_DELAY_MILLIS = 1000;
+	static final long MAX_RETRY_DELAY_MILLIS = 30 * 1000;
+
+	private final double initialRate;
+	private final double minRate;
+	private final double maxRate;
+	private final int burst;
+	private final long baseRetryDelayMillis;
+	private final Clock clock;
+	private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+	private final Random random = new Random();
+	private final AtomicLong throttleCount = new AtomicLong();
+	private final AtomicLong throttledMillis = new AtomicLong();
+	private final ThreadLocal<long[]> threadThrottleCount = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+
+	/**
+	 * The time, and the waits - replaced by the tests.
+	 */
+	interface Clock {
+		long currentTimeMillis();
+		void sleep(long millis) throws InterruptedException;
+	}
+
+
+	private static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void sleep(long millis) throws InterruptedException {
+			Thread.sleep(millis);
+		}
+	};
+
+
+	/**
+	 * The token bucket of a host.
+	 */
+	private final class Bucket {
+		private double rate = initialRate;
+		private double tokens = burst;
+		private long refilledAt = clock.currentTimeMillis();
+		private long pausedUntil = 0;
+		private long decreasedAt = 0;
+
+		/**
+		 * @return How long to wait for a token, or 0 if one was taken.
+		 */
+		synchronized long take(long now) {
+			if (now < pausedUntil) {
+				return pausedUntil - now;
+			}
+			tokens = Math.min(burst, tokens + (now - refilledAt) * rate / 1000);
+			refilledAt = now;
+			if (tokens >= 1) {
+				tokens--;
+				return 0;
+			}
+			return Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / rate));
+		}
+
+		synchronized void succeeded() {
+			rate = Math.min(maxRate, rate + 1 / rate);
+		}
+
+		synchronized void throttled(long now, long retryDelayMillis) {
+			// the requests in flight were sent at the same rate:  halve it only once for them
+			if (now - decreasedAt > retryDelayMillis) {
+				rate = Math.max(minRate, rate / 2);
+				decreasedAt = now;
+			}
+			pausedUntil = Math.max(pausedUntil, now + retryDelayMillis);
+			// no burst once the pause is over
+			tokens = 0;
+			refilledAt = pausedUntil;
+		}
+
+		synchronized double getRate() {
+			return rate;
+		}
+	}
+
+
+	public AdaptiveRateLimiter() {
+		this(DEFAULT_INITIAL_RATE, DEFAULT_MIN_RATE, DEFAULT_MAX_RATE, DEFAULT_BURST, DEFAULT_BASE_RETRY_DELAY_MILLIS);
+	}
+
+
+	AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, int burst, long baseRetryDelayMillis) {
+		this(initialRate, minRate, maxRate, burst, baseRetryDelayMillis, SYSTEM_CLOCK);
+	}
+
+
+	AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, int burst, long baseRetryDelayMillis, Clock clock) {
+		this.initialRate = initialRate;
+		this.minRate = minRate;
+		this.maxRate = maxRate;
+		this.burst = burst;
+		this.baseRetryDelayMillis = baseRetryDelayMillis;
+		this.clock = clock;
+	}
+
+
+	/**
+	 * Wait until a request can be sent to the host.
+	 */
+	void acquire(String host) throws InterruptedException {
+		final Bucket bucket = getBucket(host);
+		long waitMillis;
+		while ((waitMillis = bucket.take(clock.currentTimeMillis())) > 0) {
+			throttledMillis.addAndGet(waitMillis);
+			clock.sleep(waitMillis);
+		}
+	}
+
+
+	/**
+	 * Record that the host answered a request.
+	 */
+	void succeeded(String host) {
+		getBucket(host).succeeded();
+	}
+
+
+	/**
+	 * Record that the host throttled a request, and pause the requests to the host.
+	 *
+	 * @param attempt          The attempts made so far for the request (from 1).
+	 * @param retryAfterMillis The delay asked by the host (Retry-After header), or 0.
+	 *
+	 * @return How long to wait before retrying the request.
+	 */
+	long throttled(String host, int attempt, long retryAfterMillis) {
+		throttleCount.incrementAndGet();
+		threadThrottleCount.get()[0]++;
+		final long retryDelayMillis = Math.max(retryAfterMillis, getRetryDelay(attempt));
+		getBucket(host).throttled(clock.currentTimeMillis(), retryDelayMillis);
+		return retryDelayMillis;
+	}
+
+
+	/**
+	 * @return A random delay between half and all of the exponential backoff of the attempt.
+	 */
+	long getRetryDelay(int attempt) {
+		final long backoff = Math.min(MAX_RETRY_DELAY_MILLIS, baseRetryDelayMillis << Math.min(attempt - 1, 16));
+		final double jitter;
+		synchronized (random) {
+			jitter = random.nextDouble();
+		}
+		return backoff / 2 + (long) (jitter * (backoff / 2));
+	}
+
+
+	/**
+	 * @return The requests per second currently allowed to the host.
+	 */
+	public double getRate(String host) {
+		final Bucket bucket = buckets.get(host);
+		return bucket != null ? bucket.getRate() : initialRate;
+	}
+
+
+	/**
+	 * @return The number of requests throttled by the hosts (i.e. 429 or 5xx).
+	 */
+	public long getThrottleCount() {
+		return throttleCount.get();
+	}
+
+
+	/**
+	 * @return The number of requests of the calling thread throttled by the hosts, whatever the
+	 * 			requests of the other threads met meanwhile.
+	 */
+	public long getThreadThrottleCount() {
+		return threadThrottleCount.get()[0];
+	}
+
+
+	/**
+	 * @return The time the requests waited for the limiter, in total.
+	 */
+	public long getThrottledMillis() {
+		return throttledMillis.get();
+	}
+
+
+	private Bucket getBucket(String host) {
+		Bucket bucket = buckets.get(host);
+		if (bucket == null) {
+			bucket = new Bucket();
+			final Bucket existing = buckets.putIfAbsent(host, bucket);
+			if (existing != null) {
+				bucket = existing;
+			}
+		}
+		return bucket;
+	}
+
+}
@@ -0,0 +1,531 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.YouTube.VideoStream;
+
+import org.schabi.newpipe.extractor.downloader.Response;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import free.rm.skytube.businessobjects.Logger;
+
+/**
+ * A disk cache of the responses of {@link HttpDownloader}, for the pages which are fetched over and
+ * over:  the channel feeds (at every subscriptions refresh), the channel and playlist pages, and the
+ * trending page.
+ *
+ * <p>How long a response is used without asking the server depends on its {@link RequestClass} -
+ * YouTube marks these pages as not cacheable, hence its cache headers are not followed.  Once
+ * stale, the response is revalidated with a conditional GET, if the server gave an ETag or a
+ * Last-Modified date:  a "304 Not Modified" costs no body, and leaves the cached response - and its
+ * {@link #getVersion(String) version} - untouched.</p>
+ *
+ * <p>One file is kept per URL, and the least recently used files are deleted once the cache exceeds
+ * its size.  The order of use is kept in memory only:  on restart the files are ordered by their
+ * modification date (i.e. when they were last fetched or revalidated).</p>
+ */
+public class HttpCache {
+
+	/** Bumped whenever the file format changes. */
+	private static final int FILE_VERSION = 1;
+	/** The offset of the validation time in a file, which is updated in place. */
+	private static final int VALIDATED_AT_OFFSET = 4;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	/**
+	 * A class of requests, recognized by their URL, and how long their responses are used without
+	 * revalidation.
+	 */
+	public static final class RequestClass {
+		private final String name;
+		private final Pattern urlPattern;
+		private final long freshnessMillis;
+
+		public RequestClass(String name, String urlRegex, long freshness, TimeUnit unit) {
+			this.name = name;
+			this.urlPattern = Pattern.compile(urlRegex);
+			this.freshnessMillis = unit.toMillis(freshness);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getFreshnessMillis() {
+			return freshnessMillis;
+		}
+
+		boolean matches(String url) {
+			return urlPattern.matcher(url).lookingAt();
+		}
+	}
+
+	private static final String YOUTUBE = "https?://(?:www\\.|m\\.)?youtube\\.com/";
+
+	/** The request classes of the extractor's pages worth caching. */
+	public static final List<RequestClass> DEFAULT_REQUEST_CLASSES = Collections.unmodifiableList(Arrays.asList(
+			new RequestClass("feed", YOUTUBE + "feeds/videos\\.xml\\?", 15, TimeUnit.MINUTES),
+			new RequestClass("trending", YOUTUBE + "feed/trending", 30, TimeUnit.MINUTES),
+			new RequestClass("channel", YOUTUBE + "(?:channel|user|c)/", 1, TimeUnit.HOURS),
+			new RequestClass("playlist", YOUTUBE + "playlist\\?", 1, TimeUnit.HOURS)));
+
+	/**
+	 * A cached response.
+	 */
+	public static final class Entry {
+		private final String url;
+		private final long storedAt;
+		private final long validatedAt;
+		private final String etag;
+		private final String lastModified;
+		private final int responseCode;
+		private final String responseMessage;
+		private final Map<String, List<String>> headers;
+		private final String body;
+		private final String latestUrl;
+
+		Entry(String url, long storedAt, long validatedAt, String etag, String lastModified,
+			  int responseCode, String responseMessage, Map<String, List<String>> headers, String body, String latestUrl) {
+			this.url = url;
+			this.storedAt = storedAt;
+			this.validatedAt = validatedAt;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.responseCode = responseCode;
+			this.responseMessage = responseMessage;
+			this.headers = headers;
+			this.body = body;
+			this.latestUrl = latestUrl;
+		}
+
+		/**
+		 * @return The ETag given by the server, or null.
+		 */
+		public String getEtag() {
+			return etag;
+		}
+
+		/**
+		 * @return The Last-Modified date given by the server, or null.
+		 */
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		boolean isFresh(long now, long freshnessMillis) {
+			return now >= validatedAt  &&  now - validatedAt < freshnessMillis;
+		}
+
+		boolean canRevalidate() {
+			return etag != null  ||  lastModified != null;
+		}
+
+		Response toResponse() {
+			return new Response(responseCode, responseMessage, headers, body, latestUrl);
+		}
+	}
+
+	private final File directory;
+	private final long maxBytes;
+	private final List<RequestClass> requestClasses;
+	/** The size of the cached files, by key, from the least recently used. */
+	private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalBytes = 0;
+	private boolean loaded = false;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong revalidationCount = new AtomicLong();
+
+
+	/**
+	 * @param directory The directory of the cache (created if needed).
+	 * @param maxBytes  The maximum size of the cached files.
+	 */
+	public HttpCache(File directory, long maxBytes) {
+		this(directory, maxBytes, DEFAULT_REQUEST_CLASSES);
+	}
+
+
+	public HttpCache(File directory, long maxBytes, List<RequestClass> requestClasses) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.requestClasses = requestClasses;
+	}
+
+
+	/**
+	 * @return The class of the given URL, or null if its responses are not cached.
+	 */
+	public RequestClass getRequestClass(String url) {
+		for (RequestClass requestClass : requestClasses) {
+			if (requestClass.matches(url)) {
+				return requestClass;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * @return The cached response for the URL - fresh or not - or null.
+	 */
+	Entry get(String url) {
+		final File file = getFile(url);
+		if (file == null) {
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			return readEntry(input, url);
+		} catch (IOException e) {
+			Logger.w(this, "Unable to read the cached response of %s: %s", url, e.getMessage());
+			remove(getKey(url));
+			return null;
+		}
+	}
+
+
+	/**
+	 * @return The time when the cached response for the URL was received in full (and not just
+	 * 			revalidated), or 0 if none is cached.  Unchanged as long as the server answers
+	 * 			the revalidations with "304 Not Modified".
+	 */
+	public long getVersion(String url) {
+		final File file = getFile(url);
+		if (file == null) {
+			return 0;
+		}
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 512))) {
+			final Entry entry = readHeader(input, url);
+			return entry != null ? entry.storedAt : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+
+	/**
+	 * Cache the given response, in full.
+	 *
+	 * @param etag          The ETag header of the response, or null.
+	 * @param lastModified  The Last-Modified header of the response, or null.
+	 */
+	void put(String url, Response response, String etag, String lastModified) {
+		final long now = System.currentTimeMillis();
+		final Map<String, List<String>> headers = new LinkedHashMap<>();
+		for (Map.Entry<String, List<String>> header : response.responseHeaders().entrySet()) {
+			// the status line has no name
+			if (header.getKey() != null) {
+				headers.put(header.getKey(), header.getValue());
+			}
+		}
+		final Entry entry = new Entry(url, now, now, etag, lastModified, response.responseCode(),
+				response.responseMessage(), headers, response.responseBody(), response.latestUrl());
+
+		final String key = getKey(url);
+		File tempFile = null;
+		try {
+			ensureLoaded();
+			tempFile = File.createTempFile(key, TEMP_FILE_SUFFIX, directory);
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				writeEntry(output, entry);
+			}
+			final long size = tempFile.length();
+			if (size > maxBytes / 4) {
+				// would evict most of the cache
+				return;
+			}
+			synchronized (this) {
+				if (!tempFile.renameTo(new File(directory, key))) {
+					throw new IOException("Unable to rename " + tempFile);
+				}
+				tempFile = null;
+				add(key, size);
+			}
+		} catch (IOException e) {
+			Logger.w(this, "Unable to cache the response of %s: %s", url, e.getMessage());
+		} finally {
+			if (tempFile != null) {
+				//noinspection ResultOfMethodCallIgnored
+				tempFile.delete();
+			}
+		}
+	}
+
+
+	/**
+	 * Record that the server confirmed the cached response is still valid.
+	 */
+	void revalidated(String url) {
+		final File file = getFile(url);
+		if (file == null) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+			output.seek(VALIDATED_AT_OFFSET);
+			output.writeLong(now);
+		} catch (IOException e) {
+			Logger.w(this, "Unable to update the cached response of %s: %s", url, e.getMessage());
+		}
+		//noinspection ResultOfMethodCallIgnored
+		file.setLastModified(now);
+	}
+
+
+	void recordHit() {
+		hitCount.incrementAndGet();
+	}
+
+
+	void recordMiss() {
+		missCount.incrementAndGet();
+	}
+
+
+	void recordRevalidation() {
+		revalidationCount.incrementAndGet();
+	}
+
+
+	/**
+	 * @return The number of responses served from the cache, without asking the server.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+
+	/**
+	 * @return The number of cacheable responses fetched in full.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+
+	/**
+	 * @return The number of responses served from the cache after a "304 Not Modified".
+	 */
+	public long getRevalidationCount() {
+		return revalidationCount.get();
+	}
+
+
+	public synchronized long getSize() {
+		ensureLoaded();
+		return totalBytes;
+	}
+
+
+	/**
+	 * @return The cached file of the URL (marked as used), or null.
+	 */
+	private File getFile(String url) {
+		final String key = getKey(url);
+		synchronized (this) {
+			ensureLoaded();
+			if (index.get(key) == null) {
+				return null;
+			}
+		}
+		return new File(directory, key);
+	}
+
+
+	private synchronized void add(String key, long size) {
+		final Long previousSize = index.put(key, size);
+		totalBytes += size - (previousSize != null ? previousSize : 0);
+
+		final Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+		while (totalBytes > maxBytes && eldest.hasNext()) {
+			final Map.Entry<String, Long> entry = eldest.next();
+			totalBytes -= entry.getValue();
+			eldest.remove();
+			//noinspection ResultOfMethodCallIgnored
+			new File(directory, entry.getKey()).delete();
+		}
+	}
+
+
+	private synchronized void remove(String key) {
+		final Long size = index.remove(key);
+		if (size != null) {
+			totalBytes -= size;
+			//noinspection ResultOfMethodCallIgnored
+			new File(directory, key).delete();
+		}
+	}
+
+
+	/**
+	 * Index the files of the cache directory, from the least recently fetched.
+	 */
+	private synchronized void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			Logger.w(this, "Unable to create %s", directory);
+			return;
+		}
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		final List<File> cachedFiles = new ArrayList<>(files.length);
+		for (File file : files) {
+			if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+				// left by an interrupted write
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			} else {
+				cachedFiles.add(file);
+			}
+		}
+		Collections.sort(cachedFiles, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+		for (File file : cachedFiles) {
+			add(file.getName(), file.length());
+		}
+	}
+
+
+	private static void writeEntry(DataOutputStream output, Entry entry) throws IOException {
+		output.writeInt(FILE_VERSION);
+		output.writeLong(entry.validatedAt);
+		output.writeLong(entry.storedAt);
+		output.writeUTF(entry.url);
+		writeNullableUTF(output, entry.etag);
+		writeNullableUTF(output, entry.lastModified);
+		output.writeInt(entry.responseCode);
+		writeNullableUTF(output, entry.responseMessage);
+		writeNullableUTF(output, entry.latestUrl);
+		output.writeInt(entry.headers.size());
+		for (Map.Entry<String, List<String>> header : entry.headers.entrySet()) {
+			output.writeUTF(header.getKey());
+			output.writeInt(header.getValue().size());
+			for (String value : header.getValue()) {
+				output.writeUTF(value);
+			}
+		}
+		// may exceed the 64 KB of writeUTF
+		final byte[] body = entry.body.getBytes(UTF_8);
+		output.writeInt(body.length);
+		output.write(body);
+	}
+
+
+	/**
+	 * @return The entry, without headers and body, or null if the file is of another version or URL
+	 * 			(i.e. a hash collision).
+	 */
+	private static Entry readHeader(DataInputStream input, String url) throws IOException {
+		if (input.readInt() != FILE_VERSION) {
+			return null;
+		}
+		final long validatedAt = input.readLong();
+		final long storedAt = input.readLong();
+		if (!input.readUTF().equals(url)) {
+			return null;
+		}
+		final String etag = readNullableUTF(input);
+		final String lastModified = readNullableUTF(input);
+		final int responseCode = input.readInt();
+		final String responseMessage = readNullableUTF(input);
+		final String latestUrl = readNullableUTF(input);
+		return new Entry(url, storedAt, validatedAt, etag, lastModified, responseCode, responseMessage,
+				Collections.<String, List<String>>emptyMap(), null, latestUrl);
+	}
+
+
+	private static Entry readEntry(DataInputStream input, String url) throws IOException {
+		final Entry header = readHeader(input, url);
+		if (header == null) {
+			return null;
+		}
+		final int headerCount = input.readInt();
+		final Map<String, List<String>> headers = new LinkedHashMap<>();
+		for (int i = 0; i < headerCount; i++) {
+			final String name = input.readUTF();
+			final int valueCount = input.readInt();
+			final List<String> values = new ArrayList<>(valueCount);
+			for (int j = 0; j < valueCount; j++) {
+				values.add(input.readUTF());
+			}
+			headers.put(name, Collections.unmodifiableList(values));
+		}
+		final byte[] body = new byte[input.readInt()];
+		input.readFully(body);
+		return new Entry(url, header.storedAt, header.validatedAt, header.etag, header.lastModified, header.responseCode,
+				header.responseMessage, Collections.unmodifiableMap(headers), new String(body, UTF_8), header.latestUrl);
+	}
+
+
+	private static void writeNullableUTF(DataOutputStream output, String value) throws IOException {
+		output.writeBoolean(value != null);
+		if (value != null) {
+			output.writeUTF(value);
+		}
+	}
+
+
+	private static String readNullableUTF(DataInputStream input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+
+	/**
+	 * @return The file name of the URL:  the hex SHA-1 of the URL.
+	 */
+	private static String getKey(String url) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(UTF_8));
+			final StringBuilder key = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every platform has SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
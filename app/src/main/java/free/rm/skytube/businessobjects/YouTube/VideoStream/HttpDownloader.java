@@ -29,102 +29,410 @@ import org.schabi.newpipe.extractor.downloader.Downloader;
 import org.schabi.newpipe.extractor.downloader.Request;
 import org.schabi.newpipe.extractor.downloader.Response;
 import org.schabi.newpipe.extractor.exceptions.ReCaptchaException;
-import org.schabi.newpipe.extractor.localization.Localization;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.net.ssl.HttpsURLConnection;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Okio;
 
 
 /**
  * Downloads HTTP content.
+ *
+ * <p>The requests are sent by OkHttp (the 3.12 branch, which still supports API 14), which
+ * negotiates HTTP/2 with the hosts supporting it, asks for gzip and decompresses it transparently.
+ * Its connections are kept alive and reused, as long as every response is read to the end and
+ * closed - including the error responses.  At most {@link #DEFAULT_MAX_CONNECTIONS_PER_HOST}
+ * requests run at once against a host:  as many connections as the pool keeps idle, so that a bulk
+ * refresh doesn't open (and handshake) more connections than can be reused.  (The limits of
+ * OkHttp's dispatcher only apply to the asynchronous calls, whereas the extractor's calls are
+ * synchronous.)</p>
+ *
+ * <p>With an {@link HttpCache}, the GET requests of the cached classes (feeds, channel pages...) are
+ * served from the cache while fresh - without waiting for a connection - and revalidated with a
+ * conditional GET once stale.</p>
+ *
+ * <p>The requests sent to a host are paced by an {@link AdaptiveRateLimiter}, which slows down as
+ * soon as the host throttles a request (429 or 5xx).  A throttled request is retried
+ * ({@link #MAX_ATTEMPTS} times in all) after a backoff:  a bulk refresh slows down instead of failing
+ * every request until the host recovers.  The extractor only reads, hence the POST requests are
+ * retried as well.</p>
  */
 public class HttpDownloader extends Downloader {
 
 	/** Mimic the Mozilla user agent */
 	private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; WOW64; rv:68.0) Gecko/20100101 Firefox/68.0";
+	/** The number of idle connections kept alive by the pool (per host, as there are few hosts). */
+	static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+	private static final long KEEP_ALIVE_MINUTES = 5;
+	private static final long TIMEOUT_SECONDS = 30;
+	private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+	/** The attempts made for a throttled GET or HEAD request, before giving up - the others are not retried. */
+	static final int MAX_ATTEMPTS = 3;
+
+	private final int maxConnectionsPerHost;
+	private final OkHttpClient client;
+	/** The same client, which doesn't silently send a request again on a connection failure either. */
+	private final OkHttpClient clientWithoutRetry;
+	private final HttpCache cache;
+	private final AdaptiveRateLimiter rateLimiter;
+	private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+	private final AtomicLong requestCount = new AtomicLong();
+	/** The bytes received, as transferred (i.e. compressed). */
+	private final AtomicLong receivedBytes = new AtomicLong();
+	/** The bytes received, once decompressed. */
+	private final AtomicLong decodedBytes = new AtomicLong();
+
+
+	public HttpDownloader() {
+		this(DEFAULT_MAX_CONNECTIONS_PER_HOST, null);
+	}
+
+
+	/**
+	 * @param cache The cache of the responses, or null.
+	 */
+	public HttpDownloader(HttpCache cache) {
+		this(DEFAULT_MAX_CONNECTIONS_PER_HOST, cache);
+	}
+
+
+	HttpDownloader(int maxConnectionsPerHost) {
+		this(maxConnectionsPerHost, null);
+	}
+
+
+	HttpDownloader(int maxConnectionsPerHost, HttpCache cache) {
+		this(maxConnectionsPerHost, cache, new AdaptiveRateLimiter());
+	}
+
+
+	HttpDownloader(int maxConnectionsPerHost, HttpCache cache, AdaptiveRateLimiter rateLimiter) {
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+		this.cache = cache;
+		this.rateLimiter = rateLimiter;
+		this.client = new OkHttpClient.Builder()
+				.connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+				.readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+				.connectionPool(new ConnectionPool(maxConnectionsPerHost, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+				.eventListener(new EventListener() {
+					@Override
+					public void responseBodyEnd(Call call, long byteCount) {
+						// as transferred, before the transparent decompression
+						receivedBytes.addAndGet(byteCount);
+					}
+				})
+				.build();
+		this.clientWithoutRetry = client.newBuilder()
+				.retryOnConnectionFailure(false)
+				.build();
+	}
+
+
+	/**
+	 * A response which the host throttled, and which is worth retrying.
+	 */
+	private static class ThrottledException extends IOException {
+		private final int responseCode;
+		private final long retryAfterMillis;
+
+		ThrottledException(int responseCode, String responseMessage, long retryAfterMillis) {
+			super(responseCode + " " + responseMessage);
+			this.responseCode = responseCode;
+			this.retryAfterMillis = retryAfterMillis;
+		}
+	}
+
 
 	@Override
 	public Response execute(Request request) throws IOException, ReCaptchaException {
-		final String httpMethod = request.httpMethod();
-		final String url = request.url();
-		final Map<String, List<String>> headers = request.headers();
-		final Localization localization = request.localization();
+		final URL url = new URL(request.url());
+		final HttpCache.RequestClass requestClass = getCachedRequestClass(request);
+		HttpCache.Entry cached = null;
+		if (requestClass != null) {
+			cached = cache.get(request.url());
+			if (cached != null && cached.isFresh(System.currentTimeMillis(), requestClass.getFreshnessMillis())) {
+				cache.recordHit();
+				return cached.toResponse();
+			}
+			if (cached != null && !cached.canRevalidate()) {
+				cached = null;
+			}
+		}
+
+		final String host = url.getHost();
+		final Semaphore permits = getHostPermits(host);
+		final boolean idempotent = isIdempotent(request);
+		for (int attempt = 1; ; attempt++) {
+			try {
+				rateLimiter.acquire(host);
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for a connection to " + host, e);
+			}
+
+			final long retryDelayMillis;
+			try {
+				requestCount.incrementAndGet();
+				final Response response = execute(request, url, requestClass != null, cached, idempotent);
+				rateLimiter.succeeded(host);
+				return response;
+			} catch (ThrottledException e) {
+				retryDelayMillis = rateLimiter.throttled(host, attempt, e.retryAfterMillis);
+				if (attempt >= MAX_ATTEMPTS || !idempotent) {
+					/*
+					 * HTTP 429 == Too Many Request
+					 * Receive from Youtube.com = ReCaptcha challenge request
+					 * See : https://github.com/rg3/youtube-dl/issues/5138
+					 */
+					if (e.responseCode == 429) {
+						throw new ReCaptchaException("reCaptcha Challenge requested", url.toString());
+					}
+					throw new IOException(e.getMessage());
+				}
+			} finally {
+				permits.release();
+			}
+
+			try {
+				Thread.sleep(retryDelayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting to retry " + url, e);
+			}
+		}
+	}
 
-		final HttpsURLConnection connection = (HttpsURLConnection) new URL(url).openConnection();
 
-		connection.setConnectTimeout(30 * 1000); // 30s
-		connection.setReadTimeout(30 * 1000); // 30s
-		connection.setRequestMethod(httpMethod);
+	/**
+	 * @return True if the request can be sent again without side effects:  only these are retried, not
+	 * 			e.g. a POST.
+	 */
+	private static boolean isIdempotent(Request request) {
+		return "GET".equals(request.httpMethod()) || "HEAD".equals(request.httpMethod());
+	}
+
 
-		connection.setRequestProperty("User-Agent", USER_AGENT);
-		connection.setRequestProperty("Accept-Language", "en");
+	/**
+	 * @param cacheable  True if the response is to be cached.
+	 * @param cached     The stale cached response to revalidate, or null.
+	 * @param idempotent True if OkHttp may send the request again on a connection failure.
+	 */
+	private Response execute(Request request, URL url, boolean cacheable, HttpCache.Entry cached, boolean idempotent) throws IOException {
+		final okhttp3.Request.Builder builder = new okhttp3.Request.Builder()
+				.url(url)
+				.method(request.httpMethod(), getRequestBody(request))
+				.header("User-Agent", USER_AGENT)
+				.header("Accept-Language", "en");
 
-		for (Map.Entry<String, List<String>> pair : headers.entrySet()) {
+		for (Map.Entry<String, List<String>> pair : request.headers().entrySet()) {
 			final String headerName = pair.getKey();
-			final List<String> headerValueList = pair.getValue();
+			// OkHttp only decompresses the responses transparently if it chose the encodings itself
+			// (brotli is not supported by OkHttp 3.12)
+			if ("Accept-Encoding".equalsIgnoreCase(headerName)) {
+				continue;
+			}
+			builder.removeHeader(headerName);
+			for (String headerValue : pair.getValue()) {
+				builder.addHeader(headerName, headerValue);
+			}
+		}
 
-			if (headerValueList.size() > 1) {
-				connection.setRequestProperty(headerName, null);
-				for (String headerValue : headerValueList) {
-					connection.addRequestProperty(headerName, headerValue);
-				}
-			} else if (headerValueList.size() == 1) {
-				connection.setRequestProperty(headerName, headerValueList.get(0));
+		if (cached != null) {
+			if (cached.getEtag() != null) {
+				builder.header("If-None-Match", cached.getEtag());
+			}
+			if (cached.getLastModified() != null) {
+				builder.header("If-Modified-Since", cached.getLastModified());
 			}
 		}
 
-		try(OutputStream outputStream = sendOutput(request, connection)) {
-
-			final String response = readResponse(connection);
-
-			final int responseCode = connection.getResponseCode();
-			final String responseMessage = connection.getResponseMessage();
-			final Map<String, List<String>> responseHeaders = connection.getHeaderFields();
-			final URL latestUrl = connection.getURL();
-			return new Response(responseCode, responseMessage, responseHeaders, response, latestUrl.toString());
-		} catch (Exception e) {
-			/*
-			 * HTTP 429 == Too Many Request
-			 * Receive from Youtube.com = ReCaptcha challenge request
-			 * See : https://github.com/rg3/youtube-dl/issues/5138
-			 */
-			if (connection.getResponseCode() == 429) {
-				throw new ReCaptchaException("reCaptcha Challenge requested", url);
+		try (okhttp3.Response response = (idempotent ? client : clientWithoutRetry).newCall(builder.build()).execute()) {
+			final int responseCode = response.code();
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+				discard(response.body());
+				cache.revalidated(request.url());
+				cache.recordRevalidation();
+				return cached.toResponse();
 			}
+			if (responseCode >= 400) {
+				// read the error response to the end, so that the connection is reused
+				discard(response.body());
 
-			throw new IOException(connection.getResponseCode() + " " + connection.getResponseMessage(), e);
+				if (responseCode == 429 || responseCode >= 500) {
+					throw new ThrottledException(responseCode, response.message(),
+							getRetryAfterMillis(response.header("Retry-After")));
+				}
+				throw new IOException(responseCode + " " + response.message());
+			}
+
+			final String body = readResponse(response);
+			final Response result = new Response(responseCode, response.message(), response.headers().toMultimap(),
+					body, response.request().url().toString());
+			if (cacheable) {
+				cache.recordMiss();
+				if (responseCode == HttpURLConnection.HTTP_OK) {
+					cache.put(request.url(), result, response.header("ETag"), response.header("Last-Modified"));
+				}
+			}
+			return result;
 		}
 	}
 
-	private OutputStream sendOutput(Request request, HttpsURLConnection connection) throws IOException {
+
+	/**
+	 * @return The data to send, or null if the method has no body.
+	 */
+	private static RequestBody getRequestBody(Request request) {
 		final byte[] dataToSend = request.dataToSend();
 		if (dataToSend != null && dataToSend.length > 0) {
-			connection.setDoOutput(true);
-			connection.setRequestProperty("Content-Length", String.valueOf(dataToSend.length));
-			OutputStream outputStream = connection.getOutputStream();
-			outputStream.write(dataToSend);
-			return outputStream;
+			return RequestBody.create(null, dataToSend);
+		}
+		// OkHttp requires a body for the other methods, e.g. an empty POST
+		return isIdempotent(request) ? null : RequestBody.create(null, new byte[0]);
+	}
+
+
+	/**
+	 * @param retryAfter The Retry-After header, in seconds (the HTTP-date form is ignored).
+	 *
+	 * @return The delay, up to {@link AdaptiveRateLimiter#MAX_RETRY_DELAY_MILLIS}, or 0.
+	 */
+	static long getRetryAfterMillis(String retryAfter) {
+		if (retryAfter != null) {
+			try {
+				return Math.min(AdaptiveRateLimiter.MAX_RETRY_DELAY_MILLIS, Math.max(0, Long.parseLong(retryAfter.trim()) * 1000));
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+		return 0;
+	}
+
+
+	/**
+	 * @return The class of the request if its response is cached, or null.
+	 */
+	private HttpCache.RequestClass getCachedRequestClass(Request request) {
+		if (cache == null || !"GET".equals(request.httpMethod())
+				|| (request.dataToSend() != null && request.dataToSend().length > 0)) {
+			return null;
+		}
+		return cache.getRequestClass(request.url());
+	}
+
+
+	/**
+	 * @return The response body, decoded with the charset of its content type (UTF-8 by default).
+	 */
+	private String readResponse(okhttp3.Response response) throws IOException {
+		final ResponseBody body = response.body();
+		if (body == null) {
+			return "";
+		}
+		final byte[] decoded = body.bytes();
+		decodedBytes.addAndGet(decoded.length);
+		return new String(decoded, getCharset(response.header("Content-Type")));
+	}
+
+
+	private static void discard(ResponseBody body) {
+		if (body == null) {
+			return;
+		}
+		try {
+			body.source().readAll(Okio.blackhole());
+		} catch (IOException e) {
+			// the connection is simply not reused
 		}
-		return null;
 	}
 
-	private String readResponse(HttpsURLConnection connection) throws IOException {
-		try (InputStreamReader input = new InputStreamReader(connection.getInputStream())) {
-			final StringBuilder response = new StringBuilder();
 
-			int readCount;
-			char[] buffer = new char[32 * 1024];
-			while ((readCount = input.read(buffer)) != -1) {
-				response.append(buffer, 0, readCount);
+	/**
+	 * @param contentType The Content-Type header, e.g. "text/html; charset=ISO-8859-1".
+	 *
+	 * @return Its charset, or UTF-8 if it has none (or an unknown one).
+	 */
+	static Charset getCharset(String contentType) {
+		if (contentType != null) {
+			for (String parameter : contentType.split(";")) {
+				final String[] pair = parameter.trim().split("=", 2);
+				if (pair.length == 2 && pair[0].trim().toLowerCase(Locale.US).equals("charset")) {
+					try {
+						return Charset.forName(pair[1].trim().replace("\"", ""));
+					} catch (IllegalArgumentException e) {
+						return DEFAULT_CHARSET;
+					}
+				}
 			}
-			return response.toString();
 		}
+		return DEFAULT_CHARSET;
+	}
+
+
+	private Semaphore getHostPermits(String host) {
+		Semaphore permits = hostPermits.get(host);
+		if (permits == null) {
+			permits = new Semaphore(maxConnectionsPerHost, true);
+			final Semaphore existing = hostPermits.putIfAbsent(host, permits);
+			if (existing != null) {
+				permits = existing;
+			}
+		}
+		return permits;
+	}
+
+
+	/**
+	 * @return The cache of the responses, or null.
+	 */
+	public HttpCache getCache() {
+		return cache;
+	}
+
+
+	/**
+	 * @return The limiter of the requests, with the current rate per host and the throttling counts.
+	 */
+	public AdaptiveRateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+
+	/**
+	 * @return The bytes of the response bodies, as transferred (i.e. compressed).
+	 */
+	public long getReceivedBytes() {
+		return receivedBytes.get();
+	}
+
+
+	/**
+	 * @return The bytes of the response bodies, once decompressed.
+	 */
+	public long getDecodedBytes() {
+		return decodedBytes.get();
 	}
 
 }
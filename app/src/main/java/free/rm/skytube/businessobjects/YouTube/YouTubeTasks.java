@@ -7,6 +7,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import org.schabi.newpipe.extractor.StreamingService;
@@ -19,11 +20,13 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 import free.rm.skytube.R;
 import free.rm.skytube.app.SkyTubeApp;
@@ -34,12 +37,16 @@ import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubePlaylist;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
 import free.rm.skytube.businessobjects.YouTube.Tasks.GetSubscriptionVideosTaskListener;
+import free.rm.skytube.businessobjects.YouTube.VideoStream.AdaptiveRateLimiter;
 import free.rm.skytube.businessobjects.YouTube.newpipe.ContentId;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeException;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeUtils;
 import free.rm.skytube.businessobjects.YouTube.newpipe.PlaylistPager;
+import free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdLongMap;
+import free.rm.skytube.businessobjects.db.PlaybackStatusDb;
 import free.rm.skytube.businessobjects.db.SubscriptionsDb;
+import free.rm.skytube.businessobjects.db.VideoRetentionPolicy;
 import free.rm.skytube.businessobjects.interfaces.GetDesiredStreamListener;
 import free.rm.skytube.gui.businessobjects.adapters.PlaylistsGridAdapter;
 import free.rm.skytube.gui.businessobjects.adapters.VideoGridAdapter;
@@ -60,7 +67,15 @@ import static free.rm.skytube.app.SkyTubeApp.getContext;
  */
 public class YouTubeTasks {
     private static final String TAG = YouTubeTasks.class.getSimpleName();
-    private static final Scheduler scheduler = Schedulers.from(Executors.newFixedThreadPool(4));
+    /** The channels refreshed at once. */
+    private static final int REFRESH_THREADS = 4;
+    private static final Scheduler scheduler = Schedulers.from(Executors.newFixedThreadPool(REFRESH_THREADS));
+    /** Fewer channels are refreshed at once while YouTube throttles the requests. */
+    private static final AdaptiveConcurrency refreshConcurrency = new AdaptiveConcurrency(REFRESH_THREADS);
+    /** Max number of channels whose new videos are written to the DB in a single transaction. */
+    private static final int BULK_INSERT_CHANNEL_GROUP_SIZE = 20;
+    /** Max time the fetched videos of a channel are held back, before they are written to the DB. */
+    private static final long BULK_INSERT_MAX_DELAY_SECONDS = 2;
 
     private YouTubeTasks() { }
 
@@ -93,63 +108,120 @@ public class YouTubeTasks {
         return Flowable.fromIterable(channelIds)
                 .flatMapSingle(channelId ->
                         Single.fromCallable(() -> {
-                            Map<String, Long> alreadyKnownVideos = subscriptionsDb.getSubscribedChannelVideosByChannelToTimestamp(channelId);
-                            List<YouTubeVideo> newVideos = fetchVideos(subscriptionsDb, alreadyKnownVideos, channelId);
-                            List<YouTubeVideo> detailedList = new ArrayList<>();
-                            if (!newVideos.isEmpty()) {
-                                YouTubeChannel dbChannel = subscriptionsDb.getCachedSubscribedChannel(channelId);
-                                for (YouTubeVideo vid : newVideos) {
-                                    YouTubeVideo details;
-                                    try {
-                                        details = NewPipeService.get().getDetails(vid.getId());
-                                        if (vid.getPublishTimestampExact()) {
-                                            details.setPublishTimestamp(vid.getPublishTimestamp());
-                                            details.setPublishTimestampExact(vid.getPublishTimestampExact());
-                                        }
-                                        details.setChannel(dbChannel);
-                                        detailedList.add(details);
-                                    } catch (ExtractionException | IOException e) {
-                                        Log.e(TAG, "Error during parsing video page for " + vid.getId() + ",msg:" + e.getMessage(), e);
-                                    }
-                                }
-                                changed.compareAndSet(false, true);
-                                subscriptionsDb.insertVideosForChannel(detailedList, channelId);
+                            refreshConcurrency.acquire();
+                            // the requests of the channel are sent by this thread
+                            final long throttleCount = getThreadThrottleCount();
+                            try {
+                                return fetchChannelVideos(subscriptionsDb, channelId, changed);
+                            } finally {
+                                refreshConcurrency.release(getThreadThrottleCount() != throttleCount);
                             }
-                            return detailedList.size();
-                        })
-                                .subscribeOn(scheduler)
-                                .observeOn(AndroidSchedulers.mainThread())
-                                .doOnSuccess(newYouTubeVideos -> {
-                                    if (listener != null) {
-                                        listener.onChannelVideosFetched(channelId, newYouTubeVideos, false);
-                                    }
-                                })
+                        }).subscribeOn(scheduler)
                 )
-                .collect(Collectors.summingInt(Integer::intValue))
-                .subscribeOn(Schedulers.io())
+                // write the fetched videos of several channels in one transaction
+                .buffer(BULK_INSERT_MAX_DELAY_SECONDS, TimeUnit.SECONDS, BULK_INSERT_CHANNEL_GROUP_SIZE)
+                .filter(group -> !group.isEmpty())
+                .concatMapSingle(group -> {
+                    Map<String, List<YouTubeVideo>> videosByChannel = new HashMap<>();
+                    for (Pair<String, List<YouTubeVideo>> channelVideos : group) {
+                        if (!channelVideos.second.isEmpty()) {
+                            videosByChannel.put(channelVideos.first, channelVideos.second);
+                        }
+                    }
+                    if (videosByChannel.isEmpty()) {
+                        return Single.just(group);
+                    }
+                    // written by the database writer thread, together with the other pending writes
+                    return subscriptionsDb.write(db -> subscriptionsDb.saveVideosInBulk(videosByChannel, false))
+                            .toSingleDefault(group);
+                })
+                // fold the bulk writes back into the database file:  queued after them, on the writer thread
+                .doOnComplete(subscriptionsDb::checkpoint)
                 .observeOn(AndroidSchedulers.mainThread())
-                .map(allVideos -> {
+                .doOnNext(group -> {
+                    if (listener != null) {
+                        for (Pair<String, List<YouTubeVideo>> channelVideos : group) {
+                            listener.onChannelVideosFetched(channelVideos.first, channelVideos.second.size(), false);
+                        }
+                    }
+                })
+                .ignoreElements()
+                .toSingle(() -> {
                     SkyTubeApp.getSettings().updateFeedsLastUpdateTime(System.currentTimeMillis());
+                    logThrottling();
                     return changed.get();
-                });
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Fetch the new videos of the channel, with their details.
+     */
+    private static Pair<String, List<YouTubeVideo>> fetchChannelVideos(@NonNull SubscriptionsDb subscriptionsDb,
+                                                                       @NonNull String channelId,
+                                                                       @NonNull AtomicBoolean changed) {
+        VideoIdLongMap alreadyKnownVideos = subscriptionsDb.getSubscribedChannelVideosByChannelToTimestamp(channelId);
+        long retentionHorizon = subscriptionsDb.getRetentionHorizon(SkyTubeApp.getSettings().getVideoRetentionPolicy(), channelId);
+        List<YouTubeVideo> newVideos = fetchVideos(subscriptionsDb, alreadyKnownVideos, retentionHorizon, channelId);
+        List<YouTubeVideo> detailedList = new ArrayList<>();
+        if (!newVideos.isEmpty()) {
+            YouTubeChannel dbChannel = subscriptionsDb.getCachedSubscribedChannel(channelId);
+            for (YouTubeVideo vid : newVideos) {
+                YouTubeVideo details;
+                try {
+                    details = NewPipeService.get().getDetails(vid.getId());
+                    if (vid.getPublishTimestampExact()) {
+                        details.setPublishTimestamp(vid.getPublishTimestamp());
+                        details.setPublishTimestampExact(vid.getPublishTimestampExact());
+                    }
+                    details.setChannel(dbChannel);
+                    detailedList.add(details);
+                } catch (ExtractionException | IOException e) {
+                    Log.e(TAG, "Error during parsing video page for " + vid.getId() + ",msg:" + e.getMessage(), e);
+                }
+            }
+            changed.compareAndSet(false, true);
+        }
+        return Pair.create(channelId, detailedList);
+    }
+
+    private static long getThreadThrottleCount() {
+        final AdaptiveRateLimiter rateLimiter = NewPipeService.getRateLimiter();
+        return rateLimiter != null ? rateLimiter.getThreadThrottleCount() : 0;
+    }
+
+    private static void logThrottling() {
+        final AdaptiveRateLimiter rateLimiter = NewPipeService.getRateLimiter();
+        if (rateLimiter != null && rateLimiter.getThrottleCount() > 0) {
+            Log.i(TAG, String.format(Locale.US, "Throttled %d times so far, waited %d ms: %.1f requests/s allowed to %s, %d channels refreshed at once",
+                    rateLimiter.getThrottleCount(), rateLimiter.getThrottledMillis(), rateLimiter.getRate(NewPipeService.YOUTUBE_HOST),
+                    NewPipeService.YOUTUBE_HOST, refreshConcurrency.getLimit()));
+        }
     }
 
     private static List<YouTubeVideo> fetchVideos(@NonNull SubscriptionsDb subscriptionsDb,
-                                                  @NonNull Map<String, Long> alreadyKnownVideos,
+                                                  @NonNull VideoIdLongMap alreadyKnownVideos,
+                                                  long retentionHorizon,
                                                   @NonNull String channelId) {
         try {
             List<YouTubeVideo> videos = NewPipeService.get().getVideosFromFeedOrFromChannel(channelId);
             // If we found a video which is already added to the db, no need to check the videos after,
             // assume, they are older, and already seen
             videos.removeIf(video -> {
-                Long storedTs = alreadyKnownVideos.get(video.getId());
-                if (storedTs != null && Boolean.TRUE.equals(video.getPublishTimestampExact()) && !storedTs.equals(video.getPublishTimestamp())) {
+                // a single lookup:  containsKey only tells a stored Long.MIN_VALUE from a missing id
+                final long storedTs = alreadyKnownVideos.get(video.getId(), Long.MIN_VALUE);
+                if (storedTs == Long.MIN_VALUE && !alreadyKnownVideos.containsKey(video.getId())) {
+                    // the retention would delete it again - it may well be one it deleted already
+                    return isBeyondRetention(video, retentionHorizon);
+                }
+                final Long publishTs = video.getPublishTimestamp();
+                if (video.getPublishTimestampExact() && (publishTs == null || publishTs != storedTs)) {
                     // the freshly retrieved video contains an exact, and different publish timestamp
-                    subscriptionsDb.setPublishTimestamp(video);
+                    subscriptionsDb.write(db -> subscriptionsDb.setPublishTimestamp(video));
                     Log.i(TAG, String.format("Updating publish timestamp for %s - %s with %s",
                             video.getId(), video.getTitle(), new Date(video.getPublishTimestamp())));
                 }
-                return storedTs != null;
+                return true;
             });
             return videos;
         } catch (NewPipeException e) {
@@ -158,6 +230,15 @@ public class YouTubeTasks {
         }
     }
 
+    /**
+     * @return True if the video was published before the retention horizon of its channel, see
+     *          {@link SubscriptionsDb#getRetentionHorizon(VideoRetentionPolicy, String)}.
+     */
+    private static boolean isBeyondRetention(@NonNull CardData video, long retentionHorizon) {
+        final Long publishTimestamp = video.getPublishTimestamp();
+        return publishTimestamp != null && publishTimestamp < retentionHorizon;
+    }
+
     /**
      * Task to asynchronously get videos for a specific channel.
      */
@@ -174,16 +255,19 @@ public class YouTubeTasks {
             return getChannelVideosInterface.getNextVideos();
         })
                 .onErrorReturnItem(Collections.emptyList())
-                .doOnSuccess(videos -> {
-                    if (db.isUserSubscribedToChannel(channelId)) {
-                        List<YouTubeVideo> realVideos = new ArrayList<>(videos.size());
-                        for (CardData cd : videos) {
-                            if (cd instanceof YouTubeVideo) {
-                                realVideos.add((YouTubeVideo) cd);
-                            }
+                .flatMap(videos -> {
+                    if (!db.isUserSubscribedToChannel(channelId)) {
+                        return Single.just(videos);
+                    }
+                    final long retentionHorizon = db.getRetentionHorizon(SkyTubeApp.getSettings().getVideoRetentionPolicy(), channelId);
+                    List<YouTubeVideo> realVideos = new ArrayList<>(videos.size());
+                    for (CardData cd : videos) {
+                        if (cd instanceof YouTubeVideo && !isBeyondRetention(cd, retentionHorizon)) {
+                            realVideos.add((YouTubeVideo) cd);
                         }
-                        db.saveVideos(realVideos, channelId);
                     }
+                    return db.write(d -> db.saveVideos(realVideos, channelId))
+                            .toSingleDefault(videos);
                 })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
@@ -369,6 +453,15 @@ public class YouTubeTasks {
                     }
                     SubscriptionsDb.getSubscriptionsDb().saveChannelVideos(channel.getYouTubeVideos(), channel.getId());
                 }
+
+                // so that binding the new cards doesn't query the playback history one by one
+                List<String> videoIds = new ArrayList<>(videosList.size());
+                for (CardData video : videosList) {
+                    if (video instanceof YouTubeVideo) {
+                        videoIds.add(video.getId());
+                    }
+                }
+                PlaybackStatusDb.getPlaybackStatusDb().preloadVideoWatchedStatus(videoIds);
             }
 
             return videosList;
@@ -24,6 +24,7 @@ import org.schabi.newpipe.extractor.ServiceList;
 import org.schabi.newpipe.extractor.StreamingService;
 import org.schabi.newpipe.extractor.channel.ChannelExtractor;
 import org.schabi.newpipe.extractor.comments.CommentsExtractor;
+import org.schabi.newpipe.extractor.downloader.Downloader;
 import org.schabi.newpipe.extractor.exceptions.ExtractionException;
 import org.schabi.newpipe.extractor.exceptions.FoundAdException;
 import org.schabi.newpipe.extractor.exceptions.ParsingException;
@@ -38,14 +39,19 @@ import org.schabi.newpipe.extractor.localization.DateWrapper;
 import org.schabi.newpipe.extractor.localization.Localization;
 import org.schabi.newpipe.extractor.playlist.PlaylistExtractor;
 import org.schabi.newpipe.extractor.search.SearchExtractor;
+import org.schabi.newpipe.extractor.services.youtube.YoutubeParsingHelper;
 import org.schabi.newpipe.extractor.stream.StreamExtractor;
 import org.schabi.newpipe.extractor.stream.StreamInfo;
 
+import java.io.File;
 import java.io.IOException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import free.rm.skytube.R;
@@ -53,6 +59,8 @@ import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.VideoStream.AdaptiveRateLimiter;
+import free.rm.skytube.businessobjects.YouTube.VideoStream.HttpCache;
 import free.rm.skytube.businessobjects.YouTube.VideoStream.HttpDownloader;
 import free.rm.skytube.businessobjects.YouTube.VideoStream.StreamMetaData;
 
@@ -63,8 +71,40 @@ public class NewPipeService {
     // TODO: remove this singleton
     private static NewPipeService instance;
 
+    public final static String YOUTUBE_HOST = "www.youtube.com";
+    private final static String HTTP_CACHE_DIRECTORY = "http";
+    private final static long HTTP_CACHE_SIZE = 20 * 1024 * 1024;
+    private final static int MAX_PARSED_FEEDS = 1000;
+
     private final StreamingService streamingService;
     private final static boolean DEBUG_LOG = false;
+    /** The videos of the last parsed feeds, by channel id, with the {@link HttpCache#getVersion(String) version} parsed. */
+    private final Map<String, ParsedFeed> parsedFeeds = new LinkedHashMap<String, ParsedFeed>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedFeed> eldest) {
+            return size() > MAX_PARSED_FEEDS;
+        }
+    };
+
+    /*
+     * The concurrent requests for the same video or channel - e.g. from the player, the description and
+     * the Chromecast lookup - share one fetch.
+     */
+    private final SingleFlight<String, StreamInfo> streamInfoFlights = new SingleFlight<>();
+    // the callers update the videos and the channels they get:  each one gets its own copy
+    private final SingleFlight<String, YouTubeVideo> detailsFlights = new SingleFlight<>(YouTubeVideo::new);
+    private final SingleFlight<String, YouTubeChannel> channelDetailsFlights = new SingleFlight<>(YouTubeChannel::new);
+    private final StreamInfoCache streamInfoCache = new StreamInfoCache();
+
+    private static class ParsedFeed {
+        final long version;
+        final List<YouTubeVideo> videos;
+
+        ParsedFeed(long version, List<YouTubeVideo> videos) {
+            this.version = version;
+            this.videos = videos;
+        }
+    }
 
     public NewPipeService(StreamingService streamingService) {
         this.streamingService = streamingService;
@@ -76,8 +116,10 @@ public class NewPipeService {
      * @return The {@link StreamInfo}.
      */
     public StreamInfo getStreamInfoByUrl(String videoUrl) throws IOException, ExtractionException {
-        // actual extraction
-        return StreamInfo.getInfo(streamingService, videoUrl);
+        return streamInfoFlights.execute(videoUrl, () -> {
+            // actual extraction
+            return StreamInfo.getInfo(streamingService, videoUrl);
+        });
     }
 
     public ContentId getVideoId(String url) throws ParsingException {
@@ -125,7 +167,20 @@ public class NewPipeService {
      * @return List of {@link StreamMetaData}.
      */
     public StreamInfo getStreamInfoByVideoId(String videoId) throws ExtractionException, IOException {
-        return getStreamInfoByUrl(getVideoUrl(videoId));
+        final StreamInfo cached = streamInfoCache.get(videoId);
+        if (cached != null) {
+            return cached;
+        }
+        final StreamInfo streamInfo = getStreamInfoByUrl(getVideoUrl(videoId));
+        streamInfoCache.put(videoId, streamInfo);
+        return streamInfo;
+    }
+
+    /**
+     * @return The stream infos of the recently played videos (see {@link #getStreamInfoByVideoId(String)}).
+     */
+    public StreamInfoCache getStreamInfoCache() {
+        return streamInfoCache;
     }
 
     /**
@@ -144,6 +199,8 @@ public class NewPipeService {
 
     /**
      * Return the most recent videos for the given channel from a dedicated feed (with a {@link FeedExtractor}).
+     * The videos are only extracted again if the server sent a new feed:  if it answered "304 Not Modified" (or the
+     * feed is still fresh in the {@link HttpCache}), copies of the videos extracted last time are returned.
      * @param channelId the id of the channel
      * @return list of recent {@link YouTubeVideo}, or null, if there is no feed.
      * @throws ExtractionException
@@ -156,8 +213,40 @@ public class NewPipeService {
             Logger.i(this, "getFeedExtractor doesn't return anything for %s -> %s", channelId, url);
             return null;
         }
+        // the only request:  revalidated by the HttpCache, which then tells whether the feed has changed
         feedExtractor.fetchPage();
-        return new VideoPagerWithChannel(streamingService, (ListExtractor)feedExtractor, createInternalChannelFromFeed(feedExtractor)).getNextPageAsVideos();
+        final HttpCache httpCache = getHttpCache();
+        final long version = httpCache != null
+                ? httpCache.getVersion(YoutubeParsingHelper.getFeedUrlFrom(feedExtractor.getLinkHandler().getId()))
+                : 0;
+        if (version != 0) {
+            final ParsedFeed parsedFeed;
+            synchronized (parsedFeeds) {
+                parsedFeed = parsedFeeds.get(channelId);
+            }
+            if (parsedFeed != null && parsedFeed.version == version) {
+                return copyVideos(parsedFeed.videos);
+            }
+        }
+        final List<YouTubeVideo> videos = new VideoPagerWithChannel(streamingService, (ListExtractor)feedExtractor, createInternalChannelFromFeed(feedExtractor)).getNextPageAsVideos();
+        if (version != 0) {
+            synchronized (parsedFeeds) {
+                parsedFeeds.put(channelId, new ParsedFeed(version, copyVideos(videos)));
+            }
+        }
+        return videos;
+    }
+
+    /**
+     * The callers update the videos they get (e.g. their bookmarked or watched state):  the cached ones are
+     * never handed out.
+     */
+    private static List<YouTubeVideo> copyVideos(List<YouTubeVideo> videos) {
+        final List<YouTubeVideo> copies = new ArrayList<>(videos.size());
+        for (YouTubeVideo video : videos) {
+            copies.add(new YouTubeVideo(video));
+        }
+        return copies;
     }
 
     /**
@@ -224,13 +313,18 @@ public class NewPipeService {
     }
 
     /**
-     * Return detailed information for a channel from it's id.
+     * Return detailed information for a channel from it's id.  The concurrent requests for the same channel share
+     * one fetch, but each one gets its own copy of the channel.
      * @param channelId
      * @return the {@link YouTubeChannel}, with a list of recent videos.
      * @throws ExtractionException
      * @throws IOException
      */
     public YouTubeChannel getChannelDetails(String channelId) throws NewPipeException {
+        return channelDetailsFlights.execute(Objects.requireNonNull(channelId, "channelId"), () -> fetchChannelDetails(channelId));
+    }
+
+    private YouTubeChannel fetchChannelDetails(String channelId) throws NewPipeException {
         VideoPagerWithChannel pager = getChannelPager(Objects.requireNonNull(channelId, "channelId"));
         // get the channel, and add all the videos from the first page
         YouTubeChannel channel = pager.getChannel();
@@ -298,13 +392,18 @@ public class NewPipeService {
     }
 
     /**
-     * Return detailed information about a video from it's id.
+     * Return detailed information about a video from it's id.  The concurrent requests for the same video share one
+     * fetch, but each one gets its own copy of the video.
      * @param videoId the id of the video.
      * @return a {@link YouTubeVideo}
      * @throws ExtractionException
      * @throws IOException
      */
     public YouTubeVideo getDetails(String videoId) throws ExtractionException, IOException {
+        return detailsFlights.execute(videoId, () -> fetchDetails(videoId));
+    }
+
+    private YouTubeVideo fetchDetails(String videoId) throws ExtractionException, IOException {
         LinkHandler url = streamingService.getStreamLHFactory().fromId(videoId);
         StreamExtractor extractor = streamingService.getStreamExtractor(url);
         extractor.fetchPage();
@@ -400,10 +499,35 @@ public class NewPipeService {
      */
     public static void initNewPipe() {
         if (NewPipe.getDownloader() == null) {
-            NewPipe.init(new HttpDownloader(), new Localization("GB", "en"));
+            final HttpCache httpCache = new HttpCache(new File(SkyTubeApp.getContext().getCacheDir(), HTTP_CACHE_DIRECTORY), HTTP_CACHE_SIZE);
+            NewPipe.init(new HttpDownloader(httpCache), new Localization("GB", "en"));
         }
     }
 
+    /**
+     * @return The cache of the extractor's responses, or null.
+     */
+    public static HttpCache getHttpCache() {
+        final Downloader downloader = NewPipe.getDownloader();
+        return downloader instanceof HttpDownloader ? ((HttpDownloader) downloader).getCache() : null;
+    }
+
+    /**
+     * @return The limiter of the extractor's requests, or null.
+     */
+    public static AdaptiveRateLimiter getRateLimiter() {
+        final Downloader downloader = NewPipe.getDownloader();
+        return downloader instanceof HttpDownloader ? ((HttpDownloader) downloader).getRateLimiter() : null;
+    }
+
+    /**
+     * @return The number of requests for a video or a channel which shared the fetch of a concurrent
+     *          request, instead of fetching it again.
+     */
+    public long getSharedRequestCount() {
+        return streamInfoFlights.getSharedCount() + detailsFlights.getSharedCount() + channelDetailsFlights.getSharedCount();
+    }
+
     /**
      * @return true, if it's the preferred backend API
      */
@@ -0,0 +1,186 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A page fetched in the background ahead of its request, by a {@link Pager} in read-ahead mode.
+ *
+ * <p>The pages read ahead by all the pagers share a memory budget, reserved while they are fetched:
+ * a page is not read ahead if its (estimated) size doesn't fit.  Once fetched, a page is held by its
+ * pager (one at most) until requested - or collected along with the pager, if it is dropped without
+ * being cancelled.</p>
+ *
+ * <p>Also counts how long the requests of the next pages waited for the network, with and without
+ * read-ahead, to compare the two.</p>
+ *
+ * @param <P> The type of the pages.
+ */
+public final class PageReadAhead<P> {
+
+    /** The memory of the pages being read ahead, at most. */
+    static final long MEMORY_BUDGET_BYTES = 2 * 1024 * 1024;
+    /** The estimated memory held by an item of a page (e.g. a video, with its URLs and texts). */
+    static final int ESTIMATED_ITEM_BYTES = 4 * 1024;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "PageReadAhead");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static long reservedBytes = 0;
+    private static final Stall DIRECT_STALLS = new Stall();
+    private static final Stall READ_AHEAD_STALLS = new Stall();
+
+    private final Object page;
+    private final Future<P> future;
+    private final long bytes;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private static class Stall {
+        long count;
+        long totalMillis;
+        long maxMillis;
+    }
+
+    private PageReadAhead(Object page, Callable<P> fetch, long bytes) {
+        this.page = page;
+        this.bytes = bytes;
+        this.future = EXECUTOR.submit(() -> {
+            try {
+                return fetch.call();
+            } finally {
+                release();
+            }
+        });
+    }
+
+    /**
+     * Start fetching a page in the background.
+     *
+     * @param page          The page to fetch (e.g. its {@link org.schabi.newpipe.extractor.Page}).
+     * @param expectedItems The number of items expected in the page, e.g. as many as in the
+     *                      previous page.
+     *
+     * @return The page being fetched, or null if it doesn't fit the memory budget.
+     */
+    static <P> PageReadAhead<P> start(Object page, int expectedItems, Callable<P> fetch) {
+        final long bytes = (long) Math.max(expectedItems, 1) * ESTIMATED_ITEM_BYTES;
+        synchronized (PageReadAhead.class) {
+            if (reservedBytes + bytes > MEMORY_BUDGET_BYTES) {
+                return null;
+            }
+            reservedBytes += bytes;
+        }
+        return new PageReadAhead<>(page, fetch, bytes);
+    }
+
+    /**
+     * @return True if this is the given page.
+     */
+    boolean isFor(Object page) {
+        return this.page == page;
+    }
+
+    /**
+     * Wait for the page.
+     */
+    P get() throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + page);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Stop fetching the page, if it is still fetched, and drop it.
+     */
+    void cancel() {
+        future.cancel(true);
+        release();
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            synchronized (PageReadAhead.class) {
+                reservedBytes -= bytes;
+            }
+        }
+    }
+
+    /**
+     * Record how long a request for a next page waited for the network.
+     */
+    static synchronized void recordStall(boolean readAhead, long millis) {
+        final Stall stall = readAhead ? READ_AHEAD_STALLS : DIRECT_STALLS;
+        stall.count++;
+        stall.totalMillis += millis;
+        stall.maxMillis = Math.max(stall.maxMillis, millis);
+    }
+
+    /**
+     * @return The memory reserved by the pages being read ahead.
+     */
+    static synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * @param readAhead True for the pages which were read ahead, false for the pages fetched on
+     *                  request.
+     *
+     * @return The number of next pages requested.
+     */
+    public static synchronized long getStallCount(boolean readAhead) {
+        return (readAhead ? READ_AHEAD_STALLS : DIRECT_STALLS).count;
+    }
+
+    /**
+     * @return How long the requests for the next pages waited for the network, in total.
+     */
+    public static synchronized long getStallMillis(boolean readAhead) {
+        return (readAhead ? READ_AHEAD_STALLS : DIRECT_STALLS).totalMillis;
+    }
+
+    /**
+     * @return The average wait for a next page, with and without read-ahead.
+     */
+    public static synchronized String getStallSummary() {
+        return String.format("read ahead: %s pages, avg %s ms, max %s ms; on request: %s pages, avg %s ms, max %s ms",
+                READ_AHEAD_STALLS.count, average(READ_AHEAD_STALLS), READ_AHEAD_STALLS.maxMillis,
+                DIRECT_STALLS.count, average(DIRECT_STALLS), DIRECT_STALLS.maxMillis);
+    }
+
+    private static long average(Stall stall) {
+        return stall.count > 0 ? stall.totalMillis / stall.count : 0;
+    }
+}
@@ -27,8 +27,10 @@ import org.schabi.newpipe.extractor.linkhandler.LinkHandlerFactory;
 import org.schabi.newpipe.extractor.linkhandler.ListLinkHandlerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import free.rm.skytube.businessobjects.Logger;
 
@@ -39,11 +41,16 @@ import free.rm.skytube.businessobjects.Logger;
  * @author zsombor
  */
 public abstract class Pager<I extends InfoItem, O> implements PagerBackend<O> {
+    /** A wait for the next page from this long is logged along with the summary of the waits. */
+    private static final long STALL_LOG_MILLIS = 1000;
+
     private final StreamingService streamingService;
     private final ListExtractor<I> channelExtractor;
     private Page nextPage;
     private boolean hasNextPage = true;
     private Exception lastException;
+    private volatile boolean readAheadEnabled = false;
+    private final AtomicReference<PageReadAhead<InfoItemsPage<I>>> readAhead = new AtomicReference<>();
     protected final LinkHandlerFactory streamLinkHandler;
     protected final ListLinkHandlerFactory playlistLinkHandler;
     protected final LinkHandlerFactory channelLinkHandler;
@@ -73,6 +80,26 @@ public abstract class Pager<I extends InfoItem, O> implements PagerBackend<O> {
         return lastException;
     }
 
+    /**
+     * Fetch the next page in the background as soon as a page is delivered, so that it is ready
+     * when requested (see {@link PageReadAhead}).
+     */
+    public void setReadAhead(boolean readAhead) {
+        this.readAheadEnabled = readAhead;
+        if (!readAhead) {
+            cancelReadAhead();
+        }
+    }
+
+    @Override
+    public void cancelReadAhead() {
+        readAheadEnabled = false;
+        final PageReadAhead<InfoItemsPage<I>> pending = readAhead.getAndSet(null);
+        if (pending != null) {
+            pending.cancel();
+        }
+    }
+
     /**
      * @return the next page of videos.
      * @throws ParsingException
@@ -84,18 +111,76 @@ public abstract class Pager<I extends InfoItem, O> implements PagerBackend<O> {
             return Collections.emptyList();
         }
         try {
+            final InfoItemsPage<I> page;
             if (nextPage == null) {
                 channelExtractor.fetchPage();
-                return process(channelExtractor.getInitialPage());
+                page = channelExtractor.getInitialPage();
             } else {
-                return process(channelExtractor.getPage(nextPage));
+                page = fetchNextPage();
             }
+            final List<O> result = process(page);
+            startReadAhead(page.getItems().size());
+            return result;
         } catch (IOException| ExtractionException| RuntimeException e) {
             throw new NewPipeException("Error:" + e.getMessage() +
                     (nextPage != null ? " (nextPage=" + nextPage.getUrl() + ",ids=" + nextPage.getIds() + ")" : ""), e);
         }
     }
 
+    /**
+     * @return The next page:  read ahead, or fetched now.
+     */
+    private InfoItemsPage<I> fetchNextPage() throws IOException, ExtractionException {
+        final long start = System.nanoTime();
+        final PageReadAhead<InfoItemsPage<I>> pending = readAhead.getAndSet(null);
+        InfoItemsPage<I> page = null;
+        if (pending != null && pending.isFor(nextPage)) {
+            try {
+                page = pending.get();
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (Exception e) {
+                // it might have failed a while ago
+                Logger.w(this, "Reading ahead %s failed, fetching it again: %s", nextPage.getUrl(), e.getMessage());
+            }
+        } else if (pending != null) {
+            pending.cancel();
+        }
+        final boolean wasReadAhead = page != null;
+        if (page == null) {
+            page = channelExtractor.getPage(nextPage);
+        }
+
+        final long stallMillis = (System.nanoTime() - start) / 1_000_000;
+        PageReadAhead.recordStall(wasReadAhead, stallMillis);
+        if (stallMillis >= STALL_LOG_MILLIS) {
+            Logger.i(this, "Waited %s ms for the next page (read ahead: %s) - %s", stallMillis, wasReadAhead, PageReadAhead.getStallSummary());
+        } else {
+            Logger.d(this, "Waited %s ms for the next page (read ahead: %s)", stallMillis, wasReadAhead);
+        }
+        return page;
+    }
+
+    private void startReadAhead(int expectedItems) {
+        final Page page = nextPage;
+        if (!readAheadEnabled || !hasNextPage || page == null) {
+            return;
+        }
+        final PageReadAhead<InfoItemsPage<I>> started = PageReadAhead.start(page, expectedItems, () -> channelExtractor.getPage(page));
+        if (started == null) {
+            Logger.i(this, "Not reading ahead %s, the memory budget is used up", page.getUrl());
+            return;
+        }
+        final PageReadAhead<InfoItemsPage<I>> previous = readAhead.getAndSet(started);
+        if (previous != null) {
+            previous.cancel();
+        }
+        // cancelled meanwhile
+        if (!readAheadEnabled) {
+            cancelReadAhead();
+        }
+    }
+
     @Override
     public List<O> getSafeNextPage() {
         try {
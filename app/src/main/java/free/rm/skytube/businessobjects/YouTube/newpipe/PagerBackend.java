@@ -23,4 +23,9 @@ public interface PagerBackend<I> {
 
     List<I> getSafeNextPage();
 
+    /**
+     * Stop fetching pages ahead of their request, e.g. as the screen showing them is closed.
+     */
+    void cancelReadAhead();
+
 }
@@ -0,0 +1,137 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a call only once for the callers which ask for the same key at the same time:  the first
+ * caller runs it, and the others wait for - and share - its result, or its exception.  Once the call
+ * is over, the next caller runs it again (nothing is cached).
+ *
+ * <p>Without a {@link Copy}, the callers share the same result object, hence it should not be
+ * modified.  With one, every caller gets its own copy, and the result itself never escapes - so the
+ * copies are never made from an object which a caller is modifying.</p>
+ *
+ * @param <K> The type of the keys, e.g. a video id.
+ * @param <V> The type of the results.
+ */
+public class SingleFlight<K, V> {
+
+    public interface Call<V, E extends Exception> {
+        V call() throws E;
+    }
+
+    /**
+     * Makes the copy of the result returned to a caller.
+     */
+    public interface Copy<V> {
+        V copy(V result);
+    }
+
+    private static class Flight<V> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private V result;
+        private Throwable failure;
+    }
+
+    private final Copy<V> copy;
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    public SingleFlight() {
+        this(null);
+    }
+
+    /**
+     * @param copy Gives every caller its own copy of the result, or null to share the result.
+     */
+    public SingleFlight(Copy<V> copy) {
+        this.copy = copy;
+    }
+
+    /**
+     * @return The result of the call for the key:  run by this caller, or by a concurrent caller.
+     */
+    public <E extends Exception> V execute(K key, Call<V, E> call) throws E {
+        final Flight<V> flight = new Flight<>();
+        final Flight<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            sharedCount.incrementAndGet();
+            return await(existing);
+        }
+
+        callCount.incrementAndGet();
+        try {
+            flight.result = call.call();
+        } catch (Exception | Error e) {
+            flight.failure = e;
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+            flight.done.countDown();
+        }
+        return getResult(flight);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V await(Flight<V> flight) throws E {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                flight.done.await();
+                break;
+            } catch (InterruptedException e) {
+                // the call is not this caller's to cancel
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (flight.failure instanceof Error) {
+            throw (Error) flight.failure;
+        }
+        if (flight.failure != null) {
+            // thrown by a call for the same key, hence of the same type
+            throw (E) flight.failure;
+        }
+        return getResult(flight);
+    }
+
+    private V getResult(Flight<V> flight) {
+        return copy != null && flight.result != null ? copy.copy(flight.result) : flight.result;
+    }
+
+    /**
+     * @return The number of calls run.
+     */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /**
+     * @return The number of callers which shared the result of a concurrent call, instead of
+     *          running it.
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import org.schabi.newpipe.extractor.stream.Stream;
+import org.schabi.newpipe.extractor.stream.StreamInfo;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import free.rm.skytube.app.StreamSelectionPolicy;
+
+/**
+ * The {@link StreamInfo} of the recently played videos, by video id, so that reopening a video (after
+ * a rotation, a retry, or to cast it) doesn't extract it again.
+ *
+ * <p>A stream info is only usable as long as its stream URLs are:  they carry their expiry date (the
+ * expire parameter of the googlevideo.com URLs), and the info is dropped a bit before the first of
+ * them expires.  If the server refuses a URL anyway (403), the player {@link #invalidate(String)
+ * invalidates} the info.</p>
+ */
+public class StreamInfoCache {
+
+    static final int DEFAULT_MAX_SIZE = 20;
+    /** Dropped this long before its URLs expire, so that a playback doesn't fail midway. */
+    static final long EXPIRY_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    /** How long a stream info is kept if its URLs carry no expiry date. */
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final Pattern EXPIRE_PARAMETER = Pattern.compile("[?&/]expire[=/](\\d+)");
+
+    private static class Entry {
+        final StreamInfo streamInfo;
+        final long expiresAt;
+        /** The streams selected by each policy (by its description). */
+        final Map<String, StreamSelectionPolicy.StreamSelection> selections = new HashMap<>();
+
+        Entry(StreamInfo streamInfo, long expiresAt) {
+            this.streamInfo = streamInfo;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long invalidationCount = 0;
+
+    public StreamInfoCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    StreamInfoCache(final int maxSize) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return The stream info of the video, or null if it is not cached (or its URLs are about to
+     *          expire).
+     */
+    public StreamInfo get(String videoId) {
+        return get(videoId, System.currentTimeMillis());
+    }
+
+    synchronized StreamInfo get(String videoId, long now) {
+        final Entry entry = entries.get(videoId);
+        if (entry != null && now < entry.expiresAt) {
+            hitCount++;
+            return entry.streamInfo;
+        }
+        if (entry != null) {
+            entries.remove(videoId);
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * @return True if the stream info of the video is cached - without counting it as a hit or a
+     *          miss.
+     */
+    public synchronized boolean contains(String videoId) {
+        final Entry entry = entries.get(videoId);
+        return entry != null && System.currentTimeMillis() < entry.expiresAt;
+    }
+
+    public void put(String videoId, StreamInfo streamInfo) {
+        put(videoId, streamInfo, System.currentTimeMillis());
+    }
+
+    synchronized void put(String videoId, StreamInfo streamInfo, long now) {
+        final long expiresAt = getExpiry(streamInfo, now);
+        if (expiresAt > now) {
+            entries.put(videoId, new Entry(streamInfo, expiresAt));
+        }
+    }
+
+    /**
+     * Drop the stream info of the video, e.g. as its stream was refused.
+     *
+     * @return True if it was cached.
+     */
+    public synchronized boolean invalidate(String videoId) {
+        if (entries.remove(videoId) != null) {
+            invalidationCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Select the streams to play with the given policy:  the selection is cached along with the
+     * stream info.
+     */
+    public StreamSelectionPolicy.StreamSelection select(String videoId, StreamInfo streamInfo, StreamSelectionPolicy policy) {
+        final String policyKey = policy.toString();
+        synchronized (this) {
+            final Entry entry = entries.get(videoId);
+            if (entry != null && entry.streamInfo == streamInfo && entry.selections.containsKey(policyKey)) {
+                return entry.selections.get(policyKey);
+            }
+        }
+        final StreamSelectionPolicy.StreamSelection selection = policy.select(streamInfo);
+        synchronized (this) {
+            final Entry entry = entries.get(videoId);
+            if (entry != null && entry.streamInfo == streamInfo) {
+                entry.selections.put(policyKey, selection);
+            }
+        }
+        return selection;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * @return When the stream info should be dropped:  a bit before the first of its URLs expires.
+     */
+    static long getExpiry(StreamInfo streamInfo, long now) {
+        long firstExpiry = Long.MAX_VALUE;
+        firstExpiry = Math.min(firstExpiry, getFirstExpiry(streamInfo.getVideoStreams()));
+        firstExpiry = Math.min(firstExpiry, getFirstExpiry(streamInfo.getVideoOnlyStreams()));
+        firstExpiry = Math.min(firstExpiry, getFirstExpiry(streamInfo.getAudioStreams()));
+        firstExpiry = Math.min(firstExpiry, getExpiry(streamInfo.getHlsUrl()));
+        firstExpiry = Math.min(firstExpiry, getExpiry(streamInfo.getDashMpdUrl()));
+        if (firstExpiry == Long.MAX_VALUE) {
+            return now + DEFAULT_TTL_MILLIS;
+        }
+        return firstExpiry - EXPIRY_MARGIN_MILLIS;
+    }
+
+    private static long getFirstExpiry(List<? extends Stream> streams) {
+        long firstExpiry = Long.MAX_VALUE;
+        if (streams != null) {
+            for (Stream stream : streams) {
+                firstExpiry = Math.min(firstExpiry, getExpiry(stream.getUrl()));
+            }
+        }
+        return firstExpiry;
+    }
+
+    /**
+     * @param url A stream URL, e.g. "https://r3---sn-4g5e6nsz.googlevideo.com/videoplayback?expire=1617900000&..."
+     *            (or ".../expire/1617900000/..." for the HLS and DASH manifests).
+     *
+     * @return The time when it expires, or Long.MAX_VALUE if unknown.
+     */
+    static long getExpiry(String url) {
+        if (url != null) {
+            final Matcher matcher = EXPIRE_PARAMETER.matcher(url);
+            if (matcher.find()) {
+                try {
+                    return TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+                } catch (NumberFormatException e) {
+                    return Long.MAX_VALUE;
+                }
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -19,9 +19,84 @@ package free.rm.skytube.businessobjects.YouTube.newpipe;
 
 import org.schabi.newpipe.extractor.StreamingService;
 
+import java.util.Arrays;
+
 public final class VideoId extends ContentId {
 
+    /** The length of the YouTube video ids. */
+    static final int LENGTH = 11;
+
+    /** The characters of the YouTube video ids (base64url), by their value. */
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    /** The value of each character, or -1. */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+        }
+    }
+
     public VideoId(String id, String canonicalUrl) {
         super(id, canonicalUrl, StreamingService.LinkType.STREAM);
     }
+
+    /**
+     * @return True if the id is a YouTube video id, which can be {@link #pack(String) packed}.
+     */
+    public static boolean isPackable(String id) {
+        if (id == null || id.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            if (valueOf(id.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        // the 11 characters hold 64 bits:  the last one only has 4 significant bits
+        return (valueOf(id.charAt(LENGTH - 1)) & 0b11) == 0;
+    }
+
+    /**
+     * Pack a YouTube video id (11 base64url characters, e.g. "dQw4w9WgXcQ") in a long, in which it
+     * takes 8 bytes instead of a String.
+     *
+     * @throws IllegalArgumentException If the id can't be packed, see {@link #isPackable(String)}.
+     */
+    public static long pack(String id) {
+        if (!isPackable(id)) {
+            throw new IllegalArgumentException("Not a YouTube video id: " + id);
+        }
+        return packUnchecked(id);
+    }
+
+    /**
+     * {@link #pack(String) Pack} an id already checked with {@link #isPackable(String)}.
+     */
+    static long packUnchecked(String id) {
+        long packed = 0;
+        for (int i = 0; i < LENGTH - 1; i++) {
+            packed = (packed << 6) | valueOf(id.charAt(i));
+        }
+        return (packed << 4) | (valueOf(id.charAt(LENGTH - 1)) >> 2);
+    }
+
+    /**
+     * @return The video id packed by {@link #pack(String)}.
+     */
+    public static String unpack(long packed) {
+        final char[] id = new char[LENGTH];
+        id[LENGTH - 1] = ALPHABET[(int) (packed & 0xF) << 2];
+        packed >>>= 4;
+        for (int i = LENGTH - 2; i >= 0; i--) {
+            id[i] = ALPHABET[(int) (packed & 0x3F)];
+            packed >>>= 6;
+        }
+        return new String(id);
+    }
+
+    private static int valueOf(char c) {
+        return c < VALUES.length ? VALUES[c] : -1;
+    }
 }
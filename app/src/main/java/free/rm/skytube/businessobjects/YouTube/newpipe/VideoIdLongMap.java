@@ -0,0 +1,74 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A map of video ids to longs (e.g. their publish timestamps), with the ids {@link VideoId#pack(String)
+ * packed} in a {@link LongLongHashMap}.  The ids which can't be packed are kept aside as Strings.
+ */
+public class VideoIdLongMap {
+
+    private final LongLongHashMap packedIds;
+    private Map<String, Long> otherIds;
+
+    public VideoIdLongMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize The number of ids it will hold without growing.
+     */
+    public VideoIdLongMap(int expectedSize) {
+        packedIds = new LongLongHashMap(expectedSize);
+    }
+
+    public void put(String videoId, long value) {
+        if (VideoId.isPackable(videoId)) {
+            packedIds.put(VideoId.packUnchecked(videoId), value);
+        } else {
+            if (otherIds == null) {
+                otherIds = new HashMap<>();
+            }
+            otherIds.put(videoId, value);
+        }
+    }
+
+    /**
+     * @return The value of the id, or defaultValue if the id isn't in the map.
+     */
+    public long get(String videoId, long defaultValue) {
+        if (VideoId.isPackable(videoId)) {
+            return packedIds.get(VideoId.packUnchecked(videoId), defaultValue);
+        }
+        final Long value = otherIds != null ? otherIds.get(videoId) : null;
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean containsKey(String videoId) {
+        if (VideoId.isPackable(videoId)) {
+            return packedIds.containsKey(VideoId.packUnchecked(videoId));
+        }
+        return otherIds != null && otherIds.containsKey(videoId);
+    }
+
+    public int size() {
+        return packedIds.size() + (otherIds != null ? otherIds.size() : 0);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of video ids, {@link VideoId#pack(String) packed} in a {@link LongHashSet}.  The ids which
+ * can't be packed (i.e. not from YouTube) are kept aside as Strings.
+ */
+public class VideoIdSet {
+
+    private final LongHashSet packedIds;
+    private Set<String> otherIds;
+
+    public VideoIdSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize The number of ids it will hold without growing.
+     */
+    public VideoIdSet(int expectedSize) {
+        packedIds = new LongHashSet(expectedSize);
+    }
+
+    /**
+     * @return True if the id was added, false if it was already in the set.
+     */
+    public boolean add(String videoId) {
+        if (VideoId.isPackable(videoId)) {
+            return packedIds.add(VideoId.packUnchecked(videoId));
+        }
+        if (otherIds == null) {
+            otherIds = new HashSet<>();
+        }
+        return otherIds.add(videoId);
+    }
+
+    public void addAll(Iterable<String> videoIds) {
+        for (String videoId : videoIds) {
+            add(videoId);
+        }
+    }
+
+    public boolean contains(String videoId) {
+        if (VideoId.isPackable(videoId)) {
+            return packedIds.contains(VideoId.packUnchecked(videoId));
+        }
+        return otherIds != null && otherIds.contains(videoId);
+    }
+
+    public int size() {
+        return packedIds.size() + (otherIds != null ? otherIds.size() : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
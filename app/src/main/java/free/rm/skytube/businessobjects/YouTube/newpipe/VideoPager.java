@@ -26,9 +26,7 @@ import org.schabi.newpipe.extractor.playlist.PlaylistInfoItem;
 import org.schabi.newpipe.extractor.stream.StreamInfoItem;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
@@ -37,7 +35,7 @@ import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubePlaylist;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
 
 public class VideoPager extends Pager<InfoItem, CardData> {
-    private final Set<String> seenVideos = new HashSet<>();
+    private final VideoIdSet seenVideos = new VideoIdSet();
 
     public VideoPager(StreamingService streamingService, ListExtractor<InfoItem> channelExtractor) {
         super(streamingService, channelExtractor);
@@ -54,11 +52,10 @@ public class VideoPager extends Pager<InfoItem, CardData> {
             if (infoItem instanceof StreamInfoItem) {
                 String id = getId(streamLinkHandler, infoItem.getUrl());
                 StreamInfoItem streamInfo = (StreamInfoItem) infoItem;
-                if (seenVideos.contains(id)) {
-                    repeatCounter++;
-                } else {
-                    seenVideos.add(id);
+                if (seenVideos.add(id)) {
                     result.add(convert(streamInfo, id));
+                } else {
+                    repeatCounter++;
                 }
             } else if (infoItem instanceof PlaylistInfoItem) {
                 PlaylistInfoItem playlistInfoItem = (PlaylistInfoItem) infoItem;
@@ -0,0 +1,184 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, size-bounded (least recently used) cache of database rows, loaded on demand.  The
+ * keys which are not in the database are cached too, mapped to a shared 'absent' value, so that they
+ * are only looked up once.
+ *
+ * <p>The rows are loaded outside of the lock, so a slow load never blocks the readers of the cached
+ * rows.  A loaded row never replaces a value put meanwhile, and the loads started before a
+ * {@link #clear()} are dropped.</p>
+ *
+ * @param <V> The type of the cached rows.
+ */
+public class BatchLoadingCache<V> {
+
+	/**
+	 * Reads rows from the database.
+	 */
+	public interface Loader<V> {
+		/**
+		 * @param keys At most {@link BatchLoadingCache#getBatchSize()} keys.
+		 * @return The rows found, by key.
+		 */
+		Map<String, V> load(List<String> keys);
+	}
+
+	private final Loader<V> loader;
+	private final V absentValue;
+	private final int batchSize;
+	private final LinkedHashMap<String, V> entries;
+	/** Incremented by {@link #clear()}, to drop the loads which were running at the time. */
+	private long generation = 0;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+
+	/**
+	 * @param loader        Loads the missing rows.
+	 * @param absentValue   Returned for the keys which are not in the database.
+	 * @param maxSize       Maximum number of cached keys.
+	 * @param batchSize     Maximum number of keys passed to the loader at once.
+	 */
+	public BatchLoadingCache(Loader<V> loader, V absentValue, final int maxSize, int batchSize) {
+		this.loader = loader;
+		this.absentValue = absentValue;
+		this.batchSize = batchSize;
+		this.entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return The cached row, or the one loaded from the database, or the absent value.
+	 */
+	public V get(String key) {
+		final long loadGeneration;
+		synchronized (this) {
+			final V value = entries.get(key);
+			if (value != null) {
+				hitCount.incrementAndGet();
+				return value;
+			}
+			loadGeneration = generation;
+		}
+		missCount.incrementAndGet();
+		final V value = load(Collections.singletonList(key), loadGeneration).get(key);
+		return value != null ? value : absentValue;
+	}
+
+	/**
+	 * Load the rows of the given keys, which are not cached yet, in batches - e.g. before a page of
+	 * the list is displayed, so that {@link #get(String)} doesn't hit the database while binding.
+	 */
+	public void preload(Collection<String> keys) {
+		final Set<String> missingKeys = new LinkedHashSet<>();
+		final long loadGeneration;
+		synchronized (this) {
+			for (String key : keys) {
+				if (key != null && !entries.containsKey(key)) {
+					missingKeys.add(key);
+				}
+			}
+			loadGeneration = generation;
+		}
+		final List<String> missing = new ArrayList<>(missingKeys);
+		for (int from = 0; from < missing.size(); from += batchSize) {
+			load(missing.subList(from, Math.min(from + batchSize, missing.size())), loadGeneration);
+		}
+	}
+
+	/**
+	 * Cache the new value of a row, which the caller is writing to the database.
+	 */
+	public synchronized void put(String key, V value) {
+		entries.put(key, value);
+	}
+
+	/**
+	 * Forget every row, e.g. after the table is emptied.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		generation++;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return The number of calls to the {@link Loader}.
+	 */
+	public long getLoadCount() {
+		return loadCount.get();
+	}
+
+	/**
+	 * @return The cached values of the given keys (which might be newer than the loaded ones).
+	 */
+	private Map<String, V> load(List<String> keys, long loadGeneration) {
+		loadCount.incrementAndGet();
+		final Map<String, V> loaded = loader.load(keys);
+		final Map<String, V> result = new LinkedHashMap<>();
+		synchronized (this) {
+			for (String key : keys) {
+				V value = entries.get(key);
+				if (value == null) {
+					value = loaded.get(key);
+					if (value == null) {
+						value = absentValue;
+					}
+					if (loadGeneration == generation) {
+						entries.put(key, value);
+					}
+				}
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+
+}
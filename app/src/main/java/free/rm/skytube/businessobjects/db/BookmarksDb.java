@@ -20,28 +20,25 @@ package free.rm.skytube.businessobjects.db;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 
 import androidx.annotation.NonNull;
-import androidx.core.util.Pair;
-
-import com.google.gson.Gson;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import free.rm.skytube.app.SkyTubeApp;
-import free.rm.skytube.app.Utils;
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
-import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
+import free.rm.skytube.businessobjects.YouTube.POJOs.VideoRecordException;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideoCodec;
 import free.rm.skytube.businessobjects.YouTube.newpipe.VideoId;
 import free.rm.skytube.businessobjects.interfaces.OrderableDatabase;
 
@@ -52,10 +49,23 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 	private static volatile BookmarksDb bookmarksDb = null;
 	private static boolean hasUpdated = false;
 
-	private static final int DATABASE_VERSION = 1;
+	private static final int DATABASE_VERSION = 2;
 	private static final String DATABASE_NAME = "bookmarks.db";
+	private static final OrderKeys ORDER_KEYS = new OrderKeys(BookmarksTable.TABLE_NAME, BookmarksTable.COL_YOUTUBE_VIDEO_ID, BookmarksTable.COL_ORDER);
+
+	/** Number of decoded pages kept in memory. */
+	private static final int PAGE_CACHE_SIZE = 8;
 
 	private final Set<BookmarksDbListener> listeners = new HashSet<>();
+	/** The last pages read, by the key they were read from. */
+	private final Map<String, Page> pageCache = new LinkedHashMap<String, Page>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+			return size() > PAGE_CACHE_SIZE;
+		}
+	};
+	/** Incremented when the pages are invalidated, so that the pages being read are not cached. */
+	private long pageCacheGeneration = 0;
 
 	private BookmarksDb(Context context) {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
@@ -79,11 +89,15 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 	@Override
 	public void onCreate(SQLiteDatabase db) {
 		db.execSQL(BookmarksTable.getCreateStatement());
+		db.execSQL(ORDER_KEYS.getIndexStatement());
 	}
 
 
 	@Override
-	public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		if (oldVersion < 2) {
+			db.execSQL(ORDER_KEYS.getIndexStatement());
+		}
 	}
 
 
@@ -97,17 +111,16 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 	 * @return True if the video was successfully saved/bookmarked to the DB.
 	 */
 	public DatabaseResult add(YouTubeVideo video) {
-		Gson gson = new Gson();
 		ContentValues values = new ContentValues();
 		values.put(BookmarksTable.COL_YOUTUBE_VIDEO_ID, video.getId());
-		values.put(BookmarksTable.COL_YOUTUBE_VIDEO, gson.toJson(video).getBytes());
-
-		int order = getMaximumOrderNumber();
-		order++;
-		values.put(BookmarksTable.COL_ORDER, order);
+		values.put(BookmarksTable.COL_YOUTUBE_VIDEO, YouTubeVideoCodec.encode(video));
 
 		try {
-			long result = getWritableDatabase().insertWithOnConflict(BookmarksTable.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+			// the key is taken in the transaction of the insert, so that no other bookmark gets it
+			long result = writeForResult(db -> {
+				values.put(BookmarksTable.COL_ORDER, getNextOrderKey(db, ORDER_KEYS));
+				return db.insertWithOnConflict(BookmarksTable.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+			}).blockingGet();
 			Logger.i(this, "Result for adding "+ video+ " IS "+ result);
 			if (result >= 1) {
 				onBookmarkAdded(video);
@@ -118,7 +131,7 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 			} else {
 				return DatabaseResult.ERROR;
 			}
-		} catch (SQLException e) {
+		} catch (RuntimeException e) {
 			Logger.e(this, "Unexpected error in bookmark creation :"+ video+" - error:"+e.getMessage(), e);
 			return DatabaseResult.ERROR;
 		}
@@ -133,38 +146,17 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 	 */
 	public DatabaseResult remove(VideoId video) {
 		try {
-			int rowsDeleted = getWritableDatabase().delete(BookmarksTable.TABLE_NAME,
+			int rowsDeleted = writeForResult(db -> db.delete(BookmarksTable.TABLE_NAME,
 					BookmarksTable.COL_YOUTUBE_VIDEO_ID + " = ?",
-					new String[]{video.getId()});
+					new String[]{video.getId()})).blockingGet();
 
 			if (rowsDeleted > 0) {
-				// Since we've removed a video, we will need to update the order column for all the videos.
-				int order = 1;
-				Cursor cursor = getReadableDatabase().query(
-						BookmarksTable.TABLE_NAME,
-						new String[]{BookmarksTable.COL_YOUTUBE_VIDEO, BookmarksTable.COL_ORDER},
-						null,
-						null, null, null, BookmarksTable.COL_ORDER + " ASC");
-				if (cursor.moveToNext()) {
-					Gson gson = new Gson();
-					do {
-						byte[] blob = cursor.getBlob(cursor.getColumnIndex(BookmarksTable.COL_YOUTUBE_VIDEO));
-						YouTubeVideo uvideo = gson.fromJson(new String(blob), YouTubeVideo.class).updatePublishTimestampFromDate();
-						ContentValues contentValues = new ContentValues();
-						contentValues.put(BookmarksTable.COL_ORDER, order++);
-
-						getWritableDatabase().update(BookmarksTable.TABLE_NAME, contentValues, BookmarksTable.COL_YOUTUBE_VIDEO_ID + " = ?",
-								new String[]{uvideo.getId()});
-					} while (cursor.moveToNext());
-				}
-
-				cursor.close();
-
+				// the order keys are sparse, so the other bookmarks keep theirs
 				onBookmarkDeleted(video);
 				return DatabaseResult.SUCCESS;
 			}
 				return DatabaseResult.NOT_MODIFIED;
-		} catch (SQLException e) {
+		} catch (RuntimeException e) {
 			Logger.e(this, "Database error: " + e.getMessage(), e);
 			return DatabaseResult.ERROR;
 		}
@@ -172,21 +164,17 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 
 
 	/**
-	 * When a Video in the Bookmarks tab is drag & dropped to a new position, this will be
-	 * called with the new updated list of videos. Since the videos are displayed in descending order,
-	 * the first video in the list will have the highest number.
-	 *
-	 * @param videos List of Videos to update their order.
+	 * When a Video in the Bookmarks tab is drag & dropped to a new position, this will be called
+	 * to give it an order number between the ones of its new neighbours (the videos are displayed in
+	 * descending order) - see {@link OrderKeys}.
 	 */
 	@Override
-	public void updateOrder(List<CardData> videos) {
-		int order = getMaximumOrderNumber();
-
-		for(CardData video : videos) {
-			ContentValues cv = new ContentValues();
-			cv.put(BookmarksTable.COL_ORDER, order--);
-			getWritableDatabase().update(BookmarksTable.TABLE_NAME, cv, BookmarksTable.COL_YOUTUBE_VIDEO_ID + " = ?", new String[]{video.getId()});
-		}
+	public void moveItem(CardData video, CardData previousVideo) {
+		final String previousId = previousVideo != null ? previousVideo.getId() : null;
+		write(db -> moveOrderedItem(db, ORDER_KEYS, video.getId(), previousId))
+				.subscribe(this::invalidatePages, error -> {
+					// already logged
+				});
 	}
 
 	/**
@@ -200,6 +188,13 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 		return executeQueryForInteger(BookmarksTable.IS_BOOKMARKED_QUERY, new String[]{videoId}, 0) > 0;
 	}
 
+	/**
+	 * @return The IDs of every bookmarked video.
+	 */
+	public Set<String> getBookmarkedVideoIds() {
+		return executeQueryForStrings(BookmarksTable.ALL_VIDEO_IDS_QUERY);
+	}
+
 	/**
 	 * @return The total number of bookmarked videos.
 	 */
@@ -216,66 +211,84 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 
 
 	/**
-	 * Get the list of Videos that have been bookmarked.
+	 * Get a page of the bookmarked videos, in display order.  The pages are read by keyset (i.e. from
+	 * the order and ID of the last video of the previous page), so a page costs the same wherever it
+	 * is in the list.  The last pages read are kept decoded in memory, until the bookmarks change.
 	 *
-	 * @return List of Videos
+	 * @param previousPage The previous page, or null to get the first one.
+	 * @param limit Maximum number of videos in the page.
+	 * @return The page, whose videos are card projections (see {@link YouTubeVideoCodec#decodeCard(byte[])}).
 	 */
-	public @NonNull Pair<List<YouTubeVideo>, Integer> getBookmarkedVideos(int limit, Integer maxOrderLimit) {
-        //Logger.i(this, "getBookmarkedVideos " + limit + ',' + maxOrderLimit +
-        //        " - " + (maxOrderLimit != null ? BookmarksTable.PAGED_QUERY : BookmarksTable.PAGED_QUERY_UNBOUNDED));
-
-        SQLiteDatabase db = getReadableDatabase();
-        Cursor	cursor = maxOrderLimit != null ?
-                db.rawQuery(
-                        BookmarksTable.PAGED_QUERY, new String[] { String.valueOf(maxOrderLimit), String.valueOf(limit)}) :
-                db.rawQuery(
-                        BookmarksTable.PAGED_QUERY_UNBOUNDED, new String[] { String.valueOf(limit)});
-
-		List<YouTubeVideo> videos = new ArrayList<>();
-
-		final Gson gson = new Gson();
-		Integer minOrder = null;
-		if(cursor.moveToNext()) {
-			final int colOrder = cursor.getColumnIndex(BookmarksTable.COL_ORDER);
-			final int colVideo = cursor.getColumnIndex(BookmarksTable.COL_YOUTUBE_VIDEO);
-			do {
-				final byte[] blob = cursor.getBlob(colVideo);
-				final int currentOrder = cursor.getInt(colOrder);
-
-                minOrder = Utils.min(currentOrder, minOrder);
-
-				final String videoJson = new String(blob);
-
-				// convert JSON into YouTubeVideo
-				YouTubeVideo video = gson.fromJson(videoJson, YouTubeVideo.class).updatePublishTimestampFromDate();
-
-                // Logger.i(this, "Order "+cursor.getInt(colOrder)+ ", id="+video.getId()+","+video.getTitle());
-
-                // due to upgrade to YouTubeVideo (by changing channel{Id,Name} to YouTubeChannel)
-				// from version 2.82 to 2.90
-				if (video.getChannel() == null) {
-					try {
-						JSONObject videoJsonObj = new JSONObject(videoJson);
-						final String channelId   = videoJsonObj.get("channelId").toString();
-						final String channelName = videoJsonObj.get("channelName").toString();
-						video.setChannel(new YouTubeChannel(channelId, channelName));
-					} catch (JSONException e) {
-						Logger.e(this, "Error occurred while extracting channel{Id,Name} from JSON", e);
+	public @NonNull Page getBookmarkedVideos(@Nullable Page previousPage, int limit) {
+		final String key = (previousPage != null ? previousPage.lastOrder + "/" + previousPage.lastVideoId : "") + "#" + limit;
+		final long generation;
+		synchronized (pageCache) {
+			final Page page = pageCache.get(key);
+			if (page != null) {
+				return page;
+			}
+			generation = pageCacheGeneration;
+		}
+
+		final SQLiteDatabase db = getReadableDatabase();
+		final Cursor cursor = previousPage != null ?
+				db.rawQuery(BookmarksTable.NEXT_PAGE_QUERY, new String[]{String.valueOf(previousPage.lastOrder),
+						String.valueOf(previousPage.lastOrder), previousPage.lastVideoId, String.valueOf(limit)}) :
+				db.rawQuery(BookmarksTable.FIRST_PAGE_QUERY, new String[]{String.valueOf(limit)});
+
+		final List<YouTubeVideo> videos = new ArrayList<>();
+		Long lastOrder = null;
+		String lastVideoId = null;
+		int rows = 0;
+		try {
+			while (cursor.moveToNext()) {
+				rows++;
+				lastVideoId = cursor.getString(0);
+				lastOrder = cursor.getLong(1);
+				// convert the blob (binary or legacy JSON) into YouTubeVideo
+				try {
+					final YouTubeVideo video = YouTubeVideoCodec.decodeCard(cursor.getBlob(2));
+					if (video != null) {
+						videos.add(video);
 					}
+				} catch (VideoRecordException e) {
+					// skipped, but kept:  the user bookmarked it
+					Logger.e(this, "Unable to decode bookmarked video " + lastVideoId + ": " + e.getMessage(), e);
 				}
+			}
+		} finally {
+			cursor.close();
+		}
 
-				// regenerate the video's PublishDatePretty (e.g. 5 hours ago)
-				//video.forceRefreshPublishDatePretty();
-				// add the video to the list
-				videos.add(video);
-			} while(cursor.moveToNext());
+		final Page page = new Page(videos, lastOrder, lastVideoId, rows == limit);
+		synchronized (pageCache) {
+			// unless the bookmarks changed meanwhile
+			if (generation == pageCacheGeneration) {
+				pageCache.put(key, page);
+			}
 		}
+		return page;
+	}
 
-		cursor.close();
-		return Pair.create(videos, minOrder);
+	/**
+	 * Forget the decoded pages, once the bookmarks are changed.
+	 */
+	private void invalidatePages() {
+		synchronized (pageCache) {
+			pageCache.clear();
+			pageCacheGeneration++;
+		}
 	}
 
 
+	/**
+	 * Re-encode the bookmarked videos still stored as JSON, see {@link YouTubeVideoCodec}.
+	 * @return the number of converted videos.
+	 */
+	public int convertLegacyVideoBlobs() {
+		return convertLegacyVideoBlobs(BookmarksTable.TABLE_NAME, BookmarksTable.COL_YOUTUBE_VIDEO_ID, BookmarksTable.COL_YOUTUBE_VIDEO);
+	}
+
 	/**
 	 * Add a Listener that will be notified when a Video is added or removed from Bookmarked Videos. This will
 	 * allow the Video Grid to be redrawn in order to remove the video from display.
@@ -299,6 +312,7 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 	 * Called when the Bookmarks DB is updated by a bookmark insertion.
 	 */
 	private void onBookmarkAdded(YouTubeVideo video) {
+		invalidatePages();
 		for (BookmarksDbListener listener : listeners) {
 			listener.onBookmarkAdded(video);
 		}
@@ -308,6 +322,7 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 	 * Called when the Bookmarks DB is updated by deletion.
 	 */
 	private void onBookmarkDeleted(VideoId video) {
+		invalidatePages();
 		for (BookmarksDbListener listener : listeners) {
 			listener.onBookmarkDeleted(video);
 		}
@@ -326,6 +341,35 @@ public class BookmarksDb extends SQLiteOpenHelperEx implements OrderableDatabase
 	////////////////////////////////////////////////////////////////////////////////////////////////
 
 
+	/**
+	 * A page of bookmarked videos, from which the next page is read.
+	 */
+	public static final class Page {
+		private final List<YouTubeVideo> videos;
+		private final Long lastOrder;
+		private final String lastVideoId;
+		private final boolean hasNextPage;
+
+		Page(List<YouTubeVideo> videos, Long lastOrder, String lastVideoId, boolean hasNextPage) {
+			this.videos = Collections.unmodifiableList(videos);
+			this.lastOrder = lastOrder;
+			this.lastVideoId = lastVideoId;
+			this.hasNextPage = hasNextPage;
+		}
+
+		public List<YouTubeVideo> getVideos() {
+			return videos;
+		}
+
+		/**
+		 * @return False if this is the last page.
+		 */
+		public boolean hasNextPage() {
+			return hasNextPage;
+		}
+	}
+
+
 	public interface BookmarksDbListener {
 		/**
 		 * Will be called once the bookmarks DB is updated - by a bookmark insertion.
@@ -29,8 +29,13 @@ public class BookmarksTable {
 
 	static final String COUNT_ALL_BOOKMARKS = String.format("SELECT COUNT(*) FROM %s", BookmarksTable.TABLE_NAME);
 	static final String MAXIMUM_ORDER_QUERY = String.format("SELECT MAX(%s) FROM %s", COL_ORDER, TABLE_NAME);
-	static final String PAGED_QUERY = String.format("SELECT %1$s,%2$s FROM %3$s WHERE %2$s < ? ORDER BY %2$s DESC LIMIT ?", COL_YOUTUBE_VIDEO, COL_ORDER, TABLE_NAME);
-	static final String PAGED_QUERY_UNBOUNDED = String.format("SELECT %1$s,%2$s FROM %3$s ORDER BY %2$s DESC LIMIT ?", COL_YOUTUBE_VIDEO, COL_ORDER, TABLE_NAME);
+	/** The first page of bookmarks, read from the order index. */
+	static final String FIRST_PAGE_QUERY = String.format("SELECT %1$s,%2$s,%3$s FROM %4$s ORDER BY %2$s DESC, %1$s DESC LIMIT ?",
+			COL_YOUTUBE_VIDEO_ID, COL_ORDER, COL_YOUTUBE_VIDEO, TABLE_NAME);
+	/** The page after the given (order, video id) key:  the video id tells apart the (legacy) equal orders. */
+	static final String NEXT_PAGE_QUERY = String.format("SELECT %1$s,%2$s,%3$s FROM %4$s WHERE %2$s <= CAST(? AS INTEGER) AND (%2$s < CAST(? AS INTEGER) OR %1$s < ?) ORDER BY %2$s DESC, %1$s DESC LIMIT ?",
+			COL_YOUTUBE_VIDEO_ID, COL_ORDER, COL_YOUTUBE_VIDEO, TABLE_NAME);
+	static final String ALL_VIDEO_IDS_QUERY = String.format("SELECT %s FROM %s", COL_YOUTUBE_VIDEO_ID, TABLE_NAME);
 	static final String IS_BOOKMARKED_QUERY = String.format("SELECT 1 FROM %s WHERE %s =?", TABLE_NAME, COL_YOUTUBE_VIDEO_ID);
 
 
@@ -24,7 +24,10 @@ import android.database.sqlite.SQLiteDatabase;
 import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.gui.businessobjects.MultiSelectListPreferenceItem;
@@ -39,6 +42,14 @@ public class ChannelFilteringDb extends SQLiteOpenHelperEx {
 	private static final int DATABASE_VERSION = 1;
 	private static final String DATABASE_NAME = "channelFiltering.db";
 
+	/**
+	 * Immutable snapshots of the blacklisted/whitelisted channel IDs (null until first read).  They
+	 * are read by {@link free.rm.skytube.businessobjects.YouTube.VideoBlocker} for every video, hence
+	 * they are never modified:  each change to a list replaces its snapshot as a whole.
+	 */
+	private volatile Set<String> blacklistedChannelIds = null;
+	private volatile Set<String> whitelistedChannelIds = null;
+
 
 	private ChannelFilteringDb(Context context) {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
@@ -84,8 +95,12 @@ public class ChannelFilteringDb extends SQLiteOpenHelperEx {
 	 *
 	 * @return  True if successful.
 	 */
-	public boolean blacklist(String channelId, String channelName) {
-		return addChannel(ChannelListTable.BLACKLIST, channelId, channelName);
+	public synchronized boolean blacklist(String channelId, String channelName) {
+		final boolean successful = addChannel(ChannelListTable.BLACKLIST, channelId, channelName);
+		if (successful) {
+			updateChannelIds(ChannelListTable.BLACKLIST, Collections.singletonList(channelId), true);
+		}
+		return successful;
 	}
 
 
@@ -96,8 +111,16 @@ public class ChannelFilteringDb extends SQLiteOpenHelperEx {
 	 *
 	 * @return  True if successful.
 	 */
-	public boolean unblacklist(final List<MultiSelectListPreferenceItem> channels) {
-		return removeChannels(ChannelListTable.BLACKLIST, channels);
+	public synchronized boolean unblacklist(final List<MultiSelectListPreferenceItem> channels) {
+		final boolean successful = removeChannels(ChannelListTable.BLACKLIST, channels);
+		if (successful) {
+			final List<String> channelIds = new ArrayList<>(channels.size());
+			for (MultiSelectListPreferenceItem channel : channels) {
+				channelIds.add(channel.id);
+			}
+			updateChannelIds(ChannelListTable.BLACKLIST, channelIds, false);
+		}
+		return successful;
 	}
 
 
@@ -110,10 +133,11 @@ public class ChannelFilteringDb extends SQLiteOpenHelperEx {
 
 
 	/**
-	 * @return List of blacklisted channel IDs.
+	 * @return Immutable set of blacklisted channel IDs (not read from the DB, except the first time).
 	 */
-	public List<String> getBlacklistedChannelsIdsList() {
-		return getChannelsIdsList(ChannelListTable.BLACKLIST);
+	public Set<String> getBlacklistedChannelIds() {
+		final Set<String> channelIds = blacklistedChannelIds;
+		return channelIds != null ? channelIds : loadChannelIds(ChannelListTable.BLACKLIST);
 	}
 
 
@@ -131,8 +155,12 @@ public class ChannelFilteringDb extends SQLiteOpenHelperEx {
 	 *
 	 * @return  True if successful.
 	 */
-	public boolean whitelist(String channelId, String channelName) {
-		return addChannel(ChannelListTable.WHITELIST, channelId, channelName);
+	public synchronized boolean whitelist(String channelId, String channelName) {
+		final boolean successful = addChannel(ChannelListTable.WHITELIST, channelId, channelName);
+		if (successful) {
+			updateChannelIds(ChannelListTable.WHITELIST, Collections.singletonList(channelId), true);
+		}
+		return successful;
 	}
 
 
@@ -143,8 +171,12 @@ public class ChannelFilteringDb extends SQLiteOpenHelperEx {
 	 *
 	 * @return  True if successful.
 	 */
-	public boolean unwhitelist(final String channelId) {
-		return removeChannels(ChannelListTable.WHITELIST, channelId);
+	public synchronized boolean unwhitelist(final String channelId) {
+		final boolean successful = removeChannels(ChannelListTable.WHITELIST, channelId);
+		if (successful) {
+			updateChannelIds(ChannelListTable.WHITELIST, Collections.singletonList(channelId), false);
+		}
+		return successful;
 	}
 
 
@@ -157,15 +189,74 @@ public class ChannelFilteringDb extends SQLiteOpenHelperEx {
 
 
 	/**
-	 * @return List of whitelisted channel IDs.
+	 * @return Immutable set of whitelisted channel IDs (not read from the DB, except the first time).
 	 */
-	public List<String> getWhitelistedChannelsIdsList() {
-		return getChannelsIdsList(ChannelListTable.WHITELIST);
+	public Set<String> getWhitelistedChannelIds() {
+		final Set<String> channelIds = whitelistedChannelIds;
+		return channelIds != null ? channelIds : loadChannelIds(ChannelListTable.WHITELIST);
 	}
 
 
 	///////////////////////////
 
+	/**
+	 * Read the snapshot of the channel IDs of the given list from the DB, unless another thread did
+	 * meanwhile.
+	 *
+	 * @param channelListTable  Blacklist/Whitelist table.
+	 *
+	 * @return The snapshot.
+	 */
+	private synchronized Set<String> loadChannelIds(ChannelListTable channelListTable) {
+		Set<String> channelIds = getChannelIdsSnapshot(channelListTable);
+		if (channelIds == null) {
+			channelIds = Collections.unmodifiableSet(new HashSet<>(getChannelsIdsList(channelListTable)));
+			setChannelIdsSnapshot(channelListTable, channelIds);
+		}
+		return channelIds;
+	}
+
+
+	/**
+	 * Replace the snapshot of the channel IDs of the given list by a copy holding the change just
+	 * written to the DB.  Must be called while holding the lock of this DB, as the change itself.
+	 *
+	 * @param channelListTable  Blacklist/Whitelist table.
+	 * @param channelIds        The channels added/removed.
+	 * @param add               True if the channels were added to the list; false if removed.
+	 */
+	private void updateChannelIds(ChannelListTable channelListTable, List<String> channelIds, boolean add) {
+		final Set<String> snapshot = getChannelIdsSnapshot(channelListTable);
+
+		// not read yet:  it will be loaded (with the change) when needed
+		if (snapshot == null) {
+			return;
+		}
+
+		final Set<String> newSnapshot = new HashSet<>(snapshot);
+		if (add) {
+			newSnapshot.addAll(channelIds);
+		} else {
+			newSnapshot.removeAll(channelIds);
+		}
+		setChannelIdsSnapshot(channelListTable, Collections.unmodifiableSet(newSnapshot));
+	}
+
+
+	private Set<String> getChannelIdsSnapshot(ChannelListTable channelListTable) {
+		return channelListTable == ChannelListTable.BLACKLIST ? blacklistedChannelIds : whitelistedChannelIds;
+	}
+
+
+	private void setChannelIdsSnapshot(ChannelListTable channelListTable, Set<String> channelIds) {
+		if (channelListTable == ChannelListTable.BLACKLIST) {
+			blacklistedChannelIds = channelIds;
+		} else {
+			whitelistedChannelIds = channelIds;
+		}
+	}
+
+
 	/**
 	 * Add the given channel to the blacklist/whitelist.
 	 *
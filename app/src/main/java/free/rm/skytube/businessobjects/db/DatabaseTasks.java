@@ -1,6 +1,9 @@
 package free.rm.skytube.businessobjects.db;
 
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.Menu;
@@ -16,10 +19,12 @@ import java.util.Objects;
 import free.rm.skytube.R;
 import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.YouTube.POJOs.ChannelView;
+import free.rm.skytube.businessobjects.YouTube.POJOs.FeedCard;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
 import free.rm.skytube.businessobjects.YouTube.VideoBlocker;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
+import free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdSet;
 import free.rm.skytube.gui.businessobjects.adapters.SubsAdapter;
 import free.rm.skytube.gui.businessobjects.views.SubscribeButton;
 import free.rm.skytube.gui.fragments.SubscriptionsFeedFragment;
@@ -29,6 +34,7 @@ import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.functions.Action;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
 /**
@@ -155,6 +161,20 @@ public class DatabaseTasks {
                 });
     }
 
+    /**
+     * Returns the full video behind the given card:  a {@link FeedCard} is hydrated from its
+     * stored blob, any other video is returned as it is.
+     */
+    public static Single<YouTubeVideo> getFullVideo(@NonNull YouTubeVideo video) {
+        if (!(video instanceof FeedCard)) {
+            return Single.just(video);
+        }
+        return Maybe.fromCallable(() -> SubscriptionsDb.getSubscriptionsDb().getVideo(video.getId()))
+                .defaultIfEmpty(video)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
     /**
      * A task that checks if the passed {@link YouTubeVideo} is marked as watched, to update the passed {@link Menu} accordingly.
      */
@@ -247,4 +267,51 @@ public class DatabaseTasks {
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe();
     }
+
+    /**
+     * The one-time maintenance of the databases, in the background.  The steps run one after the
+     * other, as each one queues many writes:  a failing step is logged, and the next ones still run.
+     */
+    public static Disposable runDatabaseMaintenance() {
+        return Completable.concatArray(
+                maintenanceStep("convert the stored videos", DatabaseTasks::convertLegacyVideoBlobs),
+                maintenanceStep("check the state of the subscribed channels",
+                        () -> SubscriptionsDb.getSubscriptionsDb().checkChannelVideoState()),
+                maintenanceStep("delete the old feed videos", DatabaseTasks::applyVideoRetention))
+                .subscribeOn(Schedulers.io())
+                .subscribe();
+    }
+
+    private static Completable maintenanceStep(String description, Action step) {
+        return Completable.fromAction(step)
+                .doOnError(throwable -> Log.e(TAG, "Unable to " + description + ": " + throwable.getMessage(), throwable))
+                .onErrorComplete();
+    }
+
+    /**
+     * Re-encode the videos, which are still stored as JSON in the subscriptions, bookmarks and
+     * downloads databases, in the compact binary format.
+     */
+    private static void convertLegacyVideoBlobs() {
+        SubscriptionsDb.getSubscriptionsDb().convertLegacyVideoBlobs();
+        BookmarksDb.getBookmarksDb().convertLegacyVideoBlobs();
+        DownloadedVideosDb.getVideoDownloadsDb().convertLegacyVideoBlobs();
+    }
+
+    /**
+     * Delete the videos of the subscribed channels, which are beyond the retention policy set by the
+     * user.  Bookmarked and partly watched videos are kept.  The full VACUUM, which switches the
+     * database to incremental auto-vacuum, waits for the device to be plugged in.
+     */
+    private static void applyVideoRetention() {
+        final VideoIdSet exemptVideoIds = PlaybackStatusDb.getPlaybackStatusDb().getPartlyWatchedVideoIds();
+        exemptVideoIds.addAll(BookmarksDb.getBookmarksDb().getBookmarkedVideoIds());
+        SubscriptionsDb.getSubscriptionsDb().applyVideoRetention(SkyTubeApp.getSettings().getVideoRetentionPolicy(),
+                exemptVideoIds, isCharging());
+    }
+
+    private static boolean isCharging() {
+        final Intent battery = SkyTubeApp.getContext().registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
 }
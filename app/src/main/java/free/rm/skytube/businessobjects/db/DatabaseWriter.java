@@ -0,0 +1,332 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The only thread writing to a database:  the write commands are queued, and the ones arriving
+ * within a short window are committed together, in a single transaction (group commit).  Hence the
+ * writers never wait for each other's locks, and the cost of a commit is shared by a whole batch.
+ *
+ * <p>Every command of a batch runs in its own savepoint:  if it fails, only its own changes are rolled
+ * back, and it alone reports the error.  Hence every command runs exactly once.  A command must not
+ * end the transaction it runs in.</p>
+ *
+ * <p>The maintenance commands (e.g. a VACUUM, or a checkpoint) can't run in a transaction:  they run
+ * alone, after the commands queued before them.</p>
+ *
+ * @param <D> The database type.
+ */
+public class DatabaseWriter<D> {
+
+	/** How long the writer waits for more commands, once it got the first one of a batch. */
+	static final long DEFAULT_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+	static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+	/**
+	 * A change to the database, run on the writer thread, inside a transaction.
+	 */
+	public interface Command<D> {
+		void execute(D database) throws Exception;
+	}
+
+	/**
+	 * Opens the database, and handles its transactions.
+	 */
+	public interface Transactions<D> {
+		D open();
+		void begin(D database);
+		void commit(D database);
+		void rollback(D database);
+		/** Start a savepoint in the current transaction, before each command of a batch. */
+		void savepoint(D database);
+		/** Keep the changes made since the savepoint. */
+		void releaseSavepoint(D database);
+		/** Undo the changes made since the savepoint, and release it. */
+		void rollbackToSavepoint(D database);
+	}
+
+	/**
+	 * Notified on the writer thread, once the transaction of the command has ended - or on the
+	 * submitting thread, if the writer is shut down.
+	 */
+	public interface Callback {
+		void onCommitted();
+		void onFailed(Exception e);
+	}
+
+	private static class PendingCommand<D> {
+		final Command<D> command;
+		final Callback callback;
+		final boolean inTransaction;
+
+		PendingCommand(Command<D> command, Callback callback, boolean inTransaction) {
+			this.command = command;
+			this.callback = callback;
+			this.inTransaction = inTransaction;
+		}
+	}
+
+	private final String name;
+	private final Transactions<D> transactions;
+	private final long windowNanos;
+	private final int maxBatchSize;
+	private final BlockingQueue<PendingCommand<D>> queue = new LinkedBlockingQueue<>();
+	private final AtomicLong commandCount = new AtomicLong();
+	private final AtomicLong transactionCount = new AtomicLong();
+	/** Read by {@link #isWriterThread()} from any thread, set under the lock. */
+	private volatile Thread thread;
+	private boolean shutdown = false;
+
+	public DatabaseWriter(String name, Transactions<D> transactions) {
+		this(name, transactions, DEFAULT_WINDOW_NANOS, DEFAULT_MAX_BATCH_SIZE);
+	}
+
+	DatabaseWriter(String name, Transactions<D> transactions, long windowNanos, int maxBatchSize) {
+		this.name = name;
+		this.transactions = transactions;
+		this.windowNanos = windowNanos;
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Queue the command.  Never wait for the callback on the writer thread (i.e. from a command).
+	 */
+	public void submit(Command<D> command, Callback callback) {
+		submit(new PendingCommand<>(command, callback, true));
+	}
+
+	/**
+	 * Queue a command, which is run alone and outside of any transaction, e.g. a VACUUM.  Never wait
+	 * for the callback on the writer thread (i.e. from a command).
+	 */
+	public void submitMaintenance(Command<D> command, Callback callback) {
+		submit(new PendingCommand<>(command, callback, false));
+	}
+
+	private void submit(PendingCommand<D> pending) {
+		synchronized (this) {
+			if (!shutdown) {
+				startThread();
+				queue.add(pending);
+				return;
+			}
+		}
+		pending.callback.onFailed(new IllegalStateException("The writer of " + name + " is shut down"));
+	}
+
+	/**
+	 * Wait until the commands queued so far are committed (or have failed) - e.g. before the database
+	 * is closed.  Must not be called on the writer thread.
+	 */
+	public void flush() throws InterruptedException {
+		final CountDownLatch flushed;
+		synchronized (this) {
+			if (thread == null || shutdown) {
+				return;
+			}
+			flushed = queueBarrier();
+		}
+		flushed.await();
+	}
+
+	/**
+	 * Wait until the commands queued so far are committed (or have failed), and make the commands
+	 * submitted afterwards fail - e.g. before the database files are replaced.  Must not be called on
+	 * the writer thread.
+	 */
+	public void shutdown() throws InterruptedException {
+		final CountDownLatch flushed;
+		synchronized (this) {
+			if (shutdown) {
+				return;
+			}
+			shutdown = true;
+			if (thread == null) {
+				return;
+			}
+			flushed = queueBarrier();
+		}
+		flushed.await();
+	}
+
+	/**
+	 * @return Counted down once the commands queued before are written.
+	 */
+	private CountDownLatch queueBarrier() {
+		if (isWriterThread()) {
+			throw new IllegalStateException("The writer of " + name + " would wait for itself");
+		}
+		final CountDownLatch written = new CountDownLatch(1);
+		queue.add(new PendingCommand<>(database -> {}, new Callback() {
+			@Override
+			public void onCommitted() {
+				written.countDown();
+			}
+
+			@Override
+			public void onFailed(Exception e) {
+				written.countDown();
+			}
+		}, true));
+		return written;
+	}
+
+	/**
+	 * @return True if the caller is the writer thread.
+	 */
+	public boolean isWriterThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	public long getCommandCount() {
+		return commandCount.get();
+	}
+
+	public long getTransactionCount() {
+		return transactionCount.get();
+	}
+
+	private synchronized void startThread() {
+		if (thread == null) {
+			thread = new Thread(this::run, name + "-writer");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void run() {
+		final List<PendingCommand<D>> batch = new ArrayList<>(maxBatchSize);
+		while (true) {
+			try {
+				batch.add(queue.take());
+				final long deadline = System.nanoTime() + windowNanos;
+				queue.drainTo(batch, maxBatchSize - batch.size());
+				while (batch.size() < maxBatchSize) {
+					final PendingCommand<D> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+					queue.drainTo(batch, maxBatchSize - batch.size());
+				}
+			} catch (InterruptedException e) {
+				// only the commands already taken are written
+				if (batch.isEmpty()) {
+					return;
+				}
+			}
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Write the consecutive commands of the batch in one transaction, and each maintenance command
+	 * on its own.
+	 */
+	private void write(List<PendingCommand<D>> batch) {
+		commandCount.addAndGet(batch.size());
+		int start = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			final PendingCommand<D> pending = batch.get(i);
+			if (!pending.inTransaction) {
+				if (start < i) {
+					execute(batch.subList(start, i));
+				}
+				runMaintenance(pending);
+				start = i + 1;
+			}
+		}
+		if (start < batch.size()) {
+			execute(batch.subList(start, batch.size()));
+		}
+	}
+
+	private void runMaintenance(PendingCommand<D> pending) {
+		try {
+			pending.command.execute(transactions.open());
+		} catch (Exception e) {
+			pending.callback.onFailed(e);
+			return;
+		}
+		pending.callback.onCommitted();
+	}
+
+	/**
+	 * Run the commands in one transaction - each one in its own savepoint if there are several, so
+	 * that a failing command only rolls back its own changes.
+	 */
+	private void execute(List<PendingCommand<D>> batch) {
+		final Exception[] failures = new Exception[batch.size()];
+		final boolean savepoints = batch.size() > 1;
+		try {
+			final D database = transactions.open();
+			transactions.begin(database);
+			transactionCount.incrementAndGet();
+			boolean successful = false;
+			try {
+				for (int i = 0; i < batch.size(); i++) {
+					if (savepoints) {
+						transactions.savepoint(database);
+					}
+					try {
+						batch.get(i).command.execute(database);
+					} catch (Exception e) {
+						if (!savepoints) {
+							throw e;
+						}
+						transactions.rollbackToSavepoint(database);
+						failures[i] = e;
+						continue;
+					}
+					if (savepoints) {
+						transactions.releaseSavepoint(database);
+					}
+				}
+				successful = true;
+			} finally {
+				if (successful) {
+					transactions.commit(database);
+				} else {
+					transactions.rollback(database);
+				}
+			}
+		} catch (Exception e) {
+			// nothing was written
+			for (PendingCommand<D> pending : batch) {
+				pending.callback.onFailed(e);
+			}
+			return;
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			if (failures[i] != null) {
+				batch.get(i).callback.onFailed(failures[i]);
+			} else {
+				batch.get(i).callback.onCommitted();
+			}
+		}
+	}
+}
@@ -10,11 +10,6 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
-import com.google.gson.Gson;
-
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,8 +23,9 @@ import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.AsyncTaskParallel;
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
-import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
+import free.rm.skytube.businessobjects.YouTube.POJOs.VideoRecordException;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideoCodec;
 import free.rm.skytube.businessobjects.YouTube.newpipe.VideoId;
 import free.rm.skytube.businessobjects.interfaces.OrderableDatabase;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
@@ -121,8 +117,9 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 	private static volatile DownloadedVideosDb downloadsDb = null;
 	private static boolean hasUpdated = false;
 
-	private static final int DATABASE_VERSION = 2;
+	private static final int DATABASE_VERSION = 3;
 	private static final String DATABASE_NAME = "videodownloads.db";
+	private static final OrderKeys ORDER_KEYS = new OrderKeys(DownloadedVideosTable.TABLE_NAME, DownloadedVideosTable.COL_YOUTUBE_VIDEO_ID, DownloadedVideosTable.COL_ORDER);
 
 	private final Set<DownloadedVideosListener> listeners = new HashSet<>();
 
@@ -146,6 +143,7 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 	@Override
 	public void onCreate(SQLiteDatabase db) {
 		db.execSQL(DownloadedVideosTable.getCreateStatement());
+		db.execSQL(ORDER_KEYS.getIndexStatement());
 	}
 
 	@Override
@@ -153,7 +151,9 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 		if(oldVersion == 1 && newVersion >= 2) {
 			db.execSQL(DownloadedVideosTable.getAddAudioUriColumn());
 		}
-
+		if (oldVersion < 3) {
+			db.execSQL(ORDER_KEYS.getIndexStatement());
+		}
 	}
 
 	/**
@@ -162,7 +162,7 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 	 * @return List of Videos
 	 */
 	public List<YouTubeVideo> getDownloadedVideos() {
-		return getDownloadedVideos(DownloadedVideosTable.COL_ORDER + " DESC");
+		return getDownloadedVideos(DownloadedVideosTable.COL_ORDER + " DESC, " + DownloadedVideosTable.COL_YOUTUBE_VIDEO_ID + " DESC");
 	}
 
 	/**
@@ -178,29 +178,20 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 						null, null, null, ordering);
 		List<YouTubeVideo> videos = new ArrayList<>();
 
-		Gson gson = new Gson();
 		if(cursor.moveToNext()) {
+			final int colVideo = cursor.getColumnIndex(DownloadedVideosTable.COL_YOUTUBE_VIDEO);
 			do {
-				final byte[] blob = cursor.getBlob(cursor.getColumnIndex(DownloadedVideosTable.COL_YOUTUBE_VIDEO));
-				final String videoJson = new String(blob);
-
-				// convert JSON into YouTubeVideo
-				YouTubeVideo video = gson.fromJson(videoJson, YouTubeVideo.class).updatePublishTimestampFromDate();
-
-				// due to upgrade to YouTubeVideo (by changing channel{Id,Name} to YouTubeChannel)
-				// from version 2.82 to 2.90
-				if (video.getChannel() == null) {
-					try {
-						JSONObject videoJsonObj = new JSONObject(videoJson);
-						final String channelId   = videoJsonObj.get("channelId").toString();
-						final String channelName = videoJsonObj.get("channelName").toString();
-						video.setChannel(new YouTubeChannel(channelId, channelName));
-					} catch (JSONException e) {
-						Logger.e(this, "Error occurred while extracting channel{Id,Name} from JSON", e);
+				// convert the blob (binary or legacy JSON) into YouTubeVideo
+				try {
+					YouTubeVideo video = YouTubeVideoCodec.decode(cursor.getBlob(colVideo));
+					if (video != null) {
+						video.forceRefreshPublishDatePretty();
+						videos.add(video);
 					}
+				} catch (VideoRecordException e) {
+					// skipped, but kept:  the row still points to the downloaded file
+					Logger.e(this, "Unable to decode downloaded video: " + e.getMessage(), e);
 				}
-				video.forceRefreshPublishDatePretty();
-				videos.add(video);
 			} while(cursor.moveToNext());
 		}
 		cursor.close();
@@ -209,10 +200,9 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 	}
 
 	public boolean add(YouTubeVideo video, Uri fileUri, Uri audioUri) {
-		Gson gson = new Gson();
 		ContentValues values = new ContentValues();
 		values.put(DownloadedVideosTable.COL_YOUTUBE_VIDEO_ID, video.getId());
-		values.put(DownloadedVideosTable.COL_YOUTUBE_VIDEO, gson.toJson(video).getBytes());
+		values.put(DownloadedVideosTable.COL_YOUTUBE_VIDEO, YouTubeVideoCodec.encode(video));
 		if (fileUri != null) {
 			values.put(DownloadedVideosTable.COL_FILE_URI, fileUri.toString());
 		}
@@ -220,15 +210,29 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 			values.put(DownloadedVideosTable.COL_AUDIO_FILE_URI, audioUri.toString());
 		}
 
-		int order = getMaximumOrderNumber();
-		order++;
-		values.put(DownloadedVideosTable.COL_ORDER, order);
-
-		boolean addSuccessful = getWritableDatabase().replace(DownloadedVideosTable.TABLE_NAME, null, values) != -1;
+		boolean addSuccessful;
+		try {
+			// the key is taken in the transaction of the insert, so that no other video gets it
+			addSuccessful = writeForResult(db -> {
+				values.put(DownloadedVideosTable.COL_ORDER, getNextOrderKey(db, ORDER_KEYS));
+				return db.replace(DownloadedVideosTable.TABLE_NAME, null, values) != -1;
+			}).blockingGet();
+		} catch (RuntimeException e) {
+			Logger.e(this, "Unable to add the downloaded video " + video.getId() + ": " + e.getMessage(), e);
+			addSuccessful = false;
+		}
 		onUpdated();
 		return addSuccessful;
 	}
 
+	/**
+	 * Re-encode the downloaded videos still stored as JSON, see {@link YouTubeVideoCodec}.
+	 * @return the number of converted videos.
+	 */
+	public int convertLegacyVideoBlobs() {
+		return convertLegacyVideoBlobs(DownloadedVideosTable.TABLE_NAME, DownloadedVideosTable.COL_YOUTUBE_VIDEO_ID, DownloadedVideosTable.COL_YOUTUBE_VIDEO);
+	}
+
 	/**
 	 * Remove the filenames of the downloaded video from the database
 	 * @param videoId
@@ -451,21 +455,14 @@ public class DownloadedVideosDb extends SQLiteOpenHelperEx implements OrderableD
 	}
 
 	/**
-	 * When a Video in the Downloads tab is drag & dropped to a new position, this will be
-	 * called with the new updated list of videos. Since the videos are displayed in descending order,
-	 * the first video in the list will have the highest number.
-	 *
-	 * @param videos List of Videos to update their order.
+	 * When a Video in the Downloads tab is drag & dropped to a new position, this will be called
+	 * to give it an order number between the ones of its new neighbours (the videos are displayed in
+	 * descending order) - see {@link OrderKeys}.
 	 */
 	@Override
-	public void updateOrder(List<CardData> videos) {
-		int order = videos.size();
-
-		for(CardData video : videos) {
-			ContentValues cv = new ContentValues();
-			cv.put(DownloadedVideosTable.COL_ORDER, order--);
-			getWritableDatabase().update(DownloadedVideosTable.TABLE_NAME, cv, DownloadedVideosTable.COL_YOUTUBE_VIDEO_ID + " = ?", new String[]{video.getId()});
-		}
+	public void moveItem(CardData video, CardData previousVideo) {
+		final String previousId = previousVideo != null ? previousVideo.getId() : null;
+		write(db -> moveOrderedItem(db, ORDER_KEYS, video.getId(), previousId));
 	}
 
 	/**
@@ -0,0 +1,92 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.db;
+
+/**
+ * The order column of a list which the user can reorder (e.g. the bookmarks), displayed by descending
+ * order key.  The keys are sparse:  an item is moved by giving it a key between the keys of its new
+ * neighbours, so that only its own row is updated, whatever the length of the list.  Once two
+ * neighbours have no room left between them, the keys of the whole list are spread out again
+ * ({@link #GAP} apart) - which is rare, as every spreading leaves room for about 10 moves into the
+ * same place.
+ */
+public class OrderKeys {
+	/** Distance between the keys of consecutive items, once spread out. */
+	static final long GAP = 1024;
+	/** The keys are read as int by the pages of the lists. */
+	static final long MAX_KEY = Integer.MAX_VALUE;
+
+	final String keyQuery;
+	final String lowerKeyQuery;
+	final String highestKeyQuery;
+	final String nextKeyQuery;
+	final String orderedIdsQuery;
+	final String updateKey;
+	private final String indexStatement;
+
+	/**
+	 * @param table         The table of the list.
+	 * @param idColumn      Its (text) primary key.
+	 * @param orderColumn   Its (integer) order column.
+	 */
+	public OrderKeys(String table, String idColumn, String orderColumn) {
+		keyQuery = String.format("SELECT %s FROM %s WHERE %s = ?", orderColumn, table, idColumn);
+		// the key of the item displayed after the given one (ignoring the moved item):  the legacy
+		// items may share a key, which is then displayed by descending id
+		lowerKeyQuery = String.format("SELECT %1$s FROM %2$s WHERE %1$s <= CAST(? AS INTEGER) AND %3$s <> ? AND NOT (%1$s = CAST(? AS INTEGER) AND %3$s >= ?) ORDER BY %1$s DESC, %3$s DESC LIMIT 1",
+				orderColumn, table, idColumn);
+		highestKeyQuery = String.format("SELECT %1$s FROM %2$s WHERE %3$s <> ? ORDER BY %1$s DESC LIMIT 1",
+				orderColumn, table, idColumn);
+		nextKeyQuery = String.format("SELECT COALESCE(MAX(%s), 0) + %d FROM %s", orderColumn, GAP, table);
+		// the reverse of the displayed order:  by descending key, then by descending id
+		orderedIdsQuery = String.format("SELECT %1$s FROM %2$s ORDER BY %3$s, %1$s", idColumn, table, orderColumn);
+		updateKey = String.format("UPDATE %s SET %s = ? WHERE %s = ?", table, orderColumn, idColumn);
+		indexStatement = String.format("CREATE INDEX IF NOT EXISTS IDX_%1$s_%2$s ON %1$s (%2$s, %3$s)", table, orderColumn, idColumn);
+	}
+
+	/**
+	 * The neighbours of an item are found through this index, and the pages of the list are read
+	 * from it (ordered by key, then by id).
+	 */
+	public String getIndexStatement() {
+		return indexStatement;
+	}
+
+	/**
+	 * @param higherKey The key of the item displayed before, or null if there is none.
+	 * @param lowerKey  The key of the item displayed after, or null if there is none.
+	 * @return A key between the given ones, or null if there is no room left (i.e. the keys must be
+	 * 			spread out first).
+	 */
+	static Long getKeyBetween(Long higherKey, Long lowerKey) {
+		final long low = lowerKey != null ? lowerKey : 0;
+		if (higherKey == null) {
+			return low + GAP <= MAX_KEY ? low + GAP : null;
+		}
+		return higherKey - low >= 2 ? low + (higherKey - low) / 2 : null;
+	}
+
+	/**
+	 * @param position The position of the item, from the end of the list (i.e. 0 for the lowest key).
+	 * @return The key of the item, once the keys are spread out.
+	 */
+	static long getSpreadKey(int position) {
+		return (position + 1) * GAP;
+	}
+
+}
@@ -1,32 +1,61 @@
 package free.rm.skytube.businessobjects.db;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import androidx.annotation.NonNull;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdSet;
 import free.rm.skytube.businessobjects.interfaces.VideoPlayStatusUpdateListener;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Completable;
 
 /**
  * A database (DB) that stores video playback history
  */
 public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 	private static volatile PlaybackStatusDb playbackStatusDb = null;
-	private static HashMap<String, VideoWatchedStatus> playbackHistoryMap = null;
+
+	/** Number of videos whose watched status is kept in memory. */
+	static final int CACHE_SIZE = 2000;
+	/** Number of videos whose watched status is read by one query. */
+	static final int CACHE_BATCH_SIZE = 100;
+	/** The positions saved within this delay are written together. */
+	private static final long WRITE_BEHIND_DELAY_MILLIS = 2000;
 
 	private static final int DATABASE_VERSION = 1;
 	private int updateCounter = 0;
 	private static final String DATABASE_NAME = "playbackhistory.db";
 
 	private final Set<VideoPlayStatusUpdateListener> listeners = new HashSet<>();
+	private final BatchLoadingCache<VideoWatchedStatus> videoWatchedStatusCache;
+	/** The statuses saved, but not written to the database yet. */
+	private final ConcurrentHashMap<String, VideoWatchedStatus> pendingWrites = new ConcurrentHashMap<>();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	/** Incremented when the history is deleted, so that the flushes started before are dropped. */
+	private final AtomicLong writeGeneration = new AtomicLong();
+	private final ScheduledExecutorService writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, DATABASE_NAME + "-write-behind");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	public static synchronized PlaybackStatusDb getPlaybackStatusDb() {
 		if (playbackStatusDb == null) {
@@ -38,6 +67,8 @@ public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 
 	private PlaybackStatusDb(Context context) {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
+		videoWatchedStatusCache = new BatchLoadingCache<>(this::loadVideoWatchedStatus, VideoWatchedStatus.UNWATCHED,
+				CACHE_SIZE, CACHE_BATCH_SIZE);
 	}
 
 	@Override
@@ -45,11 +76,28 @@ public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 
 	}
 
-	public void deleteAllPlaybackHistory() {
-		getWritableDatabase().delete(PlaybackStatusTable.TABLE_NAME, null, null);
-		playbackHistoryMap = null;
-		updateCounter++;
-		onUpdated();
+	/**
+	 * Delete the whole playback history, without waiting for the database.
+	 *
+	 * @return Completes (on the main thread) once the history is deleted.
+	 */
+	public Completable deleteAllPlaybackHistory() {
+		pendingWrites.clear();
+		// the flushes of the statuses saved before are stale:  they are skipped, even if they are
+		// queued after the delete
+		writeGeneration.incrementAndGet();
+		final Completable deleted = write(db -> db.delete(PlaybackStatusTable.TABLE_NAME, null, null))
+				.observeOn(AndroidSchedulers.mainThread())
+				.doOnComplete(() -> {
+					videoWatchedStatusCache.clear();
+					updateCounter++;
+					onUpdated();
+				})
+				.cache();
+		deleted.subscribe(() -> {}, error -> {
+			// already logged
+		});
+		return deleted;
 	}
 
 	@Override
@@ -63,40 +111,65 @@ public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 	}
 
 	/**
-	 * Get the watched status of the passed {@link YouTubeVideo}. Instead of always querying the database, a HashMap
-	 * is constructed that stores the watch status of all videos (that have a status). Subsequent calls to this method
-	 * will return the watch status for the passed video from this HashMap (which also gets updated by calls to setWatchedStatus().
+	 * Get the watched status of the passed {@link YouTubeVideo}.  The statuses are cached (up to
+	 * {@link #CACHE_SIZE} videos), hence the database is only queried for the videos which weren't
+	 * looked up recently - or preloaded with {@link #preloadVideoWatchedStatus(Collection)}.
 	 *
 	 * @param videoId {@link YouTubeVideo}
 	 * @return {@link VideoWatchedStatus} of the passed video, which contains the position (in ms) and whether or not the video
 	 * 					has been (completely) watched.
 	 */
 	public VideoWatchedStatus getVideoWatchedStatus(@NonNull String videoId) {
-		if(playbackHistoryMap == null) {
-			Cursor cursor = getReadableDatabase().query(
-							PlaybackStatusTable.TABLE_NAME,
-							new String[]{PlaybackStatusTable.COL_YOUTUBE_VIDEO_ID, PlaybackStatusTable.COL_YOUTUBE_VIDEO_POSITION, PlaybackStatusTable.COL_YOUTUBE_VIDEO_WATCHED},
-							null,
-							null, null, null, null);
-			playbackHistoryMap = new HashMap<>();
-			if(cursor.moveToFirst()) {
-				do {
-					String video_id = cursor.getString(cursor.getColumnIndex(PlaybackStatusTable.COL_YOUTUBE_VIDEO_ID));
-					int position = cursor.getInt(cursor.getColumnIndex(PlaybackStatusTable.COL_YOUTUBE_VIDEO_POSITION));
-					int finished = cursor.getInt(cursor.getColumnIndex(PlaybackStatusTable.COL_YOUTUBE_VIDEO_WATCHED));
-					VideoWatchedStatus status = new VideoWatchedStatus(position, finished == 1);
-					playbackHistoryMap.put(video_id, status);
-				} while (cursor.moveToNext());
+		return videoWatchedStatusCache.get(videoId);
+	}
+
+	/**
+	 * Load the watched status of the passed videos (in batches), so that the grid doesn't query the
+	 * database while binding them.  Shall be called on a background thread.
+	 */
+	public void preloadVideoWatchedStatus(Collection<String> videoIds) {
+		videoWatchedStatusCache.preload(videoIds);
+	}
+
+	private Map<String, VideoWatchedStatus> loadVideoWatchedStatus(List<String> videoIds) {
+		final Map<String, VideoWatchedStatus> statuses = new HashMap<>();
+		try (Cursor cursor = getReadableDatabase().rawQuery(PlaybackStatusTable.getStatusQuery(videoIds.size()),
+				videoIds.toArray(new String[0]))) {
+			while (cursor.moveToNext()) {
+				statuses.put(cursor.getString(0), new VideoWatchedStatus(cursor.getLong(1), cursor.getInt(2) == 1));
+			}
+		}
+		// the statuses not written yet are newer
+		for (String videoId : videoIds) {
+			final VideoWatchedStatus pending = pendingWrites.get(videoId);
+			if (pending != null) {
+				statuses.put(videoId, pending);
+			}
+		}
+		return statuses;
+	}
+
+	/**
+	 * @return The IDs of the videos, which the user started watching but didn't finish.
+	 */
+	public VideoIdSet getPartlyWatchedVideoIds() {
+		final VideoIdSet videoIds;
+		try (Cursor cursor = getReadableDatabase().rawQuery(PlaybackStatusTable.PARTLY_WATCHED_VIDEO_IDS_QUERY, null)) {
+			videoIds = new VideoIdSet(cursor.getCount());
+			while (cursor.moveToNext()) {
+				final String videoId = cursor.getString(0);
+				// the pending writes are more recent than the database
+				if (!pendingWrites.containsKey(videoId)) {
+					videoIds.add(videoId);
+				}
 			}
-			cursor.close();
 		}
-		if(playbackHistoryMap.get(videoId) == null) {
-			// Requested video has no entry in the database, so create one in the Map. No need to create it in the Database yet - if needed,
-			// that will happen when video position is set
-			VideoWatchedStatus status = new VideoWatchedStatus();
-			playbackHistoryMap.put(videoId, status);
+		for (Map.Entry<String, VideoWatchedStatus> pending : pendingWrites.entrySet()) {
+			if (pending.getValue().isWatched() && !pending.getValue().isFullyWatched()) {
+				videoIds.add(pending.getKey());
+			}
 		}
-		return playbackHistoryMap.get(videoId);
+		return videoIds;
 	}
 
 	/**
@@ -106,7 +179,7 @@ public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 	 *
 	 * @param video {@link YouTubeVideo}
 	 * @param position Number of milliseconds
-	 * @return boolean on whether the database was updated successfully.
+	 * @return boolean on whether the position is saved.
 	 */
 	public boolean setVideoPosition(YouTubeVideo video, long position) {
 		// Don't record the position if it's < 5 seconds
@@ -129,34 +202,87 @@ public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 	 *
 	 * @param video {@link YouTubeVideo}
 	 * @param watched boolean on whether or not the passed video has been watched
-	 * @return boolean on whether the database was updated successfully.
+	 * @return boolean on whether the status is saved.
 	 */
 	public boolean setVideoWatchedStatus(YouTubeVideo video, boolean watched) {
 		return saveVideoWatchStatus(video.getId(), 0, watched);
 	}
 
 	private boolean saveVideoWatchStatus(String videoId, long position, boolean watched) {
-		ContentValues values = new ContentValues();
-		values.put(PlaybackStatusTable.COL_YOUTUBE_VIDEO_ID, videoId);
-		values.put(PlaybackStatusTable.COL_YOUTUBE_VIDEO_POSITION, (int)position);
-		values.put(PlaybackStatusTable.COL_YOUTUBE_VIDEO_WATCHED, watched ? 1 : 0);
-
-		boolean addSuccessful = getWritableDatabase().insertWithOnConflict(PlaybackStatusTable.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE) != -1;
-		if(addSuccessful) {
-			updateCounter++;
+		// the status is updated in memory straight away, and written a bit later (together with the
+		// other ones saved meanwhile) - the player saves the position of a video many times
+		final VideoWatchedStatus status = new VideoWatchedStatus(position, watched);
+		pendingWrites.put(videoId, status);
+		videoWatchedStatusCache.put(videoId, status);
+		scheduleFlush();
+		updateCounter++;
+
+		onUpdated();
+
+		return true;
+	}
+
+	private void scheduleFlush() {
+		if (flushScheduled.compareAndSet(false, true)) {
+			writeBehindExecutor.schedule(this::flushPendingWrites, WRITE_BEHIND_DELAY_MILLIS, TimeUnit.MILLISECONDS);
 		}
+	}
 
-		VideoWatchedStatus status = playbackHistoryMap.get(videoId);
-		if (status == null) {
-			status = new VideoWatchedStatus();
-			playbackHistoryMap.put(videoId, status);
+	/**
+	 * Write the statuses saved since the last flush to the database, in one transaction, without
+	 * waiting for the write-behind delay - e.g. when the player goes to the background, as the app
+	 * might then be killed.
+	 */
+	public void flushPendingWrites() {
+		flushScheduled.set(false);
+		final long generation = writeGeneration.get();
+		final Map<String, VideoWatchedStatus> statuses = new HashMap<>(pendingWrites);
+		if (statuses.isEmpty()) {
+			return;
 		}
-		status.position = position;
-		status.watched = watched;
+		write(db -> {
+			if (generation != writeGeneration.get()) {
+				// the history was deleted since
+				return;
+			}
+			final SQLiteStatement statement = db.compileStatement(PlaybackStatusTable.SAVE_STATUS);
+			try {
+				for (Map.Entry<String, VideoWatchedStatus> entry : statuses.entrySet()) {
+					statement.bindString(1, entry.getKey());
+					statement.bindLong(2, entry.getValue().getPosition());
+					statement.bindLong(3, entry.getValue().isFullyWatched() ? 1 : 0);
+					statement.executeInsert();
+				}
+			} finally {
+				statement.close();
+			}
+		}).subscribe(() -> {
+			if (generation != writeGeneration.get()) {
+				// the statuses saved after the delete are written by the next flush
+				if (!pendingWrites.isEmpty()) {
+					scheduleFlush();
+				}
+				return;
+			}
+			// unless they were saved again meanwhile
+			for (Map.Entry<String, VideoWatchedStatus> entry : statuses.entrySet()) {
+				pendingWrites.remove(entry.getKey(), entry.getValue());
+			}
+		}, error -> {
+			// already logged, the statuses are written again by the next flush
+		});
+	}
 
-		onUpdated();
+	@Override
+	public void flushWrites() throws InterruptedException {
+		flushPendingWrites();
+		super.flushWrites();
+	}
 
-		return addSuccessful;
+	@Override
+	public void shutdownWrites() throws InterruptedException {
+		flushPendingWrites();
+		super.shutdownWrites();
 	}
 
 	private void onUpdated() {
@@ -169,7 +295,13 @@ public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 	 * Class that contains the position and watched status of a video.
 	 */
 	public static class VideoWatchedStatus {
-		public VideoWatchedStatus() {}
+		/** The status of the videos which are not in the playback history. */
+		static final VideoWatchedStatus UNWATCHED = new VideoWatchedStatus();
+
+		public VideoWatchedStatus() {
+			this(0, false);
+		}
+
 		public VideoWatchedStatus(long position, boolean watched) {
 			this.position = position;
 			this.watched = watched;
@@ -180,8 +312,8 @@ public class PlaybackStatusDb extends SQLiteOpenHelperEx {
 			return String.format("Position: %d\nWatched: %s\n", position, watched);
 		}
 
-		private long position = 0;
-		private boolean watched = false;
+		private final long position;
+		private final boolean watched;
 
 		public boolean isFullyWatched() {
 			return watched;
@@ -6,6 +6,25 @@ public class PlaybackStatusTable {
 	public static final String COL_YOUTUBE_VIDEO_POSITION = "YouTube_Video_Position"; // number of seconds at which this video should resume
 	public static final String COL_YOUTUBE_VIDEO_WATCHED = "YouTube_Video_Watched";
 
+	static final String PARTLY_WATCHED_VIDEO_IDS_QUERY = String.format("SELECT %s FROM %s WHERE %s > 0 AND NOT %s",
+			COL_YOUTUBE_VIDEO_ID, TABLE_NAME, COL_YOUTUBE_VIDEO_POSITION, COL_YOUTUBE_VIDEO_WATCHED);
+
+	static final String SAVE_STATUS = String.format("INSERT OR REPLACE INTO %s (%s, %s, %s) VALUES (?, ?, ?)",
+			TABLE_NAME, COL_YOUTUBE_VIDEO_ID, COL_YOUTUBE_VIDEO_POSITION, COL_YOUTUBE_VIDEO_WATCHED);
+
+	/**
+	 * @param count Number of video IDs bound to the query.
+	 * @return The query returning the status of the given videos.
+	 */
+	static String getStatusQuery(int count) {
+		StringBuilder query = new StringBuilder(String.format("SELECT %s, %s, %s FROM %s WHERE %s IN (",
+				COL_YOUTUBE_VIDEO_ID, COL_YOUTUBE_VIDEO_POSITION, COL_YOUTUBE_VIDEO_WATCHED, TABLE_NAME, COL_YOUTUBE_VIDEO_ID));
+		for (int i = 0; i < count; i++) {
+			query.append(i == 0 ? "?" : ",?");
+		}
+		return query.append(')').toString();
+	}
+
 	public static String getCreateStatement() {
 		return "CREATE TABLE " + TABLE_NAME + " (" +
 						COL_YOUTUBE_VIDEO_ID + " TEXT PRIMARY KEY NOT NULL, " +
@@ -0,0 +1,76 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.db;
+
+/**
+ * The tuning applied to the connections of a {@link SQLiteOpenHelperEx} database, on top of the
+ * write-ahead log (which is enabled through the Android API instead).  Before Android 11, only the
+ * primary connection can be tuned, not the pooled ones used by the reads.
+ */
+public class SQLiteConnectionConfig {
+	/** Page cache of the small databases (bookmarks, history, ...). */
+	public static final int DEFAULT_CACHE_SIZE_KIB = 512;
+	/** Memory-mapped I/O is only worth it for the databases read while scrolling. */
+	public static final long DEFAULT_MMAP_SIZE = 0;
+	private static final String MMAP_SIZE_PRAGMA = "PRAGMA mmap_size = ";
+
+	private final int cacheSizeKiB;
+	private final long mmapSize;
+
+	public SQLiteConnectionConfig(int cacheSizeKiB, long mmapSize) {
+		this.cacheSizeKiB = cacheSizeKiB;
+		this.mmapSize = mmapSize;
+	}
+
+	public static SQLiteConnectionConfig getDefault() {
+		return new SQLiteConnectionConfig(DEFAULT_CACHE_SIZE_KIB, DEFAULT_MMAP_SIZE);
+	}
+
+	/**
+	 * With a write-ahead log, synchronous=NORMAL only syncs at checkpoints:  a commit stays atomic
+	 * and consistent, but the last ones might be lost on a power failure (not on an app crash).
+	 *
+	 * @return The PRAGMAs to run when a connection is opened.
+	 */
+	public String[] getPragmas() {
+		return new String[] {
+				"PRAGMA synchronous = NORMAL",
+				// a negative size is in KiB, instead of pages
+				"PRAGMA cache_size = -" + cacheSizeKiB,
+				// ignored by SQLite versions older than 3.7.17 (i.e. before Lollipop)
+				MMAP_SIZE_PRAGMA + mmapSize,
+				"PRAGMA temp_store = MEMORY"
+		};
+	}
+
+	/**
+	 * @return True if the PRAGMA returns a row (i.e. the new mmap_size), which SQLiteDatabase.execSQL()
+	 * 			refuses before Android 11.
+	 */
+	public static boolean returnsRow(String pragma) {
+		return pragma.startsWith(MMAP_SIZE_PRAGMA);
+	}
+
+	/**
+	 * A passive checkpoint copies the committed pages from the log into the database file, without
+	 * waiting for the readers.
+	 */
+	public static String getCheckpointStatement() {
+		return "PRAGMA wal_checkpoint(PASSIVE)";
+	}
+}
@@ -21,10 +21,25 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import free.rm.skytube.app.SkyTubeApp;
+import free.rm.skytube.businessobjects.Logger;
+import free.rm.skytube.businessobjects.YouTube.POJOs.VideoRecordException;
+import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideoCodec;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.subjects.CompletableSubject;
 
 /**
  * An extended {@link SQLiteOpenHelper} with extra goodies.
@@ -33,11 +48,247 @@ import free.rm.skytube.app.SkyTubeApp;
  */
 public abstract class SQLiteOpenHelperEx extends SQLiteOpenHelper {
 
+	/** Number of rows converted by one write command of {@link #convertLegacyVideoBlobs(String, String, String)}. */
+	private static final int LEGACY_VIDEO_BLOB_BATCH_SIZE = 100;
+
+	private DatabaseWriter<SQLiteDatabase> writer;
+
 	public SQLiteOpenHelperEx(Context context, String name, android.database.sqlite.SQLiteDatabase.CursorFactory factory, int version) {
 		super(context, name, factory, version);
 	}
 
 
+	/**
+	 * Queue a change to the database on its writer thread, where it is committed together with the
+	 * other changes submitted at the same time - see {@link DatabaseWriter}.  The change is made even
+	 * if the returned {@link Completable} isn't subscribed to.
+	 *
+	 * @param command The change, which runs in a transaction (and must not end it).
+	 * @return Completes once the change is committed.
+	 */
+	public Completable write(DatabaseWriter.Command<SQLiteDatabase> command) {
+		final CompletableSubject result = CompletableSubject.create();
+		getWriter().submit(command, newCallback(result));
+		return result;
+	}
+
+
+	/**
+	 * A change to the database, whose result is needed - see {@link #writeForResult(Change)}.
+	 */
+	public interface Change<T> {
+		T execute(SQLiteDatabase db) throws Exception;
+	}
+
+
+	/**
+	 * Like {@link #write(DatabaseWriter.Command)}, for a change whose result is needed, e.g. to tell
+	 * the user whether it was made.
+	 *
+	 * @param change The change, which must not return null.
+	 * @return Emits the result of the change, once it is committed.
+	 */
+	public <T> Single<T> writeForResult(Change<T> change) {
+		final AtomicReference<T> result = new AtomicReference<>();
+		return write(db -> result.set(change.execute(db)))
+				.toSingle(result::get);
+	}
+
+
+	/**
+	 * Queue a maintenance operation, which can't run in a transaction (e.g. a VACUUM), on the writer
+	 * thread:  it runs alone, once the changes submitted before are committed.
+	 *
+	 * @return Completes once the operation is done.
+	 */
+	public Completable writeMaintenance(DatabaseWriter.Command<SQLiteDatabase> command) {
+		final CompletableSubject result = CompletableSubject.create();
+		getWriter().submitMaintenance(command, newCallback(result));
+		return result;
+	}
+
+
+	private DatabaseWriter.Callback newCallback(CompletableSubject result) {
+		return new DatabaseWriter.Callback() {
+			@Override
+			public void onCommitted() {
+				result.onComplete();
+			}
+
+			@Override
+			public void onFailed(Exception e) {
+				Logger.e(SQLiteOpenHelperEx.this, "Write to " + getDatabaseName() + " failed: " + e.getMessage(), e);
+				result.onError(e);
+			}
+		};
+	}
+
+
+	/**
+	 * Wait until the writes queued so far are committed - e.g. before the database is closed to be
+	 * backed up.  Must not be called from a write command.
+	 */
+	public void flushWrites() throws InterruptedException {
+		final DatabaseWriter<SQLiteDatabase> writer;
+		synchronized (this) {
+			writer = this.writer;
+		}
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
+
+	/**
+	 * Wait until the writes queued so far are committed, and refuse the later ones - before the
+	 * database files are replaced, until the app restarts.
+	 */
+	public void shutdownWrites() throws InterruptedException {
+		getWriter().shutdown();
+	}
+
+
+	private synchronized DatabaseWriter<SQLiteDatabase> getWriter() {
+		if (writer == null) {
+			writer = new DatabaseWriter<>(getDatabaseName(), new DatabaseWriter.Transactions<SQLiteDatabase>() {
+				@Override
+				public SQLiteDatabase open() {
+					return getWritableDatabase();
+				}
+
+				@Override
+				public void begin(SQLiteDatabase db) {
+					db.beginTransactionNonExclusive();
+				}
+
+				@Override
+				public void commit(SQLiteDatabase db) {
+					db.setTransactionSuccessful();
+					db.endTransaction();
+				}
+
+				@Override
+				public void rollback(SQLiteDatabase db) {
+					db.endTransaction();
+				}
+
+				// Android nests its own transactions without savepoints, hence the plain SQL
+				@Override
+				public void savepoint(SQLiteDatabase db) {
+					db.execSQL("SAVEPOINT command");
+				}
+
+				@Override
+				public void releaseSavepoint(SQLiteDatabase db) {
+					db.execSQL("RELEASE command");
+				}
+
+				@Override
+				public void rollbackToSavepoint(SQLiteDatabase db) {
+					// the leading ';' stops Android from taking it for the end of the whole transaction
+					db.execSQL(";ROLLBACK TO command");
+					db.execSQL("RELEASE command");
+				}
+			});
+		}
+		return writer;
+	}
+
+
+	/**
+	 * Sub-classes can override this to tune their connections (e.g. a bigger cache).
+	 *
+	 * @return The configuration applied to the connections of this database.
+	 */
+	protected SQLiteConnectionConfig getConnectionConfig() {
+		return SQLiteConnectionConfig.getDefault();
+	}
+
+
+	/**
+	 * Every database uses a write-ahead log, so that readers (e.g. the feed grid) are never blocked
+	 * by a writer (e.g. the feed refresh), and the writer is only synced at checkpoints.
+	 */
+	@Override
+	public void onConfigure(SQLiteDatabase db) {
+		super.onConfigure(db);
+		configureConnection(db);
+	}
+
+
+	@Override
+	public void onOpen(SQLiteDatabase db) {
+		super.onOpen(db);
+		// onConfigure() is only called from Jelly Bean onwards
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+			configureConnection(db);
+		}
+	}
+
+
+	/**
+	 * With the write-ahead log, the reads outside of a transaction go to a pool of extra connections,
+	 * which onConfigure() is not called for.  From Android 11, the PRAGMAs are run on all of them;
+	 * before, only the primary connection (i.e. the writes, and the reads in their transactions) is
+	 * tuned.
+	 */
+	private void configureConnection(SQLiteDatabase db) {
+		if (!db.isReadOnly()) {
+			db.enableWriteAheadLogging();
+		}
+		for (String pragma : getConnectionConfig().getPragmas()) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+				try {
+					// also run on the connections opened later on
+					db.execPerConnectionSQL(pragma, null);
+					continue;
+				} catch (RuntimeException e) {
+					Logger.w(this, "Unable to run %s on every connection of %s: %s", pragma, getDatabaseName(), e.getMessage());
+				}
+			}
+			if (SQLiteConnectionConfig.returnsRow(pragma)) {
+				try (Cursor cursor = db.rawQuery(pragma, null)) {
+					cursor.moveToFirst();
+				}
+			} else {
+				db.execSQL(pragma);
+			}
+		}
+	}
+
+
+	/**
+	 * Copy the pages written since the last checkpoint into the database file, so that the write-ahead
+	 * log doesn't grow after a bulk write.  SQLite also checkpoints by itself, every 1000 pages.
+	 *
+	 * @return Completes once the writer thread has checkpointed (a failed checkpoint is only logged).
+	 */
+	public Completable checkpoint() {
+		return writeMaintenance(db -> {
+			try (Cursor cursor = db.rawQuery(SQLiteConnectionConfig.getCheckpointStatement(), null)) {
+				cursor.moveToFirst();
+			} catch (RuntimeException e) {
+				Logger.w(this, "Checkpoint of %s failed: %s", getDatabaseName(), e.getMessage());
+			}
+		});
+	}
+
+
+	/**
+	 * Delete the write-ahead log files left next to the database file - e.g. before replacing the
+	 * database with a backup.  The database must be closed.
+	 */
+	public void deleteWriteAheadLog() {
+		final String path = getDatabasePath();
+		for (String suffix : new String[]{"-wal", "-shm"}) {
+			final File file = new File(path + suffix);
+			if (file.exists() && !file.delete()) {
+				Logger.w(this, "Unable to delete %s", file.getPath());
+			}
+		}
+	}
+
+
 //	/**
 //	 * Closes the database and clears any singleton instances.
 //	 */
@@ -117,4 +368,162 @@ public abstract class SQLiteOpenHelperEx extends SQLiteOpenHelper {
 		return executeQueryForInteger(db, query, null, defaultValue);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Execute a <b>constant</b> query, and return the strings in the first column of every row.
+	 *
+	 * @param query the query to execute
+	 * @return the distinct values.
+	 */
+	public Set<String> executeQueryForStrings(String query) {
+		Set<String> values = new HashSet<>();
+		try (Cursor cursor = getReadableDatabase().rawQuery(query, null)) {
+			while (cursor.moveToNext()) {
+				values.add(cursor.getString(0));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Move an item of a reorderable list, by only changing its own order key - unless its new
+	 * neighbours have no room left between them, in which case the keys are spread out first.  Shall be
+	 * called in a transaction, e.g. from a {@link #write(DatabaseWriter.Command)} command.
+	 *
+	 * @param id The item to move.
+	 * @param previousId The item which is now displayed before it, or null if it's now the first one.
+	 */
+	protected void moveOrderedItem(SQLiteDatabase db, OrderKeys orderKeys, String id, String previousId) {
+		Long key = getKeyAfter(db, orderKeys, id, previousId);
+		if (key == null) {
+			spreadOrderKeys(db, orderKeys);
+			key = getKeyAfter(db, orderKeys, id, previousId);
+		}
+		if (key != null) {
+			final SQLiteStatement statement = db.compileStatement(orderKeys.updateKey);
+			try {
+				statement.bindLong(1, key);
+				statement.bindString(2, id);
+				statement.executeUpdateDelete();
+			} finally {
+				statement.close();
+			}
+		}
+	}
+
+	/**
+	 * @return A key between the key of the previous item and the next one, or null if there is no room.
+	 */
+	private static Long getKeyAfter(SQLiteDatabase db, OrderKeys orderKeys, String id, String previousId) {
+		if (previousId == null) {
+			return OrderKeys.getKeyBetween(null, executeQueryForLong(db, orderKeys.highestKeyQuery, new String[]{id}));
+		}
+		final Long previousKey = executeQueryForLong(db, orderKeys.keyQuery, new String[]{previousId});
+		if (previousKey == null) {
+			return null;
+		}
+		return OrderKeys.getKeyBetween(previousKey,
+				executeQueryForLong(db, orderKeys.lowerKeyQuery, new String[]{String.valueOf(previousKey), id, String.valueOf(previousKey), previousId}));
+	}
+
+	/**
+	 * Shall be called in the transaction inserting the item, e.g. from a
+	 * {@link #write(DatabaseWriter.Command)} command, so that no other item gets the same key.
+	 *
+	 * @return The order key of a new item, which is displayed first.
+	 */
+	protected long getNextOrderKey(SQLiteDatabase db, OrderKeys orderKeys) {
+		long key = executeQueryForLong(db, orderKeys.nextKeyQuery, null);
+		if (key > OrderKeys.MAX_KEY) {
+			spreadOrderKeys(db, orderKeys);
+			key = executeQueryForLong(db, orderKeys.nextKeyQuery, null);
+		}
+		return key;
+	}
+
+	/**
+	 * @return The number in the first row, first column - or null if there is no row, or it is null.
+	 */
+	static Long executeQueryForLong(SQLiteDatabase db, String query, String[] selectionArgs) {
+		try (Cursor cursor = db.rawQuery(query, selectionArgs)) {
+			return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+		}
+	}
+
+	/**
+	 * Give every item of the list a key {@link OrderKeys#GAP} apart, keeping their order.
+	 */
+	private void spreadOrderKeys(SQLiteDatabase db, OrderKeys orderKeys) {
+		final SQLiteStatement statement = db.compileStatement(orderKeys.updateKey);
+		try (Cursor cursor = db.rawQuery(orderKeys.orderedIdsQuery, null)) {
+			int position = 0;
+			while (cursor.moveToNext()) {
+				statement.bindLong(1, OrderKeys.getSpreadKey(position++));
+				statement.bindString(2, cursor.getString(0));
+				statement.executeUpdateDelete();
+			}
+			Logger.i(this, "Spread out the order keys of %d items", position);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Re-encode every video blob, which is still stored as Gson JSON, with {@link YouTubeVideoCodec}.
+	 * Rows are read and converted in batches, each one written by its own write command, so that
+	 * the other writes aren't held up for long.  Rows that can't be decoded are left untouched.
+	 * Must not be called on the main thread, nor from a write command.
+	 *
+	 * @param table the table holding the videos.
+	 * @param idColumn the (text) primary key of the table.
+	 * @param videoColumn the video blob column.
+	 * @return the number of converted rows.
+	 */
+	protected int convertLegacyVideoBlobs(String table, String idColumn, String videoColumn) {
+		final String query = String.format("SELECT %1$s,%2$s FROM %3$s WHERE %1$s > ? AND substr(%2$s, 1, 1) = X'7B' ORDER BY %1$s LIMIT %4$d",
+				idColumn, videoColumn, table, LEGACY_VIDEO_BLOB_BATCH_SIZE);
+		// unless the video was written again meanwhile
+		final String update = String.format("UPDATE %1$s SET %2$s = ? WHERE %3$s = ? AND substr(%2$s, 1, 1) = X'7B'", table, videoColumn, idColumn);
+		final AtomicInteger converted = new AtomicInteger();
+		String lastId = "";
+		int rows;
+		do {
+			rows = 0;
+			final List<String> ids = new ArrayList<>(LEGACY_VIDEO_BLOB_BATCH_SIZE);
+			final List<byte[]> blobs = new ArrayList<>(LEGACY_VIDEO_BLOB_BATCH_SIZE);
+			try (Cursor cursor = getReadableDatabase().rawQuery(query, new String[]{lastId})) {
+				while (cursor.moveToNext()) {
+					rows++;
+					lastId = cursor.getString(0);
+					try {
+						final YouTubeVideo video = YouTubeVideoCodec.decode(cursor.getBlob(1));
+						if (video != null) {
+							ids.add(lastId);
+							blobs.add(YouTubeVideoCodec.encode(video));
+						}
+					} catch (VideoRecordException e) {
+						Logger.e(this, "Unable to convert video " + lastId + " in " + table + ": " + e.getMessage(), e);
+					}
+				}
+			}
+			if (!ids.isEmpty()) {
+				write(db -> {
+					final SQLiteStatement statement = db.compileStatement(update);
+					try {
+						for (int i = 0; i < ids.size(); i++) {
+							statement.bindBlob(1, blobs.get(i));
+							statement.bindString(2, ids.get(i));
+							converted.addAndGet(statement.executeUpdateDelete());
+						}
+					} finally {
+						statement.close();
+					}
+				}).blockingAwait();
+			}
+		} while (rows == LEGACY_VIDEO_BLOB_BATCH_SIZE);
+		if (converted.get() > 0) {
+			Logger.i(this, "Converted %d videos in %s to the binary format", converted.get(), table);
+		}
+		return converted.get();
+	}
+
+}
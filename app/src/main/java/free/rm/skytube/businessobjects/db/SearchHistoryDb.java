@@ -1,14 +1,12 @@
 package free.rm.skytube.businessobjects.db;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import free.rm.skytube.app.SkyTubeApp;
 
@@ -20,10 +18,28 @@ public class SearchHistoryDb extends SQLiteOpenHelperEx {
 
 	private static volatile SearchHistoryDb searchHistoryDb = null;
 
-	private static final int DATABASE_VERSION = 2;
+	private static final int DATABASE_VERSION = 3;
 	private static final String DATABASE_NAME = "searchHistory.db";
 
-	private static final String UPDATE_SEARCH_TEXT_TIMESTAMP = String.format("UPDATE %s SET %s = datetime('now','localtime') WHERE %s = ?", SearchHistoryTable.TABLE_NAME, SearchHistoryTable.COL_SEARCH_DATE, SearchHistoryTable.COL_SEARCH_TEXT);
+	/** Maximum number of suggestions returned by {@link #getSearchCursor(String)}. */
+	static final int MAX_SUGGESTIONS = 10;
+
+	static final String UPDATE_SEARCH_TEXT = "UPDATE " + SearchHistoryTable.TABLE_NAME + " SET " +
+			SearchHistoryTable.COL_SEARCH_COUNT + " = " + SearchHistoryTable.COL_SEARCH_COUNT + " + 1, " +
+			SearchHistoryTable.COL_SEARCH_SCORE + " = " + SearchHistoryTable.COL_SEARCH_SCORE + " + ?2, " +
+			SearchHistoryTable.COL_SEARCH_DATE + " = datetime('now','localtime')" +
+			" WHERE " + SearchHistoryTable.COL_SEARCH_TEXT + " = ?1";
+	static final String INSERT_SEARCH_TEXT = "INSERT OR IGNORE INTO " + SearchHistoryTable.TABLE_NAME + " (" +
+			SearchHistoryTable.COL_SEARCH_TEXT + ", " + SearchHistoryTable.COL_SEARCH_SCORE + ", " +
+			SearchHistoryTable.COL_SEARCH_KEY + ") VALUES (?1, ?2, ?3)";
+
+	static final String TOP_SEARCHES_QUERY = "SELECT " + SearchHistoryTable.COL_SEARCH_ID + ", " +
+			SearchHistoryTable.COL_SEARCH_TEXT + " FROM " + SearchHistoryTable.TABLE_NAME +
+			" ORDER BY " + SearchHistoryTable.COL_SEARCH_SCORE + " DESC LIMIT " + MAX_SUGGESTIONS;
+	static final String PREFIX_SEARCHES_QUERY = "SELECT " + SearchHistoryTable.COL_SEARCH_ID + ", " +
+			SearchHistoryTable.COL_SEARCH_TEXT + " FROM " + SearchHistoryTable.TABLE_NAME +
+			" WHERE " + SearchHistoryTable.COL_SEARCH_KEY + " >= ? AND " + SearchHistoryTable.COL_SEARCH_KEY + " < ?" +
+			" ORDER BY " + SearchHistoryTable.COL_SEARCH_SCORE + " DESC LIMIT " + MAX_SUGGESTIONS;
 
 
 	private SearchHistoryDb(Context context) {
@@ -48,6 +64,9 @@ public class SearchHistoryDb extends SQLiteOpenHelperEx {
 	@Override
 	public void onCreate(SQLiteDatabase db) {
 		db.execSQL(SearchHistoryTable.getCreateStatement());
+		for (String sql : SearchHistoryTable.getIndexStatements()) {
+			db.execSQL(sql);
+		}
 	}
 
 	@Override
@@ -55,33 +74,63 @@ public class SearchHistoryDb extends SQLiteOpenHelperEx {
 	    // Version 2 introduced the date the search term was searched for. If the user already has version 1,
         // grab all the values from the database, recreate it with the new column, and add the search terms back in.
         // The current timestamp will be used.
-		if(oldVersion == 1 && newVersion == 2) {
+		if (oldVersion < 2) {
 			Cursor cursor = db.query(SearchHistoryTable.TABLE_NAME,
-					new String[] {SearchHistoryTable.COL_SEARCH_ID, SearchHistoryTable.COL_SEARCH_TEXT},
+					new String[] {SearchHistoryTable.COL_SEARCH_TEXT},
 					null,
 					null,
 					null,
 					null,
 					SearchHistoryTable.COL_SEARCH_ID + " ASC");
-			List<Map<Integer, String>> history = new ArrayList<>();
-			if(cursor.moveToFirst()) {
-				do {
-					int id = cursor.getInt(cursor.getColumnIndex(SearchHistoryTable.COL_SEARCH_ID));
-					String text = cursor.getString(cursor.getColumnIndex(SearchHistoryTable.COL_SEARCH_TEXT));
-					history.add(new HashMap<Integer, String>(){{put(id, text); }});
-				} while (cursor.moveToNext());
-				db.execSQL("DROP TABLE " + SearchHistoryTable.TABLE_NAME);
-				onCreate(db);
-				for(Map<Integer, String> entry : history) {
-					for(Map.Entry<Integer, String> e : entry.entrySet()) {
-						String text = e.getValue();
-						ContentValues values = new ContentValues();
-						values.put(SearchHistoryTable.COL_SEARCH_ID, e.getKey());
-						values.put(SearchHistoryTable.COL_SEARCH_TEXT, text);
-						db.insert(SearchHistoryTable.TABLE_NAME, null, values);
-					}
+			List<String> history = new ArrayList<>();
+			while (cursor.moveToNext()) {
+				history.add(cursor.getString(0));
+			}
+			cursor.close();
+			db.execSQL("DROP TABLE " + SearchHistoryTable.TABLE_NAME);
+			onCreate(db);
+			final long now = System.currentTimeMillis();
+			for (String text : history) {
+				if (text != null) {
+					insertSearchText(db, text, now);
 				}
 			}
+		} else if (oldVersion < 3) {
+			// Version 3 introduced the search count and score, and the indexes used by the suggestions.
+			db.execSQL("ALTER TABLE " + SearchHistoryTable.TABLE_NAME + " ADD COLUMN " + SearchHistoryTable.COL_SEARCH_KEY + " TEXT");
+			db.execSQL("ALTER TABLE " + SearchHistoryTable.TABLE_NAME + " ADD COLUMN " + SearchHistoryTable.COL_SEARCH_COUNT + " INTEGER DEFAULT 1");
+			db.execSQL("ALTER TABLE " + SearchHistoryTable.TABLE_NAME + " ADD COLUMN " + SearchHistoryTable.COL_SEARCH_SCORE + " REAL DEFAULT 0");
+			// the search texts have to be unique from now on
+			db.execSQL("DELETE FROM " + SearchHistoryTable.TABLE_NAME + " WHERE " + SearchHistoryTable.COL_SEARCH_TEXT + " IS NULL OR " +
+					SearchHistoryTable.COL_SEARCH_ID + " NOT IN (SELECT MAX(" + SearchHistoryTable.COL_SEARCH_ID + ") FROM " +
+					SearchHistoryTable.TABLE_NAME + " GROUP BY " + SearchHistoryTable.COL_SEARCH_TEXT + ")");
+			fillSearchKeysAndScores(db);
+			for (String sql : SearchHistoryTable.getIndexStatements()) {
+				db.execSQL(sql);
+			}
+		}
+	}
+
+	/**
+	 * Set the key and the initial score (i.e. one search, at the stored date) of every search text.
+	 */
+	private void fillSearchKeysAndScores(SQLiteDatabase db) {
+		final long now = System.currentTimeMillis();
+		SQLiteStatement update = db.compileStatement("UPDATE " + SearchHistoryTable.TABLE_NAME + " SET " +
+				SearchHistoryTable.COL_SEARCH_KEY + " = ?, " + SearchHistoryTable.COL_SEARCH_SCORE + " = ? WHERE " +
+				SearchHistoryTable.COL_SEARCH_ID + " = ?");
+		try (Cursor cursor = db.rawQuery("SELECT " + SearchHistoryTable.COL_SEARCH_ID + ", " + SearchHistoryTable.COL_SEARCH_TEXT +
+				", strftime('%s', " + SearchHistoryTable.COL_SEARCH_DATE + ") FROM " + SearchHistoryTable.TABLE_NAME, null)) {
+			while (cursor.moveToNext()) {
+				// the date is in local time, which is close enough for a score
+				final long searchTs = cursor.isNull(2) ? now : cursor.getLong(2) * 1000L;
+				update.bindString(1, SearchHistoryTable.toSearchKey(cursor.getString(1)));
+				update.bindDouble(2, SearchHistoryTable.getSearchWeight(searchTs));
+				update.bindLong(3, cursor.getLong(0));
+				update.executeUpdateDelete();
+			}
+		} finally {
+			update.close();
 		}
 	}
 
@@ -94,91 +143,71 @@ public class SearchHistoryDb extends SQLiteOpenHelperEx {
 
 
 	/**
-	 * Save a search text into the DB.
+	 * Save a search text into the DB:  a new text is inserted, otherwise its count and score are
+	 * increased.
 	 *
 	 * @param text  Text the user just searched for.
 	 */
 	public void insertSearchText(String text) {
-		if (!isSearchTextAlreadyStored(text)) {
-			ContentValues values = new ContentValues();
-			values.put(SearchHistoryTable.COL_SEARCH_TEXT, text);
-			getWritableDatabase().insert(SearchHistoryTable.TABLE_NAME, null, values);
-		} else {
-			updateSearchTextTimestamp(text);
+		SQLiteDatabase db = getWritableDatabase();
+		db.beginTransaction();
+		try {
+			insertSearchText(db, text, System.currentTimeMillis());
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
 		}
 	}
 
-	/**
-	 * Update the datetime field to the current date/time for the passed search text string
-	 *
-	 * @param text   Text the user searched for.
-	 */
-	public void updateSearchTextTimestamp(String text) {
-		try (Cursor cursor = getWritableDatabase().rawQuery(UPDATE_SEARCH_TEXT_TIMESTAMP, new String[]{ text })) {
-			cursor.moveToFirst();
+	private static void insertSearchText(SQLiteDatabase db, String text, long timestamp) {
+		final double weight = SearchHistoryTable.getSearchWeight(timestamp);
+		SQLiteStatement update = db.compileStatement(UPDATE_SEARCH_TEXT);
+		try {
+			update.bindString(1, text);
+			update.bindDouble(2, weight);
+			if (update.executeUpdateDelete() > 0) {
+				return;
+			}
+		} finally {
+			update.close();
+		}
+		SQLiteStatement insert = db.compileStatement(INSERT_SEARCH_TEXT);
+		try {
+			insert.bindString(1, text);
+			insert.bindDouble(2, weight);
+			insert.bindString(3, SearchHistoryTable.toSearchKey(text));
+			insert.executeInsert();
+		} finally {
+			insert.close();
 		}
 	}
 
-
 	/**
-	 * Return true if the given search text has already been stored in the database.
+	 * Update the datetime field to the current date/time for the passed search text string, which
+	 * counts as a new search.
 	 *
-	 * @param text  Search text
-	 * @return True if the given search text has already been stored in the database; false otherwise.
+	 * @param text   Text the user searched for.
 	 */
-	private boolean isSearchTextAlreadyStored(String text) {
-		try(Cursor cursor =  getSearchCursor(text, true)) {
-			return cursor.moveToNext();
-		}
+	public void updateSearchTextTimestamp(String text) {
+		insertSearchText(text);
 	}
 
 
 	/**
-	 * Given a search string, it will return a cursor contain text strings which start as the given
-	 * searchText.
+	 * Given a search string, it will return a cursor containing the most frequently and recently
+	 * searched texts, which start as the given searchText (ignoring the case).
 	 *
 	 * @param searchText    Text the user has typed.
-	 * @return              A cursor containing texts which starts with the contents of searchText.
+	 * @return              A cursor containing, at most, {@link #MAX_SUGGESTIONS} texts which start
+	 *                      with the contents of searchText.
 	 */
 	public Cursor getSearchCursor(String searchText) {
-		return getSearchCursor(searchText, false);
-	}
-
-
-	/**
-	 * Given a search string, it will return a cursor contain text strings which start as the given
-	 * searchText.
-	 *
-	 * @param searchText        Text the user has typed.
-	 * @param exactTextSearch   If set to true, it will only return items whose COL_SEARCH_TEXT's
-	 *                          data is identical to the given searchText.
-	 *
-	 * @return                  A cursor containing texts which starts with the contents of searchText.
-	 */
-	private Cursor getSearchCursor(String searchText, boolean exactTextSearch) {
-		if(searchText.length() <= 1) {
-			return getReadableDatabase().query(SearchHistoryTable.TABLE_NAME,
-					new String[] {SearchHistoryTable.COL_SEARCH_ID, SearchHistoryTable.COL_SEARCH_TEXT},
-					null,
-					null,
-					null,
-					null,
-					SearchHistoryTable.COL_SEARCH_DATE + " DESC, " + SearchHistoryTable.COL_SEARCH_ID + " DESC",
-					"10");
+		if (searchText.length() <= 1) {
+			return getReadableDatabase().rawQuery(TOP_SEARCHES_QUERY, null);
 		} else {
-			// if the user input "'" it was causing the app to crash, hence replace "'" with "\''"
-			String searchClause = exactTextSearch
-					? " = ?"
-					: " LIKE ?";
-			String params = exactTextSearch ? searchText : "%" + searchText + '%';
-
-			return getReadableDatabase().query(SearchHistoryTable.TABLE_NAME,
-					new String[]{SearchHistoryTable.COL_SEARCH_ID, SearchHistoryTable.COL_SEARCH_TEXT},
-					SearchHistoryTable.COL_SEARCH_TEXT + searchClause,
-					new String[] {params},
-					null,
-					null,
-					SearchHistoryTable.COL_SEARCH_TEXT + " ASC");
+			final String searchKey = SearchHistoryTable.toSearchKey(searchText);
+			return getReadableDatabase().rawQuery(PREFIX_SEARCHES_QUERY,
+					new String[] {searchKey, SearchHistoryTable.getPrefixUpperBound(searchKey)});
 		}
 	}
 
@@ -1,5 +1,7 @@
 package free.rm.skytube.businessobjects.db;
 
+import java.util.Locale;
+
 /**
  * Search History Table
  */
@@ -8,13 +10,75 @@ public class SearchHistoryTable {
 	public static final String COL_SEARCH_ID = "_id";
 	public static final String COL_SEARCH_TEXT = "Search_Text";
 	public static final String COL_SEARCH_DATE = "Search_Date";
+	/** The search text in lower case, used for the prefix lookups. */
+	public static final String COL_SEARCH_KEY = "Search_Key";
+	public static final String COL_SEARCH_COUNT = "Search_Count";
+	/** Frequency and recency of the searches - see {@link #getSearchWeight(long)}. */
+	public static final String COL_SEARCH_SCORE = "Search_Score";
+
+	public static final String IDX_SEARCH_TEXT = "IDX_SearchHistory_Text";
+	public static final String IDX_SEARCH_KEY_SCORE = "IDX_SearchHistory_Key_Score";
+	public static final String IDX_SEARCH_SCORE = "IDX_SearchHistory_Score";
+
+	/** Time it takes for the weight of a past search to drop by a factor of e. */
+	private static final double SCORE_DECAY_MILLIS = 30 * 24 * 3600 * 1000.0;
+	/** 2021-01-01 UTC:  the weights stay within the range of a double until the 2070s. */
+	private static final long SCORE_EPOCH_MILLIS = 1609459200000L;
+	/** The highest code point, which sorts after any other character in UTF-8. */
+	private static final String MAX_CHARACTER = "\uDBFF\uDFFF";
 
 	public static String getCreateStatement() {
 		return "CREATE TABLE " + TABLE_NAME + " (" +
 						COL_SEARCH_ID + " INTEGER PRIMARY KEY NOT NULL, " +
 						COL_SEARCH_TEXT + " TEXT, " +
-						COL_SEARCH_DATE + " DATETIME default (datetime('now','localtime'))" +
+						COL_SEARCH_DATE + " DATETIME default (datetime('now','localtime')), " +
+						COL_SEARCH_KEY + " TEXT, " +
+						COL_SEARCH_COUNT + " INTEGER DEFAULT 1, " +
+						COL_SEARCH_SCORE + " REAL DEFAULT 0" +
 						" )";
 	}
 
+	/**
+	 * The suggestions are read straight from the (covering) indexes.  Without a prefix, the score index
+	 * is read in order, so that only the top rows are visited however long the history is.  With a
+	 * prefix, only the range of the keys starting with it is visited - but these rows are then sorted
+	 * by score (in a temporary b-tree), so the cost grows with the number of matching searches.
+	 */
+	public static String[] getIndexStatements() {
+		return new String[]{
+				"CREATE UNIQUE INDEX IF NOT EXISTS " + IDX_SEARCH_TEXT + " ON " + TABLE_NAME + " (" + COL_SEARCH_TEXT + ")",
+				"CREATE INDEX IF NOT EXISTS " + IDX_SEARCH_KEY_SCORE + " ON " + TABLE_NAME + " (" +
+						COL_SEARCH_KEY + ", " + COL_SEARCH_SCORE + ", " + COL_SEARCH_TEXT + ")",
+				"CREATE INDEX IF NOT EXISTS " + IDX_SEARCH_SCORE + " ON " + TABLE_NAME + " (" +
+						COL_SEARCH_SCORE + ", " + COL_SEARCH_TEXT + ")"
+		};
+	}
+
+	/**
+	 * @return The value stored in {@link #COL_SEARCH_KEY} for the given text.
+	 */
+	public static String toSearchKey(String text) {
+		return text.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return The (exclusive) upper bound of the keys starting with the given key.
+	 */
+	public static String getPrefixUpperBound(String searchKey) {
+		return searchKey + MAX_CHARACTER;
+	}
+
+	/**
+	 * The score of a search text is the sum of the weights of every time it was searched for, where
+	 * the weight grows exponentially with the time of the search.  Hence the ordering by score is the
+	 * same as the ordering by exponentially decayed frequency, at any point in time, without having
+	 * to recompute the scores of the older searches.
+	 *
+	 * @param timestampMillis  When the search was made.
+	 * @return The amount to add to the score of the searched text.
+	 */
+	public static double getSearchWeight(long timestampMillis) {
+		return Math.exp((timestampMillis - SCORE_EPOCH_MILLIS) / SCORE_DECAY_MILLIS);
+	}
+
 }
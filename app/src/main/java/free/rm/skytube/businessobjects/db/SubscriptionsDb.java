@@ -22,68 +22,161 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSerializer;
-
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.IOException;
-import java.time.Instant;
+import java.math.BigInteger;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.app.Utils;
 import free.rm.skytube.businessobjects.Logger;
 import free.rm.skytube.businessobjects.YouTube.POJOs.ChannelView;
+import free.rm.skytube.businessobjects.YouTube.POJOs.FeedCard;
+import free.rm.skytube.businessobjects.YouTube.POJOs.VideoRecordException;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideoCodec;
+import free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdLongMap;
+import free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdSet;
 import free.rm.skytube.gui.fragments.SubscriptionsFeedFragment;
 
 /**
  * A database (DB) that stores user subscriptions (with respect to YouTube channels).
  */
 public class SubscriptionsDb extends SQLiteOpenHelperEx {
-    private static final String CHANNEL_HAS_NEW_VIDEO_QUERY = String.format("SELECT COUNT(*) FROM %s WHERE %s = ? AND %s > ?", SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_DATE);
-    private static final String VIDEO_DATE_IS_OLDER_THAN_1_MONTH = String.format("%s < DATETIME('now', '-1 month')", SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_DATE);
-    private static final String HAS_VIDEO_QUERY = String.format("SELECT COUNT(*) FROM %s WHERE %s = ?", SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
-    private static final String GET_VIDEO_IDS_BY_CHANNEL_TO_PUBLISH_TS = String.format("SELECT %s,%s FROM %s WHERE %s = ?",
+    static final String CHANNEL_HAS_NEW_VIDEO_QUERY = String.format("SELECT %s FROM %s WHERE %s = ?", SubscriptionsTable.COL_UNREAD_VIDEO_COUNT, SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_CHANNEL_ID);
+    static final String GET_VIDEO_IDS_BY_CHANNEL_TO_PUBLISH_TS = String.format("SELECT %s,%s FROM %s WHERE %s = ?",
             SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.COL_PUBLISH_TS, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID);
-    private static final String GET_VIDEO_IDS_BY_CHANNEL = String.format("SELECT %s FROM %s WHERE %s = ?",
+    static final String GET_VIDEO_IDS_BY_CHANNEL = String.format("SELECT %s FROM %s WHERE %s = ?",
             SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID);
     private static final String FIND_EMPTY_RETRIEVAL_TS = String.format("SELECT %s,%s FROM %s WHERE %s IS NULL",
 			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_RETRIEVAL_TS);
 	private static final String sortChannelsASC = "LOWER(" + SubscriptionsTable.COL_TITLE + ") ASC ";
 
-	private static final String SUBSCRIBED_CHANNEL_INFO = String.format("SELECT %1$s,%2$s,%3$s,%4$s,(select max(%6$s) from %7$s videos where videos.%8$s = subs.%1$s) as latest_video_ts FROM %5$s subs",
+	static final String SUBSCRIBED_CHANNEL_INFO = String.format("SELECT %s,%s,%s,%s,%s,%s FROM %s subs",
 			SubscriptionsTable.COL_CHANNEL_ID, SubscriptionsTable.COL_TITLE, SubscriptionsTable.COL_THUMBNAIL_NORMAL_URL, SubscriptionsTable.COL_LAST_VISIT_TIME,
+			SubscriptionsTable.COL_LATEST_VIDEO_TS, SubscriptionsTable.COL_UNREAD_VIDEO_COUNT,
+			SubscriptionsTable.TABLE_NAME);
+	/**
+	 * The newest publish timestamp and the number of unread videos of a channel, as they should be
+	 * stored in {@link SubscriptionsTable#COL_LATEST_VIDEO_TS} and {@link SubscriptionsTable#COL_UNREAD_VIDEO_COUNT}.
+	 * Both are range searches on {@link SubscriptionsVideosTable#IDX_CHANNEL_ID_PUBLISH_TS}.
+	 */
+	private static final String LATEST_VIDEO_TS_OF_CHANNEL = String.format("(SELECT MAX(%1$s) FROM %2$s videos WHERE videos.%3$s = %4$s.%5$s)",
+			SubscriptionsVideosTable.COL_PUBLISH_TS, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID,
+			SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_CHANNEL_ID);
+	private static final String UNREAD_VIDEO_COUNT_OF_CHANNEL = String.format("(SELECT COUNT(*) FROM %2$s videos WHERE videos.%3$s = %4$s.%5$s AND videos.%1$s > IFNULL(%4$s.%6$s, 0))",
+			SubscriptionsVideosTable.COL_PUBLISH_TS, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID,
+			SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_CHANNEL_ID, SubscriptionsTable.COL_LAST_VISIT_TIME);
+	static final String REBUILD_CHANNEL_VIDEO_STATE = String.format("UPDATE %s SET %s = %s, %s = %s",
 			SubscriptionsTable.TABLE_NAME,
-			SubscriptionsVideosTable.COL_PUBLISH_TS, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID);
+			SubscriptionsTable.COL_LATEST_VIDEO_TS, LATEST_VIDEO_TS_OF_CHANNEL,
+			SubscriptionsTable.COL_UNREAD_VIDEO_COUNT, UNREAD_VIDEO_COUNT_OF_CHANNEL);
+	static final String REFRESH_CHANNEL_VIDEO_STATE = REBUILD_CHANNEL_VIDEO_STATE + " WHERE " + SubscriptionsTable.COL_CHANNEL_ID + " = ?";
+	static final String COUNT_INCONSISTENT_CHANNEL_VIDEO_STATE = String.format("SELECT COUNT(*) FROM %s WHERE %s IS NOT %s OR IFNULL(%s, 0) != %s",
+			SubscriptionsTable.TABLE_NAME,
+			SubscriptionsTable.COL_LATEST_VIDEO_TS, LATEST_VIDEO_TS_OF_CHANNEL,
+			SubscriptionsTable.COL_UNREAD_VIDEO_COUNT, UNREAD_VIDEO_COUNT_OF_CHANNEL);
+	/** Keyset continuation of the feed, written so that it becomes a range search on {@link SubscriptionsVideosTable#IDX_PUBLISH_TS_VIDEO_ID}. */
+	static final String VIDEO_PAGE_AFTER_SELECTION = String.format("%1$s <= ? AND (%1$s < ? OR %2$s > ?)",
+			SubscriptionsVideosTable.COL_PUBLISH_TS, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
+	static final String VIDEO_PAGE_ORDER_BY = SubscriptionsVideosTable.COL_PUBLISH_TS + " DESC, " + SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " ASC";
+
+	static final String VIDEO_IDS_PUBLISHED_BEFORE = String.format("SELECT %s FROM %s WHERE %s < CAST(? AS INTEGER)",
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_PUBLISH_TS);
+	static final String CHANNELS_WITH_MORE_VIDEOS_THAN = String.format("SELECT %1$s FROM %2$s GROUP BY %1$s HAVING COUNT(*) > CAST(? AS INTEGER)",
+			SubscriptionsVideosTable.COL_CHANNEL_ID, SubscriptionsVideosTable.TABLE_NAME);
+	static final String CHANNEL_VIDEO_IDS_AFTER_NEWEST = String.format("SELECT %1$s FROM %2$s WHERE %3$s = ? ORDER BY %4$s DESC, %1$s DESC LIMIT -1 OFFSET CAST(? AS INTEGER)",
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID, SubscriptionsVideosTable.COL_PUBLISH_TS);
+	static final String VIDEO_IDS_AFTER_NEWEST = String.format("SELECT %s FROM %s ORDER BY %s LIMIT -1 OFFSET CAST(? AS INTEGER)",
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.TABLE_NAME, VIDEO_PAGE_ORDER_BY);
+	/** The publish timestamp of the last video of a channel, which its retention limit keeps. */
+	static final String CHANNEL_OLDEST_KEPT_PUBLISH_TS = String.format("SELECT %4$s FROM %2$s WHERE %3$s = ? ORDER BY %4$s DESC, %1$s DESC LIMIT 1 OFFSET CAST(? AS INTEGER) - 1",
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_CHANNEL_ID, SubscriptionsVideosTable.COL_PUBLISH_TS);
+	/** The publish timestamp of the last video of the feed, which its retention limit keeps. */
+	static final String OLDEST_KEPT_PUBLISH_TS = String.format("SELECT %s FROM %s ORDER BY %s LIMIT 1 OFFSET CAST(? AS INTEGER) - 1",
+			SubscriptionsVideosTable.COL_PUBLISH_TS, SubscriptionsVideosTable.TABLE_NAME, VIDEO_PAGE_ORDER_BY);
+	/** Full VACUUM only once at least this share of the pages is free... */
+	private static final int FULL_VACUUM_MIN_FREE_PAGES_PERCENT = 25;
+	/** ... incremental vacuum once this share is free... */
+	private static final int INCREMENTAL_VACUUM_MIN_FREE_PAGES_PERCENT = 10;
+	/** ... and both only with at least this many free pages (4 MB with the default page size). */
+	private static final int VACUUM_MIN_FREE_PAGES = 1024;
+	/** Number of videos deleted by one write command of {@link #applyVideoRetention(VideoRetentionPolicy, VideoIdSet, boolean)}. */
+	private static final int RETENTION_DELETE_BATCH_SIZE = 100;
+	private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
 	private static final String SUBSCRIBED_CHANNEL_INFO_ORDER_BY = " ORDER BY "+sortChannelsASC;
 	private static final String SUBSCRIBED_CHANNEL_LIMIT_BY_TITLE = " WHERE LOWER(" +SubscriptionsTable.COL_TITLE + ") like ?";
+	static final String SUBSCRIBED_CHANNEL_MATCH_TITLE = String.format(" WHERE subs.%s IN (SELECT docid FROM %2$s WHERE %2$s MATCH ?)",
+			SubscriptionsTable.COL_ID, SubscriptionsSearchTable.CHANNELS_TABLE_NAME);
+
+	/**
+	 * Parts of the feed search query, see {@link #getFeedSearchQuery(boolean, boolean, int)}:  ?1 is
+	 * the expression which ranks the videos with matching titles first, ?2 the one selecting the
+	 * matching videos, and ?3, ?4, ?5 are the rank, publish timestamp and id of the last video of the
+	 * previous page.
+	 */
+	private static final String FEED_SEARCH_RANK_FTS = String.format("(%s.rowid IN (SELECT docid FROM %2$s WHERE %2$s MATCH ?1))",
+			SubscriptionsVideosTable.TABLE_NAME, SubscriptionsSearchTable.VIDEOS_TABLE_NAME);
+	private static final String FEED_SEARCH_FILTER_FTS = String.format("%s.rowid IN (SELECT docid FROM %2$s WHERE %2$s MATCH ?2)",
+			SubscriptionsVideosTable.TABLE_NAME, SubscriptionsSearchTable.VIDEOS_TABLE_NAME);
+	private static final String FEED_SEARCH_RANK_LIKE = String.format("(LOWER(%s) LIKE ?1)", SubscriptionsVideosTable.COL_TITLE);
+	private static final String FEED_SEARCH_FILTER_LIKE = String.format("(LOWER(%s) LIKE ?2 OR LOWER(%s) LIKE ?2)",
+			SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_CHANNEL_NAME);
+	private static final String FEED_SEARCH_AFTER = String.format("(%%1$s < CAST(?3 AS INTEGER) OR (%%1$s = CAST(?3 AS INTEGER) AND (%1$s < ?4 OR (%1$s = ?4 AND %2$s > ?5))))",
+			SubscriptionsVideosTable.COL_PUBLISH_TS, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
+	private static final String COL_SEARCH_RANK = "Search_Rank";
+
+	/**
+	 * Statements used by {@link #saveVideosInBulk(Map, boolean)}.  Both use the same numbered
+	 * parameters, so a single bind is enough for either of them.  (The native
+	 * <code>INSERT ... ON CONFLICT DO UPDATE</code> is only available from SQLite 3.24, i.e. Android 11+.)
+	 */
+	private static final String INSERT_VIDEO_IF_ABSENT = String.format("INSERT OR IGNORE INTO %s (%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s) VALUES (?1,?2,?3,?4,?5,?6,?7,?8,?9,?10,?11)",
+			SubscriptionsVideosTable.TABLE_NAME,
+			SubscriptionsVideosTable.COL_CHANNEL_ID, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO,
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_DATE, SubscriptionsVideosTable.COL_RETRIEVAL_TS, SubscriptionsVideosTable.COL_PUBLISH_TS,
+			SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_THUMBNAIL_URL, SubscriptionsVideosTable.COL_DURATION,
+			SubscriptionsVideosTable.COL_VIEW_COUNT, SubscriptionsVideosTable.COL_CHANNEL_NAME);
+	private static final String UPDATE_VIDEO_IF_PRESENT = String.format("UPDATE %s SET %s = ?1, %s = ?3, %s = ?4, %s = ?5, %s = ?6, %s = ?7, %s = ?8, %s = ?9, %s = ?10, %s = ?11 WHERE %s = ?2",
+			SubscriptionsVideosTable.TABLE_NAME,
+			SubscriptionsVideosTable.COL_CHANNEL_ID, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO,
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_DATE, SubscriptionsVideosTable.COL_RETRIEVAL_TS, SubscriptionsVideosTable.COL_PUBLISH_TS,
+			SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_THUMBNAIL_URL, SubscriptionsVideosTable.COL_DURATION,
+			SubscriptionsVideosTable.COL_VIEW_COUNT, SubscriptionsVideosTable.COL_CHANNEL_NAME,
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
+	/**
+	 * Used by {@link #fillFeedCardColumns(SQLiteDatabase)}.  Deliberately not filtered on the (updated)
+	 * title column, so the result set doesn't change while the cursor window is being refilled.
+	 */
+	private static final String FIND_ALL_VIDEO_BLOBS = String.format("SELECT %s,%s FROM %s",
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO, SubscriptionsVideosTable.TABLE_NAME);
+	private static final String UPDATE_FEED_CARD_COLUMNS = String.format("UPDATE %s SET %s = ?, %s = ?, %s = ?, %s = ?, %s = ? WHERE %s = ?",
+			SubscriptionsVideosTable.TABLE_NAME,
+			SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_THUMBNAIL_URL, SubscriptionsVideosTable.COL_DURATION,
+			SubscriptionsVideosTable.COL_VIEW_COUNT, SubscriptionsVideosTable.COL_CHANNEL_NAME,
+			SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
 
 	private static final String IS_SUBSCRIBED_QUERY = String.format("SELECT EXISTS(SELECT %s FROM %s WHERE %s =?) AS VAL ", SubscriptionsTable.COL_ID, SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_CHANNEL_ID);
 	private static volatile SubscriptionsDb subscriptionsDb = null;
 
-	private static final int DATABASE_VERSION = 5;
+	private static final int DATABASE_VERSION = 9;
 	private static final String DATABASE_NAME = "subs.db";
 
-	private Gson gson;
-
 	private SubscriptionsDb(Context context) {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
-		this.gson = createGson();
 	}
 
 
@@ -100,11 +193,23 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 		subscriptionsDb = null;
 	}
 
+	/**
+	 * The feed is read page by page while scrolling, hence a bigger cache, and memory-mapped I/O.
+	 */
+	@Override
+	protected SQLiteConnectionConfig getConnectionConfig() {
+		return new SQLiteConnectionConfig(4 * 1024, 32 * 1024 * 1024);
+	}
+
 	@Override
 	public void onCreate(SQLiteDatabase db) {
 		db.execSQL(SubscriptionsTable.getCreateStatement());
 		db.execSQL(SubscriptionsVideosTable.getCreateStatement());
 		db.execSQL(LocalChannelTable.getCreateStatement());
+		execSQLUpdates(db, SubscriptionsVideosTable.getIndexStatements());
+		if (SubscriptionsSearchTable.isSupported()) {
+			execSQLUpdates(db, SubscriptionsSearchTable.getCreateStatements());
+		}
 	}
 
 
@@ -138,6 +243,25 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 				Logger.e(this, "Unable to load subscribed channels to populate cache:" + ex.getMessage(), ex);
 			}
 		}
+		// Version 6 adds secondary indexes on SubsVideos, for the per channel and the feed queries
+		if (oldVersion <= 5 && newVersion >= 6) {
+			execSQLUpdates(db, SubscriptionsVideosTable.getIndexStatements());
+		}
+		// Version 7 stores the fields displayed in the feed grid in their own columns
+		if (oldVersion <= 6 && newVersion >= 7) {
+			execSQLUpdates(db, SubscriptionsVideosTable.getAddFeedCardColumns());
+			fillFeedCardColumns(db);
+		}
+		// Version 8 keeps the newest video timestamp and the unread count in the subscriptions table
+		if (oldVersion <= 7 && newVersion >= 8) {
+			execSQLUpdates(db, SubscriptionsTable.getVideoStateColumns());
+			db.execSQL(REBUILD_CHANNEL_VIDEO_STATE);
+		}
+		// Version 9 adds the full-text search indexes over the channel and the video titles
+		if (oldVersion <= 8 && newVersion >= 9 && SubscriptionsSearchTable.isSupported()) {
+			execSQLUpdates(db, SubscriptionsSearchTable.getCreateStatements());
+			execSQLUpdates(db, SubscriptionsSearchTable.getRebuildStatements());
+		}
 	}
 
 	private static void execSQLUpdates(SQLiteDatabase db, String[] sqlUpdates) {
@@ -168,6 +292,43 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
         Logger.i(this, "From " + videos.size() + ", retrieval timestamp filled for " + count);
     }
 
+	/**
+	 * Copy the grid fields of the already stored videos into the columns introduced by version 7.
+	 * Videos which can't be decoded are removed, like in {@link #extractVideos(Cursor, boolean)}.
+	 */
+	private void fillFeedCardColumns(SQLiteDatabase db) {
+		Set<String> invalidIds = new HashSet<>();
+		int count = 0;
+		SQLiteStatement update = db.compileStatement(UPDATE_FEED_CARD_COLUMNS);
+		try (Cursor cursor = db.rawQuery(FIND_ALL_VIDEO_BLOBS, null)) {
+			while (cursor.moveToNext()) {
+				final String id = cursor.getString(0);
+				final YouTubeVideo video;
+				try {
+					video = YouTubeVideoCodec.decode(cursor.getBlob(1));
+				} catch (VideoRecordException e) {
+					Logger.e(this, "Unable to decode video " + id + ": " + e.getMessage(), e);
+					invalidIds.add(id);
+					continue;
+				}
+				if (video == null || video.getChannel() == null || video.getTitle() == null) {
+					invalidIds.add(id);
+					continue;
+				}
+				update.clearBindings();
+				bindFeedCardColumns(update, 1, video);
+				update.bindString(6, id);
+				count += update.executeUpdateDelete();
+			}
+		} finally {
+			update.close();
+		}
+		for (String id : invalidIds) {
+			db.delete(SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID_EQUALS_TO, new String[]{id});
+		}
+		Logger.i(this, "Feed card columns filled for " + count + " videos, " + invalidIds.size() + " invalid videos removed");
+	}
+
 	/**
 	 * Saves the given channel into the subscriptions DB.
 	 *
@@ -178,7 +339,12 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 	public DatabaseResult subscribe(YouTubeChannel channel) {
 		saveChannelVideos(channel.getYouTubeVideos(), channel.getId());
 
-		return saveSubscription(channel);
+		DatabaseResult result = saveSubscription(channel);
+		if (result == DatabaseResult.SUCCESS) {
+			// the videos were stored before the channel, so they haven't been counted yet
+			refreshChannelVideoState(getWritableDatabase(), channel.getId());
+		}
+		return result;
 	}
 
 	/**
@@ -252,9 +418,9 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 	 * @param channelId the id of the channel
 	 * @return all the video ids for the subscribed channels from the database.
 	 */
-	public Set<String> getSubscribedChannelVideosByChannel(String channelId) {
+	public VideoIdSet getSubscribedChannelVideosByChannel(String channelId) {
 		try(Cursor cursor = getReadableDatabase().rawQuery(GET_VIDEO_IDS_BY_CHANNEL, new String[] { channelId})) {
-			Set<String> result = new HashSet<>();
+			VideoIdSet result = new VideoIdSet(cursor.getCount());
 			while(cursor.moveToNext()) {
 				result.add(cursor.getString(0));
 			}
@@ -266,9 +432,9 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
      * @param channelId the id of the channel
      * @return all the video ids for the subscribed channels from the database, mapped to publication times
      */
-    public Map<String, Long> getSubscribedChannelVideosByChannelToTimestamp(String channelId) {
+    public VideoIdLongMap getSubscribedChannelVideosByChannelToTimestamp(String channelId) {
         try(Cursor cursor = getReadableDatabase().rawQuery(GET_VIDEO_IDS_BY_CHANNEL_TO_PUBLISH_TS, new String[] { channelId})) {
-            Map<String, Long> result = new HashMap<>();
+            VideoIdLongMap result = new VideoIdLongMap(cursor.getCount());
             while(cursor.moveToNext()) {
                 result.put(cursor.getString(0), cursor.getLong(1));
             }
@@ -280,11 +446,16 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
         ContentValues values = new ContentValues();
         values.put(SubscriptionsVideosTable.COL_PUBLISH_TS, video.getPublishTimestamp());
 
-        return getWritableDatabase().update(
+        SQLiteDatabase db = getWritableDatabase();
+        int count = db.update(
                 SubscriptionsVideosTable.TABLE_NAME,
                 values,
                 SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID_EQUALS_TO,
                 new String[] { video.getId() });
+        if (count > 0 && video.getChannelId() != null) {
+            refreshChannelVideoState(db, Utils.removeChannelIdPrefix(video.getChannelId()));
+        }
+        return count;
     }
 
 	public List<String> getSubscribedChannelIds() {
@@ -395,6 +566,8 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 
         ContentValues values = new ContentValues();
         values.put(SubscriptionsTable.COL_LAST_VISIT_TIME, currentTime);
+        // every stored video has been published before now
+        values.put(SubscriptionsTable.COL_UNREAD_VIDEO_COUNT, 0);
 
         int count = db.update(
                 SubscriptionsTable.TABLE_NAME,
@@ -453,11 +626,6 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 		return count > 0;
 	}
 
-	private boolean hasVideo(YouTubeVideo video) {
-		return executeQueryForInteger(HAS_VIDEO_QUERY, new String[]{video.getId()}, 0) > 0;
-	}
-
-
 	/**
 	 * Check if the given channel has new videos (by looking into the {@link SubscriptionsVideosTable}
 	 * [i.e. video cache table]).
@@ -468,10 +636,30 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 	 * meantime; false otherwise.
 	 */
 	public boolean channelHasNewVideos(YouTubeChannel channel) {
-		//Unfortunately, this doesn't work, due to XXX is not supported on this API level
-		// String formatted = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.US).format(channel.getLastVisitTime());
-		String formatted = Instant.ofEpochMilli(channel.getLastVisitTime()).toString();
-		return executeQueryForInteger(CHANNEL_HAS_NEW_VIDEO_QUERY, new String[]{channel.getId(), formatted}, 0) > 0;
+		return executeQueryForInteger(CHANNEL_HAS_NEW_VIDEO_QUERY, new String[]{channel.getId()}, 0) > 0;
+	}
+
+	/**
+	 * Recompute the {@link SubscriptionsTable#COL_LATEST_VIDEO_TS} and the
+	 * {@link SubscriptionsTable#COL_UNREAD_VIDEO_COUNT} of the given channel from its stored videos.
+	 */
+	private static void refreshChannelVideoState(SQLiteDatabase db, String channelId) {
+		db.execSQL(REFRESH_CHANNEL_VIDEO_STATE, new String[]{channelId});
+	}
+
+	/**
+	 * Check that the latest video timestamp and the unread count of every subscribed channel match
+	 * its stored videos, and rebuild them if they don't.
+	 *
+	 * @return the number of channels which were inconsistent.
+	 */
+	public int checkChannelVideoState() {
+		final int inconsistent = executeQueryForInteger(COUNT_INCONSISTENT_CHANNEL_VIDEO_STATE, 0);
+		if (inconsistent > 0) {
+			Logger.w(this, "Rebuilding the video state, as " + inconsistent + " channels are inconsistent");
+			write(db -> db.execSQL(REBUILD_CHANNEL_VIDEO_STATE)).blockingAwait();
+		}
+		return inconsistent;
 	}
 
 	/**
@@ -480,12 +668,7 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 	 * @param channelId the channel id
 	 */
 	public void saveChannelVideos(Collection<YouTubeVideo> videos, String channelId) {
-		for (YouTubeVideo video : videos) {
-			if(video.getPublishDate() != null && !hasVideo(video)) {
-                ContentValues values = createContentValues(video, channelId);
-                getWritableDatabase().insert(SubscriptionsVideosTable.TABLE_NAME, null, values);
-			}
-		}
+		saveVideosInBulk(Collections.singletonMap(channelId, videos), false);
 	}
 
 	/**
@@ -494,21 +677,7 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 	 * @param channelId the channel id
 	 */
 	public void saveVideos(List<YouTubeVideo> videos, String channelId) {
-		SQLiteDatabase db = getWritableDatabase();
-		for (YouTubeVideo video : videos) {
-			if (video.getPublishDate() != null) {
-				ContentValues values = createContentValues(video, channelId);
-				if (hasVideo(video)) {
-					values.remove(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
-					db.update(SubscriptionsVideosTable.TABLE_NAME,
-                            values,
-                            SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID_EQUALS_TO,
-							new String[]{video.getId()});
-				} else {
-					db.insert(SubscriptionsVideosTable.TABLE_NAME, null, values);
-				}
-			}
-		}
+		saveVideosInBulk(Collections.singletonMap(channelId, videos), true);
 	}
 
 	/**
@@ -516,39 +685,259 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 	 * @param videos
 	 */
 	public void insertVideosForChannel(List<YouTubeVideo> videos, String channelId) {
+		saveVideosInBulk(Collections.singletonMap(channelId, videos), false);
+	}
+
+	/**
+	 * Save the videos of many channels in one transaction, reusing the same compiled statements for
+	 * every row.  Videos without a publish date are skipped.
+	 *
+	 * @param videosByChannel the videos to store, keyed by channel id.
+	 * @param updateExisting if true, already stored videos are overwritten with the new data;
+	 *                       otherwise they are left untouched.
+	 * @return the number of rows inserted or updated.
+	 */
+	public int saveVideosInBulk(Map<String, ? extends Collection<YouTubeVideo>> videosByChannel, boolean updateExisting) {
 		SQLiteDatabase db = getWritableDatabase();
-		for (YouTubeVideo video : videos) {
-			if (video.getPublishDate() != null) {
-				ContentValues values = createContentValues(video, channelId);
-				db.insert(SubscriptionsVideosTable.TABLE_NAME, null, values);
+		int count = 0;
+		SQLiteStatement insert = null;
+		SQLiteStatement update = null;
+		SQLiteStatement refreshChannel = null;
+		// a write command is already in a transaction:  a nested one, if it failed, would roll back the
+		// whole batch of the writer
+		final boolean ownTransaction = !db.inTransaction();
+		if (ownTransaction) {
+			db.beginTransaction();
+		}
+		try {
+			insert = db.compileStatement(INSERT_VIDEO_IF_ABSENT);
+			update = updateExisting ? db.compileStatement(UPDATE_VIDEO_IF_PRESENT) : null;
+			refreshChannel = db.compileStatement(REFRESH_CHANNEL_VIDEO_STATE);
+			for (Map.Entry<String, ? extends Collection<YouTubeVideo>> entry : videosByChannel.entrySet()) {
+				final String channelId = Utils.removeChannelIdPrefix(entry.getKey());
+				final int countBefore = count;
+				for (YouTubeVideo video : entry.getValue()) {
+					if (video.getPublishDate() == null) {
+						continue;
+					}
+					if (update != null) {
+						bindVideo(update, video, channelId);
+						if (update.executeUpdateDelete() > 0) {
+							count++;
+							continue;
+						}
+					}
+					bindVideo(insert, video, channelId);
+					if (insert.executeInsert() != -1) {
+						count++;
+					}
+				}
+				if (count != countBefore) {
+					refreshChannel.bindString(1, channelId);
+					refreshChannel.executeUpdateDelete();
+				}
+			}
+			if (ownTransaction) {
+				db.setTransactionSuccessful();
+			}
+		} finally {
+			if (ownTransaction) {
+				db.endTransaction();
+			}
+			if (insert != null) {
+				insert.close();
+			}
+			if (update != null) {
+				update.close();
+			}
+			if (refreshChannel != null) {
+				refreshChannel.close();
 			}
 		}
+		return count;
 	}
 
-    private ContentValues createContentValues(YouTubeVideo video, String channelId) {
-		channelId = Utils.removeChannelIdPrefix(channelId);
-        ContentValues values = new ContentValues();
-        values.put(SubscriptionsVideosTable.COL_CHANNEL_ID, channelId);
-        values.put(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, video.getId());
-        values.put(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO, gson.toJson(video).getBytes());
-        final ZonedDateTime publishDate = video.getPublishDate();
-        final long publishInstant = publishDate.toInstant().toEpochMilli();
-        values.put(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_DATE,
-				DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(publishDate));
-        long ts = video.getRetrievalTimestamp() != null ? video.getRetrievalTimestamp() : publishInstant;
-        values.put(SubscriptionsVideosTable.COL_RETRIEVAL_TS, ts);
-        values.put(SubscriptionsVideosTable.COL_PUBLISH_TS, publishInstant);
-
-        return values;
-    }
+	/**
+	 * Bind the given video to either {@link #INSERT_VIDEO_IF_ABSENT} or {@link #UPDATE_VIDEO_IF_PRESENT}.
+	 */
+	private void bindVideo(SQLiteStatement statement, YouTubeVideo video, String channelId) {
+		final ZonedDateTime publishDate = video.getPublishDate();
+		final long publishInstant = publishDate.toInstant().toEpochMilli();
+		final long ts = video.getRetrievalTimestamp() != null ? video.getRetrievalTimestamp() : publishInstant;
+
+		statement.clearBindings();
+		statement.bindString(1, channelId);
+		statement.bindString(2, video.getId());
+		statement.bindBlob(3, YouTubeVideoCodec.encode(video));
+		statement.bindString(4, DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(publishDate));
+		statement.bindLong(5, ts);
+		statement.bindLong(6, publishInstant);
+		bindFeedCardColumns(statement, 7, video);
+	}
 
 	/**
-	 * Delete any videos stored in the database (for subscribed channels) that are over a month old.
-	 * @return
+	 * Bind the title, thumbnail URL, duration, view count and channel name of the given video, from
+	 * the parameter <code>firstIndex</code> onwards.
+	 */
+	private static void bindFeedCardColumns(SQLiteStatement statement, int firstIndex, YouTubeVideo video) {
+		bindStringOrNull(statement, firstIndex, video.getTitle());
+		bindStringOrNull(statement, firstIndex + 1, video.getThumbnailUrl());
+		statement.bindLong(firstIndex + 2, video.getDurationInSeconds());
+		final BigInteger viewCount = video.getViewsCountInt();
+		if (viewCount != null && viewCount.bitLength() < Long.SIZE) {
+			statement.bindLong(firstIndex + 3, viewCount.longValue());
+		} else {
+			statement.bindNull(firstIndex + 3);
+		}
+		bindStringOrNull(statement, firstIndex + 4, video.getChannelName());
+	}
+
+	private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+		if (value != null) {
+			statement.bindString(index, value);
+		} else {
+			statement.bindNull(index);
+		}
+	}
+
+	/**
+	 * The new videos of the channel, which were published before the returned time, would be deleted
+	 * by the next {@link #applyVideoRetention(VideoRetentionPolicy, VideoIdSet, boolean)}.  They are
+	 * not added to the feed, otherwise the deleted videos, which the channel still lists, would come
+	 * back with every refresh.
+	 *
+	 * @return The publish timestamp, before which the new videos of the channel are dropped - or 0.
+	 */
+	public long getRetentionHorizon(VideoRetentionPolicy policy, String channelId) {
+		final SQLiteDatabase db = getReadableDatabase();
+		long horizon = 0;
+		if (policy.getMaxAgeMillis() > 0) {
+			horizon = System.currentTimeMillis() - policy.getMaxAgeMillis();
+		}
+		if (policy.getMaxVideosPerChannel() > 0) {
+			final Long oldestKept = executeQueryForLong(db, CHANNEL_OLDEST_KEPT_PUBLISH_TS,
+					new String[]{channelId, String.valueOf(policy.getMaxVideosPerChannel())});
+			if (oldestKept != null) {
+				horizon = Math.max(horizon, oldestKept);
+			}
+		}
+		if (policy.getMaxVideos() > 0) {
+			final Long oldestKept = executeQueryForLong(db, OLDEST_KEPT_PUBLISH_TS, new String[]{String.valueOf(policy.getMaxVideos())});
+			if (oldestKept != null) {
+				horizon = Math.max(horizon, oldestKept);
+			}
+		}
+		return horizon;
+	}
+
+	/**
+	 * Delete the videos of the subscribed channels, which are beyond the limits of the given policy.
+	 * The videos are deleted in small batches (each one by its own write command), so that the other
+	 * writes aren't held up for long, and the freed pages are then given back to the file system.
+	 * Must not be called on the main thread, nor from a write command.
+	 *
+	 * @param policy         The limits to apply.
+	 * @param exemptVideoIds Videos which are never deleted (e.g. bookmarked or partly watched), even
+	 *                       though they are still counted in the limits.
+	 * @param allowFullVacuum True if the database can be switched to incremental auto-vacuum now,
+	 *                        with a full VACUUM - see {@link #reclaimFreePages(SQLiteDatabase, boolean)}.
+	 * @return The number of deleted videos.
 	 */
-	public boolean trimSubscriptionVideos() {
-		int result = getWritableDatabase().delete(SubscriptionsVideosTable.TABLE_NAME, VIDEO_DATE_IS_OLDER_THAN_1_MONTH, null);
-		return result > 0;
+	public int applyVideoRetention(VideoRetentionPolicy policy, VideoIdSet exemptVideoIds, boolean allowFullVacuum) {
+		final SQLiteDatabase db = getReadableDatabase();
+		final Set<String> expiredIds = new HashSet<>();
+		if (policy.getMaxAgeMillis() > 0) {
+			final long publishedBefore = System.currentTimeMillis() - policy.getMaxAgeMillis();
+			addVideoIds(db, VIDEO_IDS_PUBLISHED_BEFORE, new String[]{String.valueOf(publishedBefore)}, exemptVideoIds, expiredIds);
+		}
+		if (policy.getMaxVideosPerChannel() > 0) {
+			final String maxVideos = String.valueOf(policy.getMaxVideosPerChannel());
+			final List<String> channelIds = new ArrayList<>();
+			try (Cursor cursor = db.rawQuery(CHANNELS_WITH_MORE_VIDEOS_THAN, new String[]{maxVideos})) {
+				while (cursor.moveToNext()) {
+					channelIds.add(cursor.getString(0));
+				}
+			}
+			for (String channelId : channelIds) {
+				addVideoIds(db, CHANNEL_VIDEO_IDS_AFTER_NEWEST, new String[]{channelId, maxVideos}, exemptVideoIds, expiredIds);
+			}
+		}
+		if (policy.getMaxVideos() > 0) {
+			addVideoIds(db, VIDEO_IDS_AFTER_NEWEST, new String[]{String.valueOf(policy.getMaxVideos())}, exemptVideoIds, expiredIds);
+		}
+		if (expiredIds.isEmpty()) {
+			return 0;
+		}
+
+		// queued one after the other on the writer thread:  the last one completes after all of them
+		final AtomicInteger deleted = new AtomicInteger();
+		final List<String> videoIds = new ArrayList<>(expiredIds);
+		for (int start = 0; start < videoIds.size(); start += RETENTION_DELETE_BATCH_SIZE) {
+			final List<String> batch = videoIds.subList(start, Math.min(start + RETENTION_DELETE_BATCH_SIZE, videoIds.size()));
+			write(writable -> deleted.addAndGet(deleteVideos(writable, batch)));
+		}
+		write(writable -> writable.execSQL(REBUILD_CHANNEL_VIDEO_STATE));
+		writeMaintenance(writable -> reclaimFreePages(writable, allowFullVacuum));
+		checkpoint().blockingAwait();
+		Logger.i(this, "Deleted %d feed videos with %s, %d exempt", deleted.get(), policy, exemptVideoIds.size());
+		return deleted.get();
+	}
+
+	private static void addVideoIds(SQLiteDatabase db, String query, String[] args, VideoIdSet exemptVideoIds, Set<String> videoIds) {
+		try (Cursor cursor = db.rawQuery(query, args)) {
+			while (cursor.moveToNext()) {
+				final String videoId = cursor.getString(0);
+				if (!exemptVideoIds.contains(videoId)) {
+					videoIds.add(videoId);
+				}
+			}
+		}
+	}
+
+	private static int deleteVideos(SQLiteDatabase db, List<String> videoIds) {
+		final StringBuilder placeholders = new StringBuilder("?");
+		for (int i = 1; i < videoIds.size(); i++) {
+			placeholders.append(",?");
+		}
+		return db.delete(SubscriptionsVideosTable.TABLE_NAME,
+				SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " IN (" + placeholders + ")",
+				videoIds.toArray(new String[0]));
+	}
+
+	/**
+	 * Give the free pages of the database file back to the file system, once enough of them are
+	 * free - until then, they are just reused by the next videos.  Incremental auto-vacuum can only
+	 * be switched on by a full VACUUM, which rewrites the whole file while holding the database
+	 * locked:  it is only done when allowed, and when a large part of the file is free.  Must run
+	 * outside of any transaction, see {@link #writeMaintenance(DatabaseWriter.Command)}.
+	 */
+	private void reclaimFreePages(SQLiteDatabase db, boolean allowFullVacuum) {
+		final int freePages = executeQueryForInteger(db, "PRAGMA freelist_count", 0);
+		final int pages = executeQueryForInteger(db, "PRAGMA page_count", 0);
+		if (executeQueryForInteger(db, "PRAGMA auto_vacuum", 0) == AUTO_VACUUM_INCREMENTAL) {
+			if (isMostlyFree(freePages, pages, INCREMENTAL_VACUUM_MIN_FREE_PAGES_PERCENT)) {
+				Logger.i(this, "Incremental vacuum of %d free pages out of %d", freePages, pages);
+				try (Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum", null)) {
+					cursor.moveToFirst();
+				}
+			}
+			return;
+		}
+		if (!allowFullVacuum || !isMostlyFree(freePages, pages, FULL_VACUUM_MIN_FREE_PAGES_PERCENT)) {
+			Logger.i(this, "Full VACUUM deferred, %d free pages out of %d", freePages, pages);
+			return;
+		}
+		Logger.i(this, "Switching to incremental auto-vacuum, %d free pages out of %d", freePages, pages);
+		db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+		db.execSQL("VACUUM");
+		// VACUUM can renumber the rows of the SubsVideos table, which the FTS index refers to
+		if (SubscriptionsSearchTable.isSupported()) {
+			execSQLUpdates(db, SubscriptionsSearchTable.getRebuildStatements());
+		}
+	}
+
+	private static boolean isMostlyFree(int freePages, int pages, int minFreePercent) {
+		return freePages >= VACUUM_MIN_FREE_PAGES && freePages * 100L >= pages * (long) minFreePercent;
 	}
 
 	/**
@@ -566,52 +955,128 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 
     /**
      * Query the database to retrieve number of videos for subscribed channels starting from the given video.
-     * @return a list of {@link YouTubeVideo}
+     * Only the columns displayed in the grid are read, the video blobs are not decoded.
+     * @return a list of {@link FeedCard}
      */
-    public List<YouTubeVideo> getSubscriptionVideoPage(int limit, String videoId, long beforeTimestamp) {
-        return getSubscriptionVideoPage(limit, videoId, beforeTimestamp, SubscriptionsVideosTable.COL_PUBLISH_TS);
-    }
-
-    /**
-     * Query the database to retrieve number of videos for subscribed channels starting from the given video.
-     * @return a list of {@link YouTubeVideo}
-     */
-    private List<YouTubeVideo> getSubscriptionVideoPage(int limit, String videoId, long beforeTimestamp, String sortingColumn) {
+    public List<FeedCard> getSubscriptionVideoPage(int limit, String videoId, long beforeTimestamp) {
         final String selection;
         final String[] selectionArguments;
         if (videoId != null) {
-            selection = "(" + sortingColumn + " < ?) OR (" + sortingColumn + " = ? AND " + SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " > ?)";
+            selection = VIDEO_PAGE_AFTER_SELECTION;
             String formatted = String.valueOf(beforeTimestamp);
             selectionArguments = new String[]{ formatted, formatted, videoId };
         } else {
             selection = null;
             selectionArguments = null;
         }
-        Cursor	cursor = getReadableDatabase().query(
-            SubscriptionsVideosTable.TABLE_NAME,
-            SubscriptionsVideosTable.ALL_COLUMNS_FOR_EXTRACT,
-            selection, selectionArguments, null, null,
-                sortingColumn + " DESC, " + SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " ASC",
-            String.valueOf(limit));
-        return extractVideos(cursor, true);
+        Cursor cursor = getReadableDatabase().query(
+                SubscriptionsVideosTable.TABLE_NAME,
+                SubscriptionsVideosTable.ALL_COLUMNS_FOR_FEED_CARD,
+                selection, selectionArguments, null, null,
+                VIDEO_PAGE_ORDER_BY,
+                String.valueOf(limit));
+        return extractFeedCards(cursor);
     }
 
-    private Gson createGson() {
-    	return new GsonBuilder().registerTypeAdapter(YouTubeChannel.class, (JsonSerializer<YouTubeChannel>) (src, typeOfSrc, context) -> {
-			JsonObject obj = new JsonObject();
-			obj.addProperty("id", src.getId());
-			obj.addProperty("title", src.getTitle());
-			obj.addProperty("description", src.getDescription());
-			obj.addProperty("thumbnailNormalUrl", src.getThumbnailUrl());
-			obj.addProperty("bannerUrl", src.getBannerUrl());
-			return obj;
-		}).create();
-	}
+    /**
+     * Search the titles and the channel names of the videos stored for subscribed channels.  The
+     * videos whose title matches come first, then the rest, each group ordered like the feed.
+     *
+     * @param text the text typed by the user, every word of it has to match (as a prefix).
+     * @param limit the maximum number of videos to return.
+     * @param after the last card of the previous page, or null for the first page.
+     * @return a list of {@link FeedCard}, with their {@link FeedCard#getSearchRank()} set.
+     */
+    public List<FeedCard> searchSubscriptionVideoPage(String text, int limit, FeedCard after) {
+        final boolean fullText = SubscriptionsSearchTable.isSupported();
+        final String rankArgument;
+        final String filterArgument;
+        if (fullText) {
+            rankArgument = SubscriptionsSearchTable.toMatchExpression(text, SubscriptionsVideosTable.COL_TITLE);
+            filterArgument = SubscriptionsSearchTable.toMatchExpression(text, null);
+        } else {
+            rankArgument = filterArgument = text != null ? "%" + text.toLowerCase() + "%" : null;
+        }
+        if (filterArgument == null) {
+            return new ArrayList<>();
+        }
+        final String[] arguments = after != null
+                ? new String[]{ rankArgument, filterArgument, String.valueOf(after.getSearchRank()),
+                        String.valueOf(after.getPublishTimestamp()), after.getId() }
+                : new String[]{ rankArgument, filterArgument };
+        return extractFeedCards(getReadableDatabase().rawQuery(getFeedSearchQuery(fullText, after != null, limit), arguments));
+    }
+
+    /**
+     * @param fullText use the FTS tables, otherwise fall back to LIKE.
+     * @param continuation true if the query continues after the last video of a previous page.
+     */
+    static String getFeedSearchQuery(boolean fullText, boolean continuation, int limit) {
+        final String rank = fullText ? FEED_SEARCH_RANK_FTS : FEED_SEARCH_RANK_LIKE;
+        return "SELECT " + SubscriptionsSearchTable.columnList(SubscriptionsVideosTable.ALL_COLUMNS_FOR_FEED_CARD) + ", " + rank + " AS " + COL_SEARCH_RANK +
+                " FROM " + SubscriptionsVideosTable.TABLE_NAME +
+                " WHERE " + (fullText ? FEED_SEARCH_FILTER_FTS : FEED_SEARCH_FILTER_LIKE) +
+                (continuation ? " AND " + String.format(FEED_SEARCH_AFTER, rank) : "") +
+                " ORDER BY " + COL_SEARCH_RANK + " DESC, " + VIDEO_PAGE_ORDER_BY +
+                " LIMIT " + limit;
+    }
+
+    private List<FeedCard> extractFeedCards(Cursor cursor) {
+        try {
+            List<FeedCard> cards = new ArrayList<>(cursor.getCount());
+            if (cursor.moveToNext()) {
+                final int idIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
+                final int channelIdIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_CHANNEL_ID);
+                final int channelNameIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_CHANNEL_NAME);
+                final int titleIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_TITLE);
+                final int thumbnailIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_THUMBNAIL_URL);
+                final int durationIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_DURATION);
+                final int viewCountIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_VIEW_COUNT);
+                final int retrievalIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_RETRIEVAL_TS);
+                final int publishTsIdx = cursor.getColumnIndexOrThrow(SubscriptionsVideosTable.COL_PUBLISH_TS);
+                final int searchRankIdx = cursor.getColumnIndex(COL_SEARCH_RANK);
+
+                do {
+                    FeedCard card = new FeedCard(cursor.getString(idIdx),
+                            cursor.getString(titleIdx),
+                            cursor.getString(thumbnailIdx),
+                            cursor.isNull(durationIdx) ? -1 : cursor.getInt(durationIdx),
+                            cursor.isNull(viewCountIdx) ? null : cursor.getLong(viewCountIdx),
+                            cursor.getString(channelIdIdx),
+                            cursor.getString(channelNameIdx),
+                            cursor.getLong(publishTsIdx),
+                            cursor.getLong(retrievalIdx));
+                    if (searchRankIdx >= 0) {
+                        card.setSearchRank(cursor.getInt(searchRankIdx));
+                    }
+                    cards.add(card);
+                } while (cursor.moveToNext());
+            }
+            return cards;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Load the full video (i.e. decode its blob), for example to hydrate a {@link FeedCard}.
+     * @return the video, or null if it's not stored (anymore).
+     */
+    public YouTubeVideo getVideo(String videoId) {
+        Cursor cursor = getReadableDatabase().query(
+                SubscriptionsVideosTable.TABLE_NAME,
+                SubscriptionsVideosTable.ALL_COLUMNS_FOR_EXTRACT,
+                SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID_EQUALS_TO, new String[]{videoId},
+                null, null, null);
+        List<YouTubeVideo> videos = extractVideos(cursor, true);
+        return videos.isEmpty() ? null : videos.get(0);
+    }
 
     /**
      * Load YouTubeVideo objects from a cursor, only SubscriptionsVideosTable.COL_YOUTUBE_VIDEO column is needed.
+     * Both the binary and the legacy JSON encoding are understood, see {@link YouTubeVideoCodec}.
      * @param cursor the cursor to process
-     * @param fullColumnList get all the columns, not just the JSON blob - set to false only for db
+     * @param fullColumnList get all the columns, not just the video blob - set to false only for db
      *                       maintenance queries!
      */
     private List<YouTubeVideo> extractVideos(Cursor cursor, boolean fullColumnList) {
@@ -620,37 +1085,30 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
         try {
 
             if (cursor.moveToNext()) {
-                final int jsonIdx = cursor.getColumnIndex(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO);
+                final int videoIdx = cursor.getColumnIndex(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO);
                 final int idIdx = cursor.getColumnIndex(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID);
                 final int retrievalIdx = fullColumnList ? cursor.getColumnIndex(SubscriptionsVideosTable.COL_RETRIEVAL_TS) : -1;
                 final int publishTsIdx = fullColumnList ? cursor.getColumnIndex(SubscriptionsVideosTable.COL_PUBLISH_TS) : -1;
 
                 do {
                     final String id = cursor.getString(idIdx);
-                    final byte[] blob = cursor.getBlob(jsonIdx);
-                    final String videoJson = new String(blob);
-
-                    // convert JSON into YouTubeVideo
-                    YouTubeVideo video = gson.fromJson(videoJson, YouTubeVideo.class);
+                    final YouTubeVideo video;
+                    try {
+                        video = YouTubeVideoCodec.decode(cursor.getBlob(videoIdx));
+                    } catch (VideoRecordException e) {
+                        Logger.e(this, "Unable to decode video " + id + ": " + e.getMessage(), e);
+                        invalidIds.add(id);
+                        continue;
+                    }
+                    if (video == null) {
+                        invalidIds.add(id);
+                        continue;
+                    }
                     if (fullColumnList) {
                         video.setRetrievalTimestamp(cursor.getLong(retrievalIdx));
                         video.setPublishTimestamp(cursor.getLong(publishTsIdx));
                     }
-                    video.updatePublishTimestampFromDate();
-
-                    // due to upgrade to YouTubeVideo (by changing channel{Id,Name} to
-                    // YouTubeChannel)
-                    // from version 2.82 to 2.90
-                    if (video.getChannel() == null) {
-                        try {
-                            JSONObject videoJsonObj = new JSONObject(videoJson);
-                            final String channelId = videoJsonObj.get("channelId").toString();
-                            final String channelName = videoJsonObj.get("channelName").toString();
-                            video.setChannel(new YouTubeChannel(channelId, channelName));
-                        } catch (JSONException e) {
-                            Logger.e(this, "Error occurred while extracting channel{Id,Name} from JSON", e);
-                        }
-                    }
+
                     if (video.getChannel() != null) {
                         // regenerate the video's PublishDatePretty (e.g. 5 hours ago)
                         video.forceRefreshPublishDatePretty();
@@ -670,14 +1128,42 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
         return videos;
     }
 
+    /**
+     * Re-encode the feed videos still stored as JSON, see {@link YouTubeVideoCodec}.
+     * @return the number of converted videos.
+     */
+    public int convertLegacyVideoBlobs() {
+        return convertLegacyVideoBlobs(SubscriptionsVideosTable.TABLE_NAME, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID, SubscriptionsVideosTable.COL_YOUTUBE_VIDEO);
+    }
+
+    /**
+     * Delete the given videos, and refresh the state of their channels only - the FTS index is
+     * kept in sync by its delete trigger.
+     */
     private void deleteVideosByIds(Set<String> ids) {
-        for (String id: ids) {
-            Logger.w(this, "delete video by id: "+ id);
-            int rowsDeleted = getWritableDatabase().delete(SubscriptionsVideosTable.TABLE_NAME,
-                        SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " = ?",
-                        new String[]{id});
-            Logger.w(this, "result "+rowsDeleted+" deleted");
-        }
+        write(db -> {
+            final Set<String> channelIds = new HashSet<>();
+            for (String id: ids) {
+                Logger.w(this, "delete video by id: "+ id);
+                String channelId = null;
+                try (Cursor cursor = db.query(SubscriptionsVideosTable.TABLE_NAME, new String[]{SubscriptionsVideosTable.COL_CHANNEL_ID},
+                        SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " = ?", new String[]{id}, null, null, null)) {
+                    if (cursor.moveToFirst()) {
+                        channelId = cursor.getString(0);
+                    }
+                }
+                int rowsDeleted = db.delete(SubscriptionsVideosTable.TABLE_NAME,
+                            SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " = ?",
+                            new String[]{id});
+                Logger.w(this, "result "+rowsDeleted+" deleted");
+                if (rowsDeleted > 0 && channelId != null) {
+                    channelIds.add(channelId);
+                }
+            }
+            for (String channelId : channelIds) {
+                refreshChannelVideoState(db, channelId);
+            }
+        });
     }
 
     // Generic channel caching
@@ -783,12 +1269,9 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 			final int channelId = cursor.getColumnIndexOrThrow(SubscriptionsTable.COL_CHANNEL_ID);
 			final int title = cursor.getColumnIndexOrThrow(SubscriptionsTable.COL_TITLE);
 			final int thumbnail = cursor.getColumnIndexOrThrow(SubscriptionsTable.COL_THUMBNAIL_NORMAL_URL);
-			final int colLastVisit = cursor.getColumnIndexOrThrow(SubscriptionsTable.COL_LAST_VISIT_TIME);
-			final int colLatestVideoTs = cursor.getColumnIndexOrThrow("latest_video_ts");
+			final int colUnreadCount = cursor.getColumnIndexOrThrow(SubscriptionsTable.COL_UNREAD_VIDEO_COUNT);
 			while(cursor.moveToNext()) {
-				Long lastVisit = cursor.getLong(colLastVisit);
-				Long latestVideoTs = cursor.getLong(colLatestVideoTs);
-				boolean hasNew = (latestVideoTs != null && (lastVisit == null || latestVideoTs > lastVisit));
+				boolean hasNew = cursor.getInt(colUnreadCount) > 0;
 				result.add(new ChannelView(cursor.getString(channelId), cursor.getString(title), cursor.getString(thumbnail), hasNew));
 			}
 			return result;
@@ -796,9 +1279,14 @@ public class SubscriptionsDb extends SQLiteOpenHelperEx {
 	}
 
 	private Cursor createSubscriptionCursor(String searchText, boolean sortChannelsAlphabetically) {
+		final String matchExpression = SubscriptionsSearchTable.isSupported() ? SubscriptionsSearchTable.toMatchExpression(searchText, null) : null;
 		if (Utils.isEmpty(searchText)) {
 			return getReadableDatabase().rawQuery(SUBSCRIBED_CHANNEL_INFO +
 					(sortChannelsAlphabetically ? SUBSCRIBED_CHANNEL_INFO_ORDER_BY : ""), null);
+		} else if (matchExpression != null) {
+			return getReadableDatabase().rawQuery(SUBSCRIBED_CHANNEL_INFO + SUBSCRIBED_CHANNEL_MATCH_TITLE +
+							(sortChannelsAlphabetically ? SUBSCRIBED_CHANNEL_INFO_ORDER_BY : ""),
+					new String[]{matchExpression});
 		} else {
 			return getReadableDatabase().rawQuery(SUBSCRIBED_CHANNEL_INFO + SUBSCRIBED_CHANNEL_LIMIT_BY_TITLE +
 							(sortChannelsAlphabetically ? SUBSCRIBED_CHANNEL_INFO_ORDER_BY : ""),
@@ -0,0 +1,158 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.db;
+
+import android.os.Build;
+
+/**
+ * Full-text search (FTS4) indexes over the titles of the subscribed channels, and over the titles and
+ * channel names of the videos cached in {@link SubscriptionsVideosTable}.  Both are external content
+ * tables (i.e. the text is only stored once, in the content table), kept in sync by triggers.
+ */
+public class SubscriptionsSearchTable {
+	public static final String VIDEOS_TABLE_NAME = "SubsVideosFts";
+	public static final String CHANNELS_TABLE_NAME = "SubsFts";
+
+	/**
+	 * External content FTS4 tables need SQLite 3.7.9, which is shipped from Jelly Bean onwards.
+	 *
+	 * @return True if the full-text search tables can be used on this device.
+	 */
+	public static boolean isSupported() {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+	}
+
+	public static String[] getCreateStatements() {
+		return new String[] {
+				createTable(VIDEOS_TABLE_NAME, SubscriptionsVideosTable.TABLE_NAME,
+						SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_CHANNEL_NAME),
+				createTrigger(VIDEOS_TABLE_NAME, SubscriptionsVideosTable.TABLE_NAME,
+						SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_CHANNEL_NAME),
+				deleteTrigger(VIDEOS_TABLE_NAME, SubscriptionsVideosTable.TABLE_NAME),
+				beforeUpdateTrigger(VIDEOS_TABLE_NAME, SubscriptionsVideosTable.TABLE_NAME,
+						SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_CHANNEL_NAME),
+				afterUpdateTrigger(VIDEOS_TABLE_NAME, SubscriptionsVideosTable.TABLE_NAME,
+						SubscriptionsVideosTable.COL_TITLE, SubscriptionsVideosTable.COL_CHANNEL_NAME),
+
+				createTable(CHANNELS_TABLE_NAME, SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_TITLE),
+				createTrigger(CHANNELS_TABLE_NAME, SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_TITLE),
+				deleteTrigger(CHANNELS_TABLE_NAME, SubscriptionsTable.TABLE_NAME),
+				beforeUpdateTrigger(CHANNELS_TABLE_NAME, SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_TITLE),
+				afterUpdateTrigger(CHANNELS_TABLE_NAME, SubscriptionsTable.TABLE_NAME, SubscriptionsTable.COL_TITLE)
+		};
+	}
+
+	/**
+	 * @return Statements that re-index the content tables from scratch, e.g. after the rows have
+	 * been renumbered by a VACUUM.
+	 */
+	public static String[] getRebuildStatements() {
+		return new String[] {
+				rebuild(VIDEOS_TABLE_NAME),
+				rebuild(CHANNELS_TABLE_NAME)
+		};
+	}
+
+	/**
+	 * Convert the text typed by the user into a FTS query, where every word is a prefix, and all of
+	 * them have to match.
+	 *
+	 * @param text   The user's text.
+	 * @param column If not null, the words are only searched in this column.
+	 *
+	 * @return The MATCH expression, or null if the text doesn't contain any word.
+	 */
+	public static String toMatchExpression(String text, String column) {
+		if (text == null) {
+			return null;
+		}
+		StringBuilder expression = new StringBuilder();
+		// split the same way as the 'simple' tokenizer:  every ASCII character, which is not a
+		// letter or a digit, is a separator
+		for (String word : text.split("[\\x00-\\x2F\\x3A-\\x40\\x5B-\\x60\\x7B-\\x7F]+")) {
+			if (word.isEmpty()) {
+				continue;
+			}
+			if (expression.length() > 0) {
+				expression.append(' ');
+			}
+			if (column != null) {
+				expression.append(column).append(':');
+			}
+			// lower case, so that words like OR and NOT aren't understood as operators
+			for (int i = 0; i < word.length(); i++) {
+				char c = word.charAt(i);
+				expression.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+			}
+			expression.append('*');
+		}
+		return expression.length() > 0 ? expression.toString() : null;
+	}
+
+	private static String createTable(String ftsTable, String contentTable, String... columns) {
+		return "CREATE VIRTUAL TABLE " + ftsTable + " USING fts4(content=\"" + contentTable + "\", " +
+				columnList(columns) + ")";
+	}
+
+	private static String createTrigger(String ftsTable, String contentTable, String... columns) {
+		return "CREATE TRIGGER " + ftsTable + "_Insert AFTER INSERT ON " + contentTable + " BEGIN " +
+				insertRow(ftsTable, columns) + " END";
+	}
+
+	private static String deleteTrigger(String ftsTable, String contentTable) {
+		return "CREATE TRIGGER " + ftsTable + "_Delete BEFORE DELETE ON " + contentTable + " BEGIN " +
+				deleteRow(ftsTable) + " END";
+	}
+
+	private static String beforeUpdateTrigger(String ftsTable, String contentTable, String... columns) {
+		return "CREATE TRIGGER " + ftsTable + "_Update_Before BEFORE UPDATE OF " + columnList(columns) +
+				" ON " + contentTable + " BEGIN " + deleteRow(ftsTable) + " END";
+	}
+
+	private static String afterUpdateTrigger(String ftsTable, String contentTable, String... columns) {
+		return "CREATE TRIGGER " + ftsTable + "_Update_After AFTER UPDATE OF " + columnList(columns) +
+				" ON " + contentTable + " BEGIN " + insertRow(ftsTable, columns) + " END";
+	}
+
+	private static String insertRow(String ftsTable, String... columns) {
+		StringBuilder values = new StringBuilder("new.rowid");
+		for (String column : columns) {
+			values.append(", new.").append(column);
+		}
+		return "INSERT INTO " + ftsTable + " (docid, " + columnList(columns) + ") VALUES (" + values + ");";
+	}
+
+	private static String deleteRow(String ftsTable) {
+		return "DELETE FROM " + ftsTable + " WHERE docid = old.rowid;";
+	}
+
+	static String columnList(String... columns) {
+		StringBuilder list = new StringBuilder();
+		for (String column : columns) {
+			if (list.length() > 0) {
+				list.append(", ");
+			}
+			list.append(column);
+		}
+		return list.toString();
+	}
+
+	private static String rebuild(String ftsTable) {
+		return "INSERT INTO " + ftsTable + " (" + ftsTable + ") VALUES ('rebuild')";
+	}
+}
@@ -32,6 +32,10 @@ public class SubscriptionsTable {
 	public static final String COL_THUMBNAIL_NORMAL_URL = "Thumbnail_Normal_Url";
 	public static final String COL_BANNER_URL = "Banner_Url";
 	public static final String COL_SUBSCRIBER_COUNT = "Subscriber_Count";
+	/** Publish timestamp of the newest video of the channel in {@link SubscriptionsVideosTable}. */
+	public static final String COL_LATEST_VIDEO_TS = "Latest_Video_Ts";
+	/** Number of videos in {@link SubscriptionsVideosTable} published after the last visit of the channel. */
+	public static final String COL_UNREAD_VIDEO_COUNT = "Unread_Video_Count";
 	public static final String[] ALL_COLUMNS = new String[]{
 			SubscriptionsTable.COL_CHANNEL_ID,
 			SubscriptionsTable.COL_TITLE,
@@ -54,7 +58,9 @@ public class SubscriptionsTable {
 				COL_BANNER_URL      	+ " TEXT, " +
 				COL_SUBSCRIBER_COUNT	+ " INTEGER, " +
 				COL_LAST_VISIT_TIME 	+ " TIMESTAMP DEFAULT (strftime('%s', 'now')), " +
-				COL_LAST_CHECK_TIME 	+ " INTEGER " +
+				COL_LAST_CHECK_TIME 	+ " INTEGER, " +
+				COL_LATEST_VIDEO_TS 	+ " INTEGER, " +
+				COL_UNREAD_VIDEO_COUNT	+ " INTEGER DEFAULT 0 " +
 		" )";
 	}
 
@@ -72,4 +78,11 @@ public class SubscriptionsTable {
 	public static String[] getLastCheckTimeColumn() {
 		return new String[] { ADD_COLUMN + COL_LAST_CHECK_TIME + " INTEGER "};
 	}
+
+	public static String[] getVideoStateColumns() {
+		return new String[] {
+				ADD_COLUMN + COL_LATEST_VIDEO_TS + " INTEGER",
+				ADD_COLUMN + COL_UNREAD_VIDEO_COUNT + " INTEGER DEFAULT 0"
+		};
+	}
 }
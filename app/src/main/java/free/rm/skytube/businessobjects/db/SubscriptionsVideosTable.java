@@ -28,6 +28,14 @@ public class SubscriptionsVideosTable {
 	public static final String COL_YOUTUBE_VIDEO_DATE = "YouTube_Video_Date";
 	public static final String COL_RETRIEVAL_TS = "Retrieval_Timestamp";
 	public static final String COL_PUBLISH_TS = "Publish_Timestamp";
+	public static final String COL_TITLE = "Title";
+	public static final String COL_THUMBNAIL_URL = "Thumbnail_Url";
+	public static final String COL_DURATION = "Duration";
+	public static final String COL_VIEW_COUNT = "View_Count";
+	public static final String COL_CHANNEL_NAME = "Channel_Name";
+
+	public static final String IDX_CHANNEL_ID_PUBLISH_TS = "IDX_SubsVideos_Channel_Publish";
+	public static final String IDX_PUBLISH_TS_VIDEO_ID = "IDX_SubsVideos_Publish_Video";
 
 	public static final String COL_YOUTUBE_VIDEO_ID_EQUALS_TO = SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " = ?";
 
@@ -39,6 +47,19 @@ public class SubscriptionsVideosTable {
 			COL_PUBLISH_TS
 	};
 
+	/** The columns needed to display a video in the feed grid, without decoding {@link #COL_YOUTUBE_VIDEO}. */
+	static final String[] ALL_COLUMNS_FOR_FEED_CARD = new String[] {
+			COL_YOUTUBE_VIDEO_ID,
+			COL_CHANNEL_ID,
+			COL_CHANNEL_NAME,
+			COL_TITLE,
+			COL_THUMBNAIL_URL,
+			COL_DURATION,
+			COL_VIEW_COUNT,
+			COL_RETRIEVAL_TS,
+			COL_PUBLISH_TS
+	};
+
 	private static final String ADD_COLUMN = "ALTER TABLE " + TABLE_NAME + " ADD COLUMN ";
 
 	public static String getCreateStatement() {
@@ -48,7 +69,12 @@ public class SubscriptionsVideosTable {
 						COL_YOUTUBE_VIDEO + " BLOB, " +
 						COL_YOUTUBE_VIDEO_DATE + " TIMESTAMP DEFAULT (strftime('%s', 'now')), " +
 						COL_RETRIEVAL_TS + " INTEGER, " +
-						COL_PUBLISH_TS + " INTEGER " +
+						COL_PUBLISH_TS + " INTEGER, " +
+						COL_TITLE + " TEXT, " +
+						COL_THUMBNAIL_URL + " TEXT, " +
+						COL_DURATION + " INTEGER, " +
+						COL_VIEW_COUNT + " INTEGER, " +
+						COL_CHANNEL_NAME + " TEXT " +
 						" )";
 	}
 
@@ -58,4 +84,28 @@ public class SubscriptionsVideosTable {
 				ADD_COLUMN + COL_PUBLISH_TS + " INTEGER",
 		};
 	}
+
+	public static String[] getAddFeedCardColumns() {
+		return new String[]{
+				ADD_COLUMN + COL_TITLE + " TEXT",
+				ADD_COLUMN + COL_THUMBNAIL_URL + " TEXT",
+				ADD_COLUMN + COL_DURATION + " INTEGER",
+				ADD_COLUMN + COL_VIEW_COUNT + " INTEGER",
+				ADD_COLUMN + COL_CHANNEL_NAME + " TEXT",
+		};
+	}
+
+	/**
+	 * @return Statements that create the secondary indexes:  one to look up the videos of a channel
+	 * (covering the video id, so it can be answered from the index alone), and one matching the
+	 * sort order of the feed.
+	 */
+	public static String[] getIndexStatements() {
+		return new String[]{
+				"CREATE INDEX IF NOT EXISTS " + IDX_CHANNEL_ID_PUBLISH_TS + " ON " + TABLE_NAME + " (" +
+						COL_CHANNEL_ID + ", " + COL_PUBLISH_TS + ", " + COL_YOUTUBE_VIDEO_ID + ")",
+				"CREATE INDEX IF NOT EXISTS " + IDX_PUBLISH_TS_VIDEO_ID + " ON " + TABLE_NAME + " (" +
+						COL_PUBLISH_TS + " DESC, " + COL_YOUTUBE_VIDEO_ID + ")"
+		};
+	}
 }
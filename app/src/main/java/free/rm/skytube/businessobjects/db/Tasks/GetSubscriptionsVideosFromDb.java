@@ -23,7 +23,7 @@ import java.util.List;
 
 import free.rm.skytube.businessobjects.YouTube.GetYouTubeVideos;
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
-import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.POJOs.FeedCard;
 import free.rm.skytube.businessobjects.db.SubscriptionsDb;
 
 
@@ -44,12 +44,12 @@ public class GetSubscriptionsVideosFromDb extends GetYouTubeVideos {
 	@Override
 	public synchronized List<CardData> getNextVideos() {
 		if (!noMoreVideoPages()) {
-			List<YouTubeVideo> result = SubscriptionsDb.getSubscriptionsDb().getSubscriptionVideoPage(20, lastVideoId, lastVideoPublishTimestamp);
+			List<FeedCard> result = SubscriptionsDb.getSubscriptionsDb().getSubscriptionVideoPage(20, lastVideoId, lastVideoPublishTimestamp);
 			if (result.isEmpty()) {
 				noMoreVideoPages = true;
 				lastVideoId = null;
 			} else {
-				YouTubeVideo last = result.get(result.size() -1);
+				FeedCard last = result.get(result.size() -1);
 				lastVideoId = last.getId();
 				lastVideoPublishTimestamp = last.getPublishTimestamp();
 			}
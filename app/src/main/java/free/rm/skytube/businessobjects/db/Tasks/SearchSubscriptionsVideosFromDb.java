@@ -0,0 +1,73 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.db.Tasks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import free.rm.skytube.businessobjects.YouTube.GetYouTubeVideos;
+import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
+import free.rm.skytube.businessobjects.YouTube.POJOs.FeedCard;
+import free.rm.skytube.businessobjects.db.SubscriptionsDb;
+
+
+/**
+ * Search the user's subscriptions video feed, as stored in the local database (i.e. works offline).
+ */
+public class SearchSubscriptionsVideosFromDb extends GetYouTubeVideos {
+
+	private String query;
+	private FeedCard lastCard;
+
+	@Override
+	public synchronized void init() throws IOException {
+		noMoreVideoPages = false;
+	}
+
+
+	@Override
+	public synchronized void setQuery(String query) {
+		this.query = query;
+	}
+
+
+	@Override
+	public synchronized List<CardData> getNextVideos() {
+		if (!noMoreVideoPages()) {
+			List<FeedCard> result = SubscriptionsDb.getSubscriptionsDb().searchSubscriptionVideoPage(query, 20, lastCard);
+			if (result.isEmpty()) {
+				noMoreVideoPages = true;
+				lastCard = null;
+			} else {
+				lastCard = result.get(result.size() - 1);
+			}
+
+			return new ArrayList<>(result);
+		}
+
+		return null;
+	}
+
+
+	@Override
+	public synchronized void reset() {
+		super.reset();
+		lastCard = null;
+	}
+}
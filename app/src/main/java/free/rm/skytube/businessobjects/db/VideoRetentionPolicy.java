@@ -0,0 +1,58 @@
+/*
+ * SkyTube
+ * Copyright (C) 2021  Ramon Mifsud
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License).
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package free.rm.skytube.businessobjects.db;
+
+/**
+ * How long, and how many, videos of the subscribed channels are kept in the database - see
+ * {@link SubscriptionsDb#applyVideoRetention(VideoRetentionPolicy, free.rm.skytube.businessobjects.YouTube.newpipe.VideoIdSet, boolean)}.  A limit which is
+ * zero (or less) is not applied.
+ */
+public class VideoRetentionPolicy {
+	private final long maxAgeMillis;
+	private final int maxVideosPerChannel;
+	private final int maxVideos;
+
+	/**
+	 * @param maxAgeMillis          Videos published before this many milliseconds ago are deleted.
+	 * @param maxVideosPerChannel   Only the newest videos of each channel are kept.
+	 * @param maxVideos             Only the newest videos of the whole feed are kept.
+	 */
+	public VideoRetentionPolicy(long maxAgeMillis, int maxVideosPerChannel, int maxVideos) {
+		this.maxAgeMillis = maxAgeMillis;
+		this.maxVideosPerChannel = maxVideosPerChannel;
+		this.maxVideos = maxVideos;
+	}
+
+	public long getMaxAgeMillis() {
+		return maxAgeMillis;
+	}
+
+	public int getMaxVideosPerChannel() {
+		return maxVideosPerChannel;
+	}
+
+	public int getMaxVideos() {
+		return maxVideos;
+	}
+
+	@Override
+	public String toString() {
+		return "VideoRetentionPolicy{maxAgeMillis=" + maxAgeMillis + ", maxVideosPerChannel=" + maxVideosPerChannel +
+				", maxVideos=" + maxVideos + '}';
+	}
+}
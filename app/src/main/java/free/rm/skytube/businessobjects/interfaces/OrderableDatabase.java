@@ -1,6 +1,6 @@
 package free.rm.skytube.businessobjects.interfaces;
 
-import java.util.List;
+import androidx.annotation.Nullable;
 
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
 
@@ -8,5 +8,12 @@ import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
  * An interface to be used by a SQLiteOpenHelperEx database object, indicating that the videos in the database may be reordered.
  */
 public interface OrderableDatabase {
-	void updateOrder(List<CardData> videos);
+	/**
+	 * Called once a video is drag &amp; dropped to a new position (not at every step of the drag).  Only the order of the moved video is
+	 * changed, hence the cost doesn't depend on the length of the list.
+	 *
+	 * @param video The moved video.
+	 * @param previousVideo The video now displayed before it, or null if it's now the first one.
+	 */
+	void moveItem(CardData video, @Nullable CardData previousVideo);
 }
@@ -58,6 +58,7 @@ import free.rm.skytube.businessobjects.TLSSocketFactory;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubePlaylist;
 import free.rm.skytube.businessobjects.YouTube.VideoBlocker;
+import free.rm.skytube.businessobjects.db.DatabaseTasks;
 import free.rm.skytube.businessobjects.db.DownloadedVideosDb;
 import free.rm.skytube.businessobjects.db.SearchHistoryDb;
 import free.rm.skytube.businessobjects.db.SearchHistoryTable;
@@ -86,6 +87,8 @@ public class MainActivity extends BaseActivity {
 
 	/** Set to true of the UpdatesCheckerTask has run; false otherwise. */
 	private static boolean updatesCheckerTaskRan = false;
+	/** Set to true once the one-time database maintenance tasks have been started. */
+	private static boolean databaseMaintenanceRan = false;
 
 	public static final String ACTION_VIEW_CHANNEL = "MainActivity.ViewChannel";
 	public static final String ACTION_VIEW_FEED = "MainActivity.ViewFeed";
@@ -122,6 +125,13 @@ public class MainActivity extends BaseActivity {
 		// Delete any missing downloaded videos
 		new DownloadedVideosDb.RemoveMissingVideosTask().executeInParallel();
 
+		// convert videos stored in the old JSON format, verify the subscriptions state and delete the
+		// old feed videos (one time only)
+		if (!databaseMaintenanceRan) {
+			DatabaseTasks.runDatabaseMaintenance();
+			databaseMaintenanceRan = true;
+		}
+
 		setContentView(R.layout.activity_main);
 
 		// The Extra variant needs to initialize some Fragments that are used for Chromecast control. This is done in onLayoutSet of BaseActivity.
@@ -502,6 +512,8 @@ public class MainActivity extends BaseActivity {
 		SearchVideoGridFragment searchVideoGridFragment = new SearchVideoGridFragment();
 		Bundle bundle = new Bundle();
 		bundle.putString(SearchVideoGridFragment.QUERY, query);
+		// without network, search the videos of the subscriptions feed stored on the device
+		bundle.putBoolean(SearchVideoGridFragment.SEARCH_FEED, !SkyTubeApp.isConnected(this));
 		searchVideoGridFragment.setArguments(bundle);
 		switchToFragment(searchVideoGridFragment, true, SEARCH_FRAGMENT_TAG);
 	}
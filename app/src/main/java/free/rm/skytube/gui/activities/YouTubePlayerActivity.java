@@ -31,6 +31,7 @@ import androidx.fragment.app.FragmentTransaction;
 import free.rm.skytube.R;
 import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubePlaylist;
+import free.rm.skytube.businessobjects.db.PlaybackStatusDb;
 import free.rm.skytube.businessobjects.interfaces.YouTubePlayerActivityListener;
 import free.rm.skytube.businessobjects.interfaces.YouTubePlayerFragmentInterface;
 import free.rm.skytube.gui.businessobjects.fragments.FragmentEx;
@@ -168,6 +169,8 @@ public class YouTubePlayerActivity extends BaseActivity implements YouTubePlayer
 	protected void onStop() {
 		super.onStop();
 		setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_UNSPECIFIED);
+		// the app might be killed in the background:  don't wait for the write-behind delay
+		PlaybackStatusDb.getPlaybackStatusDb().flushPendingWrites();
 	}
 
 
@@ -39,6 +39,7 @@ import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.YouTube.GetCommentThreads;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeComment;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeCommentThread;
+import free.rm.skytube.businessobjects.YouTube.newpipe.CommentPager;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
 import free.rm.skytube.businessobjects.YouTube.newpipe.PagerBackend;
 
@@ -68,7 +69,13 @@ public class CommentsAdapter extends BaseExpandableListAdapter {
 		this.noVideoCommentsView = noVideoCommentsView;
 		this.layoutInflater = LayoutInflater.from(expandableListView.getContext());
 		try {
-			this.commentThreadPager = NewPipeService.isPreferred() ? NewPipeService.get().getCommentPager(videoId) : new GetCommentThreads(videoId);
+			if (NewPipeService.isPreferred()) {
+				CommentPager commentPager = NewPipeService.get().getCommentPager(videoId);
+				commentPager.setReadAhead(SkyTubeApp.getSettings().isPagingReadAheadEnabled());
+				this.commentThreadPager = commentPager;
+			} else {
+				this.commentThreadPager = new GetCommentThreads(videoId);
+			}
 			this.getCommentsTask = new GetCommentsTask();
 			this.getCommentsTask.execute();
 		} catch (Exception e) {
@@ -76,6 +83,15 @@ public class CommentsAdapter extends BaseExpandableListAdapter {
 		}
 	}
 
+	/**
+	 * Stop fetching comments ahead, as they won't be displayed.
+	 */
+	public void onDestroy() {
+		if (commentThreadPager != null) {
+			commentThreadPager.cancelReadAhead();
+		}
+	}
+
 	@Override
 	public int getGroupCount() {
 		return commentThreadsList.size();
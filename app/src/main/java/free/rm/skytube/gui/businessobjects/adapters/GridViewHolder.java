@@ -44,6 +44,7 @@ import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubePlaylist;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.StreamPrefetcher;
 import free.rm.skytube.businessobjects.db.DatabaseTasks;
 import free.rm.skytube.businessobjects.db.DownloadedVideosDb;
 import free.rm.skytube.businessobjects.db.PlaybackStatusDb;
@@ -116,7 +117,8 @@ public class GridViewHolder extends RecyclerView.ViewHolder implements Serializa
 
 		thumbnailImageView.setOnClickListener(thumbnailView -> {
 			if (currentCard instanceof YouTubeVideo) {
-				YouTubePlayer.launch((YouTubeVideo) currentCard, context);
+				compositeDisposable.add(DatabaseTasks.getFullVideo((YouTubeVideo) currentCard)
+						.subscribe(video -> YouTubePlayer.launch(video, context)));
 			} else if (currentCard instanceof YouTubePlaylist) {
 				mainActivityListener.onPlaylistClick((YouTubePlaylist) currentCard);
 			} else if (currentCard instanceof YouTubeChannel) {
@@ -124,6 +126,15 @@ public class GridViewHolder extends RecyclerView.ViewHolder implements Serializa
 			}
 		});
 
+		// a long-press hints that the user is about to play the video
+		thumbnailImageView.setOnLongClickListener(thumbnailView -> {
+			if (currentCard instanceof YouTubeVideo) {
+				StreamPrefetcher.get().prefetch(currentCard.getId(), true);
+				return true;
+			}
+			return false;
+		});
+
 		View.OnClickListener channelOnClickListener = v -> {
 			if(mainActivityListener != null) {
 				if (currentCard instanceof YouTubeVideo) {
@@ -240,7 +251,9 @@ public class GridViewHolder extends RecyclerView.ViewHolder implements Serializa
 
  	private void onOptionsButtonClick(final View view) {
 		if (currentCard instanceof YouTubeVideo) {
-			onOptionsButtonClick(view, (YouTubeVideo) currentCard);
+			// the bookmark, download, ... options need the full video, not just the grid fields
+			compositeDisposable.add(DatabaseTasks.getFullVideo((YouTubeVideo) currentCard)
+					.subscribe(video -> onOptionsButtonClick(view, video)));
 		} else if (currentCard instanceof YouTubeChannel) {
 			onOptionsButtonClick(view, (YouTubeChannel) currentCard);
 		}
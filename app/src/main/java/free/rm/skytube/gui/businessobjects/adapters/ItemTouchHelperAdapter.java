@@ -21,5 +21,13 @@ package free.rm.skytube.gui.businessobjects.adapters;
  * Interface to allow a VideoGridAdapter to be notified when an item is moved in the grid.
  */
 public interface ItemTouchHelperAdapter {
+	/**
+	 * Called at every step of a drag, i.e. many times while the user is still dragging.
+	 */
 	boolean onItemMove(int fromPosition, int toPosition);
+
+	/**
+	 * Called once the user has dropped the dragged item (or released it without moving it).
+	 */
+	void onItemDropped();
 }
@@ -19,6 +19,7 @@ package free.rm.skytube.gui.businessobjects.adapters;
 
 import java.util.Collections;
 
+import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
 import free.rm.skytube.businessobjects.interfaces.OrderableDatabase;
 
 /**
@@ -26,6 +27,8 @@ import free.rm.skytube.businessobjects.interfaces.OrderableDatabase;
  */
 public class OrderableVideoGridAdapter extends VideoGridAdapter implements ItemTouchHelperAdapter {
 	private final OrderableDatabase database;
+	/** The item being dragged, which is only saved at its final position once dropped. */
+	private CardData draggedItem;
 
 	public OrderableVideoGridAdapter(OrderableDatabase database) {
 		this.database = database;
@@ -33,6 +36,9 @@ public class OrderableVideoGridAdapter extends VideoGridAdapter implements ItemT
 
 	@Override
 	public boolean onItemMove(int fromPosition, int toPosition) {
+		if (draggedItem == null) {
+			draggedItem = list.get(fromPosition);
+		}
 		if (fromPosition < toPosition) {
 			for (int i = fromPosition; i < toPosition; i++) {
 				Collections.swap(list, i, i + 1);
@@ -43,10 +49,15 @@ public class OrderableVideoGridAdapter extends VideoGridAdapter implements ItemT
 			}
 		}
 		notifyItemMoved(fromPosition, toPosition);
-
-		if(database != null)
-			database.updateOrder(list);
-
 		return true;
 	}
+
+	@Override
+	public void onItemDropped() {
+		final int position = draggedItem != null ? list.indexOf(draggedItem) : -1;
+		draggedItem = null;
+		if (database != null && position >= 0) {
+			database.moveItem(list.get(position), position > 0 ? list.get(position - 1) : null);
+		}
+	}
 }
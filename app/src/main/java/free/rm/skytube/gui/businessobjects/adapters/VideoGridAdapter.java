@@ -33,6 +33,8 @@ import free.rm.skytube.businessobjects.VideoCategory;
 import free.rm.skytube.businessobjects.YouTube.GetYouTubeVideos;
 import free.rm.skytube.businessobjects.YouTube.POJOs.CardData;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
+import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
+import free.rm.skytube.businessobjects.YouTube.StreamPrefetcher;
 import free.rm.skytube.businessobjects.YouTube.YouTubeTasks;
 import free.rm.skytube.businessobjects.db.PlaybackStatusDb;
 import free.rm.skytube.businessobjects.interfaces.VideoPlayStatusUpdateListener;
@@ -95,6 +97,9 @@ public class VideoGridAdapter extends RecyclerViewAdapterEx<CardData, GridViewHo
 
 	public void onDestroy() {
 		compositeDisposable.clear();
+		if (getYouTubeVideos != null) {
+			getYouTubeVideos.cancelReadAhead();
+		}
 		PlaybackStatusDb.getPlaybackStatusDb().removeListener(this);
 		this.listener = null;
 		this.videoGridUpdated = null;
@@ -135,6 +140,11 @@ public class VideoGridAdapter extends RecyclerViewAdapterEx<CardData, GridViewHo
 			// do not show channel name if the video category == CHANNEL_VIDEOS or PLAYLIST_VIDEOS
 			this.showChannelInfo = !(videoCategory == VideoCategory.CHANNEL_VIDEOS  ||  videoCategory == VideoCategory.PLAYLIST_VIDEOS);
 
+			// release the page read ahead for the previous category
+			if (getYouTubeVideos != null) {
+				getYouTubeVideos.cancelReadAhead();
+			}
+
 			// create a new instance of GetYouTubeVideos
 			this.getYouTubeVideos = videoCategory.createGetYouTubeVideos();
 			this.getYouTubeVideos.init();
@@ -238,6 +248,36 @@ public class VideoGridAdapter extends RecyclerViewAdapterEx<CardData, GridViewHo
 		return currentVideoCategory;
 	}
 
+	/**
+	 * Extract ahead the streams of the videos shown in the given positions (see {@link StreamPrefetcher}).
+	 *
+	 * @param fromPosition	The first position.
+	 * @param count			The number of positions.
+	 */
+	public void prefetchStreams(int fromPosition, int count) {
+		final int toPosition = Math.min(fromPosition + count, getItemCount());
+		for (int position = Math.max(fromPosition, 0); position < toPosition; position++) {
+			final CardData card = get(position);
+			if (card instanceof YouTubeVideo) {
+				StreamPrefetcher.get().prefetch(card.getId());
+			}
+		}
+	}
+
+	/**
+	 * Extract ahead the streams of the first video not fully watched yet, e.g. the next one to play
+	 * in a playlist.
+	 */
+	public void prefetchNextUnwatchedStream() {
+		for (CardData card : getList()) {
+			if (card instanceof YouTubeVideo
+					&& !PlaybackStatusDb.getPlaybackStatusDb().getVideoWatchedStatus(card.getId()).isFullyWatched()) {
+				StreamPrefetcher.get().prefetch(card.getId());
+				return;
+			}
+		}
+	}
+
 	@Override
 	public void onVideoStatusUpdated() {
 		notifyDataSetChanged();
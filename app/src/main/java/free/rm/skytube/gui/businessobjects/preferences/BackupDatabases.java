@@ -25,6 +25,7 @@ import com.google.gson.Gson;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
@@ -40,6 +41,7 @@ import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.db.BookmarksDb;
 import free.rm.skytube.businessobjects.db.ChannelFilteringDb;
 import free.rm.skytube.businessobjects.db.PlaybackStatusDb;
+import free.rm.skytube.businessobjects.db.SQLiteOpenHelperEx;
 import free.rm.skytube.businessobjects.db.SearchHistoryDb;
 import free.rm.skytube.businessobjects.db.SubscriptionsDb;
 
@@ -91,7 +93,8 @@ public class BackupDatabases {
 
 		Gson gson = new Gson();
 
-		// close the databases
+		// write the queued changes, then close the databases
+		flushWrites(subscriptionsDb, bookmarksDb, playbackDb, channelFilteringDb, searchHistoryDb);
 		subscriptionsDb.close();
 		bookmarksDb.close();
 		playbackDb.close();
@@ -112,6 +115,30 @@ public class BackupDatabases {
 	}
 
 
+	private static void flushWrites(SQLiteOpenHelperEx... databases) throws IOException {
+		try {
+			for (SQLiteOpenHelperEx database : databases) {
+				database.flushWrites();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing the databases");
+		}
+	}
+
+
+	private static void shutdownWrites(SQLiteOpenHelperEx... databases) throws IOException {
+		try {
+			for (SQLiteOpenHelperEx database : databases) {
+				database.shutdownWrites();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing the databases");
+		}
+	}
+
+
 	private static Map<String, Object> getImportantKeys() {
 		Map<String, ?> allPreferences = SkyTubeApp.getPreferenceManager().getAll();
 		Map<String, Object> result = new HashMap<>();
@@ -140,13 +167,22 @@ public class BackupDatabases {
 
         File                databasesDirectory = subscriptionsDb.getDatabaseDirectory();
 
-		// close the databases
+		// write the queued changes, and refuse the later ones (until the app is restarted), so that
+		// none of them goes to the imported databases - then close the databases
+		shutdownWrites(subscriptionsDb, bookmarksDb, playbackDb, channelFilteringDb, searchHistoryDb);
 		subscriptionsDb.close();
 		bookmarksDb.close();
 		playbackDb.close();
 		channelFilteringDb.close();
 		searchHistoryDb.close();
 
+		// the logs of the current databases mustn't be applied to the imported ones
+		subscriptionsDb.deleteWriteAheadLog();
+		bookmarksDb.deleteWriteAheadLog();
+		playbackDb.deleteWriteAheadLog();
+		channelFilteringDb.deleteWriteAheadLog();
+		searchHistoryDb.deleteWriteAheadLog();
+
         // extract the databases from the backup zip file
         ZipFile databasesZip = new ZipFile(new File(backupFilePath));
         Map<String, ZipFile.JsonFile> result = databasesZip.unzip(databasesDirectory);
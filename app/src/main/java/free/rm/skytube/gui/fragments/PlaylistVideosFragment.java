@@ -78,6 +78,9 @@ public class PlaylistVideosFragment extends VideosGridFragment {
 				.apply(new RequestOptions().placeholder(R.drawable.banner_default))
 				.into(playlistBannerImageView);
 
+		// the user is likely to play the next video of the playlist
+		videoGridAdapter.setVideoGridUpdated(newVideoListSize -> videoGridAdapter.prefetchNextUnwatchedStream());
+
 		// Force initialization
 		videoGridAdapter.initializeList();
 		return view;
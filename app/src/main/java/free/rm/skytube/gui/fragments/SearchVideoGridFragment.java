@@ -40,10 +40,13 @@ public class SearchVideoGridFragment extends VideosGridFragment {
 
 	/** User's search query string. */
 	private String  searchQuery = "";
+	/** True to search the locally stored subscriptions feed, instead of YouTube. */
+	private boolean searchFeed = false;
 	/** Edit searched query through long press on search query**/
 	private SearchView editSearchView;
 
 	public static final String QUERY = "SearchVideoGridFragment.Query";
+	public static final String SEARCH_FEED = "SearchVideoGridFragment.SearchFeed";
 
 
 	@Override
@@ -52,6 +55,7 @@ public class SearchVideoGridFragment extends VideosGridFragment {
 
 		// set the user's search query
 		searchQuery = getArguments().getString(QUERY);
+		searchFeed = getArguments().getBoolean(SEARCH_FEED, false);
 	}
 
 
@@ -119,7 +123,7 @@ public class SearchVideoGridFragment extends VideosGridFragment {
 
 	@Override
 	protected VideoCategory getVideoCategory() {
-		return VideoCategory.SEARCH_QUERY;
+		return searchFeed ? VideoCategory.SUBSCRIPTIONS_FEED_SEARCH : VideoCategory.SEARCH_QUERY;
 	}
 
 
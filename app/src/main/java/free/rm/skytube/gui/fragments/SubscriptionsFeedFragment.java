@@ -37,6 +37,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.afollestad.materialdialogs.MaterialDialog;
 
@@ -96,6 +98,8 @@ public class SubscriptionsFeedFragment extends VideosGridFragment implements Get
 	private static final String NOTIFICATION_CHANNEL_NAME = "SkyTube";
 	private static final String NOTIFICATION_CHANNEL_ID = "subscriptionChecking";
 	private static final int NOTIFICATION_ID = 1;
+	/** The number of visible videos whose streams are extracted ahead. */
+	private static final int PREFETCHED_VIDEOS = 4;
 
 	private final CompositeDisposable compositeDisposable = new CompositeDisposable();
 
@@ -116,7 +120,10 @@ public class SubscriptionsFeedFragment extends VideosGridFragment implements Get
 	@Override
 	public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
 		View result = super.onCreateView(inflater, container, savedInstanceState);
-		videoGridAdapter.setVideoGridUpdated(this::setupUiAccordingToNumOfSubbedChannels);
+		videoGridAdapter.setVideoGridUpdated(newVideoListSize -> {
+			setupUiAccordingToNumOfSubbedChannels(newVideoListSize);
+			prefetchVisibleVideos();
+		});
 		return result;
 	}
 
@@ -324,6 +331,21 @@ public class SubscriptionsFeedFragment extends VideosGridFragment implements Get
 		}
 	}
 
+	/**
+	 * Extract ahead the streams of the first visible videos, as the user is likely to play one of
+	 * them.
+	 */
+	private void prefetchVisibleVideos() {
+		// once the grid has laid out the new videos
+		gridView.post(() -> {
+			if (videoGridAdapter != null && gridView.getLayoutManager() instanceof LinearLayoutManager) {
+				final int firstVisible = ((LinearLayoutManager) gridView.getLayoutManager()).findFirstVisibleItemPosition();
+				if (firstVisible != RecyclerView.NO_POSITION) {
+					videoGridAdapter.prefetchStreams(firstVisible, PREFETCHED_VIDEOS);
+				}
+			}
+		});
+	}
 
 
 	////////////////////////////////////////////////////////////////////////////////////////////////
@@ -51,6 +51,7 @@ import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
 import free.rm.skytube.businessobjects.YouTube.YouTubeTasks;
 import free.rm.skytube.businessobjects.YouTube.newpipe.ContentId;
+import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
 import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeUtils;
 import free.rm.skytube.businessobjects.db.DatabaseTasks;
 import free.rm.skytube.businessobjects.db.DownloadedVideosDb;
@@ -213,6 +214,9 @@ public class YouTubePlayerV1Fragment extends ImmersiveModeFragment implements Me
 	@Override
 	public void onDestroy() {
 		compositeDisposable.clear();
+		if (commentsAdapter != null) {
+			commentsAdapter.onDestroy();
+		}
 		videoDescSubscribeButton.clearBackgroundTasks();
 		super.onDestroy();
 	}
@@ -234,6 +238,10 @@ public class YouTubePlayerV1Fragment extends ImmersiveModeFragment implements Me
 					what,
 					extra);
 			Log.e(TAG, msg);
+			if (youTubeVideo != null) {
+				// the error doesn't tell whether the stream URL was refused:  extract it again next time
+				NewPipeService.get().getStreamInfoCache().invalidate(youTubeVideo.getId());
+			}
 			return false;
 		});
 
@@ -814,7 +822,7 @@ public class YouTubePlayerV1Fragment extends ImmersiveModeFragment implements Me
 												Linker.setTextAndLinkify(videoDescriptionTextView, youTubeVideo.getDescription());
 
 												StreamSelectionPolicy selectionPolicy = SkyTubeApp.getSettings().getDesiredVideoResolution(false).withAllowVideoOnly(false);
-												StreamSelectionPolicy.StreamSelection selection = selectionPolicy.select(desiredStream);
+												StreamSelectionPolicy.StreamSelection selection = NewPipeService.get().getStreamInfoCache().select(youTubeVideo.getId(), desiredStream, selectionPolicy);
 												if (selection != null) {
 													Uri uri = selection.getVideoStreamUri();
 													Logger.i(YouTubePlayerV1Fragment.this, ">> PLAYING: %s", uri);
@@ -63,6 +63,7 @@ import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.ui.AspectRatioFrameLayout;
 import com.google.android.exoplayer2.ui.PlayerView;
 import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
 
 import org.schabi.newpipe.extractor.StreamingService;
 import org.schabi.newpipe.extractor.stream.StreamInfo;
@@ -83,6 +84,7 @@ import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeChannel;
 import free.rm.skytube.businessobjects.YouTube.POJOs.YouTubeVideo;
 import free.rm.skytube.businessobjects.YouTube.YouTubeTasks;
 import free.rm.skytube.businessobjects.YouTube.newpipe.ContentId;
+import free.rm.skytube.businessobjects.YouTube.newpipe.NewPipeService;
 import free.rm.skytube.businessobjects.db.DatabaseTasks;
 import free.rm.skytube.businessobjects.db.DownloadedVideosDb;
 import free.rm.skytube.businessobjects.db.PlaybackStatusDb;
@@ -316,6 +318,10 @@ public class YouTubePlayerV2Fragment extends ImmersiveModeFragment implements Yo
 					Logger.e(this, ":: onPlayerError " + error.getMessage(), error);
 
 					saveVideoPosition();
+					if (isStreamRefused(error) && youTubeVideo != null) {
+						// the stream URLs are no longer valid:  extract them again next time
+						NewPipeService.get().getStreamInfoCache().invalidate(youTubeVideo.getId());
+					}
 
 					boolean askForDelete = askForDelete(error);
 					String errorMessage = error.getCause().getMessage();
@@ -340,6 +346,12 @@ public class YouTubePlayerV2Fragment extends ImmersiveModeFragment implements Yo
 								}).show();
 				}
 
+				private boolean isStreamRefused(ExoPlaybackException error) {
+					Throwable cause = error.getCause();
+					return cause instanceof HttpDataSource.InvalidResponseCodeException
+							&& ((HttpDataSource.InvalidResponseCodeException) cause).responseCode == 403;
+				}
+
 				private boolean askForDelete(ExoPlaybackException error) {
 					Throwable cause = error.getCause();
 					if (cause instanceof UnrecognizedInputFormatException) {
@@ -497,7 +509,7 @@ public class YouTubePlayerV2Fragment extends ImmersiveModeFragment implements Yo
 										// to crash if not catered for...).
 										if (isVisible()) {
 											StreamSelectionPolicy selectionPolicy = SkyTubeApp.getSettings().getDesiredVideoResolution(false);
-											StreamSelectionPolicy.StreamSelection selection = selectionPolicy.select(desiredStream);
+											StreamSelectionPolicy.StreamSelection selection = NewPipeService.get().getStreamInfoCache().select(video.getId(), desiredStream, selectionPolicy);
 											if (selection != null) {
 												Uri uri = selection.getVideoStreamUri();
 												Logger.i(YouTubePlayerV2Fragment.this, ">> PLAYING: %s, audio: %s", uri, selection.getAudioStreamUri());
@@ -720,6 +732,9 @@ public class YouTubePlayerV2Fragment extends ImmersiveModeFragment implements Yo
 	@Override
 	public void onDestroy() {
 		compositeDisposable.clear();
+		if (commentsAdapter != null) {
+			commentsAdapter.onDestroy();
+		}
 		super.onDestroy();
 		// stop the player from playing (when this fragment is going to be destroyed) and clean up
 		player.stop();
@@ -4,11 +4,13 @@ import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.widget.Toast;
 
+import androidx.annotation.StringRes;
 import androidx.preference.CheckBoxPreference;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 
 import free.rm.skytube.R;
+import free.rm.skytube.app.SkyTubeApp;
 import free.rm.skytube.businessobjects.db.PlaybackStatusDb;
 import free.rm.skytube.businessobjects.db.SearchHistoryDb;
 
@@ -20,8 +22,7 @@ public class PrivacyPreferenceFragment extends PreferenceFragmentCompat
 
 		Preference clearPlaybackStatus = findPreference(getString(R.string.pref_key_clear_playback_status));
 		clearPlaybackStatus.setOnPreferenceClickListener(preference -> {
-			PlaybackStatusDb.getPlaybackStatusDb().deleteAllPlaybackHistory();
-			Toast.makeText(getActivity(), getString(R.string.pref_playback_status_cleared), Toast.LENGTH_LONG).show();
+			deleteAllPlaybackHistory(R.string.pref_playback_status_cleared);
 			return true;
 		});
 	}
@@ -50,9 +51,18 @@ public class PrivacyPreferenceFragment extends PreferenceFragmentCompat
 		} else if (key.equals(getString(R.string.pref_key_disable_playback_status))) {
 			CheckBoxPreference disablePlaybackStatusPreference = findPreference(key);
 			if(disablePlaybackStatusPreference.isChecked()) {
-				PlaybackStatusDb.getPlaybackStatusDb().deleteAllPlaybackHistory();
-				Toast.makeText(getActivity(), getString(R.string.pref_disable_playback_status_deleted), Toast.LENGTH_LONG).show();
+				deleteAllPlaybackHistory(R.string.pref_disable_playback_status_deleted);
 			}
 		}
 	}
+
+	/**
+	 * Delete the playback history in the background, and tell the user once it's done - even if
+	 * they have left the settings meanwhile.
+	 */
+	private void deleteAllPlaybackHistory(@StringRes int deletedMessage) {
+		PlaybackStatusDb.getPlaybackStatusDb().deleteAllPlaybackHistory()
+				.subscribe(() -> Toast.makeText(SkyTubeApp.getContext(), deletedMessage, Toast.LENGTH_LONG).show(),
+						throwable -> Toast.makeText(SkyTubeApp.getContext(), throwable.getMessage(), Toast.LENGTH_LONG).show());
+	}
 }
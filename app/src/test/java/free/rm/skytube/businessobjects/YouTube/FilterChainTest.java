@@ -0,0 +1,240 @@
+package free.rm.skytube.businessobjects.YouTube;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks the compiled rules of the video blocker, against the rules checked as they used to be
+ * (every regex matched for every video, in a fixed order), on 10k cards - and measures both with
+ * -Dbenchmark=true.
+ */
+public class FilterChainTest {
+
+    private static final List<String> PREFERRED_LANGUAGES = Arrays.asList("af", "az", "id", "ms", "bs", "ca", "cs", "da",
+            "de", "et", "en(?:-.+)?", "es", "eu", "fr", "gl", "hr", "it", "lv", "lt", "hu", "nl", "no", "pl", "pt", "ro");
+    private static final String[] VIDEO_LANGUAGES = {"en", "en-US", "fr", "de", "ja", "ko", "ru", "zxx", "", null};
+
+    private static final int CARDS = 10_000;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+    private static final long MINIMUM_VIEWS = 1000;
+
+    private static class Card {
+        final String channelId;
+        final String language;
+        final String title;
+        final long views;
+
+        Card(String channelId, String language, String title, long views) {
+            this.channelId = channelId;
+            this.language = language;
+            this.title = title;
+            this.views = views;
+        }
+    }
+
+    private int detectionCount;
+    private final List<Card> cards = new ArrayList<>(CARDS);
+    private final List<String> blacklistedChannelIdsList = new ArrayList<>();
+    private FilterChain<Card, String> chain;
+
+    @Test
+    void testCheapestRuleFirst() {
+        List<String> checked = new ArrayList<>();
+        FilterChain<String, String> chain = new FilterChain.Builder<String, String>()
+                .add("expensive", 100, item -> { checked.add("expensive"); return null; })
+                .add("cheap", 1, item -> { checked.add("cheap"); return item.equals("blocked") ? "cheap reason" : null; })
+                .add("cheap too", 1, item -> { checked.add("cheap too"); return null; })
+                .build();
+
+        Assertions.assertEquals(Arrays.asList("cheap", "cheap too", "expensive"), chain.getKinds());
+        Assertions.assertNull(chain.check("allowed"));
+        Assertions.assertEquals(Arrays.asList("cheap", "cheap too", "expensive"), checked);
+
+        checked.clear();
+        FilterChain.Blocked<String> blocked = chain.check("blocked");
+        Assertions.assertEquals("cheap", blocked.getKind());
+        Assertions.assertEquals("cheap reason", blocked.getReason());
+        Assertions.assertEquals(Collections.singletonList("cheap"), checked);
+
+        Assertions.assertTrue(new FilterChain.Builder<String, String>().build().isEmpty());
+    }
+
+    @Test
+    void testParallelCheck() throws InterruptedException {
+        FilterChain<Integer, String> chain = new FilterChain.Builder<Integer, String>()
+                .add("odd", 1, item -> item % 2 == 1 ? "odd " + item : null)
+                .build();
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<FilterChain.Blocked<String>> blocked = chain.check(items, executor);
+            Assertions.assertEquals(items.size(), blocked.size());
+            for (int i = 0; i < items.size(); i++) {
+                Assertions.assertEquals(i % 2 == 1 ? "odd " + i : null, blocked.get(i) != null ? blocked.get(i).getReason() : null);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(1, chain.getMaxCost());
+    }
+
+    @Test
+    void testLanguageMatcher() {
+        LanguageMatcher matcher = new LanguageMatcher(PREFERRED_LANGUAGES);
+        for (String language : new String[]{"en", "en-US", "fr", "pt", "ja", "eng", "e", "xfr", "en-"}) {
+            boolean expected = false;
+            for (String preferredLanguage : PREFERRED_LANGUAGES) {
+                expected |= language.matches(preferredLanguage);
+            }
+            Assertions.assertEquals(expected, matcher.matches(language), language);
+            // remembered
+            Assertions.assertEquals(expected, matcher.matches(language), language);
+        }
+        Assertions.assertFalse(matcher.isEmpty());
+        Assertions.assertTrue(new LanguageMatcher(Collections.emptySet()).isEmpty());
+        Assertions.assertTrue(new LanguageMatcher(Collections.emptySet()).matches("ja"));
+    }
+
+    @Test
+    void testFilterAsBefore() {
+        createCards();
+
+        detectionCount = 0;
+        List<Card> expected = filterAsBefore(cards, blacklistedChannelIdsList, MINIMUM_VIEWS);
+        final int detectionCountBefore = detectionCount;
+        detectionCount = 0;
+        Assertions.assertEquals(expected, filter(cards, chain));
+        final int detectionCountCompiled = detectionCount;
+        // only the cards let through by the cheap rules reach the language detection
+        Assertions.assertTrue(detectionCountCompiled < detectionCountBefore,
+                detectionCountCompiled + " detections against " + detectionCountBefore);
+    }
+
+    /**
+     * The mean time per card, filtered by the compiled rules and as before.  Only run with
+     * -Dbenchmark=true, as the timings depend on the machine.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkFilter() {
+        createCards();
+
+        final long beforeNanos = measure(() -> filterAsBefore(cards, blacklistedChannelIdsList, MINIMUM_VIEWS));
+        final long compiledNanos = measure(() -> filter(cards, chain));
+        System.out.printf("filtering %d cards: %d ns per card as before, %d ns per card compiled%n",
+                CARDS, beforeNanos, compiledNanos);
+        Assertions.assertTrue(compiledNanos < beforeNanos, compiledNanos + " ns per card against " + beforeNanos);
+    }
+
+    /**
+     * A tenth of the cards from blacklisted channels, a fifth with few views, and the rules as
+     * VideoBlocker.buildRules compiles them.
+     */
+    private void createCards() {
+        Random random = new Random(42);
+        Set<String> blacklistedChannelIds = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            blacklistedChannelIds.add("UCblocked" + i);
+            blacklistedChannelIdsList.add("UCblocked" + i);
+        }
+        for (int i = 0; i < CARDS; i++) {
+            cards.add(new Card(random.nextInt(10) == 0 ? "UCblocked" + random.nextInt(200) : "UCchannel" + random.nextInt(1000),
+                    VIDEO_LANGUAGES[random.nextInt(VIDEO_LANGUAGES.length)],
+                    "Video title number " + i + " about something",
+                    random.nextInt(5) == 0 ? random.nextInt(1000) : 1000 + random.nextInt(1_000_000)));
+        }
+
+        LanguageMatcher preferredLanguages = new LanguageMatcher(PREFERRED_LANGUAGES);
+        chain = new FilterChain.Builder<Card, String>()
+                .add("CHANNEL_BLACKLIST", 1, card -> blacklistedChannelIds.contains(card.channelId) ? card.channelId : null)
+                .add("VIEWS", 2, card -> card.views < MINIMUM_VIEWS ? String.valueOf(card.views) : null)
+                .add("LANGUAGE", 3, card -> isLanguageBlocked(card.language, preferredLanguages) ? card.language : null)
+                .add("LANGUAGE_DETECTION", 100, card -> detectLanguage(card.title))
+                .build();
+    }
+
+    /**
+     * @return The mean time per card of the measured iterations, once warmed up.
+     */
+    private long measure(Runnable filtering) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            filtering.run();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            filtering.run();
+        }
+        return (System.nanoTime() - start) / ((long) MEASURED_ITERATIONS * CARDS);
+    }
+
+    private List<Card> filter(List<Card> cards, FilterChain<Card, String> chain) {
+        List<Card> filtered = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            if (chain.check(card) == null) {
+                filtered.add(card);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Like VideoBlocker.filter used to:  channel list, language, language detection then views.
+     */
+    private List<Card> filterAsBefore(List<Card> cards, List<String> blacklistedChannelIds, long minimumViews) {
+        List<Card> filtered = new ArrayList<>();
+        for (Card card : cards) {
+            if (!(blacklistedChannelIds.contains(card.channelId)
+                    || isLanguageBlockedAsBefore(card.language)
+                    || detectLanguage(card.title) != null
+                    || card.views < minimumViews)) {
+                filtered.add(card);
+            }
+        }
+        return filtered;
+    }
+
+    private static boolean isLanguageBlocked(String language, LanguageMatcher preferredLanguages) {
+        return language != null && !language.isEmpty() && !language.equalsIgnoreCase("zxx") && !preferredLanguages.matches(language);
+    }
+
+    private static boolean isLanguageBlockedAsBefore(String language) {
+        if (language == null || language.isEmpty() || language.equalsIgnoreCase("zxx")) {
+            return false;
+        }
+        for (String preferredLanguage : PREFERRED_LANGUAGES) {
+            if (language.matches(preferredLanguage)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stands for the language detection:  hashes the trigrams of the title, blocks a few titles.
+     */
+    private String detectLanguage(String title) {
+        detectionCount++;
+        int hash = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i + 3 <= title.length(); i++) {
+                hash = 31 * hash + title.substring(i, i + 3).hashCode();
+            }
+        }
+        return (hash & 15) == 0 ? "[ja]" : null;
+    }
+}
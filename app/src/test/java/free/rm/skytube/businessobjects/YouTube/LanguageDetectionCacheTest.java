@@ -0,0 +1,83 @@
+package free.rm.skytube.businessobjects.YouTube;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class LanguageDetectionCacheTest {
+
+    private static final String DETECTOR_LANGUAGES = "de,en,es,fr,it,nl,pt";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        LanguageDetectionCache cache = new LanguageDetectionCache(2, DETECTOR_LANGUAGES);
+        cache.put("first title", Collections.singletonList("en"));
+        cache.put("second title", Collections.singletonList("fr"));
+        Assertions.assertEquals(Collections.singletonList("en"), cache.get("first title"));
+        cache.put("third title", Arrays.asList("de", "nl"));
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNull(cache.get("second title"));
+        Assertions.assertEquals(Arrays.asList("de", "nl"), cache.get("third title"));
+        Assertions.assertEquals(2, cache.getHitCount());
+        Assertions.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        File file = directory.resolve("languageDetection.cache").toFile();
+        LanguageDetectionCache cache = new LanguageDetectionCache(3, DETECTOR_LANGUAGES);
+        cache.put("oldest title", Collections.singletonList("en"));
+        cache.put("undetected title", Collections.emptyList());
+        cache.put("newest title", Arrays.asList("pt", "es"));
+        Assertions.assertTrue(cache.isDirty());
+        cache.save(file);
+        Assertions.assertFalse(cache.isDirty());
+
+        LanguageDetectionCache loaded = new LanguageDetectionCache(3, DETECTOR_LANGUAGES);
+        loaded.put("title detected meanwhile", Collections.singletonList("it"));
+        loaded.load(file);
+        Assertions.assertFalse(new File(file.getPath() + ".tmp").exists());
+        Assertions.assertEquals(3, loaded.size());
+        // the oldest saved title is dropped first
+        Assertions.assertNull(loaded.get("oldest title"));
+        Assertions.assertEquals(Collections.emptyList(), loaded.get("undetected title"));
+        Assertions.assertEquals(Arrays.asList("pt", "es"), loaded.get("newest title"));
+        Assertions.assertEquals(Collections.singletonList("it"), loaded.get("title detected meanwhile"));
+    }
+
+    @Test
+    void testIgnoresOtherDetectorLanguages() throws IOException {
+        File file = directory.resolve("languageDetection.cache").toFile();
+        LanguageDetectionCache cache = new LanguageDetectionCache(10, DETECTOR_LANGUAGES);
+        cache.put("title", Collections.singletonList("en"));
+        cache.save(file);
+
+        LanguageDetectionCache otherLanguages = new LanguageDetectionCache(10, "en,it,mt");
+        otherLanguages.load(file);
+        Assertions.assertEquals(0, otherLanguages.size());
+    }
+
+    @Test
+    void testIgnoresOtherVersions() throws IOException {
+        File file = directory.resolve("languageDetection.cache").toFile();
+        Files.write(file.toPath(), new byte[]{0, 0, 0, 99, 0, 0, 0, 1});
+        LanguageDetectionCache cache = new LanguageDetectionCache(10, DETECTOR_LANGUAGES);
+        cache.load(file);
+        Assertions.assertEquals(0, cache.size());
+
+        // missing file
+        cache.load(directory.resolve("missing").toFile());
+        Assertions.assertEquals(0, cache.size());
+    }
+}
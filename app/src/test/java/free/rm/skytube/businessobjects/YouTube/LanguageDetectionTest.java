@@ -0,0 +1,87 @@
+package free.rm.skytube.businessobjects.YouTube;
+
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.profiles.BuiltInLanguages;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks the languages loaded by the detector:  only the preferred ones, and the most common ones -
+ * and measures the heap they retain with -Dbenchmark=true.
+ */
+public class LanguageDetectionTest {
+
+    @Test
+    void testSelectLanguages() {
+        List<LdLocale> builtInLanguages = BuiltInLanguages.getLanguages();
+
+        List<LdLocale> selected = LanguageDetection.selectLanguages(new LanguageMatcher(Arrays.asList("mt", "it")));
+        Assertions.assertTrue(selected.contains(LdLocale.fromString("mt")));
+        Assertions.assertTrue(selected.contains(LdLocale.fromString("it")));
+        Assertions.assertTrue(selected.contains(LdLocale.fromString("en")));
+        Assertions.assertTrue(selected.contains(LdLocale.fromString("zh-CN")));
+        Assertions.assertFalse(selected.contains(LdLocale.fromString("nl")));
+        Assertions.assertTrue(selected.size() < builtInLanguages.size() / 2, selected.toString());
+
+        // every language is preferred by default
+        Assertions.assertEquals(builtInLanguages, LanguageDetection.selectLanguages(new LanguageMatcher(Collections.singletonList(".*"))));
+
+        Assertions.assertEquals("en,it,mt", LanguageDetection.getSignature(Arrays.asList(
+                LdLocale.fromString("mt"), LdLocale.fromString("en"), LdLocale.fromString("it"))));
+    }
+
+    @Test
+    void testDetect() throws IOException {
+        LanguageDetection languageDetection = new LanguageDetection(LanguageDetection.selectLanguages(new LanguageMatcher(Arrays.asList("mt", "it"))));
+        Assertions.assertEquals("it", languageDetection.detect("la ricetta della nonna per la pasta fatta in casa").get(0));
+        Assertions.assertEquals("en", languageDetection.detect("how to make fresh pasta at home with your grandmother").get(0));
+    }
+
+    @Test
+    void testLoadedLanguages() throws IOException {
+        // only the profiles of the selected languages are loaded, instead of every built-in one
+        List<LdLocale> selected = LanguageDetection.selectLanguages(new LanguageMatcher(Arrays.asList("mt", "it")));
+        LanguageDetection preferredLanguages = new LanguageDetection(selected);
+        Assertions.assertEquals(selected, preferredLanguages.getLanguages());
+        Assertions.assertTrue(preferredLanguages.getLanguages().size() < BuiltInLanguages.getLanguages().size());
+    }
+
+    /**
+     * The heap retained by the detector of every built-in language, against the one of a few
+     * preferred languages.  Only run with -Dbenchmark=true, as System.gc() is only a hint.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkRetainedHeap() throws IOException, InterruptedException {
+        final long baseline = getUsedHeap();
+        LanguageDetection allLanguages = new LanguageDetection(BuiltInLanguages.getLanguages());
+        final long allLanguagesHeap = getUsedHeap() - baseline;
+        final int allLanguagesCount = allLanguages.getLanguages().size();
+        //noinspection UnusedAssignment
+        allLanguages = null;
+
+        final long subsetBaseline = getUsedHeap();
+        LanguageDetection preferredLanguages = new LanguageDetection(LanguageDetection.selectLanguages(new LanguageMatcher(Arrays.asList("mt", "it"))));
+        final long preferredLanguagesHeap = getUsedHeap() - subsetBaseline;
+
+        System.out.printf("language detector: %d languages retain %d KB, %d languages retain %d KB%n",
+                allLanguagesCount, allLanguagesHeap / 1024, preferredLanguages.getLanguages().size(), preferredLanguagesHeap / 1024);
+        Assertions.assertTrue(preferredLanguagesHeap < allLanguagesHeap);
+    }
+
+    private static long getUsedHeap() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
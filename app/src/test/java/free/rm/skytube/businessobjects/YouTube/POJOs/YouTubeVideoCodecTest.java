@@ -0,0 +1,191 @@
+package free.rm.skytube.businessobjects.YouTube.POJOs;
+
+import com.google.gson.Gson;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class YouTubeVideoCodecTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int BENCHMARK_ROUNDS = 5_000;
+
+    @Test
+    void testRoundTrip() {
+        YouTubeVideo video = createVideo(1);
+        assertSameVideo(video, YouTubeVideoCodec.decode(YouTubeVideoCodec.encode(video)));
+    }
+
+    @Test
+    void testRoundTripWithMissingValues() {
+        YouTubeVideo video = new YouTubeVideo();
+        video.id = "dQw4w9WgXcQ";
+        video.thumbsUpPercentage = -1;
+        YouTubeVideo decoded = YouTubeVideoCodec.decode(YouTubeVideoCodec.encode(video));
+        assertSameVideo(video, decoded);
+        Assertions.assertNull(decoded.getChannel());
+        Assertions.assertNull(decoded.getPublishTimestamp());
+        Assertions.assertNull(decoded.getLikeCountNumber());
+        Assertions.assertNull(decoded.getViewsCountInt());
+    }
+
+    @Test
+    void testHugeViewCount() {
+        YouTubeVideo video = createVideo(2);
+        video.viewsCountInt = BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN);
+        assertSameVideo(video, YouTubeVideoCodec.decode(YouTubeVideoCodec.encode(video)));
+    }
+
+    @Test
+    void testLegacyJson() {
+        YouTubeVideo video = createVideo(3);
+        byte[] json = new Gson().toJson(video).getBytes(StandardCharsets.UTF_8);
+        Assertions.assertTrue(YouTubeVideoCodec.isLegacyJson(json));
+        Assertions.assertFalse(YouTubeVideoCodec.isLegacyJson(YouTubeVideoCodec.encode(video)));
+        assertSameVideo(video, YouTubeVideoCodec.decode(json));
+    }
+
+    @Test
+    void testCardProjection() {
+        YouTubeVideo video = createVideo(5);
+        YouTubeVideo card = YouTubeVideoCodec.decodeCard(YouTubeVideoCodec.encode(video));
+        Assertions.assertNull(card.getDescription());
+        card.setDescription(video.getDescription());
+        assertSameVideo(video, card);
+    }
+
+    @Test
+    void testUnknownVersion() {
+        byte[] blob = YouTubeVideoCodec.encode(createVideo(4));
+        blob[0] = YouTubeVideoCodec.FORMAT_VERSION + 1;
+        Assertions.assertThrows(VideoRecordException.class, () -> YouTubeVideoCodec.decode(blob));
+    }
+
+    @Test
+    void testTruncatedRecord() {
+        byte[] blob = YouTubeVideoCodec.encode(createVideo(6));
+        for (int length = 1; length < blob.length; length++) {
+            byte[] truncated = Arrays.copyOf(blob, length);
+            Assertions.assertThrows(VideoRecordException.class, () -> YouTubeVideoCodec.decode(truncated), "Truncated at " + length);
+        }
+    }
+
+    @Test
+    void testMalformedJson() {
+        byte[] json = "{\"id\": \"dQw4w9WgXcQ\", \"title\": ".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertThrows(VideoRecordException.class, () -> YouTubeVideoCodec.decode(json));
+    }
+
+    /**
+     * Compare the size of a feed page stored as Gson JSON, with the same page stored in the binary
+     * format.
+     */
+    @Test
+    void testPageEncoding() {
+        final Gson gson = new Gson();
+        int jsonSize = 0;
+        int binarySize = 0;
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            YouTubeVideo video = createVideo(i);
+            byte[] binary = YouTubeVideoCodec.encode(video);
+            assertSameVideo(video, YouTubeVideoCodec.decode(binary));
+            jsonSize += gson.toJson(video).getBytes(StandardCharsets.UTF_8).length;
+            binarySize += binary.length;
+        }
+        Assertions.assertTrue(binarySize < jsonSize, "Binary page is " + binarySize + " bytes, JSON is " + jsonSize);
+    }
+
+    /**
+     * Compare the decoding of a feed page stored as Gson JSON, with the same page stored in the
+     * binary format.  Only run with -Dbenchmark=true, as the timings depend on the machine.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPageDecode() {
+        final Gson gson = new Gson();
+        final List<byte[]> jsonPage = new ArrayList<>();
+        final List<byte[]> binaryPage = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            YouTubeVideo video = createVideo(i);
+            jsonPage.add(gson.toJson(video).getBytes(StandardCharsets.UTF_8));
+            binaryPage.add(YouTubeVideoCodec.encode(video));
+        }
+
+        decodePages(jsonPage, WARMUP_ROUNDS);
+        decodePages(binaryPage, WARMUP_ROUNDS);
+        final long jsonNanos = decodePages(jsonPage, BENCHMARK_ROUNDS);
+        final long binaryNanos = decodePages(binaryPage, BENCHMARK_ROUNDS);
+
+        final double speedup = (double) jsonNanos / binaryNanos;
+        System.out.printf("Page decode: json=%d ns, binary=%d ns, speedup=%.1fx%n",
+                jsonNanos / BENCHMARK_ROUNDS, binaryNanos / BENCHMARK_ROUNDS, speedup);
+        Assertions.assertTrue(speedup >= 3, "Binary decoding is only " + speedup + "x faster");
+    }
+
+    private static long decodePages(List<byte[]> page, int rounds) {
+        int checksum = 0;
+        final long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (byte[] blob : page) {
+                checksum += YouTubeVideoCodec.decode(blob).getDurationInSeconds();
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+        Assertions.assertNotEquals(0, checksum);
+        return elapsed;
+    }
+
+    private static YouTubeVideo createVideo(int index) {
+        YouTubeVideo video = new YouTubeVideo();
+        video.id = "vid" + index + "_abcdef";
+        video.title = "A reasonably long video title, number " + index + " \u2013 with some unicode \u00e9\u00e8";
+        video.description = "Description of the video " + index + ", which goes on for a while. Links: https://example.com/" + index;
+        video.thumbnailUrl = "https://i.ytimg.com/vi/vid" + index + "_abcdef/hqdefault.jpg";
+        video.thumbnailMaxResUrl = video.thumbnailUrl;
+        video.publishTimestamp = 1_600_000_000_000L + index * 3_600_000L;
+        video.publishTimestampExact = index % 2 == 0;
+        video.channel = new YouTubeChannel("UC" + index + "channelidchannelid", "Channel " + index);
+        video.likeCountNumber = 1000L + index;
+        video.dislikeCountNumber = 10L + index;
+        video.thumbsUpPercentage = 99;
+        video.duration = "12:3" + index % 10;
+        video.durationInSeconds = 750 + index;
+        video.viewsCount = (100_000 + index) + " views";
+        video.viewsCountInt = BigInteger.valueOf(100_000 + index);
+        video.language = "en";
+        video.retrievalTimestamp = 1_600_000_100_000L + index;
+        return video;
+    }
+
+    private static void assertSameVideo(YouTubeVideo expected, YouTubeVideo actual) {
+        Assertions.assertEquals(expected.getId(), actual.getId());
+        Assertions.assertEquals(expected.getTitle(), actual.getTitle());
+        Assertions.assertEquals(expected.getDescription(), actual.getDescription());
+        Assertions.assertEquals(expected.getThumbnailUrl(), actual.getThumbnailUrl());
+        Assertions.assertEquals(expected.getThumbnailMaxResUrl(), actual.getThumbnailMaxResUrl());
+        Assertions.assertEquals(expected.getPublishTimestamp(), actual.getPublishTimestamp());
+        Assertions.assertEquals(expected.getPublishTimestampExact(), actual.getPublishTimestampExact());
+        Assertions.assertEquals(expected.getLikeCountNumber(), actual.getLikeCountNumber());
+        Assertions.assertEquals(expected.getDislikeCountNumber(), actual.getDislikeCountNumber());
+        Assertions.assertEquals(expected.getThumbsUpPercentage(), actual.getThumbsUpPercentage());
+        Assertions.assertEquals(expected.getDuration(), actual.getDuration());
+        Assertions.assertEquals(expected.getDurationInSeconds(), actual.getDurationInSeconds());
+        Assertions.assertEquals(expected.getViewsCount(), actual.getViewsCount());
+        Assertions.assertEquals(expected.getViewsCountInt(), actual.getViewsCountInt());
+        Assertions.assertEquals(expected.getLanguage(), actual.getLanguage());
+        Assertions.assertEquals(expected.isLiveStream(), actual.isLiveStream());
+        Assertions.assertEquals(expected.getRetrievalTimestamp(), actual.getRetrievalTimestamp());
+        if (expected.getChannel() != null) {
+            Assertions.assertEquals(expected.getChannelId(), actual.getChannelId());
+            Assertions.assertEquals(expected.getChannelName(), actual.getChannelName());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package free.rm.skytube.businessobjects.YouTube;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class StreamPrefetcherTest {
+
+    /** Runs the extractions when the test asks for it. */
+    private static class TestPrefetcher extends StreamPrefetcher {
+        final ArrayDeque<Runnable> tasks;
+        final List<String> extracted = new ArrayList<>();
+        final Set<String> cached = new HashSet<>();
+        boolean allowed = true;
+
+        TestPrefetcher(int maxRunning, int maxPending) {
+            this(maxRunning, maxPending, new ArrayDeque<>());
+        }
+
+        private TestPrefetcher(int maxRunning, int maxPending, ArrayDeque<Runnable> tasks) {
+            super(maxRunning, maxPending, tasks::add);
+            this.tasks = tasks;
+        }
+
+        void runTasks() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+
+        @Override
+        boolean isAllowed() {
+            return allowed;
+        }
+
+        @Override
+        boolean isCached(String videoId) {
+            return cached.contains(videoId);
+        }
+
+        @Override
+        void extract(String videoId) throws IOException {
+            extracted.add(videoId);
+            if (videoId.startsWith("broken")) {
+                throw new IOException("Video unavailable");
+            }
+            cached.add(videoId);
+        }
+    }
+
+    @Test
+    void testConcurrencyBudgetAndOrder() {
+        TestPrefetcher prefetcher = new TestPrefetcher(2, 3);
+        for (String videoId : Arrays.asList("a", "b", "c", "d", "e", "f")) {
+            prefetcher.prefetch(videoId);
+        }
+        // a and b run, c, d and e wait:  f is dropped, then e for the long-pressed video
+        Assertions.assertEquals(2, prefetcher.tasks.size());
+
+        prefetcher.prefetch("long-pressed", true);
+        prefetcher.runTasks();
+        Assertions.assertEquals(Arrays.asList("a", "b", "long-pressed", "c", "d"), prefetcher.extracted);
+        Assertions.assertEquals(5, prefetcher.getPrefetchCount());
+    }
+
+    @Test
+    void testSkipped() {
+        TestPrefetcher prefetcher = new TestPrefetcher(2, 8);
+        prefetcher.cached.add("cached");
+        prefetcher.prefetch("cached");
+        prefetcher.prefetch("broken");
+        prefetcher.prefetch("broken");
+        prefetcher.runTasks();
+        Assertions.assertEquals(Arrays.asList("broken"), prefetcher.extracted);
+        Assertions.assertEquals(1, prefetcher.getFailureCount());
+
+        // on a metered network, without the user's consent
+        prefetcher.allowed = false;
+        prefetcher.prefetch("metered");
+        prefetcher.runTasks();
+        Assertions.assertEquals(Arrays.asList("broken"), prefetcher.extracted);
+    }
+}
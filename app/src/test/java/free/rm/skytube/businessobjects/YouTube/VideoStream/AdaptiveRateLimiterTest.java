@@ -0,0 +1,111 @@
+package free.rm.skytube.businessobjects.YouTube.VideoStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveRateLimiterTest {
+
+    private static final String HOST = "www.youtube.com";
+
+    /**
+     * A clock whose time only moves when the limiter waits.
+     */
+    private static class FakeClock implements AdaptiveRateLimiter.Clock {
+        long now = 1_000_000;
+        long sleptMillis = 0;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long millis) {
+            now += millis;
+            sleptMillis += millis;
+        }
+    }
+
+    @Test
+    void testTokenBucket() throws InterruptedException {
+        FakeClock clock = new FakeClock();
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(50, 1, 50, 5, 100, clock);
+
+        for (int i = 0; i < 30; i++) {
+            limiter.acquire(HOST);
+        }
+        // the first 5 at once, then 50 per second
+        Assertions.assertEquals(500, clock.sleptMillis);
+        Assertions.assertEquals(500, limiter.getThrottledMillis());
+
+        // the hosts have their own buckets
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("i.ytimg.com");
+        }
+        Assertions.assertEquals(500, clock.sleptMillis);
+    }
+
+    @Test
+    void testAdditiveIncreaseMultiplicativeDecrease() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 1, 12, 5, 100);
+        Assertions.assertEquals(10, limiter.getRate(HOST), 0.001);
+
+        limiter.succeeded(HOST);
+        Assertions.assertEquals(10.1, limiter.getRate(HOST), 0.001);
+
+        // the requests throttled together halve the rate once
+        limiter.throttled(HOST, 1, 0);
+        limiter.throttled(HOST, 1, 0);
+        limiter.throttled(HOST, 1, 0);
+        Assertions.assertEquals(5.05, limiter.getRate(HOST), 0.001);
+        Assertions.assertEquals(3, limiter.getThrottleCount());
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.succeeded(HOST);
+        }
+        Assertions.assertEquals(12, limiter.getRate(HOST), 0.001);
+    }
+
+    @Test
+    void testPauseAfterThrottling() throws InterruptedException {
+        FakeClock clock = new FakeClock();
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1000, 1, 1000, 5, 100, clock);
+        limiter.acquire(HOST);
+
+        final long retryDelayMillis = limiter.throttled(HOST, 1, 200);
+        Assertions.assertEquals(200, retryDelayMillis);
+        limiter.acquire(HOST);
+        // the pause, then no burst:  a token at the current rate (halved)
+        Assertions.assertEquals(202, clock.sleptMillis);
+    }
+
+    @Test
+    void testThreadThrottleCount() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 1, 12, 5, 100, new FakeClock());
+        limiter.throttled(HOST, 1, 0);
+
+        Thread other = new Thread(() -> limiter.throttled(HOST, 1, 0));
+        other.start();
+        other.join();
+
+        Assertions.assertEquals(2, limiter.getThrottleCount());
+        Assertions.assertEquals(1, limiter.getThreadThrottleCount());
+    }
+
+    @Test
+    void testRetryDelays() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        for (int i = 0; i < 100; i++) {
+            final long first = limiter.getRetryDelay(1);
+            Assertions.assertTrue(first >= 500 && first <= 1000, first + " ms");
+            final long third = limiter.getRetryDelay(3);
+            Assertions.assertTrue(third >= 2000 && third <= 4000, third + " ms");
+            Assertions.assertTrue(limiter.getRetryDelay(20) <= AdaptiveRateLimiter.MAX_RETRY_DELAY_MILLIS);
+        }
+
+        Assertions.assertEquals(AdaptiveRateLimiter.MAX_RETRY_DELAY_MILLIS, HttpDownloader.getRetryAfterMillis("120"));
+        Assertions.assertEquals(2000, HttpDownloader.getRetryAfterMillis(" 2 "));
+        Assertions.assertEquals(0, HttpDownloader.getRetryAfterMillis("Wed, 21 Oct 2015 07:28:00 GMT"));
+        Assertions.assertEquals(0, HttpDownloader.getRetryAfterMillis(null));
+    }
+}
@@ -0,0 +1,206 @@
+package free.rm.skytube.businessobjects.YouTube.VideoStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.schabi.newpipe.extractor.downloader.Request;
+import org.schabi.newpipe.extractor.downloader.Response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the cached downloader against a local stand-in for YouTube:  a feed with an ETag, a channel
+ * page with a Last-Modified date, and a page without validators.
+ */
+public class HttpCacheTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String LAST_MODIFIED = "Mon, 01 Mar 2021 10:00:00 GMT";
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private String baseUrl;
+    private volatile String feedEtag = "\"v1\"";
+    private volatile String feed = "<feed>first</feed>";
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/feeds", exchange -> {
+            if (feedEtag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified(exchange);
+            } else {
+                exchange.getResponseHeaders().set("ETag", feedEtag);
+                respond(exchange, feed);
+            }
+        });
+        server.createContext("/channel", exchange -> {
+            if (LAST_MODIFIED.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                notModified(exchange);
+            } else {
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                respond(exchange, "channel " + exchange.getRequestURI().getPath());
+            }
+        });
+        server.createContext("/trending", exchange -> respond(exchange, "trending"));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        fullResponses.incrementAndGet();
+        final byte[] content = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(200, content.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(content);
+        }
+    }
+
+    private void notModified(HttpExchange exchange) throws IOException {
+        notModifiedResponses.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    /**
+     * Request classes like the default ones, for the local server, with the given freshness.
+     */
+    private List<HttpCache.RequestClass> requestClasses(long freshnessMillis) {
+        final String server = "http://127\\.0\\.0\\.1:\\d+/";
+        return Arrays.asList(
+                new HttpCache.RequestClass("feed", server + "feeds", freshnessMillis, TimeUnit.MILLISECONDS),
+                new HttpCache.RequestClass("channel", server + "channel/", freshnessMillis, TimeUnit.MILLISECONDS),
+                new HttpCache.RequestClass("trending", server + "trending", freshnessMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private String get(HttpDownloader downloader, String path) throws Exception {
+        final Response response = downloader.execute(Request.newBuilder().get(baseUrl + path).build());
+        Assertions.assertEquals(200, response.responseCode());
+        return response.responseBody();
+    }
+
+    @Test
+    void testFreshResponsesAreNotRequested() throws Exception {
+        HttpCache cache = new HttpCache(directory.toFile(), 1024 * 1024, requestClasses(TimeUnit.HOURS.toMillis(1)));
+        HttpDownloader downloader = new HttpDownloader(cache);
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals("<feed>first</feed>", get(downloader, "/feeds?channel_id=a"));
+            Assertions.assertEquals("trending", get(downloader, "/trending"));
+        }
+        Assertions.assertEquals(2, fullResponses.get());
+        Assertions.assertEquals(2, cache.getMissCount());
+        Assertions.assertEquals(4, cache.getHitCount());
+
+        // a POST is never cached
+        downloader.execute(Request.newBuilder().post(baseUrl + "/trending", new byte[]{1}).build());
+        Assertions.assertEquals(3, fullResponses.get());
+        Assertions.assertEquals(2, cache.getMissCount());
+
+        // the cache survives a restart
+        HttpCache reloaded = new HttpCache(directory.toFile(), 1024 * 1024, requestClasses(TimeUnit.HOURS.toMillis(1)));
+        Assertions.assertEquals("<feed>first</feed>", get(new HttpDownloader(reloaded), "/feeds?channel_id=a"));
+        Assertions.assertEquals(1, reloaded.getHitCount());
+        Assertions.assertEquals(3, fullResponses.get());
+    }
+
+    @Test
+    void testStaleResponsesAreRevalidated() throws Exception {
+        HttpCache cache = new HttpCache(directory.toFile(), 1024 * 1024, requestClasses(0));
+        HttpDownloader downloader = new HttpDownloader(cache);
+        final String feedUrl = baseUrl + "/feeds?channel_id=a";
+
+        Assertions.assertEquals(0, cache.getVersion(feedUrl));
+        Assertions.assertEquals("<feed>first</feed>", get(downloader, "/feeds?channel_id=a"));
+        final long firstVersion = cache.getVersion(feedUrl);
+        Assertions.assertNotEquals(0, firstVersion);
+
+        // with an ETag
+        Thread.sleep(5);
+        Assertions.assertEquals("<feed>first</feed>", get(downloader, "/feeds?channel_id=a"));
+        Assertions.assertEquals(1, notModifiedResponses.get());
+        Assertions.assertEquals(1, cache.getRevalidationCount());
+        Assertions.assertEquals(firstVersion, cache.getVersion(feedUrl));
+
+        // the feed changes
+        feed = "<feed>second</feed>";
+        feedEtag = "\"v2\"";
+        Thread.sleep(5);
+        Assertions.assertEquals("<feed>second</feed>", get(downloader, "/feeds?channel_id=a"));
+        Assertions.assertTrue(cache.getVersion(feedUrl) > firstVersion);
+        Assertions.assertEquals(2, cache.getMissCount());
+
+        // with a Last-Modified date
+        Assertions.assertEquals("channel /channel/b", get(downloader, "/channel/b"));
+        Assertions.assertEquals("channel /channel/b", get(downloader, "/channel/b"));
+        Assertions.assertEquals(2, cache.getRevalidationCount());
+
+        // without validators:  fetched in full
+        get(downloader, "/trending");
+        get(downloader, "/trending");
+        Assertions.assertEquals(5, cache.getMissCount());
+        Assertions.assertEquals(2, notModifiedResponses.get());
+        Assertions.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() throws Exception {
+        HttpCache sizing = new HttpCache(directory.resolve("sizing").toFile(), 1024 * 1024, requestClasses(TimeUnit.HOURS.toMillis(1)));
+        get(new HttpDownloader(sizing), "/channel/10");
+        final long maxBytes = sizing.getSize() * 5;
+
+        HttpCache cache = new HttpCache(directory.resolve("cache").toFile(), maxBytes, requestClasses(TimeUnit.HOURS.toMillis(1)));
+        HttpDownloader downloader = new HttpDownloader(cache);
+        for (int i = 0; i < 20; i++) {
+            get(downloader, "/channel/" + i);
+            // keep the first page in use
+            get(downloader, "/channel/0");
+        }
+        Assertions.assertTrue(cache.getSize() <= maxBytes, cache.getSize() + " bytes");
+        Assertions.assertNotEquals(0, cache.getVersion(baseUrl + "/channel/0"));
+        Assertions.assertNotEquals(0, cache.getVersion(baseUrl + "/channel/19"));
+        Assertions.assertEquals(0, cache.getVersion(baseUrl + "/channel/1"));
+        Assertions.assertEquals(21, fullResponses.get());
+
+        // other URLs are not cached
+        Assertions.assertNull(cache.getRequestClass(baseUrl + "/watch?v=abc"));
+    }
+
+    @Test
+    void testDefaultRequestClasses() {
+        HttpCache cache = new HttpCache(directory.toFile(), 1024);
+        Assertions.assertEquals(TimeUnit.MINUTES.toMillis(15),
+                cache.getRequestClass("https://www.youtube.com/feeds/videos.xml?channel_id=UC123").getFreshnessMillis());
+        Assertions.assertEquals(TimeUnit.MINUTES.toMillis(30),
+                cache.getRequestClass("https://www.youtube.com/feed/trending?gl=GB").getFreshnessMillis());
+        Assertions.assertEquals(TimeUnit.HOURS.toMillis(1),
+                cache.getRequestClass("https://www.youtube.com/channel/UC123/videos?view=0").getFreshnessMillis());
+        Assertions.assertEquals(TimeUnit.HOURS.toMillis(1),
+                cache.getRequestClass("https://www.youtube.com/playlist?list=PL123").getFreshnessMillis());
+        Assertions.assertNull(cache.getRequestClass("https://www.youtube.com/watch?v=abc"));
+        Assertions.assertNull(cache.getRequestClass("https://www.youtube.com/youtubei/v1/browse"));
+    }
+}
@@ -0,0 +1,280 @@
+package free.rm.skytube.businessobjects.YouTube.VideoStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.schabi.newpipe.extractor.downloader.Request;
+import org.schabi.newpipe.extractor.downloader.Response;
+import org.schabi.newpipe.extractor.exceptions.ReCaptchaException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs the downloader against a local stand-in for YouTube, including a feed refresh (many channel
+ * feeds fetched by a few threads) - which is measured against the downloader as it used to be with
+ * -Dbenchmark=true.
+ */
+public class HttpDownloaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private byte[] feed;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final AtomicInteger flakyRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        StringBuilder feedXml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><feed>");
+        for (int i = 0; i < 15; i++) {
+            feedXml.append("<entry><yt:videoId>video").append(i).append("</yt:videoId><title>Vid\u00e9o num\u00e9ro ").append(i)
+                    .append("</title><media:description>").append(new String(new char[3000]).replace('\0', 'x'))
+                    .append("</media:description></entry>");
+        }
+        feed = feedXml.append("</feed>").toString().getBytes(UTF_8);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/feed", exchange -> respond(exchange, 200, feed, "text/xml; charset=UTF-8", 0));
+        server.createContext("/latin1", exchange -> respond(exchange, 200, "caf\u00e9".getBytes(ISO_8859_1), "text/plain;charset=\"ISO-8859-1\"", 0));
+        server.createContext("/slow", exchange -> respond(exchange, 200, "ok".getBytes(UTF_8), "text/plain", 50));
+        server.createContext("/429", exchange -> respond(exchange, 429, "slow down".getBytes(UTF_8), "text/plain", 0));
+        server.createContext("/404", exchange -> respond(exchange, 404, "not found".getBytes(UTF_8), "text/plain", 0));
+        server.createContext("/flaky", exchange -> {
+            if (flakyRequests.incrementAndGet() <= 2) {
+                respond(exchange, 503, "unavailable".getBytes(UTF_8), "text/plain", 0);
+            } else {
+                respond(exchange, 200, "ok".getBytes(UTF_8), "text/plain", 0);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, int code, byte[] body, String contentType, long delayMillis) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        final int concurrent = concurrentRequests.incrementAndGet();
+        maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+        try {
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+            byte[] content = body;
+            final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+                    output.write(body);
+                }
+                content = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(code, content.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(content);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentRequests.decrementAndGet();
+        }
+    }
+
+    @Test
+    void testCompressionAndCharset() throws Exception {
+        HttpDownloader downloader = new HttpDownloader();
+
+        Response response = downloader.execute(Request.newBuilder().get(baseUrl + "/feed").build());
+        Assertions.assertEquals(200, response.responseCode());
+        Assertions.assertEquals(new String(feed, UTF_8), response.responseBody());
+        Assertions.assertTrue(downloader.getReceivedBytes() < downloader.getDecodedBytes() / 5,
+                downloader.getReceivedBytes() + " bytes received for " + downloader.getDecodedBytes());
+
+        Assertions.assertEquals("caf\u00e9", downloader.execute(Request.newBuilder().get(baseUrl + "/latin1").build()).responseBody());
+        Assertions.assertEquals(UTF_8, HttpDownloader.getCharset("text/html"));
+        Assertions.assertEquals(UTF_8, HttpDownloader.getCharset("text/html; charset=unknown-charset"));
+        Assertions.assertEquals(ISO_8859_1, HttpDownloader.getCharset("text/html; Charset=iso-8859-1"));
+    }
+
+    /**
+     * @return A limiter which lets every request through, and retries without waiting long.
+     */
+    private static AdaptiveRateLimiter fastRateLimiter() {
+        return new AdaptiveRateLimiter(10_000, 100, 10_000, 1000, 10);
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        HttpDownloader downloader = new HttpDownloader(HttpDownloader.DEFAULT_MAX_CONNECTIONS_PER_HOST, null, fastRateLimiter());
+        Assertions.assertThrows(ReCaptchaException.class, () -> downloader.execute(Request.newBuilder().get(baseUrl + "/429").build()));
+        Assertions.assertEquals(HttpDownloader.MAX_ATTEMPTS, downloader.getRequestCount());
+        Assertions.assertEquals(HttpDownloader.MAX_ATTEMPTS, downloader.getRateLimiter().getThrottleCount());
+        Assertions.assertThrows(IOException.class, () -> downloader.execute(Request.newBuilder().get(baseUrl + "/404").build()));
+
+        // the connection of the error responses are reused
+        clientPorts.clear();
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertThrows(IOException.class, () -> downloader.execute(Request.newBuilder().get(baseUrl + "/404").build()));
+        }
+        Assertions.assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void testRetries() throws Exception {
+        AdaptiveRateLimiter rateLimiter = fastRateLimiter();
+        HttpDownloader downloader = new HttpDownloader(HttpDownloader.DEFAULT_MAX_CONNECTIONS_PER_HOST, null, rateLimiter);
+
+        Assertions.assertEquals("ok", downloader.execute(Request.newBuilder().get(baseUrl + "/flaky").build()).responseBody());
+        Assertions.assertEquals(3, flakyRequests.get());
+        Assertions.assertEquals(2, rateLimiter.getThrottleCount());
+        Assertions.assertTrue(rateLimiter.getRate("127.0.0.1") < 10_000);
+
+        // the client errors are not retried
+        Assertions.assertThrows(IOException.class, () -> downloader.execute(Request.newBuilder().get(baseUrl + "/404").build()));
+        Assertions.assertEquals(4, downloader.getRequestCount());
+
+        // nor the POST requests, which might have been processed
+        flakyRequests.set(0);
+        Assertions.assertThrows(IOException.class, () -> downloader.execute(Request.newBuilder().post(baseUrl + "/flaky", "data".getBytes(UTF_8)).build()));
+        Assertions.assertEquals(1, flakyRequests.get());
+    }
+
+    @Test
+    void testConnectionsPerHost() throws Exception {
+        HttpDownloader downloader = new HttpDownloader(3, null, fastRateLimiter());
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                responses.add(executor.submit(() -> downloader.execute(Request.newBuilder().get(baseUrl + "/slow").build())));
+            }
+            for (Future<Response> response : responses) {
+                Assertions.assertEquals("ok", response.get().responseBody());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(maxConcurrentRequests.get() <= 3, maxConcurrentRequests + " concurrent requests");
+        Assertions.assertTrue(clientPorts.size() <= 3, clientPorts.size() + " connections");
+    }
+
+    /**
+     * A feed refresh over 300 channels on 4 threads, as YouTubeTasks.getBulkSubscriptionVideos does.
+     */
+    @Test
+    void testFeedRefresh() throws Exception {
+        final int channels = 300;
+        final String url = baseUrl + "/feed";
+
+        HttpDownloader downloader = new HttpDownloader(HttpDownloader.DEFAULT_MAX_CONNECTIONS_PER_HOST, null, fastRateLimiter());
+        refresh(channels, () -> downloader.execute(Request.newBuilder().get(url).build()).responseBody());
+        Assertions.assertTrue(downloader.getReceivedBytes() < channels * (long) feed.length / 5);
+        Assertions.assertTrue(clientPorts.size() <= HttpDownloader.DEFAULT_MAX_CONNECTIONS_PER_HOST, clientPorts.size() + " connections");
+    }
+
+    /**
+     * The same feed refresh, timed against the downloader as it used to be.  Only run with
+     * -Dbenchmark=true, as the timings depend on the machine.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkFeedRefresh() throws Exception {
+        final int channels = 300;
+        final String url = baseUrl + "/feed";
+
+        // warm up both
+        refresh(channels / 10, () -> downloadAsBefore(url));
+        HttpDownloader downloader = new HttpDownloader(HttpDownloader.DEFAULT_MAX_CONNECTIONS_PER_HOST, null, fastRateLimiter());
+        refresh(channels / 10, () -> downloader.execute(Request.newBuilder().get(url).build()).responseBody());
+
+        clientPorts.clear();
+        final long beforeMillis = refresh(channels, () -> downloadAsBefore(url));
+        final int beforeConnections = clientPorts.size();
+
+        clientPorts.clear();
+        HttpDownloader measured = new HttpDownloader(HttpDownloader.DEFAULT_MAX_CONNECTIONS_PER_HOST, null, fastRateLimiter());
+        final long pooledMillis = refresh(channels, () -> measured.execute(Request.newBuilder().get(url).build()).responseBody());
+        final int pooledConnections = clientPorts.size();
+
+        System.out.printf("refreshing %d feeds: as before %d ms, %d KB transferred, %d connections; pooled %d ms, %d KB transferred, %d connections%n",
+                channels, beforeMillis, channels * feed.length / 1024, beforeConnections,
+                pooledMillis, measured.getReceivedBytes() / 1024, pooledConnections);
+        Assertions.assertTrue(measured.getReceivedBytes() < channels * (long) feed.length / 5);
+        Assertions.assertTrue(pooledConnections <= HttpDownloader.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+
+    private interface Download {
+        String download() throws Exception;
+    }
+
+    /**
+     * @return The time taken to download the feed of every channel, on 4 threads.
+     */
+    private long refresh(int channels, Download download) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final long start = System.nanoTime();
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < channels; i++) {
+                responses.add(executor.submit(download::download));
+            }
+            for (Future<String> response : responses) {
+                Assertions.assertEquals(new String(feed, UTF_8), response.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Like HttpDownloader.execute used to:  no compression, and a char buffer (with the right charset here, to compare the bodies).
+     */
+    private String downloadAsBefore(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestProperty("Accept-Language", "en");
+        try (InputStreamReader input = new InputStreamReader(connection.getInputStream(), UTF_8)) {
+            final StringBuilder response = new StringBuilder();
+            int readCount;
+            char[] buffer = new char[32 * 1024];
+            while ((readCount = input.read(buffer)) != -1) {
+                response.append(buffer, 0, readCount);
+            }
+            return response.toString();
+        }
+    }
+}
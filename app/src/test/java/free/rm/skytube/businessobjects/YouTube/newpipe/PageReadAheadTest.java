@@ -0,0 +1,83 @@
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PageReadAheadTest {
+
+    private static final int ITEMS_IN_BUDGET = (int) (PageReadAhead.MEMORY_BUDGET_BYTES / PageReadAhead.ESTIMATED_ITEM_BYTES);
+
+    @Test
+    void testMemoryBudget() throws Exception {
+        final Object page = new Object();
+        final CountDownLatch fetching = new CountDownLatch(1);
+        PageReadAhead<String> first = PageReadAhead.start(page, ITEMS_IN_BUDGET / 2, () -> {
+            fetching.await();
+            return "first";
+        });
+        PageReadAhead<String> second = PageReadAhead.start(new Object(), ITEMS_IN_BUDGET / 2, () -> {
+            fetching.await();
+            return "second";
+        });
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertTrue(first.isFor(page));
+
+        // over the budget
+        Assertions.assertNull(PageReadAhead.start(new Object(), 1, () -> "third"));
+
+        // released once fetched, or cancelled
+        fetching.countDown();
+        Assertions.assertEquals("first", first.get());
+        second.cancel();
+        second.cancel();
+        Assertions.assertEquals(0, PageReadAhead.getReservedBytes());
+    }
+
+    /**
+     * A pager dropped without cancelling its read-ahead doesn't keep the memory budget.
+     */
+    @Test
+    void testReleasedOnceFetched() throws Exception {
+        final CountDownLatch fetched = new CountDownLatch(1);
+        Assertions.assertNotNull(PageReadAhead.start(new Object(), ITEMS_IN_BUDGET, () -> {
+            fetched.countDown();
+            return "never requested";
+        }));
+        Assertions.assertTrue(fetched.await(5, TimeUnit.SECONDS));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (PageReadAhead.getReservedBytes() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, PageReadAhead.getReservedBytes());
+        Assertions.assertNotNull(PageReadAhead.start(new Object(), ITEMS_IN_BUDGET, () -> "next").get());
+    }
+
+    @Test
+    void testFailureAndCancel() throws Exception {
+        PageReadAhead<String> failed = PageReadAhead.start(new Object(), 20, () -> {
+            throw new IOException("HTTP 500");
+        });
+        Assertions.assertThrows(IOException.class, failed::get);
+
+        CountDownLatch interrupted = new CountDownLatch(1);
+        PageReadAhead<String> slow = PageReadAhead.start(new Object(), 20, () -> {
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "too late";
+        });
+        // let the fetch start
+        Thread.sleep(50);
+        slow.cancel();
+        Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, PageReadAhead.getReservedBytes());
+    }
+}
@@ -0,0 +1,119 @@
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareOneCall() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("video", () -> {
+                    fetches.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new Object();
+                })));
+            }
+            // let every caller join the call before it is over
+            while (singleFlight.getSharedCount() + singleFlight.getCallCount() < 8) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            final Object first = results.get(0).get();
+            for (Future<Object> result : results) {
+                Assertions.assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(1, fetches.get());
+        Assertions.assertEquals(1, singleFlight.getCallCount());
+        Assertions.assertEquals(7, singleFlight.getSharedCount());
+
+        // nothing is cached once the call is over
+        Assertions.assertNotNull(singleFlight.execute("video", Object::new));
+        Assertions.assertEquals(2, singleFlight.getCallCount());
+    }
+
+    @Test
+    void testConcurrentCallersGetTheirOwnCopy() throws Exception {
+        SingleFlight<String, List<String>> singleFlight = new SingleFlight<>(ArrayList::new);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("channel", () -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    List<String> videos = new ArrayList<>();
+                    videos.add("video");
+                    return videos;
+                })));
+            }
+            while (singleFlight.getSharedCount() + singleFlight.getCallCount() < 4) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            // a caller modifying its result doesn't change the others'
+            results.get(0).get().add("added by the first caller");
+            for (int i = 1; i < results.size(); i++) {
+                Assertions.assertEquals(Collections.singletonList("video"), results.get(i).get());
+                Assertions.assertNotSame(results.get(0).get(), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(1, singleFlight.getCallCount());
+    }
+
+    @Test
+    void testFailureIsShared() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("channel", () -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                throw new IOException("404 Not Found");
+            }));
+            started.await();
+            Future<String> follower = executor.submit(() -> singleFlight.<IOException>execute("channel", () -> "never called"));
+            while (singleFlight.getSharedCount() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            ExecutionException leaderFailure = Assertions.assertThrows(ExecutionException.class, leader::get);
+            ExecutionException followerFailure = Assertions.assertThrows(ExecutionException.class, follower::get);
+            Assertions.assertTrue(followerFailure.getCause() instanceof IOException);
+            Assertions.assertSame(leaderFailure.getCause(), followerFailure.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        // other keys are independent
+        Assertions.assertEquals("other", singleFlight.execute("other channel", () -> "other"));
+    }
+}
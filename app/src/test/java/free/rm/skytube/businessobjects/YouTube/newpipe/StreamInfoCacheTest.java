@@ -0,0 +1,106 @@
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.schabi.newpipe.extractor.MediaFormat;
+import org.schabi.newpipe.extractor.stream.AudioStream;
+import org.schabi.newpipe.extractor.stream.StreamInfo;
+import org.schabi.newpipe.extractor.stream.StreamType;
+import org.schabi.newpipe.extractor.stream.VideoStream;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import free.rm.skytube.app.StreamSelectionPolicy;
+import free.rm.skytube.businessobjects.YouTube.VideoStream.VideoQuality;
+import free.rm.skytube.businessobjects.YouTube.VideoStream.VideoResolution;
+
+public class StreamInfoCacheTest {
+
+    private static final long NOW = TimeUnit.SECONDS.toMillis(1_617_880_000L);
+
+    private static String streamUrl(long expireSeconds) {
+        return "https://r3---sn-4g5e6nsz.googlevideo.com/videoplayback?expire=" + expireSeconds + "&ei=abc&itag=22";
+    }
+
+    private static StreamInfo createStreamInfo(String videoUrl, String audioUrl) {
+        StreamInfo streamInfo = new StreamInfo(0, "url", "originalUrl", StreamType.VIDEO_STREAM, "id", "name", -1);
+        streamInfo.setVideoStreams(Collections.singletonList(new VideoStream(videoUrl, MediaFormat.MPEG_4, "720P")));
+        streamInfo.setVideoOnlyStreams(Collections.emptyList());
+        streamInfo.setAudioStreams(Collections.singletonList(new AudioStream(audioUrl, MediaFormat.M4A, 128)));
+        return streamInfo;
+    }
+
+    @Test
+    void testExpiryFromStreamUrls() {
+        final long sixHours = TimeUnit.HOURS.toSeconds(6);
+        final long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(NOW);
+        StreamInfo streamInfo = createStreamInfo(streamUrl(nowSeconds + sixHours), streamUrl(nowSeconds + sixHours - 60));
+        // the first URL to expire
+        Assertions.assertEquals(TimeUnit.SECONDS.toMillis(nowSeconds + sixHours - 60) - StreamInfoCache.EXPIRY_MARGIN_MILLIS,
+                StreamInfoCache.getExpiry(streamInfo, NOW));
+
+        // without expiry dates
+        Assertions.assertEquals(NOW + StreamInfoCache.DEFAULT_TTL_MILLIS,
+                StreamInfoCache.getExpiry(createStreamInfo("https://example.com/video", "https://example.com/audio"), NOW));
+
+        Assertions.assertEquals(TimeUnit.SECONDS.toMillis(1617900000L),
+                StreamInfoCache.getExpiry("https://manifest.googlevideo.com/api/manifest/hls_variant/expire/1617900000/ei/abc/file/index.m3u8"));
+        Assertions.assertEquals(Long.MAX_VALUE, StreamInfoCache.getExpiry("https://example.com/video?notexpire=1"));
+    }
+
+    @Test
+    void testGetUntilExpiry() {
+        StreamInfoCache cache = new StreamInfoCache(10);
+        final long expireSeconds = TimeUnit.MILLISECONDS.toSeconds(NOW) + TimeUnit.HOURS.toSeconds(1);
+        StreamInfo streamInfo = createStreamInfo(streamUrl(expireSeconds), streamUrl(expireSeconds));
+        cache.put("video", streamInfo, NOW);
+
+        Assertions.assertSame(streamInfo, cache.get("video", NOW + TimeUnit.MINUTES.toMillis(45)));
+        Assertions.assertNull(cache.get("video", NOW + TimeUnit.MINUTES.toMillis(55)));
+        // dropped once expired
+        Assertions.assertNull(cache.get("video", NOW));
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+
+        // about to expire:  not cached
+        final long soonSeconds = TimeUnit.MILLISECONDS.toSeconds(NOW) + 60;
+        cache.put("other video", createStreamInfo(streamUrl(soonSeconds), streamUrl(soonSeconds)), NOW);
+        Assertions.assertNull(cache.get("other video", NOW));
+    }
+
+    @Test
+    void testInvalidateAndEviction() {
+        StreamInfoCache cache = new StreamInfoCache(2);
+        final long expireSeconds = TimeUnit.MILLISECONDS.toSeconds(NOW) + TimeUnit.HOURS.toSeconds(6);
+        for (String videoId : Arrays.asList("first", "second", "third")) {
+            cache.put(videoId, createStreamInfo(streamUrl(expireSeconds), streamUrl(expireSeconds)), NOW);
+        }
+        Assertions.assertNull(cache.get("first", NOW));
+        Assertions.assertNotNull(cache.get("second", NOW));
+
+        Assertions.assertTrue(cache.invalidate("second"));
+        Assertions.assertFalse(cache.invalidate("second"));
+        Assertions.assertNull(cache.get("second", NOW));
+        Assertions.assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    void testSelectionIsCached() {
+        StreamInfoCache cache = new StreamInfoCache(10);
+        final long expireSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + TimeUnit.HOURS.toSeconds(6);
+        StreamInfo streamInfo = createStreamInfo(streamUrl(expireSeconds), streamUrl(expireSeconds));
+        cache.put("video", streamInfo);
+
+        StreamSelectionPolicy policy = new StreamSelectionPolicy(false, VideoResolution.RES_1080P, VideoResolution.RES_144P, VideoQuality.BEST_QUALITY);
+        StreamSelectionPolicy.StreamSelection selection = cache.select("video", streamInfo, policy);
+        Assertions.assertNotNull(selection);
+        Assertions.assertSame(selection, cache.select("video", streamInfo,
+                new StreamSelectionPolicy(false, VideoResolution.RES_1080P, VideoResolution.RES_144P, VideoQuality.BEST_QUALITY)));
+
+        // another policy, or another stream info, is selected again
+        Assertions.assertNotSame(selection, cache.select("video", streamInfo, policy.withAllowVideoOnly(true)));
+        Assertions.assertNotSame(selection, cache.select("video", createStreamInfo(streamUrl(expireSeconds), streamUrl(expireSeconds)), policy));
+    }
+}
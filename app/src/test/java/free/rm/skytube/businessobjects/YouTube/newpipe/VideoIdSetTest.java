@@ -0,0 +1,153 @@
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks that the {@link VideoIdSet} holds the same ids as a HashSet of Strings, for about as many
+ * ids as a large subscriptions feed holds - and compares their memory and lookup throughput with
+ * -Dbenchmark=true.
+ */
+public class VideoIdSetTest {
+
+    private static final int IDS = 100_000;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void testSameAsHashSet() {
+        final String[] ids = loadIds();
+        final Set<String> strings = new HashSet<>();
+        final VideoIdSet packed = new VideoIdSet();
+        for (int i = 0; i < ids.length; i += 2) {
+            Assertions.assertEquals(strings.add(ids[i]), packed.add(ids[i]));
+        }
+        Assertions.assertEquals(strings.size(), packed.size());
+
+        // look up every id (half of them are hits) - as fresh Strings, like the ids from the network
+        // or the database
+        final String[] lookups = copy(ids);
+        Assertions.assertEquals(IDS / 2, lookUp(strings, lookups));
+        for (String id : lookups) {
+            Assertions.assertEquals(strings.contains(id), packed.contains(id), id);
+        }
+    }
+
+    /**
+     * Only run with -Dbenchmark=true, as System.gc() is only a hint.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkMemory() {
+        final String[] ids = loadIds();
+
+        long before = usedMemory();
+        final VideoIdSet packed = new VideoIdSet();
+        for (String id : ids) {
+            // as read from the database:  a String per id
+            packed.add(new String(id.toCharArray()));
+        }
+        final long packedBytes = usedMemory() - before;
+
+        before = usedMemory();
+        final Set<String> strings = new HashSet<>();
+        for (String id : ids) {
+            strings.add(new String(id.toCharArray()));
+        }
+        final long stringsBytes = usedMemory() - before;
+
+        System.out.printf("%d ids: HashSet<String> %d KB, VideoIdSet %d KB%n", IDS, stringsBytes / 1024, packedBytes / 1024);
+        Assertions.assertEquals(strings.size(), packed.size());
+        Assertions.assertTrue(packedBytes < stringsBytes, "VideoIdSet takes " + packedBytes + " bytes, HashSet<String> " + stringsBytes);
+    }
+
+    /**
+     * Only run with -Dbenchmark=true, as the timings depend on the machine.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkThroughput() {
+        final String[] ids = loadIds();
+        final Set<String> strings = new HashSet<>();
+        final VideoIdSet packed = new VideoIdSet();
+        for (int i = 0; i < ids.length; i += 2) {
+            strings.add(ids[i]);
+            packed.add(ids[i]);
+        }
+
+        // warm up, then time the lookups of every id (half of them are hits) - as fresh Strings, like
+        // the ids from the network or the database, whose hash code isn't cached yet
+        int stringsHits = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            stringsHits += lookUp(strings, copy(ids)) + lookUp(packed, copy(ids));
+        }
+        long stringsNanos = 0;
+        long packedNanos = 0;
+        int packedHits = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            String[] lookups = copy(ids);
+            long start = System.nanoTime();
+            stringsHits = lookUp(strings, lookups);
+            stringsNanos += System.nanoTime() - start;
+
+            lookups = copy(ids);
+            start = System.nanoTime();
+            packedHits = lookUp(packed, lookups);
+            packedNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("%d lookups: HashSet<String> %d ns/op, VideoIdSet %d ns/op%n", IDS * ROUNDS,
+                stringsNanos / (IDS * ROUNDS), packedNanos / (IDS * ROUNDS));
+        Assertions.assertEquals(IDS / 2, stringsHits);
+        Assertions.assertEquals(stringsHits, packedHits);
+    }
+
+    private static int lookUp(Set<String> set, String[] ids) {
+        int hits = 0;
+        for (String id : ids) {
+            if (set.contains(id)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static int lookUp(VideoIdSet set, String[] ids) {
+        int hits = 0;
+        for (String id : ids) {
+            if (set.contains(id)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static String[] copy(String[] ids) {
+        final String[] copy = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            copy[i] = new String(ids[i].toCharArray());
+        }
+        return copy;
+    }
+
+    private static String[] loadIds() {
+        final Random random = new Random(1);
+        final Set<String> unique = new HashSet<>();
+        while (unique.size() < IDS) {
+            unique.add(VideoIdTest.randomId(random));
+        }
+        return unique.toArray(new String[0]);
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
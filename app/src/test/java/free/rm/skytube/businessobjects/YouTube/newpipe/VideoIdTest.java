@@ -0,0 +1,103 @@
+package free.rm.skytube.businessobjects.YouTube.newpipe;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class VideoIdTest {
+
+    @Test
+    void testPackUnpack() {
+        for (String id : new String[] { "dQw4w9WgXcQ", "AAAAAAAAAAA", "__________w", "-_-_-_-_-_A" }) {
+            Assertions.assertTrue(VideoId.isPackable(id), id);
+            Assertions.assertEquals(id, VideoId.unpack(VideoId.pack(id)));
+        }
+        Assertions.assertEquals(0, VideoId.pack("AAAAAAAAAAA"));
+        Assertions.assertNotEquals(VideoId.pack("dQw4w9WgXcQ"), VideoId.pack("dQw4w9WgXcA"));
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final String id = randomId(random);
+            Assertions.assertEquals(id, VideoId.unpack(VideoId.pack(id)));
+        }
+    }
+
+    @Test
+    void testNotPackable() {
+        for (String id : new String[] { null, "", "dQw4w9WgXc", "dQw4w9WgXcQQ", "dQw4w9WgX+Q", "dQw4w9WgXéQ", "dQw4w9WgXcB" }) {
+            Assertions.assertFalse(VideoId.isPackable(id), id);
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> VideoId.pack("PLx0sYbCqOb8TBPRdmBHs5Iftvv9TPboYG"));
+    }
+
+    @Test
+    void testVideoIdSet() {
+        final VideoIdSet set = new VideoIdSet();
+        Assertions.assertTrue(set.isEmpty());
+        Assertions.assertTrue(set.add("dQw4w9WgXcQ"));
+        Assertions.assertFalse(set.add("dQw4w9WgXcQ"));
+        // packed in 0
+        Assertions.assertTrue(set.add("AAAAAAAAAAA"));
+        Assertions.assertFalse(set.add("AAAAAAAAAAA"));
+        // kept as a String
+        Assertions.assertTrue(set.add("not-a-youtube-id"));
+        Assertions.assertFalse(set.add("not-a-youtube-id"));
+
+        Assertions.assertEquals(3, set.size());
+        Assertions.assertTrue(set.contains("dQw4w9WgXcQ"));
+        Assertions.assertTrue(set.contains("AAAAAAAAAAA"));
+        Assertions.assertTrue(set.contains("not-a-youtube-id"));
+        Assertions.assertFalse(set.contains("dQw4w9WgXcA"));
+        Assertions.assertFalse(set.contains("other-id"));
+    }
+
+    @Test
+    void testGrowth() {
+        final Random random = new Random(7);
+        final LongHashSet set = new LongHashSet();
+        final LongLongHashMap map = new LongLongHashMap();
+        final long[] values = new long[5_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong();
+            Assertions.assertTrue(set.add(values[i]));
+            map.put(values[i], i);
+        }
+        Assertions.assertEquals(values.length, set.size());
+        Assertions.assertEquals(values.length, map.size());
+        for (int i = 0; i < values.length; i++) {
+            Assertions.assertTrue(set.contains(values[i]));
+            Assertions.assertEquals(i, map.get(values[i], -1));
+        }
+        Assertions.assertFalse(set.contains(0));
+        Assertions.assertEquals(-1, map.get(0, -1));
+    }
+
+    @Test
+    void testVideoIdLongMap() {
+        final VideoIdLongMap map = new VideoIdLongMap();
+        map.put("dQw4w9WgXcQ", 1000L);
+        map.put("AAAAAAAAAAA", 0L);
+        map.put("not-a-youtube-id", 2000L);
+        map.put("dQw4w9WgXcQ", 3000L);
+
+        Assertions.assertEquals(3, map.size());
+        Assertions.assertEquals(3000L, map.get("dQw4w9WgXcQ", -1));
+        Assertions.assertEquals(0L, map.get("AAAAAAAAAAA", -1));
+        Assertions.assertEquals(2000L, map.get("not-a-youtube-id", -1));
+        Assertions.assertEquals(-1, map.get("dQw4w9WgXcA", -1));
+        Assertions.assertTrue(map.containsKey("AAAAAAAAAAA"));
+        Assertions.assertFalse(map.containsKey("other-id"));
+    }
+
+    static String randomId(Random random) {
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        final char[] id = new char[VideoId.LENGTH];
+        for (int i = 0; i < id.length - 1; i++) {
+            id[i] = alphabet.charAt(random.nextInt(64));
+        }
+        // only 4 bits left for the last character
+        id[id.length - 1] = alphabet.charAt(random.nextInt(16) * 4);
+        return new String(id);
+    }
+}
@@ -0,0 +1,214 @@
+package free.rm.skytube.businessobjects.db;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the cache in front of the playback history, including the preload of a page of grid cards
+ * out of a history of 100k videos - whose lookups are measured with -Dbenchmark=true.
+ */
+public class BatchLoadingCacheTest {
+
+    private static final String ABSENT = "absent";
+    private static final int HISTORY_SIZE = 100_000;
+    private static final int PAGE_SIZE = 20;
+
+    private final List<List<String>> loads = new ArrayList<>();
+    private final Map<String, String> rows = new HashMap<>();
+
+    private BatchLoadingCache<String> createCache(int maxSize, int batchSize) {
+        return new BatchLoadingCache<>(keys -> {
+            loads.add(new ArrayList<>(keys));
+            Map<String, String> found = new HashMap<>();
+            for (String key : keys) {
+                if (rows.containsKey(key)) {
+                    found.put(key, rows.get(key));
+                }
+            }
+            return found;
+        }, ABSENT, maxSize, batchSize);
+    }
+
+    @Test
+    void testLoadsOnceAndCachesAbsentKeys() {
+        rows.put("a", "A");
+        BatchLoadingCache<String> cache = createCache(10, 10);
+        Assertions.assertEquals("A", cache.get("a"));
+        Assertions.assertEquals(ABSENT, cache.get("b"));
+        Assertions.assertEquals("A", cache.get("a"));
+        Assertions.assertEquals(ABSENT, cache.get("b"));
+        Assertions.assertEquals(2, loads.size());
+        Assertions.assertEquals(2, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testPreloadInBatches() {
+        BatchLoadingCache<String> cache = createCache(10, 2);
+        cache.get("a");
+        cache.preload(Arrays.asList("a", "b", "c", "b", "d", null));
+        Assertions.assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b", "c"), Arrays.asList("d")), loads);
+        cache.get("d");
+        Assertions.assertEquals(3, loads.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        BatchLoadingCache<String> cache = createCache(2, 10);
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+        Assertions.assertEquals(2, cache.size());
+        loads.clear();
+        cache.get("a");
+        cache.get("b");
+        Assertions.assertEquals(Arrays.asList(Arrays.asList("b")), loads);
+    }
+
+    @Test
+    void testPutWins() {
+        rows.put("a", "old");
+        BatchLoadingCache<String> cache = createCache(10, 10);
+        cache.put("a", "new");
+        cache.preload(Arrays.asList("a"));
+        Assertions.assertEquals("new", cache.get("a"));
+        Assertions.assertTrue(loads.isEmpty());
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals("old", cache.get("a"));
+    }
+
+    /**
+     * The page of cards about to be bound is loaded by one query, out of a large history, and then
+     * bound without querying the database.
+     */
+    @Test
+    void testPreloadPage() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            createHistory(connection);
+            BatchLoadingCache<long[]> cache = createStatusCache(connection);
+
+            List<String> page = createPage();
+            cache.preload(page);
+            for (String videoId : page) {
+                cache.get(videoId);
+            }
+
+            Assertions.assertEquals(1, cache.getLoadCount());
+            Assertions.assertEquals(0, cache.getMissCount());
+            Assertions.assertEquals(4999 * 2, cache.get("video9998")[0]);
+            Assertions.assertEquals(1, cache.get("video0")[1]);
+            Assertions.assertEquals(0, cache.get("unwatched1")[0]);
+        }
+    }
+
+    /**
+     * Loading the whole history (as the watched statuses used to be) against loading the page of
+     * cards about to be bound.  Only run with -Dbenchmark=true, as the timings depend on the machine.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkBindLookupLatency() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            createHistory(connection);
+
+            long start = System.nanoTime();
+            Map<String, long[]> wholeHistory = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT * FROM " + PlaybackStatusTable.TABLE_NAME)) {
+                while (resultSet.next()) {
+                    wholeHistory.put(resultSet.getString(1), new long[]{resultSet.getLong(2), resultSet.getLong(3)});
+                }
+            }
+            final long wholeHistoryNanos = System.nanoTime() - start;
+            Assertions.assertEquals(HISTORY_SIZE, wholeHistory.size());
+
+            BatchLoadingCache<long[]> cache = createStatusCache(connection);
+            List<String> page = createPage();
+            start = System.nanoTime();
+            cache.preload(page);
+            final long preloadNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                for (String videoId : page) {
+                    cache.get(videoId);
+                }
+            }
+            final long bindNanos = (System.nanoTime() - start) / (1000 * PAGE_SIZE);
+
+            System.out.printf("%d history rows: whole history %d ms, preload of %d cards %d us, lookup while binding %d ns%n",
+                    HISTORY_SIZE, wholeHistoryNanos / 1_000_000, PAGE_SIZE, preloadNanos / 1000, bindNanos);
+            Assertions.assertEquals(1, cache.getLoadCount());
+            Assertions.assertTrue(preloadNanos < wholeHistoryNanos, preloadNanos + " ns against " + wholeHistoryNanos);
+        }
+    }
+
+    /**
+     * A third of the videos were watched, the others were left midway.
+     */
+    private static void createHistory(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(PlaybackStatusTable.getCreateStatement());
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(PlaybackStatusTable.SAVE_STATUS)) {
+            for (int i = 0; i < HISTORY_SIZE; i++) {
+                statement.setString(1, "video" + i);
+                statement.setLong(2, i % 3 == 0 ? 0 : i);
+                statement.setInt(3, i % 3 == 0 ? 1 : 0);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        connection.commit();
+    }
+
+    /**
+     * Like PlaybackStatusDb does.
+     */
+    private static BatchLoadingCache<long[]> createStatusCache(Connection connection) {
+        return new BatchLoadingCache<>(keys -> {
+            Map<String, long[]> found = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(PlaybackStatusTable.getStatusQuery(keys.size()))) {
+                for (int i = 0; i < keys.size(); i++) {
+                    statement.setString(i + 1, keys.get(i));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        found.put(resultSet.getString(1), new long[]{resultSet.getLong(2), resultSet.getLong(3)});
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return found;
+        }, new long[]{0, 0}, 2000, 100);
+    }
+
+    /**
+     * A page of the grid:  half of the videos were watched.
+     */
+    private static List<String> createPage() {
+        List<String> page = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(i % 2 == 0 ? "video" + (i * 4999) : "unwatched" + i);
+        }
+        return page;
+    }
+}
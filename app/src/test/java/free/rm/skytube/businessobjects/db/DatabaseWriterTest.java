@@ -0,0 +1,259 @@
+package free.rm.skytube.businessobjects.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the group commit of {@link DatabaseWriter}, with concurrent writers on a file database.
+ */
+public class DatabaseWriterTest {
+
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 250;
+
+    @TempDir
+    File directory;
+
+    private Connection connection;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite:" + new File(directory, "writer.db").getPath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL");
+            for (String pragma : SQLiteConnectionConfig.getDefault().getPragmas()) {
+                statement.execute(pragma);
+            }
+            statement.execute("CREATE TABLE Positions (Id TEXT PRIMARY KEY, Position INTEGER)");
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testGroupCommit() throws Exception {
+        final DatabaseWriter<Connection> writer = new DatabaseWriter<>("test", new JdbcTransactions(connection));
+        final List<Exception> errors = new CopyOnWriteArrayList<>();
+        submitConcurrently(writer, errors, "video");
+
+        Assertions.assertTrue(errors.isEmpty(), errors.toString());
+        Assertions.assertEquals(THREADS * WRITES_PER_THREAD, countRows());
+        Assertions.assertEquals(THREADS * WRITES_PER_THREAD, writer.getCommandCount());
+        Assertions.assertTrue(writer.getTransactionCount() * 4 <= writer.getCommandCount(),
+                writer.getTransactionCount() + " transactions for " + writer.getCommandCount() + " writes");
+    }
+
+    @Test
+    void testFailingCommandIsIsolated() throws Exception {
+        // a long window, so that every command is in the same batch
+        final DatabaseWriter<Connection> writer = new DatabaseWriter<>("test", new JdbcTransactions(connection),
+                TimeUnit.MILLISECONDS.toNanos(200), 100);
+        final List<Exception> errors = new CopyOnWriteArrayList<>();
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(3);
+        writer.submit(db -> {
+            runs.incrementAndGet();
+            insert(db, "a", 1);
+        }, new LatchCallback(done, errors));
+        writer.submit(db -> {
+            runs.incrementAndGet();
+            // its first insert is rolled back with it
+            insert(db, "c", 2);
+            insert(db, "a", 2);
+        }, new LatchCallback(done, errors));
+        writer.submit(db -> {
+            runs.incrementAndGet();
+            insert(db, "b", 3);
+        }, new LatchCallback(done, errors));
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertEquals(2, countRows());
+        // a single transaction, and every command ran once
+        Assertions.assertEquals(1, writer.getTransactionCount());
+        Assertions.assertEquals(3, runs.get());
+    }
+
+    @Test
+    void testMaintenance() throws Exception {
+        final DatabaseWriter<Connection> writer = new DatabaseWriter<>("test", new JdbcTransactions(connection),
+                TimeUnit.MILLISECONDS.toNanos(200), 100);
+        final List<Exception> errors = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        writer.submit(db -> insert(db, "a", 1), new LatchCallback(done, errors));
+        // fails in a transaction
+        writer.submitMaintenance(db -> {
+            try (Statement statement = db.createStatement()) {
+                statement.execute("VACUUM");
+            }
+        }, new LatchCallback(done, errors));
+        writer.submit(db -> insert(db, "b", 2), new LatchCallback(done, errors));
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        Assertions.assertTrue(errors.isEmpty(), errors.toString());
+        Assertions.assertEquals(2, countRows());
+        // the commands before and after the VACUUM
+        Assertions.assertEquals(2, writer.getTransactionCount());
+    }
+
+    @Test
+    void testShutdown() throws Exception {
+        // a long window, so that the commands are still queued when the writer is shut down
+        final DatabaseWriter<Connection> writer = new DatabaseWriter<>("test", new JdbcTransactions(connection),
+                TimeUnit.MILLISECONDS.toNanos(200), 100);
+        final List<Exception> errors = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        writer.submit(db -> insert(db, "a", 1), new LatchCallback(done, errors));
+        writer.submit(db -> insert(db, "b", 2), new LatchCallback(done, errors));
+        writer.shutdown();
+
+        Assertions.assertEquals(1, done.getCount());
+        Assertions.assertEquals(2, countRows());
+        writer.submit(db -> insert(db, "c", 3), new LatchCallback(done, errors));
+        Assertions.assertEquals(0, done.getCount());
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertEquals(2, countRows());
+    }
+
+    private void submitConcurrently(DatabaseWriter<Connection> writer, List<Exception> errors, String prefix) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(THREADS * WRITES_PER_THREAD);
+        final Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                    final String id = prefix + thread + "_" + i;
+                    final long position = i;
+                    writer.submit(db -> insert(db, id, position), new LatchCallback(done, errors));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertTrue(done.await(30, TimeUnit.SECONDS), "Writes not committed");
+    }
+
+    private static void insert(Connection db, String id, long position) throws SQLException {
+        try (PreparedStatement statement = db.prepareStatement("INSERT INTO Positions VALUES (?, ?)")) {
+            statement.setString(1, id);
+            statement.setLong(2, position);
+            statement.executeUpdate();
+        }
+    }
+
+    private int countRows() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM Positions")) {
+            Assertions.assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static class JdbcTransactions implements DatabaseWriter.Transactions<Connection> {
+        private final Connection connection;
+
+        JdbcTransactions(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection open() {
+            return connection;
+        }
+
+        @Override
+        public void begin(Connection db) {
+            try {
+                db.setAutoCommit(false);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void commit(Connection db) {
+            try {
+                db.commit();
+                db.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void rollback(Connection db) {
+            try {
+                db.rollback();
+                db.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void savepoint(Connection db) {
+            execute(db, "SAVEPOINT command");
+        }
+
+        @Override
+        public void releaseSavepoint(Connection db) {
+            execute(db, "RELEASE command");
+        }
+
+        @Override
+        public void rollbackToSavepoint(Connection db) {
+            execute(db, "ROLLBACK TO command");
+            execute(db, "RELEASE command");
+        }
+
+        private static void execute(Connection db, String sql) {
+            try (Statement statement = db.createStatement()) {
+                statement.execute(sql);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class LatchCallback implements DatabaseWriter.Callback {
+        private final CountDownLatch latch;
+        private final List<Exception> errors;
+
+        LatchCallback(CountDownLatch latch, List<Exception> errors) {
+            this.latch = latch;
+            this.errors = errors;
+        }
+
+        @Override
+        public void onCommitted() {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailed(Exception e) {
+            errors.add(e);
+            latch.countDown();
+        }
+    }
+}
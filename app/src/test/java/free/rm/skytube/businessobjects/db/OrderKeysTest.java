@@ -0,0 +1,243 @@
+package free.rm.skytube.businessobjects.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that moving a bookmark only rewrites its own order, and that the keys are rarely spread out.
+ */
+public class OrderKeysTest {
+
+    private static final int BOOKMARKS = 5000;
+    private static final OrderKeys ORDER_KEYS = new OrderKeys(BookmarksTable.TABLE_NAME, BookmarksTable.COL_YOUTUBE_VIDEO_ID, BookmarksTable.COL_ORDER);
+
+    private Connection connection;
+    private int spreadCount;
+    private int updatedRows;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(BookmarksTable.getCreateStatement());
+            statement.execute(ORDER_KEYS.getIndexStatement());
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testKeyBetween() {
+        Assertions.assertEquals(OrderKeys.GAP, OrderKeys.getKeyBetween(null, null));
+        Assertions.assertEquals(5 + OrderKeys.GAP, OrderKeys.getKeyBetween(null, 5L));
+        Assertions.assertEquals(3, OrderKeys.getKeyBetween(6L, 1L));
+        Assertions.assertEquals(1, OrderKeys.getKeyBetween(2L, null));
+        Assertions.assertNull(OrderKeys.getKeyBetween(2L, 1L));
+        Assertions.assertNull(OrderKeys.getKeyBetween(1L, null));
+        Assertions.assertNull(OrderKeys.getKeyBetween(null, OrderKeys.MAX_KEY));
+    }
+
+    @Test
+    void testRandomMoves() throws SQLException {
+        // the bookmarks saved before the keys were sparse:  1 to n
+        List<String> displayed = new ArrayList<>();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + BookmarksTable.TABLE_NAME +
+                " (" + BookmarksTable.COL_YOUTUBE_VIDEO_ID + ", " + BookmarksTable.COL_ORDER + ") VALUES (?, ?)")) {
+            for (int i = 0; i < BOOKMARKS; i++) {
+                statement.setString(1, "video" + i);
+                statement.setInt(2, i + 1);
+                statement.executeUpdate();
+                displayed.add(0, "video" + i);
+            }
+        }
+        connection.commit();
+
+        final int moves = 2000;
+        moveRandomly(displayed, moves, new Random(42));
+
+        Assertions.assertEquals(displayed, readDisplayedOrder());
+        // the first move spreads out the legacy keys, after that a move writes one row
+        Assertions.assertTrue(spreadCount <= 1 + moves / 100, "spread out " + spreadCount + " times");
+        Assertions.assertTrue(updatedRows <= moves + spreadCount * BOOKMARKS);
+    }
+
+    /**
+     * The legacy rows may share an order, and are then displayed by descending id - which the moves
+     * and the spreading of the keys must keep, whatever the order of the rows in the table.
+     */
+    @Test
+    void testMovesAmongEqualKeys() throws SQLException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 90; i++) {
+            ids.add(String.format("video%02d", i));
+        }
+        Collections.shuffle(ids, new Random(7));
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + BookmarksTable.TABLE_NAME +
+                " (" + BookmarksTable.COL_YOUTUBE_VIDEO_ID + ", " + BookmarksTable.COL_ORDER + ") VALUES (?, ?)")) {
+            for (String id : ids) {
+                statement.setString(1, id);
+                statement.setInt(2, Integer.parseInt(id.substring(5)) / 3);
+                statement.executeUpdate();
+            }
+        }
+        connection.commit();
+        List<String> displayed = readDisplayedOrder();
+
+        moveRandomly(displayed, 200, new Random(3));
+
+        Assertions.assertEquals(displayed, readDisplayedOrder());
+        Assertions.assertTrue(spreadCount >= 1);
+    }
+
+    @Test
+    void testQueryPlans() throws SQLException {
+        for (String query : new String[]{ORDER_KEYS.lowerKeyQuery, ORDER_KEYS.highestKeyQuery,
+                BookmarksTable.FIRST_PAGE_QUERY, BookmarksTable.NEXT_PAGE_QUERY}) {
+            StringBuilder plan = new StringBuilder();
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + query)) {
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                    statement.setString(i, "1");
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString("detail")).append('\n');
+                    }
+                }
+            }
+            Assertions.assertTrue(plan.toString().contains("IDX_Bookmarks_Order_Index"), query + " -> " + plan);
+            Assertions.assertFalse(plan.toString().contains("TEMP B-TREE"), query + " -> " + plan);
+        }
+    }
+
+    /**
+     * The pages read by keyset, like BookmarksDb.getBookmarkedVideos, even with the equal orders of
+     * the legacy rows.
+     */
+    @Test
+    void testKeysetPages() throws SQLException {
+        List<String> expected = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + BookmarksTable.TABLE_NAME +
+                " (" + BookmarksTable.COL_YOUTUBE_VIDEO_ID + ", " + BookmarksTable.COL_ORDER + ") VALUES (?, ?)")) {
+            for (int i = 0; i < 95; i++) {
+                statement.setString(1, String.format("video%02d", i));
+                statement.setInt(2, i / 3);
+                statement.executeUpdate();
+                expected.add(0, String.format("video%02d", i));
+            }
+        }
+        List<String> ids = new ArrayList<>();
+        String[] last = null;
+        int rows;
+        do {
+            rows = 0;
+            try (PreparedStatement statement = connection.prepareStatement(last == null ? BookmarksTable.FIRST_PAGE_QUERY : BookmarksTable.NEXT_PAGE_QUERY)) {
+                if (last == null) {
+                    statement.setString(1, "10");
+                } else {
+                    statement.setString(1, last[1]);
+                    statement.setString(2, last[1]);
+                    statement.setString(3, last[0]);
+                    statement.setString(4, "10");
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows++;
+                        ids.add(resultSet.getString(1));
+                        last = new String[]{resultSet.getString(1), String.valueOf(resultSet.getLong(2))};
+                    }
+                }
+            }
+        } while (rows == 10);
+        Assertions.assertEquals(expected, ids);
+    }
+
+    private void moveRandomly(List<String> displayed, int moves, Random random) throws SQLException {
+        for (int i = 0; i < moves; i++) {
+            final String video = displayed.remove(random.nextInt(displayed.size()));
+            // a third of the moves go to the top, as the users tend to do
+            final int position = i % 3 == 0 ? 0 : random.nextInt(displayed.size() + 1);
+            displayed.add(position, video);
+            move(video, position > 0 ? displayed.get(position - 1) : null);
+        }
+    }
+
+    /**
+     * Like SQLiteOpenHelperEx.moveOrderedItem.
+     */
+    private void move(String id, String previousId) throws SQLException {
+        Long key = getKeyAfter(id, previousId);
+        if (key == null) {
+            spreadCount++;
+            List<String> ids = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(ORDER_KEYS.orderedIdsQuery)) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getString(1));
+                }
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                updateKey(ids.get(i), OrderKeys.getSpreadKey(i));
+            }
+            key = getKeyAfter(id, previousId);
+        }
+        updateKey(id, key);
+        connection.commit();
+    }
+
+    private Long getKeyAfter(String id, String previousId) throws SQLException {
+        if (previousId == null) {
+            return OrderKeys.getKeyBetween(null, queryForLong(ORDER_KEYS.highestKeyQuery, id));
+        }
+        final Long previousKey = queryForLong(ORDER_KEYS.keyQuery, previousId);
+        return OrderKeys.getKeyBetween(previousKey, queryForLong(ORDER_KEYS.lowerKeyQuery, String.valueOf(previousKey), id, String.valueOf(previousKey), previousId));
+    }
+
+    private Long queryForLong(String query, String... args) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < args.length; i++) {
+                statement.setString(i + 1, args[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        }
+    }
+
+    private void updateKey(String id, long key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(ORDER_KEYS.updateKey)) {
+            statement.setLong(1, key);
+            statement.setString(2, id);
+            updatedRows += statement.executeUpdate();
+        }
+    }
+
+    private List<String> readDisplayedOrder() throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT " + BookmarksTable.COL_YOUTUBE_VIDEO_ID + " FROM " +
+                     BookmarksTable.TABLE_NAME + " ORDER BY " + BookmarksTable.COL_ORDER + " DESC, " + BookmarksTable.COL_YOUTUBE_VIDEO_ID + " DESC")) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getString(1));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,129 @@
+package free.rm.skytube.businessobjects.db;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Checks that, with the write-ahead log and the connection PRAGMAs of {@link SQLiteOpenHelperEx},
+ * the readers aren't blocked by a long write transaction.
+ */
+public class SQLiteConnectionConfigTest {
+
+    private static final int ROWS = 1_000;
+    private static final int WRITTEN_ROWS = 50_000;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void testReadsDuringWriteWithWriteAheadLog() throws SQLException {
+        final String url = createDatabase(true);
+        try (Connection writer = openConnection(url);
+             Connection reader = openConnection(url)) {
+            writer.setAutoCommit(false);
+            // enough rows to spill the writer's cache into the log
+            insertRows(writer, WRITTEN_ROWS);
+
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertEquals(ROWS, countRows(reader));
+            }
+
+            writer.commit();
+            Assertions.assertEquals(ROWS + WRITTEN_ROWS, countRows(reader));
+        }
+    }
+
+    @Test
+    void testReadsBlockedWithRollbackJournal() throws SQLException {
+        final String url = createDatabase(false);
+        try (Connection writer = openConnection(url);
+             Connection reader = openConnection(url)) {
+            writer.setAutoCommit(false);
+            insertRows(writer, WRITTEN_ROWS);
+
+            Assertions.assertThrows(SQLException.class, () -> countRows(reader));
+            writer.rollback();
+        }
+    }
+
+    @Test
+    void testPragmas() throws SQLException {
+        final String url = createDatabase(true);
+        try (Connection connection = openConnection(url)) {
+            Assertions.assertEquals("wal", queryForString(connection, "PRAGMA journal_mode"));
+            // NORMAL
+            Assertions.assertEquals("1", queryForString(connection, "PRAGMA synchronous"));
+            Assertions.assertEquals("-" + SQLiteConnectionConfig.DEFAULT_CACHE_SIZE_KIB, queryForString(connection, "PRAGMA cache_size"));
+
+            // the switch to incremental auto-vacuum of SubscriptionsDb works with the log
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                statement.execute("VACUUM");
+            }
+            Assertions.assertEquals("2", queryForString(connection, "PRAGMA auto_vacuum"));
+            Assertions.assertNotNull(queryForString(connection, SQLiteConnectionConfig.getCheckpointStatement()));
+        }
+    }
+
+    private String createDatabase(boolean writeAheadLog) throws SQLException {
+        final String url = "jdbc:sqlite:" + new File(directory, "test.db").getPath();
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            if (writeAheadLog) {
+                // what SQLiteDatabase.enableWriteAheadLogging() does
+                statement.execute("PRAGMA journal_mode = WAL");
+            }
+            statement.execute("CREATE TABLE Videos (Id INTEGER PRIMARY KEY, Title TEXT)");
+            connection.setAutoCommit(false);
+            insertRows(connection, ROWS);
+            connection.commit();
+        }
+        return url;
+    }
+
+    /**
+     * Open a connection tuned like the ones of SQLiteOpenHelperEx from Android 11 - before, only
+     * the writer (primary) connection is.
+     */
+    private static Connection openConnection(String url) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : SQLiteConnectionConfig.getDefault().getPragmas()) {
+                // the others can be run with execSQL() before Android 11
+                Assertions.assertEquals(SQLiteConnectionConfig.returnsRow(pragma), statement.execute(pragma), pragma);
+            }
+            // fail straight away, instead of waiting for the lock
+            statement.execute("PRAGMA busy_timeout = 0");
+        }
+        return connection;
+    }
+
+    private static void insertRows(Connection connection, int rows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO Videos (Title) VALUES (?)")) {
+            for (int i = 0; i < rows; i++) {
+                statement.setString(1, "A video title, which is long enough to fill the pages " + i);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private static int countRows(Connection connection) throws SQLException {
+        return Integer.parseInt(queryForString(connection, "SELECT COUNT(*) FROM Videos"));
+    }
+
+    private static String queryForString(Connection connection, String query) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+}
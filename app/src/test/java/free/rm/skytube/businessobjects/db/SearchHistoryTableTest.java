@@ -0,0 +1,158 @@
+package free.rm.skytube.businessobjects.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks the scoring of the search history, and that the suggestions are read from the indexes.
+ */
+public class SearchHistoryTableTest {
+
+    private static final long DAY_MILLIS = 24 * 3600 * 1000L;
+    private static final long NOW = 1_650_000_000_000L;
+
+    private Connection connection;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(SearchHistoryTable.getCreateStatement());
+            for (String sql : SearchHistoryTable.getIndexStatements()) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testScoreOrder() {
+        // a search made today beats a single search made a month ago...
+        Assertions.assertTrue(SearchHistoryTable.getSearchWeight(NOW) > SearchHistoryTable.getSearchWeight(NOW - 30 * DAY_MILLIS));
+        // ... but not three searches made in the last couple of weeks
+        final double frequent = SearchHistoryTable.getSearchWeight(NOW - 14 * DAY_MILLIS) +
+                SearchHistoryTable.getSearchWeight(NOW - 13 * DAY_MILLIS) +
+                SearchHistoryTable.getSearchWeight(NOW - 12 * DAY_MILLIS);
+        Assertions.assertTrue(frequent > SearchHistoryTable.getSearchWeight(NOW));
+        Assertions.assertFalse(Double.isInfinite(SearchHistoryTable.getSearchWeight(NOW + 50 * 365 * DAY_MILLIS)));
+    }
+
+    @Test
+    void testSuggestions() throws SQLException {
+        search("Linux kernel", NOW - 40 * DAY_MILLIS);
+        search("linux desktop", NOW - 3 * DAY_MILLIS);
+        search("Lindy hop", NOW - 2 * DAY_MILLIS);
+        search("linux kernel", NOW - DAY_MILLIS);
+        search("Linux kernel", NOW - 20 * DAY_MILLIS);
+        search("Linux kernel", NOW - 10 * DAY_MILLIS);
+        search("\u00c9cole", NOW);
+
+        Assertions.assertEquals(Arrays.asList("Linux kernel", "linux kernel", "linux desktop"), suggestions("LINUX"));
+        Assertions.assertEquals(Arrays.asList("Linux kernel", "linux kernel", "Lindy hop", "linux desktop"), suggestions("lin"));
+        Assertions.assertEquals(Arrays.asList("\u00c9cole"), suggestions("\u00e9c"));
+        Assertions.assertEquals(Arrays.asList(), suggestions("lino"));
+        Assertions.assertEquals(Arrays.asList("Linux kernel", "\u00c9cole", "linux kernel", "Lindy hop", "linux desktop"), suggestions(""));
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT " + SearchHistoryTable.COL_SEARCH_COUNT + " FROM " +
+                     SearchHistoryTable.TABLE_NAME + " WHERE " + SearchHistoryTable.COL_SEARCH_TEXT + " = 'Linux kernel'")) {
+            Assertions.assertTrue(resultSet.next());
+            Assertions.assertEquals(3, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    void testSuggestionsCap() throws SQLException {
+        for (int i = 0; i < SearchHistoryDb.MAX_SUGGESTIONS * 3; i++) {
+            search("search " + i, NOW + i);
+        }
+        Assertions.assertEquals(SearchHistoryDb.MAX_SUGGESTIONS, suggestions("sea").size());
+        Assertions.assertEquals(SearchHistoryDb.MAX_SUGGESTIONS, suggestions("").size());
+        Assertions.assertEquals("search 29", suggestions("").get(0));
+    }
+
+    @Test
+    void testQueryPlans() throws SQLException {
+        final String topPlan = explain(SearchHistoryDb.TOP_SEARCHES_QUERY);
+        Assertions.assertTrue(topPlan.contains(SearchHistoryTable.IDX_SEARCH_SCORE), topPlan);
+        Assertions.assertFalse(topPlan.contains("TEMP B-TREE"), topPlan);
+
+        final String prefixPlan = explain(SearchHistoryDb.PREFIX_SEARCHES_QUERY);
+        Assertions.assertTrue(prefixPlan.contains("COVERING INDEX " + SearchHistoryTable.IDX_SEARCH_KEY_SCORE), prefixPlan);
+    }
+
+    /**
+     * Same as SearchHistoryDb.insertSearchText.
+     */
+    private void search(String text, long timestamp) throws SQLException {
+        final double weight = SearchHistoryTable.getSearchWeight(timestamp);
+        try (PreparedStatement update = connection.prepareStatement(SearchHistoryDb.UPDATE_SEARCH_TEXT)) {
+            update.setString(1, text);
+            update.setDouble(2, weight);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(SearchHistoryDb.INSERT_SEARCH_TEXT)) {
+            insert.setString(1, text);
+            insert.setDouble(2, weight);
+            insert.setString(3, SearchHistoryTable.toSearchKey(text));
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Same as SearchHistoryDb.getSearchCursor.
+     */
+    private List<String> suggestions(String text) throws SQLException {
+        final PreparedStatement statement;
+        if (text.length() <= 1) {
+            statement = connection.prepareStatement(SearchHistoryDb.TOP_SEARCHES_QUERY);
+        } else {
+            final String key = SearchHistoryTable.toSearchKey(text);
+            statement = connection.prepareStatement(SearchHistoryDb.PREFIX_SEARCHES_QUERY);
+            statement.setString(1, key);
+            statement.setString(2, SearchHistoryTable.getPrefixUpperBound(key));
+        }
+        List<String> texts = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                texts.add(resultSet.getString(SearchHistoryTable.COL_SEARCH_TEXT));
+            }
+        } finally {
+            statement.close();
+        }
+        return texts;
+    }
+
+    private String explain(String query) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + query)) {
+            for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                statement.setString(i, "a");
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString("detail")).append('\n');
+                }
+            }
+        }
+        return plan.toString();
+    }
+}
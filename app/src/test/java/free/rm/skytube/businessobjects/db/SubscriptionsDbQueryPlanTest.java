@@ -0,0 +1,279 @@
+package free.rm.skytube.businessobjects.db;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks, with <code>EXPLAIN QUERY PLAN</code>, that the hot queries on the SubsVideos table are
+ * answered through its indexes, instead of scanning the whole feed.
+ *
+ * <p>The plans come from the SQLite bundled with sqlite-jdbc, not from the one of the device, so
+ * they may differ in details between Android versions.</p>
+ */
+public class SubscriptionsDbQueryPlanTest {
+
+    private static final int CHANNELS = 500;
+    private static final int VIDEOS = 100_000;
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(SubscriptionsTable.getCreateStatement());
+            statement.execute(SubscriptionsVideosTable.getCreateStatement());
+            for (String index : SubscriptionsVideosTable.getIndexStatements()) {
+                statement.execute(index);
+            }
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement subs = connection.prepareStatement("INSERT INTO " + SubscriptionsTable.TABLE_NAME + " (" +
+                SubscriptionsTable.COL_CHANNEL_ID + ", " + SubscriptionsTable.COL_TITLE + ", " + SubscriptionsTable.COL_LAST_VISIT_TIME + ") VALUES (?, ?, 0)");
+             PreparedStatement videos = connection.prepareStatement("INSERT INTO " + SubscriptionsVideosTable.TABLE_NAME + " (" +
+                SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + ", " + SubscriptionsVideosTable.COL_CHANNEL_ID + ", " +
+                SubscriptionsVideosTable.COL_RETRIEVAL_TS + ", " + SubscriptionsVideosTable.COL_PUBLISH_TS + ") VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < CHANNELS; i++) {
+                subs.setString(1, "channel" + i);
+                subs.setString(2, "Channel " + i);
+                subs.executeUpdate();
+            }
+            for (int i = 0; i < VIDEOS; i++) {
+                videos.setString(1, "video" + i);
+                videos.setString(2, "channel" + (i % CHANNELS));
+                videos.setLong(3, 1_600_000_000_000L + i);
+                videos.setLong(4, publishTimestamp(i));
+                videos.executeUpdate();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @AfterAll
+    static void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testVideoIdsByChannel() throws SQLException {
+        assertNoFullScan(SubscriptionsDb.GET_VIDEO_IDS_BY_CHANNEL, "channel1");
+    }
+
+    @Test
+    void testVideoIdsByChannelToPublishTimestamp() throws SQLException {
+        assertNoFullScan(SubscriptionsDb.GET_VIDEO_IDS_BY_CHANNEL_TO_PUBLISH_TS, "channel1");
+    }
+
+    @Test
+    void testChannelHasNewVideo() throws SQLException {
+        // the unread count is read from the Subs table
+        assertVideosNotRead(SubscriptionsDb.CHANNEL_HAS_NEW_VIDEO_QUERY, "channel1");
+    }
+
+    @Test
+    void testSubscribedChannelInfo() throws SQLException {
+        // the latest video and the unread count are read from the Subs table
+        assertVideosNotRead(SubscriptionsDb.SUBSCRIBED_CHANNEL_INFO);
+    }
+
+    @Test
+    void testRefreshChannelVideoState() throws SQLException {
+        assertNoFullScan(SubscriptionsDb.REFRESH_CHANNEL_VIDEO_STATE, "channel1");
+    }
+
+    @Test
+    void testRebuildChannelVideoState() throws SQLException {
+        assertNoFullScan(SubscriptionsDb.REBUILD_CHANNEL_VIDEO_STATE);
+        assertNoFullScan(SubscriptionsDb.COUNT_INCONSISTENT_CHANNEL_VIDEO_STATE);
+    }
+
+    @Test
+    void testChannelVideoStateConsistency() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(SubscriptionsDb.REBUILD_CHANNEL_VIDEO_STATE);
+            Assertions.assertEquals(0, queryForInt(SubscriptionsDb.COUNT_INCONSISTENT_CHANNEL_VIDEO_STATE));
+            Assertions.assertEquals(VIDEOS / CHANNELS, queryForInt("SELECT " + SubscriptionsTable.COL_UNREAD_VIDEO_COUNT +
+                    " FROM " + SubscriptionsTable.TABLE_NAME + " WHERE " + SubscriptionsTable.COL_CHANNEL_ID + " = 'channel1'"));
+
+            statement.executeUpdate("UPDATE " + SubscriptionsTable.TABLE_NAME + " SET " + SubscriptionsTable.COL_LATEST_VIDEO_TS + " = NULL, " +
+                    SubscriptionsTable.COL_UNREAD_VIDEO_COUNT + " = 0 WHERE " + SubscriptionsTable.COL_CHANNEL_ID + " IN ('channel1', 'channel2')");
+            Assertions.assertEquals(2, queryForInt(SubscriptionsDb.COUNT_INCONSISTENT_CHANNEL_VIDEO_STATE));
+
+            try (PreparedStatement refresh = connection.prepareStatement(SubscriptionsDb.REFRESH_CHANNEL_VIDEO_STATE)) {
+                refresh.setString(1, "channel1");
+                refresh.executeUpdate();
+            }
+            Assertions.assertEquals(1, queryForInt(SubscriptionsDb.COUNT_INCONSISTENT_CHANNEL_VIDEO_STATE));
+
+            statement.executeUpdate(SubscriptionsDb.REBUILD_CHANNEL_VIDEO_STATE);
+            Assertions.assertEquals(0, queryForInt(SubscriptionsDb.COUNT_INCONSISTENT_CHANNEL_VIDEO_STATE));
+        }
+    }
+
+    @Test
+    void testRetentionQueries() throws SQLException {
+        assertNoFullScan(SubscriptionsDb.VIDEO_IDS_PUBLISHED_BEFORE, "1600001000000");
+        assertNoFullScan(SubscriptionsDb.CHANNELS_WITH_MORE_VIDEOS_THAN, "150");
+        assertNoFullScan(SubscriptionsDb.CHANNEL_VIDEO_IDS_AFTER_NEWEST, "channel1", "150");
+        assertNoFullScan(SubscriptionsDb.VIDEO_IDS_AFTER_NEWEST, "90000");
+
+        Assertions.assertEquals(1000, queryForStrings(SubscriptionsDb.VIDEO_IDS_PUBLISHED_BEFORE, "1600001000000").size());
+        Assertions.assertEquals(CHANNELS, queryForStrings(SubscriptionsDb.CHANNELS_WITH_MORE_VIDEOS_THAN, "150").size());
+        Assertions.assertEquals(0, queryForStrings(SubscriptionsDb.CHANNELS_WITH_MORE_VIDEOS_THAN, String.valueOf(VIDEOS / CHANNELS)).size());
+        // the oldest videos of the channel go first
+        final List<String> channelVideos = queryForStrings(SubscriptionsDb.CHANNEL_VIDEO_IDS_AFTER_NEWEST, "channel1", "150");
+        Assertions.assertEquals(VIDEOS / CHANNELS - 150, channelVideos.size());
+        Assertions.assertTrue(channelVideos.contains("video1"));
+        Assertions.assertFalse(channelVideos.contains("video" + (VIDEOS - CHANNELS + 1)));
+        final List<String> videos = queryForStrings(SubscriptionsDb.VIDEO_IDS_AFTER_NEWEST, "90000");
+        Assertions.assertEquals(VIDEOS - 90000, videos.size());
+        Assertions.assertEquals("video" + (VIDEOS - 90000 - 1), videos.get(0));
+    }
+
+    @Test
+    void testRetentionHorizonQueries() throws SQLException {
+        assertNoFullScan(SubscriptionsDb.CHANNEL_OLDEST_KEPT_PUBLISH_TS, "channel1", "150");
+        assertNoFullScan(SubscriptionsDb.OLDEST_KEPT_PUBLISH_TS, "90000");
+
+        // the videos just older than these are the newest ones the retention queries return
+        Assertions.assertEquals(Collections.singletonList(String.valueOf(publishTimestamp(VIDEOS - CHANNELS + 1 - 149 * CHANNELS))),
+                queryForStrings(SubscriptionsDb.CHANNEL_OLDEST_KEPT_PUBLISH_TS, "channel1", "150"));
+        Assertions.assertEquals(Collections.singletonList(String.valueOf(publishTimestamp(VIDEOS - 90000))),
+                queryForStrings(SubscriptionsDb.OLDEST_KEPT_PUBLISH_TS, "90000"));
+        // fewer videos than the limit
+        Assertions.assertTrue(queryForStrings(SubscriptionsDb.CHANNEL_OLDEST_KEPT_PUBLISH_TS, "channel1", "500").isEmpty());
+    }
+
+    @Test
+    void testFirstSubscriptionVideoPage() throws SQLException {
+        assertNoFullScan(videoPageQuery(null));
+    }
+
+    @Test
+    void testNextSubscriptionVideoPage() throws SQLException {
+        assertNoFullScan(videoPageQuery(SubscriptionsDb.VIDEO_PAGE_AFTER_SELECTION), "1600000050000000", "1600000050000000", "video50000");
+    }
+
+    private static long publishTimestamp(int video) {
+        return 1_600_000_000_000L + video * 1000L;
+    }
+
+    private static String videoPageQuery(String selection) {
+        return "SELECT " + String.join(",", SubscriptionsVideosTable.ALL_COLUMNS_FOR_FEED_CARD) +
+                " FROM " + SubscriptionsVideosTable.TABLE_NAME +
+                (selection != null ? " WHERE " + selection : "") +
+                " ORDER BY " + SubscriptionsDb.VIDEO_PAGE_ORDER_BY + " LIMIT 20";
+    }
+
+    private static int queryForInt(String query) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            Assertions.assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static List<String> queryForStrings(String query, String... args) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < args.length; i++) {
+                statement.setString(i + 1, args[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    values.add(resultSet.getString(1));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Assert that the SubsVideos table is only ever searched through an index, and that the result
+     * is never sorted in a temporary b-tree.
+     */
+    private static void assertNoFullScan(String query, String... args) throws SQLException {
+        final List<String> plan = queryPlan(query, args);
+        Assertions.assertFalse(plan.isEmpty(), "No query plan for " + query);
+        boolean videosRead = false;
+        for (String step : plan) {
+            if (isVideosStep(step, query)) {
+                videosRead = true;
+                Assertions.assertTrue(step.contains(" USING "), "Full table scan in " + plan + " for " + query);
+            }
+            Assertions.assertFalse(step.contains("TEMP B-TREE"), "Sorting without index in " + plan + " for " + query);
+        }
+        Assertions.assertTrue(videosRead, "SubsVideos not read in " + plan + " for " + query);
+    }
+
+    private static void assertVideosNotRead(String query, String... args) throws SQLException {
+        final List<String> plan = queryPlan(query, args);
+        Assertions.assertFalse(plan.isEmpty(), "No query plan for " + query);
+        for (String step : plan) {
+            Assertions.assertFalse(isVideosStep(step, query), "SubsVideos read in " + plan + " for " + query);
+        }
+    }
+
+    private static List<String> queryPlan(String query, String... args) throws SQLException {
+        final List<String> plan = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + query)) {
+            for (int i = 0; i < args.length; i++) {
+                statement.setString(i + 1, args[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.add(resultSet.getString("detail"));
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return True if the step scans or searches the SubsVideos table - which the newer SQLite
+     *          versions only name by its alias in the query (e.g. "SCAN videos").
+     */
+    private static boolean isVideosStep(String step, String query) {
+        final Set<String> names = new HashSet<>();
+        names.add(SubscriptionsVideosTable.TABLE_NAME);
+        final Matcher alias = Pattern.compile("\\b" + SubscriptionsVideosTable.TABLE_NAME + "\\s+(?:AS\\s+)?(\\w+)",
+                Pattern.CASE_INSENSITIVE).matcher(query);
+        while (alias.find()) {
+            names.add(alias.group(1));
+        }
+        final String[] words = step.split("\\s+");
+        if (words.length < 2 || !(words[0].equals("SCAN") || words[0].equals("SEARCH"))) {
+            return false;
+        }
+        // "SCAN TABLE SubsVideos AS videos ..." or "SEARCH videos USING ..."
+        for (int i = 1; i < Math.min(words.length, 5); i++) {
+            if (words[i].equals("USING")) {
+                break;
+            }
+            if (names.contains(words[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
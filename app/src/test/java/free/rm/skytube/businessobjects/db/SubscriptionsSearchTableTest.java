@@ -0,0 +1,181 @@
+package free.rm.skytube.businessobjects.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks the full-text search over the subscribed channels and their videos, and that the FTS
+ * tables follow the changes of their content tables.
+ */
+public class SubscriptionsSearchTableTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(SubscriptionsTable.getCreateStatement());
+            statement.execute(SubscriptionsVideosTable.getCreateStatement());
+            for (String sql : SubscriptionsVideosTable.getIndexStatements()) {
+                statement.execute(sql);
+            }
+            for (String sql : SubscriptionsSearchTable.getCreateStatements()) {
+                statement.execute(sql);
+            }
+        }
+        insertChannel("linux", "Linux Foundation");
+        insertChannel("cooking", "Cooking with Linus");
+        insertVideo("a", "linux", "Linux Foundation", "Kernel hacking", 5);
+        insertVideo("b", "cooking", "Cooking with Linus", "Pasta al pomodoro", 4);
+        insertVideo("c", "linux", "Linux Foundation", "Linux on the desktop", 3);
+        insertVideo("d", "cooking", "Cooking with Linus", "Linguine for beginners", 2);
+        insertVideo("e", "linux", "Linux Foundation", "Containers", 1);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testMatchExpression() {
+        Assertions.assertEquals("linux* kernel*", SubscriptionsSearchTable.toMatchExpression(" Linux, \"KERNEL\" ", null));
+        Assertions.assertEquals("Title:or* Title:not*", SubscriptionsSearchTable.toMatchExpression("OR -NOT", "Title"));
+        Assertions.assertEquals("caf\u00c9*", SubscriptionsSearchTable.toMatchExpression("caf\u00c9", null));
+        Assertions.assertNull(SubscriptionsSearchTable.toMatchExpression(" *\"- ", null));
+        Assertions.assertNull(SubscriptionsSearchTable.toMatchExpression(null, null));
+    }
+
+    @Test
+    void testSearchRanksTitleMatchesFirst() throws SQLException {
+        Assertions.assertEquals(Arrays.asList("c", "d", "a", "b", "e"), searchAll("lin", 20));
+        Assertions.assertEquals(Arrays.asList("c", "a", "e"), searchAll("linux", 20));
+        Assertions.assertEquals(Arrays.asList("b", "d"), searchAll("cook li", 20));
+        Assertions.assertEquals(Arrays.asList("b"), searchAll("pomodoro", 20));
+    }
+
+    @Test
+    void testSearchPages() throws SQLException {
+        Assertions.assertEquals(searchAll("lin", 20), searchAll("lin", 2));
+        Assertions.assertEquals(searchAll("lin", 20), searchAll("lin", 1));
+    }
+
+    @Test
+    void testTriggers() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE " + SubscriptionsVideosTable.TABLE_NAME + " SET " + SubscriptionsVideosTable.COL_TITLE +
+                    " = 'Pizza napoletana' WHERE " + SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " = 'b'");
+            statement.executeUpdate("DELETE FROM " + SubscriptionsVideosTable.TABLE_NAME + " WHERE " +
+                    SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + " = 'c'");
+        }
+        Assertions.assertEquals(Arrays.asList(), searchAll("pomodoro", 20));
+        Assertions.assertEquals(Arrays.asList("b"), searchAll("pizza", 20));
+        Assertions.assertEquals(Arrays.asList("a", "e"), searchAll("linux", 20));
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SubscriptionsSearchTable.getRebuildStatements()) {
+                statement.execute(sql);
+            }
+        }
+        Assertions.assertEquals(Arrays.asList("a", "e"), searchAll("linux", 20));
+    }
+
+    @Test
+    void testChannelSearch() throws SQLException {
+        Assertions.assertEquals(Arrays.asList("cooking", "linux"), searchChannels("lin"));
+        Assertions.assertEquals(Arrays.asList("linux"), searchChannels("foundation"));
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE " + SubscriptionsTable.TABLE_NAME + " SET " + SubscriptionsTable.COL_TITLE +
+                    " = 'Baking' WHERE " + SubscriptionsTable.COL_CHANNEL_ID + " = 'cooking'");
+            statement.executeUpdate("DELETE FROM " + SubscriptionsTable.TABLE_NAME + " WHERE " +
+                    SubscriptionsTable.COL_CHANNEL_ID + " = 'linux'");
+        }
+        Assertions.assertEquals(Arrays.asList(), searchChannels("lin"));
+        Assertions.assertEquals(Arrays.asList("cooking"), searchChannels("bak"));
+    }
+
+    /**
+     * Run the feed search page by page, like SubscriptionsDb.searchSubscriptionVideoPage.
+     */
+    private List<String> searchAll(String text, int pageSize) throws SQLException {
+        final String rank = SubscriptionsSearchTable.toMatchExpression(text, SubscriptionsVideosTable.COL_TITLE);
+        final String filter = SubscriptionsSearchTable.toMatchExpression(text, null);
+        List<String> ids = new ArrayList<>();
+        String[] last = null;
+        while (true) {
+            int found = 0;
+            try (PreparedStatement statement = connection.prepareStatement(SubscriptionsDb.getFeedSearchQuery(true, last != null, pageSize))) {
+                statement.setString(1, rank);
+                statement.setString(2, filter);
+                if (last != null) {
+                    for (int i = 0; i < last.length; i++) {
+                        statement.setString(i + 3, last[i]);
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        found++;
+                        ids.add(resultSet.getString(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID));
+                        last = new String[]{resultSet.getString("Search_Rank"),
+                                resultSet.getString(SubscriptionsVideosTable.COL_PUBLISH_TS),
+                                resultSet.getString(SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID)};
+                    }
+                }
+            }
+            if (found < pageSize) {
+                return ids;
+            }
+        }
+    }
+
+    private List<String> searchChannels(String text) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SubscriptionsDb.SUBSCRIBED_CHANNEL_INFO +
+                SubscriptionsDb.SUBSCRIBED_CHANNEL_MATCH_TITLE + " ORDER BY " + SubscriptionsTable.COL_CHANNEL_ID)) {
+            statement.setString(1, SubscriptionsSearchTable.toMatchExpression(text, null));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getString(SubscriptionsTable.COL_CHANNEL_ID));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void insertChannel(String id, String title) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + SubscriptionsTable.TABLE_NAME + " (" +
+                SubscriptionsTable.COL_CHANNEL_ID + ", " + SubscriptionsTable.COL_TITLE + ") VALUES (?, ?)")) {
+            statement.setString(1, id);
+            statement.setString(2, title);
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertVideo(String id, String channelId, String channelName, String title, long publishTs) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + SubscriptionsVideosTable.TABLE_NAME + " (" +
+                SubscriptionsVideosTable.COL_YOUTUBE_VIDEO_ID + ", " + SubscriptionsVideosTable.COL_CHANNEL_ID + ", " +
+                SubscriptionsVideosTable.COL_CHANNEL_NAME + ", " + SubscriptionsVideosTable.COL_TITLE + ", " +
+                SubscriptionsVideosTable.COL_PUBLISH_TS + ") VALUES (?, ?, ?, ?, ?)")) {
+            statement.setString(1, id);
+            statement.setString(2, channelId);
+            statement.setString(3, channelName);
+            statement.setString(4, title);
+            statement.setLong(5, publishTs);
+            statement.executeUpdate();
+        }
+    }
+}